@@ -0,0 +1,56 @@
+package pl.wsb.fitnesstracker.analytics.api;
+
+/**
+ * Wymiar, po którym grupowane są treningi w zapytaniach analitycznych.
+ * Przedziały czasu wyznaczane są według czasu zakończenia treningu w strefie UTC.
+ */
+public enum AnalyticsDimension {
+
+    /**
+     * Typ aktywności, np. {@code RUNNING}.
+     */
+    ACTIVITY_TYPE(4),
+
+    /**
+     * Dzień, np. {@code 2024-05-01}.
+     */
+    DAY(32),
+
+    /**
+     * Tydzień ISO-8601, np. {@code 2024-W18}.
+     */
+    WEEK(32),
+
+    /**
+     * Miesiąc, np. {@code 2024-05}.
+     */
+    MONTH(24),
+
+    /**
+     * Rok, np. {@code 2024}.
+     */
+    YEAR(20),
+
+    /**
+     * Dziesięcioletni przedział obecnego wieku użytkownika, np. {@code 30-39}.
+     */
+    AGE_BUCKET(8),
+
+    /**
+     * Identyfikator użytkownika.
+     */
+    USER(32);
+
+    private final int bits;
+
+    AnalyticsDimension(int bits) {
+        this.bits = bits;
+    }
+
+    /**
+     * Liczba bitów klucza grupy zajmowana przez wymiar. Suma dla wszystkich wymiarów zapytania nie może przekroczyć 64.
+     */
+    public int getBits() {
+        return bits;
+    }
+}
@@ -0,0 +1,23 @@
+package pl.wsb.fitnesstracker.analytics.api;
+
+import java.util.Map;
+
+/**
+ * Zagregowane wartości jednej grupy treningów.
+ *
+ * @param key             wartości wymiarów grupy w kolejności z zapytania
+ * @param trainings       liczba treningów
+ * @param totalDistance   suma dystansów
+ * @param averageDistance średni dystans
+ * @param averageSpeed    średnia z prędkości średnich treningów
+ * @param totalMinutes    łączny czas trwania w minutach
+ */
+public record AnalyticsGroupDto(
+        Map<AnalyticsDimension, String> key,
+        long trainings,
+        double totalDistance,
+        double averageDistance,
+        double averageSpeed,
+        long totalMinutes
+) {
+}
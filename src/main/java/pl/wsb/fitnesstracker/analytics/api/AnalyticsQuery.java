@@ -0,0 +1,25 @@
+package pl.wsb.fitnesstracker.analytics.api;
+
+import jakarta.annotation.Nullable;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Zapytanie agregujące treningi: wymiary grupowania oraz opcjonalne filtry.
+ *
+ * @param groupBy      wymiary grupowania w kolejności kluczy wyniku (może być puste - jedna grupa dla wszystkich treningów)
+ * @param activityType tylko treningi danego typu lub {@code null}
+ * @param userId       tylko treningi danego użytkownika lub {@code null}
+ * @param from         tylko treningi zakończone tego dnia (UTC) lub później, albo {@code null}
+ * @param to           tylko treningi zakończone przed tym dniem (UTC), albo {@code null}
+ */
+public record AnalyticsQuery(
+        List<AnalyticsDimension> groupBy,
+        @Nullable ActivityType activityType,
+        @Nullable Long userId,
+        @Nullable LocalDate from,
+        @Nullable LocalDate to
+) {
+}
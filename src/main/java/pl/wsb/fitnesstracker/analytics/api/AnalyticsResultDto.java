@@ -0,0 +1,17 @@
+package pl.wsb.fitnesstracker.analytics.api;
+
+import java.util.List;
+
+/**
+ * Wynik zapytania analitycznego.
+ *
+ * @param groupBy          wymiary grupowania
+ * @param matchedTrainings liczba treningów spełniających filtry
+ * @param groups           grupy uporządkowane rosnąco po kolejnych wymiarach
+ */
+public record AnalyticsResultDto(
+        List<AnalyticsDimension> groupBy,
+        long matchedTrainings,
+        List<AnalyticsGroupDto> groups
+) {
+}
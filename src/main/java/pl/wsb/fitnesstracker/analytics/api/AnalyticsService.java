@@ -0,0 +1,21 @@
+package pl.wsb.fitnesstracker.analytics.api;
+
+/**
+ * Serwis odpowiadający na zapytania analityczne o treningi (grupowanie i filtrowanie z agregacją).
+ *
+ * <p>
+ * Zapytania wykonywane są na kolumnowej kopii tabeli treningów w pamięci, bez ładowania encji z bazy danych.
+ * </p>
+ */
+public interface AnalyticsService {
+
+    /**
+     * Agreguje treningi według zapytania.
+     *
+     * @param query wymiary grupowania i filtry
+     * @return grupy z zagregowanymi wartościami
+     * @throws pl.wsb.fitnesstracker.exception.api.BusinessException jeśli zapytanie jest niepoprawne
+     *                                                               lub daje zbyt wiele grup
+     */
+    AnalyticsResultDto aggregate(AnalyticsQuery query);
+}
@@ -0,0 +1,50 @@
+package pl.wsb.fitnesstracker.analytics.internal;
+
+import jakarta.annotation.Nullable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import pl.wsb.fitnesstracker.analytics.api.AnalyticsDimension;
+import pl.wsb.fitnesstracker.analytics.api.AnalyticsQuery;
+import pl.wsb.fitnesstracker.analytics.api.AnalyticsResultDto;
+import pl.wsb.fitnesstracker.analytics.api.AnalyticsService;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * REST controller exposing group-by aggregations over trainings.
+ */
+@RestController
+@RequestMapping("/v1/analytics")
+@RequiredArgsConstructor
+public class AnalyticsController {
+
+    private final AnalyticsService analyticsService;
+
+    /**
+     * Aggregates trainings grouped by the given dimensions, e.g.
+     * {@code /v1/analytics/trainings?groupBy=ACTIVITY_TYPE,MONTH,AGE_BUCKET&from=2024-01-01}.
+     *
+     * @param groupBy grouping dimensions in the order of the group keys (none for a single total)
+     * @param activityType only trainings of this activity type
+     * @param userId only trainings of this user
+     * @param from only trainings finished on this UTC day or later
+     * @param to only trainings finished before this UTC day
+     * @return HTTP 200 with the groups and their count, total and average distance, average speed and total time
+     */
+    @GetMapping("/trainings")
+    public ResponseEntity<AnalyticsResultDto> aggregateTrainings(
+            @RequestParam(defaultValue = "") List<AnalyticsDimension> groupBy,
+            @RequestParam(required = false) @Nullable ActivityType activityType,
+            @RequestParam(required = false) @Nullable Long userId,
+            @RequestParam(required = false) @Nullable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @Nullable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(analyticsService.aggregate(new AnalyticsQuery(groupBy, activityType, userId, from, to)));
+    }
+}
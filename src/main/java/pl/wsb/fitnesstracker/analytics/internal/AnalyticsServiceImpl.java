@@ -0,0 +1,37 @@
+package pl.wsb.fitnesstracker.analytics.internal;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import pl.wsb.fitnesstracker.analytics.api.AnalyticsQuery;
+import pl.wsb.fitnesstracker.analytics.api.AnalyticsResultDto;
+import pl.wsb.fitnesstracker.analytics.api.AnalyticsService;
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+/**
+ * Implementation of the {@link AnalyticsService} answering queries from the {@link TrainingColumnStore}.
+ */
+@Service
+@RequiredArgsConstructor
+class AnalyticsServiceImpl implements AnalyticsService {
+
+    private final TrainingColumnStore columnStore;
+
+    /**
+     * Validates the query and aggregates the trainings. Ages of users are computed for the current UTC day.
+     *
+     * @param query grouping dimensions and filters
+     * @return groups with aggregated values
+     * @throws BusinessException if the time range is empty, the dimensions are too many or the query yields too many groups
+     */
+    @Override
+    public AnalyticsResultDto aggregate(AnalyticsQuery query) {
+        if (query.from() != null && query.to() != null && !query.from().isBefore(query.to())) {
+            throw new BusinessException("from must be before to");
+        }
+        return columnStore.aggregate(query, LocalDate.now(Clock.system(ZoneOffset.UTC)));
+    }
+}
@@ -0,0 +1,595 @@
+package pl.wsb.fitnesstracker.analytics.internal;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import pl.wsb.fitnesstracker.analytics.api.AnalyticsDimension;
+import pl.wsb.fitnesstracker.analytics.api.AnalyticsGroupDto;
+import pl.wsb.fitnesstracker.analytics.api.AnalyticsQuery;
+import pl.wsb.fitnesstracker.analytics.api.AnalyticsResultDto;
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+import pl.wsb.fitnesstracker.training.api.Training;
+import pl.wsb.fitnesstracker.training.api.TrainingChangedEvent;
+import pl.wsb.fitnesstracker.training.api.TrainingProvider;
+import pl.wsb.fitnesstracker.training.api.TrainingRowDto;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+import pl.wsb.fitnesstracker.transaction.api.TransactionBatch;
+import pl.wsb.fitnesstracker.user.api.User;
+import pl.wsb.fitnesstracker.user.api.UserChangedEvent;
+import pl.wsb.fitnesstracker.user.api.UserDto;
+import pl.wsb.fitnesstracker.user.api.UserProvider;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.IsoFields;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * In-memory, column-oriented copy of the {@code trainings} table used for analytical aggregations.
+ *
+ * <p>
+ * Every training attribute lives in its own primitive array ({@code long[]} epoch millis, {@code double[]} distance
+ * and speed, {@code byte[]} activity ordinal, {@code int[]} dense user index), so a group-by query is a single
+ * sequential scan over a few arrays with no entity, boxing or per-row allocation. User attributes are kept
+ * in separate columns addressed by the dense user index. Rows are appended in training ID order and located
+ * by binary search; the few rows written out of order (concurrent transactions) are tracked in a small map
+ * until the next compaction. Deleted rows are marked in a bit set and dropped by compaction once they make up
+ * half of the store.
+ * </p>
+ *
+ * <p>
+ * The store is loaded on startup and kept current from {@link TrainingChangedEvent} and {@link UserChangedEvent}.
+ * The changes of a transaction are collected and applied under a single write lock once it commits,
+ * so rolled-back writes never reach the store.
+ * </p>
+ */
+@Component
+@Slf4j
+class TrainingColumnStore {
+
+    /**
+     * Maximum number of groups a single query may produce.
+     */
+    static final int MAX_GROUPS = 10_000;
+
+    /**
+     * Heap used by one training row across all columns.
+     */
+    static final long ROW_BYTES = 8 + 8 + 8 + 8 + 8 + 1 + 4;
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MIN_ROWS_TO_COMPACT = 1024;
+    private static final int MAX_OUT_OF_ORDER_ROWS = 4096;
+    private static final int UNKNOWN_BIRTH_DAY = Integer.MIN_VALUE;
+    private static final long DAY_MILLIS = 86_400_000L;
+    private static final ActivityType[] ACTIVITY_TYPES = ActivityType.values();
+
+    private final TrainingProvider trainingProvider;
+    private final UserProvider userProvider;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TransactionBatch<Pending> pending = TransactionBatch.afterCommit(Pending::new, this::apply);
+
+    private long[] trainingIds = new long[INITIAL_CAPACITY];
+    private long[] startTimes = new long[INITIAL_CAPACITY];
+    private long[] endTimes = new long[INITIAL_CAPACITY];
+    private double[] distances = new double[INITIAL_CAPACITY];
+    private double[] speeds = new double[INITIAL_CAPACITY];
+    private byte[] activities = new byte[INITIAL_CAPACITY];
+    private int[] users = new int[INITIAL_CAPACITY];
+    private final BitSet deleted = new BitSet();
+    private final Map<Long, Integer> outOfOrderRows = new HashMap<>();
+    private int rowCount;
+    private int sortedCount;
+    private int deletedCount;
+
+    private long[] userIds = new long[INITIAL_CAPACITY];
+    private int[] birthDays = new int[INITIAL_CAPACITY];
+    private final Map<Long, Integer> userIndexes = new HashMap<>();
+    private int userCount;
+
+    TrainingColumnStore(TrainingProvider trainingProvider, UserProvider userProvider, MeterRegistry meterRegistry) {
+        this.trainingProvider = trainingProvider;
+        this.userProvider = userProvider;
+        Gauge.builder("analytics.trainings.rows", this, TrainingColumnStore::size)
+                .description("Number of trainings in the columnar analytics store")
+                .register(meterRegistry);
+        Gauge.builder("analytics.trainings.memory", this, TrainingColumnStore::estimatedBytes)
+                .description("Heap held by the columns of the analytics store")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    void rebuild() {
+        lock.writeLock().lock();
+        try {
+            clear();
+            try (Stream<UserDto> rows = userProvider.streamAllUsers()) {
+                rows.forEach(user -> putUser(user.id(), user.birthdate()));
+            }
+            try (Stream<TrainingRowDto> rows = trainingProvider.streamAllRows()) {
+                rows.forEach(row -> putTraining(row.id(), row.userId(), row.startTime().getTime(), row.endTime().getTime(),
+                        row.activityType(), row.distance(), row.averageSpeed()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Analytics store loaded with {} trainings of {} users", size(), userCount);
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return rowCount - deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            return trainingIds.length * ROW_BYTES + userIds.length * (8L + 4) + deleted.size() / 8;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Aggregates the trainings matching the query filters.
+     *
+     * @param query grouping dimensions and filters
+     * @param today day the age of users is computed for
+     * @return groups ordered by their keys
+     * @throws BusinessException if the dimensions do not fit into the group key or the query yields too many groups
+     */
+    AnalyticsResultDto aggregate(AnalyticsQuery query, LocalDate today) {
+        List<AnalyticsDimension> dimensions = query.groupBy().stream().distinct().toList();
+        int keyBits = dimensions.stream().mapToInt(AnalyticsDimension::getBits).sum();
+        if (keyBits > Long.SIZE) {
+            throw new BusinessException("Too many grouping dimensions: %s".formatted(dimensions));
+        }
+        long from = query.from() != null ? query.from().atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli() : Long.MIN_VALUE;
+        long to = query.to() != null ? query.to().atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli() : Long.MAX_VALUE;
+        int activity = query.activityType() != null ? query.activityType().ordinal() : -1;
+
+        lock.readLock().lock();
+        try {
+            int user = -1;
+            if (query.userId() != null) {
+                Integer index = userIndexes.get(query.userId());
+                if (index == null) {
+                    return new AnalyticsResultDto(dimensions, 0, List.of());
+                }
+                user = index;
+            }
+            KeyEncoder encoder = new KeyEncoder(dimensions.toArray(AnalyticsDimension[]::new),
+                    dimensions.contains(AnalyticsDimension.AGE_BUCKET) ? ageBuckets(today) : null);
+            GroupTable groups = new GroupTable();
+            long matched = 0;
+            for (int row = 0; row < rowCount; row++) {
+                long end = endTimes[row];
+                if (end < from || end >= to || (activity >= 0 && activities[row] != activity)
+                        || (user >= 0 && users[row] != user) || deleted.get(row)) {
+                    continue;
+                }
+                groups.add(encoder.encode(row), distances[row], speeds[row], end - startTimes[row]);
+                matched++;
+            }
+            return new AnalyticsResultDto(dimensions, matched, groups.toDtos(dimensions));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener
+    void onTrainingChanged(TrainingChangedEvent event) {
+        Training training = event.training();
+        TrainingRowDto row = event.change() == TrainingChangedEvent.Change.DELETED ? null : toRow(training);
+        pending.add(batch -> batch.trainings.put(training.getId(), row));
+    }
+
+    @EventListener
+    void onUserChanged(UserChangedEvent event) {
+        if (event.change() == UserChangedEvent.Change.DELETED) {
+            return;
+        }
+        User user = event.user();
+        pending.add(batch -> batch.birthdates.put(user.getId(), user.getBirthdate()));
+    }
+
+    private String label(AnalyticsDimension dimension, long code) {
+        return switch (dimension) {
+            case ACTIVITY_TYPE -> ACTIVITY_TYPES[(int) code].name();
+            case DAY -> LocalDate.ofEpochDay((int) (code ^ 0x8000_0000L)).toString();
+            case WEEK -> {
+                LocalDate monday = LocalDate.ofEpochDay((int) (code ^ 0x8000_0000L));
+                yield "%d-W%02d".formatted(monday.get(IsoFields.WEEK_BASED_YEAR), monday.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+            }
+            case MONTH -> {
+                long month = code - (1 << 23);
+                yield "%04d-%02d".formatted(Math.floorDiv(month, 12), Math.floorMod(month, 12) + 1);
+            }
+            case YEAR -> Long.toString(code - (1 << 19));
+            case AGE_BUCKET -> code == 0xFF ? "unknown" : "%d-%d".formatted(code * 10, code * 10 + 9);
+            case USER -> Long.toString(userIds[(int) code]);
+        };
+    }
+
+    /**
+     * Age bucket (full decades of current age) of every user, or {@code 0xFF} if the birthdate is unknown.
+     */
+    private int[] ageBuckets(LocalDate today) {
+        int[] buckets = new int[userCount];
+        for (int user = 0; user < userCount; user++) {
+            if (birthDays[user] == UNKNOWN_BIRTH_DAY) {
+                buckets[user] = 0xFF;
+            } else {
+                long age = ChronoUnit.YEARS.between(LocalDate.ofEpochDay(birthDays[user]), today);
+                buckets[user] = (int) Math.max(0, Math.min(age / 10, 0xFE));
+            }
+        }
+        return buckets;
+    }
+
+    private static TrainingRowDto toRow(Training training) {
+        return new TrainingRowDto(training.getId(), training.getUser().getId(), training.getStartTime(),
+                training.getEndTime(), training.getActivityType(), training.getDistance(), training.getAverageSpeed());
+    }
+
+    private void putTraining(long id, long userId, long start, long end, ActivityType activityType,
+                             double distance, double speed) {
+        int row = rowOf(id);
+        if (row < 0) {
+            row = appendRow(id);
+        }
+        startTimes[row] = start;
+        endTimes[row] = end;
+        distances[row] = distance;
+        speeds[row] = speed;
+        activities[row] = (byte) activityType.ordinal();
+        users[row] = userIndex(userId);
+    }
+
+    private void deleteTraining(long id) {
+        int row = rowOf(id);
+        if (row < 0) {
+            return;
+        }
+        deleted.set(row);
+        deletedCount++;
+        outOfOrderRows.remove(id);
+        if (deletedCount >= MIN_ROWS_TO_COMPACT && deletedCount * 2 > rowCount) {
+            compact();
+        }
+    }
+
+    private int rowOf(long id) {
+        int row = Arrays.binarySearch(trainingIds, 0, sortedCount, id);
+        if (row >= 0 && !deleted.get(row)) {
+            return row;
+        }
+        Integer outOfOrder = outOfOrderRows.get(id);
+        return outOfOrder != null ? outOfOrder : -1;
+    }
+
+    /**
+     * Appends a row for a training ID. Rows form a prefix sorted by ID, searched by binary search, followed by rows
+     * written out of order (an ID not greater than the last one, e.g. from concurrent transactions), which are looked up
+     * through {@link #outOfOrderRows} until the next compaction sorts them in.
+     */
+    private int appendRow(long id) {
+        if (rowCount == trainingIds.length) {
+            resize(trainingIds.length * 2);
+        }
+        int row = rowCount++;
+        trainingIds[row] = id;
+        deleted.clear(row);
+        if (sortedCount == row && (row == 0 || trainingIds[row - 1] < id)) {
+            sortedCount = rowCount;
+        } else {
+            outOfOrderRows.put(id, row);
+            if (outOfOrderRows.size() > MAX_OUT_OF_ORDER_ROWS) {
+                compact();
+                return rowOf(id);
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Rewrites the columns without deleted rows and in training ID order.
+     */
+    private void compact() {
+        int[] order = IntStream.range(0, rowCount)
+                .filter(row -> !deleted.get(row))
+                .boxed()
+                .sorted((first, second) -> Long.compare(trainingIds[first], trainingIds[second]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        int capacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, order.length)) * 2);
+        long[] newIds = new long[capacity];
+        long[] newStarts = new long[capacity];
+        long[] newEnds = new long[capacity];
+        double[] newDistances = new double[capacity];
+        double[] newSpeeds = new double[capacity];
+        byte[] newActivities = new byte[capacity];
+        int[] newUsers = new int[capacity];
+        for (int i = 0; i < order.length; i++) {
+            int row = order[i];
+            newIds[i] = trainingIds[row];
+            newStarts[i] = startTimes[row];
+            newEnds[i] = endTimes[row];
+            newDistances[i] = distances[row];
+            newSpeeds[i] = speeds[row];
+            newActivities[i] = activities[row];
+            newUsers[i] = users[row];
+        }
+        trainingIds = newIds;
+        startTimes = newStarts;
+        endTimes = newEnds;
+        distances = newDistances;
+        speeds = newSpeeds;
+        activities = newActivities;
+        users = newUsers;
+        rowCount = order.length;
+        sortedCount = rowCount;
+        deleted.clear();
+        deletedCount = 0;
+        outOfOrderRows.clear();
+    }
+
+    private void resize(int capacity) {
+        trainingIds = Arrays.copyOf(trainingIds, capacity);
+        startTimes = Arrays.copyOf(startTimes, capacity);
+        endTimes = Arrays.copyOf(endTimes, capacity);
+        distances = Arrays.copyOf(distances, capacity);
+        speeds = Arrays.copyOf(speeds, capacity);
+        activities = Arrays.copyOf(activities, capacity);
+        users = Arrays.copyOf(users, capacity);
+    }
+
+    private int userIndex(long userId) {
+        Integer index = userIndexes.get(userId);
+        return index != null ? index : putUser(userId, null);
+    }
+
+    private int putUser(long userId, LocalDate birthdate) {
+        Integer index = userIndexes.get(userId);
+        if (index == null) {
+            if (userCount == userIds.length) {
+                userIds = Arrays.copyOf(userIds, userCount * 2);
+                birthDays = Arrays.copyOf(birthDays, userCount * 2);
+            }
+            index = userCount++;
+            userIds[index] = userId;
+            userIndexes.put(userId, index);
+        }
+        birthDays[index] = birthdate != null ? (int) birthdate.toEpochDay() : UNKNOWN_BIRTH_DAY;
+        return index;
+    }
+
+    private void clear() {
+        Arrays.fill(trainingIds, 0, rowCount, 0);
+        rowCount = 0;
+        sortedCount = 0;
+        deleted.clear();
+        deletedCount = 0;
+        outOfOrderRows.clear();
+        userIndexes.clear();
+        userCount = 0;
+    }
+
+    /**
+     * Applies the changes of a committed transaction; a deleted training is recorded as {@code null}.
+     */
+    private void apply(Pending batch) {
+        lock.writeLock().lock();
+        try {
+            batch.birthdates.forEach(this::putUser);
+            batch.trainings.forEach((id, row) -> {
+                if (row == null) {
+                    deleteTraining(id);
+                } else {
+                    putTraining(id, row.userId(), row.startTime().getTime(), row.endTime().getTime(),
+                            row.activityType(), row.distance(), row.averageSpeed());
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Last state of every user and training changed in one transaction.
+     */
+    private static final class Pending {
+
+        private final Map<Long, LocalDate> birthdates = new LinkedHashMap<>();
+        private final Map<Long, TrainingRowDto> trainings = new LinkedHashMap<>();
+    }
+
+    private static int epochDay(long epochMillis) {
+        return (int) Math.floorDiv(epochMillis, DAY_MILLIS);
+    }
+
+    /**
+     * Months since year 0 ({@code year * 12 + month - 1}) of an epoch day, computed arithmetically
+     * (days-to-civil algorithm) so that the scan does not allocate a {@link LocalDate} per row.
+     */
+    static int epochMonth(int epochDay) {
+        int days = epochDay + 719_468;
+        int era = Math.floorDiv(days, 146_097);
+        int dayOfEra = days - era * 146_097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 12 + month - 1;
+    }
+
+    private static long unsigned(int value) {
+        return (value ^ 0x8000_0000) & 0xFFFF_FFFFL;
+    }
+
+    /**
+     * Packs the dimension values of a row into a group key, the first dimension in the most significant bits,
+     * so that unsigned key order is the lexicographic order of the dimension values.
+     * Rows are stored roughly in time order, so the month of the previous row's day is reused.
+     */
+    private final class KeyEncoder {
+
+        private final AnalyticsDimension[] dimensions;
+        private final int[] ageBuckets;
+        private int cachedDay = Integer.MIN_VALUE;
+        private int cachedMonth;
+
+        KeyEncoder(AnalyticsDimension[] dimensions, int[] ageBuckets) {
+            this.dimensions = dimensions;
+            this.ageBuckets = ageBuckets;
+        }
+
+        long encode(int row) {
+            long key = 0;
+            for (AnalyticsDimension dimension : dimensions) {
+                key = (key << dimension.getBits()) | code(dimension, row);
+            }
+            return key;
+        }
+
+        private long code(AnalyticsDimension dimension, int row) {
+            return switch (dimension) {
+                case ACTIVITY_TYPE -> activities[row];
+                case DAY -> unsigned(epochDay(endTimes[row]));
+                case WEEK -> {
+                    int day = epochDay(endTimes[row]);
+                    // 1970-01-01 was a Thursday, so Mondays are the days with (day + 3) % 7 == 0
+                    yield unsigned(day - Math.floorMod(day + 3, 7));
+                }
+                case MONTH -> month(epochDay(endTimes[row])) + (1 << 23);
+                case YEAR -> Math.floorDiv(month(epochDay(endTimes[row])), 12) + (1 << 19);
+                case AGE_BUCKET -> ageBuckets[users[row]];
+                case USER -> users[row] & 0xFFFF_FFFFL;
+            };
+        }
+
+        private int month(int day) {
+            if (day != cachedDay) {
+                cachedDay = day;
+                cachedMonth = epochMonth(day);
+            }
+            return cachedMonth;
+        }
+    }
+
+    /**
+     * Open-addressing hash table from a packed group key to the aggregates of that group, kept in parallel arrays.
+     */
+    private final class GroupTable {
+
+        private long[] keys = new long[64];
+        private int[] slots = new int[64];
+        private long[] groupKeys = new long[16];
+        private long[] counts = new long[16];
+        private double[] distanceSums = new double[16];
+        private double[] speedSums = new double[16];
+        private long[] durationSums = new long[16];
+        private int size;
+
+        GroupTable() {
+            Arrays.fill(slots, -1);
+        }
+
+        void add(long key, double distance, double speed, long durationMillis) {
+            int group = groupOf(key);
+            counts[group]++;
+            distanceSums[group] += distance;
+            speedSums[group] += speed;
+            durationSums[group] += durationMillis;
+        }
+
+        private int groupOf(long key) {
+            int mask = keys.length - 1;
+            int position = Long.hashCode(key * 0x9E37_79B9_7F4A_7C15L) & mask;
+            while (slots[position] >= 0) {
+                if (keys[position] == key) {
+                    return slots[position];
+                }
+                position = (position + 1) & mask;
+            }
+            if (size == MAX_GROUPS) {
+                throw new BusinessException("Query yields more than %d groups".formatted(MAX_GROUPS));
+            }
+            int group = size++;
+            if (group == groupKeys.length) {
+                groupKeys = Arrays.copyOf(groupKeys, group * 2);
+                counts = Arrays.copyOf(counts, group * 2);
+                distanceSums = Arrays.copyOf(distanceSums, group * 2);
+                speedSums = Arrays.copyOf(speedSums, group * 2);
+                durationSums = Arrays.copyOf(durationSums, group * 2);
+            }
+            groupKeys[group] = key;
+            keys[position] = key;
+            slots[position] = group;
+            if (size * 2 > keys.length) {
+                rehash();
+            }
+            return group;
+        }
+
+        private void rehash() {
+            keys = new long[keys.length * 2];
+            slots = new int[slots.length * 2];
+            Arrays.fill(slots, -1);
+            int mask = keys.length - 1;
+            for (int group = 0; group < size; group++) {
+                int position = Long.hashCode(groupKeys[group] * 0x9E37_79B9_7F4A_7C15L) & mask;
+                while (slots[position] >= 0) {
+                    position = (position + 1) & mask;
+                }
+                keys[position] = groupKeys[group];
+                slots[position] = group;
+            }
+        }
+
+        List<AnalyticsGroupDto> toDtos(List<AnalyticsDimension> dimensions) {
+            return IntStream.range(0, size)
+                    .boxed()
+                    .sorted((first, second) -> Long.compareUnsigned(groupKeys[first], groupKeys[second]))
+                    .map(group -> new AnalyticsGroupDto(labels(dimensions, groupKeys[group]), counts[group],
+                            distanceSums[group], distanceSums[group] / counts[group], speedSums[group] / counts[group],
+                            durationSums[group] / 60_000))
+                    .toList();
+        }
+
+        private Map<AnalyticsDimension, String> labels(List<AnalyticsDimension> dimensions, long key) {
+            Map<AnalyticsDimension, String> labels = new LinkedHashMap<>();
+            int shift = 0;
+            for (int i = dimensions.size() - 1; i >= 0; i--) {
+                shift += dimensions.get(i).getBits();
+            }
+            for (AnalyticsDimension dimension : dimensions) {
+                shift -= dimension.getBits();
+                long mask = dimension.getBits() == Long.SIZE ? -1L : (1L << dimension.getBits()) - 1;
+                labels.put(dimension, label(dimension, (key >>> shift) & mask));
+            }
+            return labels;
+        }
+    }
+}
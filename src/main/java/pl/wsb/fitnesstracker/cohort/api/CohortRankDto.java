@@ -0,0 +1,27 @@
+package pl.wsb.fitnesstracker.cohort.api;
+
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.time.YearMonth;
+
+/**
+ * Pozycja użytkownika w kohorcie rówieśników pod względem miesięcznego dystansu.
+ *
+ * @param userId          identyfikator użytkownika
+ * @param activityType    typ aktywności
+ * @param month           miesiąc
+ * @param ageGroup        grupa wiekowa użytkownika na początku miesiąca, np. {@code 30-39} lub {@code 90+}
+ * @param monthlyDistance dystans użytkownika w miesiącu
+ * @param percentile      procent użytkowników kohorty z dystansem nie większym niż dystans użytkownika (0-100)
+ * @param cohortSize      liczba użytkowników kohorty, którzy trenowali w miesiącu
+ */
+public record CohortRankDto(
+        Long userId,
+        ActivityType activityType,
+        YearMonth month,
+        String ageGroup,
+        double monthlyDistance,
+        double percentile,
+        long cohortSize
+) {
+}
@@ -0,0 +1,35 @@
+package pl.wsb.fitnesstracker.cohort.api;
+
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.time.YearMonth;
+
+/**
+ * Serwis porównujący miesięczne dystanse użytkowników z ich grupą wiekową (kohortą).
+ *
+ * <p>
+ * Kohortę tworzą użytkownicy z tej samej dziesięcioletniej grupy wiekowej, którzy w danym miesiącu trenowali
+ * dany typ aktywności. Rozkład ich miesięcznych dystansów przechowywany jest jako szkic kwantyli,
+ * więc wyznaczenie pozycji użytkownika nie wymaga odczytu danych innych użytkowników.
+ * </p>
+ */
+public interface CohortService {
+
+    /**
+     * Wyznacza percentyl miesięcznego dystansu użytkownika w jego kohorcie.
+     *
+     * @param userId       identyfikator użytkownika
+     * @param activityType typ aktywności
+     * @param month        miesiąc
+     * @return pozycja użytkownika w kohorcie
+     * @throws pl.wsb.fitnesstracker.user.api.UserNotFoundException jeśli użytkownik nie istnieje
+     */
+    CohortRankDto rank(Long userId, ActivityType activityType, YearMonth month);
+
+    /**
+     * Buduje od nowa szkice wszystkich kohort z miesięcznych podsumowań treningów.
+     *
+     * @return liczba kohort
+     */
+    int rebuild();
+}
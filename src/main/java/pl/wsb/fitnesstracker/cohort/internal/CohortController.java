@@ -0,0 +1,55 @@
+package pl.wsb.fitnesstracker.cohort.internal;
+
+import jakarta.annotation.Nullable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import pl.wsb.fitnesstracker.cohort.api.CohortRankDto;
+import pl.wsb.fitnesstracker.cohort.api.CohortService;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+
+/**
+ * REST controller comparing users with their age group.
+ */
+@RestController
+@RequestMapping("/v1/users")
+@RequiredArgsConstructor
+public class CohortController {
+
+    private final CohortService cohortService;
+
+    /**
+     * Returns the percentile of the user's monthly distance among users of the same age group
+     * who trained the same activity type in that month, e.g. {@code /v1/users/1/rank?activityType=RUNNING&month=2024-04}.
+     *
+     * @param id           the ID of the user
+     * @param activityType the activity type
+     * @param month        the month in the format YYYY-MM, the current UTC month by default
+     * @return HTTP 200 with the user's rank, or HTTP 404 if the user does not exist
+     */
+    @GetMapping("/{id}/rank")
+    public CohortRankDto getRank(@PathVariable Long id,
+                                 @RequestParam ActivityType activityType,
+                                 @RequestParam(required = false) @Nullable @DateTimeFormat(pattern = "yyyy-MM") YearMonth month) {
+        return cohortService.rank(id, activityType, month != null ? month : YearMonth.now(ZoneOffset.UTC));
+    }
+
+    /**
+     * Rebuilds the cohort sketches from the monthly training rollups.
+     *
+     * @return HTTP 200 with the number of cohorts
+     */
+    @PostMapping("/cohorts/rebuild")
+    public ResponseEntity<Integer> rebuildCohorts() {
+        return ResponseEntity.ok(cohortService.rebuild());
+    }
+}
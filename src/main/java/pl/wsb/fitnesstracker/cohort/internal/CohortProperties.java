@@ -0,0 +1,39 @@
+package pl.wsb.fitnesstracker.cohort.internal;
+
+import lombok.Getter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the cohort quantile sketches kept by {@link CohortSketches}.
+ */
+@ConfigurationProperties(prefix = "cohorts")
+@Getter
+class CohortProperties {
+
+    /**
+     * Maximum relative error of the monthly distances compared inside a cohort, e.g. 0.01 for 1%.
+     */
+    private final double relativeAccuracy;
+
+    /**
+     * Maximum number of buckets of a single cohort sketch (about 8 bytes each in memory).
+     */
+    private final int maxBuckets;
+
+    /**
+     * Delay between writes of changed sketches to the database. Changes made after the last write are lost on a crash
+     * and restored by a rebuild.
+     */
+    private final Duration flushInterval;
+
+    CohortProperties(@DefaultValue("0.01") double relativeAccuracy,
+                     @DefaultValue("2048") int maxBuckets,
+                     @DefaultValue("PT1M") Duration flushInterval) {
+        this.relativeAccuracy = relativeAccuracy;
+        this.maxBuckets = maxBuckets;
+        this.flushInterval = flushInterval;
+    }
+}
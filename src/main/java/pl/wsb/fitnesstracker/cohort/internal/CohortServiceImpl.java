@@ -0,0 +1,59 @@
+package pl.wsb.fitnesstracker.cohort.internal;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import pl.wsb.fitnesstracker.cohort.api.CohortRankDto;
+import pl.wsb.fitnesstracker.cohort.api.CohortService;
+import pl.wsb.fitnesstracker.training.api.TrainingPeriod;
+import pl.wsb.fitnesstracker.training.api.TrainingPeriodSummaryDto;
+import pl.wsb.fitnesstracker.training.api.TrainingService;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+import pl.wsb.fitnesstracker.user.api.User;
+import pl.wsb.fitnesstracker.user.api.UserNotFoundException;
+import pl.wsb.fitnesstracker.user.api.UserProvider;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+@Service
+@RequiredArgsConstructor
+class CohortServiceImpl implements CohortService {
+
+    private final UserProvider userProvider;
+    private final TrainingService trainingService;
+    private final CohortSketches sketches;
+
+    /**
+     * Ranks the user's monthly distance within their cohort. The user's own distance comes from the monthly rollup,
+     * the other users are only seen through the cohort sketch, so the percentile is exact up to the sketch accuracy.
+     * A user without trainings in the month has a distance of zero and ranks below the whole cohort.
+     *
+     * @param userId       the ID of the user
+     * @param activityType the activity type
+     * @param month        the month
+     * @return the user's percentile and the size of the cohort
+     * @throws UserNotFoundException if the user does not exist
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CohortRankDto rank(Long userId, ActivityType activityType, YearMonth month) {
+        User user = userProvider.getUser(userId).orElseThrow(() -> new UserNotFoundException(userId));
+        LocalDate start = month.atDay(1);
+        double distance = trainingService.summarize(userId, TrainingPeriod.MONTH, start, start.plusMonths(1)).stream()
+                .filter(summary -> summary.activityType() == activityType)
+                .mapToDouble(TrainingPeriodSummaryDto::totalDistance)
+                .sum();
+        int ageGroup = CohortSketches.ageGroup(user.getBirthdate(), start);
+        CohortSketches.Rank rank = sketches.rank(new CohortSketches.Key(start, activityType, ageGroup), distance);
+        double percentile = rank.cohortSize() == 0 ? 0 : Math.min(100, 100.0 * rank.atMost() / rank.cohortSize());
+        return new CohortRankDto(userId, activityType, month, CohortSketches.ageGroupLabel(ageGroup),
+                distance, percentile, rank.cohortSize());
+    }
+
+    @Override
+    @Transactional
+    public int rebuild() {
+        return sketches.rebuild();
+    }
+}
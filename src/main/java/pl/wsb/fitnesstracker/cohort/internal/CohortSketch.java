@@ -0,0 +1,56 @@
+package pl.wsb.fitnesstracker.cohort.internal;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.time.LocalDate;
+
+/**
+ * Persisted quantile sketch of the monthly distances of one cohort, stored in the compact binary form
+ * of {@link pl.wsb.fitnesstracker.sketch.api.QuantileSketch#toBytes()}. Rows are written by {@link CohortSketches}
+ * and read back at startup, so a restart does not recompute the cohorts.
+ */
+@Entity
+@Table(name = "cohort_sketches", uniqueConstraints = @UniqueConstraint(
+        name = "uk_cohort_sketches_key", columnNames = {"month_start", "activity_type", "age_group"}))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+class CohortSketch {
+
+    /**
+     * Upper bound of a serialized sketch: a header and at most ten bytes per bucket.
+     */
+    static final int MAX_SKETCH_BYTES = 32768;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cohort_sketches_seq")
+    @SequenceGenerator(name = "cohort_sketches_seq", sequenceName = "cohort_sketches_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "month_start", nullable = false)
+    private LocalDate month;
+
+    @Enumerated(EnumType.ORDINAL)
+    @Column(name = "activity_type", nullable = false)
+    private ActivityType activityType;
+
+    @Column(name = "age_group", nullable = false)
+    private int ageGroup;
+
+    @Column(name = "sketch", nullable = false, length = MAX_SKETCH_BYTES)
+    private byte[] sketch;
+
+    CohortSketch(CohortSketches.Key key, byte[] sketch) {
+        this.month = key.month();
+        this.activityType = key.activityType();
+        this.ageGroup = key.ageGroup();
+        this.sketch = sketch;
+    }
+
+    CohortSketches.Key key() {
+        return new CohortSketches.Key(month, activityType, ageGroup);
+    }
+}
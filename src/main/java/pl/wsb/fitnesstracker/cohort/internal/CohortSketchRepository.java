@@ -0,0 +1,16 @@
+package pl.wsb.fitnesstracker.cohort.internal;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+interface CohortSketchRepository extends JpaRepository<CohortSketch, Long> {
+
+    /**
+     * Replaces the stored sketch without loading the row.
+     */
+    @Modifying
+    @Query("update CohortSketch c set c.sketch = :sketch where c.id = :id")
+    int updateSketch(@Param("id") long id, @Param("sketch") byte[] sketch);
+}
@@ -0,0 +1,324 @@
+package pl.wsb.fitnesstracker.cohort.internal;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.wsb.fitnesstracker.sketch.api.QuantileSketch;
+import pl.wsb.fitnesstracker.training.api.TrainingMonthlyTotalChangedEvent;
+import pl.wsb.fitnesstracker.training.api.TrainingRollupsRebuiltEvent;
+import pl.wsb.fitnesstracker.training.api.TrainingService;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+import pl.wsb.fitnesstracker.transaction.api.TransactionBatch;
+import pl.wsb.fitnesstracker.user.api.User;
+import pl.wsb.fitnesstracker.user.api.UserProvider;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory quantile sketches of the users' monthly distances, one per cohort: month, activity type and age group.
+ *
+ * <p>
+ * A sketch holds one value per user who trained in the month, so a user's percentile is read from the sketch
+ * of their cohort without looking at other users. Sketches are updated incrementally from
+ * {@link TrainingMonthlyTotalChangedEvent}s: the previous monthly distance is removed and the current one added
+ * once the transaction that changed it commits. The age group is the user's age on the first day of the month,
+ * so a cohort never changes as users grow older; a later correction of a birthdate only affects months changed
+ * afterwards until the next rebuild.
+ * </p>
+ *
+ * <p>
+ * Changed sketches are written to the {@code cohort_sketches} table every {@code cohorts.flush-interval} and on shutdown,
+ * and loaded back at startup. Sketches are built from the monthly training rollups when the table is empty
+ * and whenever the rollups themselves are rebuilt; rebuilt sketches replace the current ones once the rebuild commits.
+ * </p>
+ *
+ * <p>
+ * The number of sketches is published as the {@code cohorts.sketches} gauge and their estimated heap usage as
+ * {@code cohorts.sketches.memory}.
+ * </p>
+ */
+@Component
+@Slf4j
+class CohortSketches {
+
+    static final int AGE_GROUP_YEARS = 10;
+
+    /**
+     * The last age group, holding everybody aged 90 or more.
+     */
+    static final int OLDEST_AGE_GROUP = 9;
+
+    private final CohortSketchRepository repository;
+    private final TrainingService trainingService;
+    private final UserProvider userProvider;
+    private final CohortProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionBatch<List<Change>> pending = TransactionBatch.afterCommit(ArrayList::new, this::apply);
+    private final TransactionBatch<Rebuilt> rebuilds = TransactionBatch.afterCommit(Rebuilt::new, this::replace);
+    private volatile Map<Key, Entry> sketches = new ConcurrentHashMap<>();
+
+    CohortSketches(CohortSketchRepository repository,
+                   TrainingService trainingService,
+                   UserProvider userProvider,
+                   CohortProperties properties,
+                   PlatformTransactionManager transactionManager,
+                   MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.trainingService = trainingService;
+        this.userProvider = userProvider;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        Gauge.builder("cohorts.sketches", this, CohortSketches::size)
+                .description("Number of cohort quantile sketches held in memory")
+                .register(meterRegistry);
+        Gauge.builder("cohorts.sketches.memory", this, CohortSketches::estimatedBytes)
+                .description("Estimated heap held by cohort quantile sketches")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Cohort of users compared with each other.
+     *
+     * @param month        first day of the month
+     * @param activityType activity type
+     * @param ageGroup     age group, see {@link #ageGroup(LocalDate, LocalDate)}
+     */
+    record Key(LocalDate month, ActivityType activityType, int ageGroup) {
+    }
+
+    /**
+     * Position of a value in a cohort.
+     *
+     * @param atMost     number of users with a monthly distance not greater than the value
+     * @param cohortSize number of users in the cohort
+     */
+    record Rank(long atMost, long cohortSize) {
+    }
+
+    private record Change(Key key, @Nullable Double previous, @Nullable Double current) {
+    }
+
+    /**
+     * Sketches built by a rebuild, to replace the current ones after commit.
+     */
+    private static final class Rebuilt {
+
+        @Nullable
+        private Map<Key, Entry> sketches;
+    }
+
+    private static final class Entry {
+
+        private final QuantileSketch sketch;
+        @Nullable
+        private Long id;
+        private boolean dirty;
+
+        private Entry(QuantileSketch sketch, @Nullable Long id) {
+            this.sketch = sketch;
+            this.id = id;
+        }
+    }
+
+    /**
+     * Returns the age group of a user on the given day: {@code age / 10}, with everybody aged 90 or more in the last group.
+     */
+    static int ageGroup(LocalDate birthdate, LocalDate day) {
+        int age = Math.max(0, Period.between(birthdate, day).getYears());
+        return Math.min(age / AGE_GROUP_YEARS, OLDEST_AGE_GROUP);
+    }
+
+    /**
+     * Returns a readable label of an age group, e.g. {@code 30-39} or {@code 90+}.
+     */
+    static String ageGroupLabel(int ageGroup) {
+        int from = ageGroup * AGE_GROUP_YEARS;
+        return ageGroup == OLDEST_AGE_GROUP ? from + "+" : from + "-" + (from + AGE_GROUP_YEARS - 1);
+    }
+
+    int size() {
+        return sketches.size();
+    }
+
+    Rank rank(Key key, double monthlyDistance) {
+        Entry entry = sketches.get(key);
+        if (entry == null) {
+            return new Rank(0, 0);
+        }
+        synchronized (entry) {
+            return new Rank(entry.sketch.countAtMost(monthlyDistance), entry.sketch.count());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void loadOrRebuild() {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!load()) {
+                rebuild();
+            }
+        });
+    }
+
+    /**
+     * Records a changed monthly distance, to be applied to the sketch of the user's cohort after commit.
+     * Changes are collected in one batch per transaction, so a bulk import registers a single synchronization.
+     */
+    @EventListener
+    void onMonthlyTotalChanged(TrainingMonthlyTotalChangedEvent event) {
+        Optional<User> user = userProvider.getUser(event.userId());
+        if (user.isEmpty()) {
+            return;
+        }
+        Key key = new Key(event.month(), event.activityType(), ageGroup(user.get().getBirthdate(), event.month()));
+        Change change = new Change(key, event.previousDistance(), event.currentDistance());
+        pending.add(changes -> changes.add(change));
+    }
+
+    /**
+     * Rebuilds the sketches once rebuilt rollups are committed, because the rebuild does not publish single changes.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    void onRollupsRebuilt(TrainingRollupsRebuiltEvent event) {
+        transactionTemplate.executeWithoutResult(status -> rebuild());
+    }
+
+    /**
+     * Builds all sketches from the monthly training rollups and replaces the stored ones.
+     * Must be called in a transaction; the sketches in memory are replaced once it commits.
+     *
+     * @return number of cohorts
+     */
+    int rebuild() {
+        Map<Long, LocalDate> birthdates = new HashMap<>();
+        userProvider.findAllUsers().forEach(user -> birthdates.put(user.getId(), user.getBirthdate()));
+        Map<Key, Entry> rebuilt = new ConcurrentHashMap<>();
+        trainingService.forEachMonthlyTotal(total -> {
+            LocalDate birthdate = birthdates.get(total.userId());
+            if (birthdate != null) {
+                Key key = new Key(total.month(), total.activityType(), ageGroup(birthdate, total.month()));
+                rebuilt.computeIfAbsent(key, ignored -> new Entry(newSketch(), null)).sketch.add(total.distance());
+            }
+        });
+        repository.deleteAllInBatch();
+        List<CohortSketch> rows = repository.saveAll(rebuilt.entrySet().stream()
+                .map(entry -> new CohortSketch(entry.getKey(), entry.getValue().sketch.toBytes()))
+                .toList());
+        repository.flush();
+        rows.forEach(row -> rebuilt.get(row.key()).id = row.getId());
+        rebuilds.add(batch -> batch.sketches = rebuilt);
+        log.info("Cohort sketches rebuilt with {} cohorts", rebuilt.size());
+        return rebuilt.size();
+    }
+
+    /**
+     * Writes sketches changed since the last write to the database. If the write fails, they stay marked as changed.
+     */
+    @Scheduled(fixedDelayString = "${cohorts.flush-interval:PT1M}")
+    @PreDestroy
+    synchronized void flush() {
+        Map<Entry, Key> changed = new HashMap<>();
+        Map<Entry, byte[]> serialized = new HashMap<>();
+        sketches.forEach((key, entry) -> {
+            synchronized (entry) {
+                if (entry.dirty) {
+                    entry.dirty = false;
+                    changed.put(entry, key);
+                    serialized.put(entry, entry.sketch.toBytes());
+                }
+            }
+        });
+        if (changed.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> changed.forEach((entry, key) -> {
+                Long id = entry.id;
+                if (id == null) {
+                    entry.id = repository.save(new CohortSketch(key, serialized.get(entry))).getId();
+                } else {
+                    repository.updateSketch(id, serialized.get(entry));
+                }
+            }));
+        } catch (RuntimeException e) {
+            log.warn("Writing {} cohort sketches failed, retrying on next flush", changed.size(), e);
+            changed.keySet().forEach(entry -> {
+                synchronized (entry) {
+                    entry.dirty = true;
+                }
+            });
+        }
+    }
+
+    /**
+     * Loads the stored sketches.
+     *
+     * @return {@code false} if there are no stored sketches or they were written with a different accuracy
+     */
+    private boolean load() {
+        Map<Key, Entry> loaded = new ConcurrentHashMap<>();
+        for (CohortSketch row : repository.findAll()) {
+            QuantileSketch sketch = QuantileSketch.fromBytes(row.getSketch());
+            if (sketch.relativeAccuracy() != properties.getRelativeAccuracy()) {
+                return false;
+            }
+            loaded.put(row.key(), new Entry(sketch, row.getId()));
+        }
+        sketches = loaded;
+        log.info("Loaded {} cohort sketches", loaded.size());
+        return !loaded.isEmpty();
+    }
+
+    private void apply(List<Change> changes) {
+        Map<Key, Entry> current = sketches;
+        for (Change change : changes) {
+            Entry entry = current.computeIfAbsent(change.key(), key -> new Entry(newSketch(), null));
+            synchronized (entry) {
+                if (change.previous() != null) {
+                    entry.sketch.remove(change.previous());
+                }
+                if (change.current() != null) {
+                    entry.sketch.add(change.current());
+                }
+                entry.dirty = true;
+            }
+        }
+    }
+
+    private void replace(Rebuilt batch) {
+        sketches = batch.sketches;
+    }
+
+    private QuantileSketch newSketch() {
+        return new QuantileSketch(properties.getRelativeAccuracy(), properties.getMaxBuckets());
+    }
+
+    private long estimatedBytes() {
+        long bytes = 0;
+        for (Entry entry : sketches.values()) {
+            synchronized (entry) {
+                bytes += entry.sketch.estimatedBytes();
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,17 @@
+package pl.wsb.fitnesstracker.engagement.api;
+
+import java.time.LocalDate;
+
+/**
+ * Szacowana liczba aktywnych użytkowników w jednym przedziale serii.
+ *
+ * @param from        pierwszy dzień przedziału (włącznie)
+ * @param to          ostatni dzień przedziału (wyłącznie)
+ * @param activeUsers szacowana liczba różnych użytkowników, którzy zakończyli trening w przedziale
+ */
+public record ActiveUsersPointDto(
+        LocalDate from,
+        LocalDate to,
+        long activeUsers
+) {
+}
@@ -0,0 +1,29 @@
+package pl.wsb.fitnesstracker.engagement.api;
+
+import jakarta.annotation.Nullable;
+import pl.wsb.fitnesstracker.training.api.TrainingPeriod;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.util.List;
+
+/**
+ * Seria liczby aktywnych użytkowników (np. DAU lub MAU).
+ *
+ * <p>
+ * Wartości są oszacowaniami HyperLogLog: względny błąd standardowy każdego punktu wynosi {@code standardError},
+ * więc około 95% punktów mieści się w granicach {@code ±2 * standardError}, a 99,7% w {@code ±3 * standardError}
+ * od dokładnej liczby. Przy liczbie użytkowników mniejszej od kilku tysięcy błąd jest znacznie mniejszy.
+ * </p>
+ *
+ * @param activityType  typ aktywności lub {@code null} dla wszystkich typów
+ * @param period        okres punktów serii lub {@code null}, jeśli seria ma jeden punkt obejmujący cały zakres
+ * @param standardError względny błąd standardowy punktów, np. {@code 0.016} dla 1,6%
+ * @param points        punkty serii w kolejności dni; przedziały skrajne są przycięte do zakresu zapytania
+ */
+public record ActiveUsersSeriesDto(
+        @Nullable ActivityType activityType,
+        @Nullable TrainingPeriod period,
+        double standardError,
+        List<ActiveUsersPointDto> points
+) {
+}
@@ -0,0 +1,38 @@
+package pl.wsb.fitnesstracker.engagement.api;
+
+import jakarta.annotation.Nullable;
+import pl.wsb.fitnesstracker.training.api.TrainingPeriod;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.time.LocalDate;
+
+/**
+ * Serwis szacujący liczbę aktywnych użytkowników (DAU, WAU, MAU) na podstawie dziennych szkiców HyperLogLog.
+ *
+ * <p>
+ * Użytkownik jest aktywny w dniu, w którym zakończył trening (w strefie UTC). Liczba aktywnych użytkowników
+ * w dłuższym przedziale wyznaczana jest przez scalenie szkiców dziennych, bez przeglądania tabeli treningów.
+ * </p>
+ */
+public interface ActiveUsersService {
+
+    /**
+     * Zwraca serię liczby aktywnych użytkowników w zakresie dni.
+     *
+     * @param activityType typ aktywności lub {@code null} dla wszystkich typów
+     * @param period       okres punktów serii lub {@code null} dla jednego punktu obejmującego cały zakres
+     * @param from         pierwszy dzień zakresu (włącznie)
+     * @param to           ostatni dzień zakresu (wyłącznie)
+     * @return seria z błędem standardowym oszacowań
+     * @throws pl.wsb.fitnesstracker.exception.api.BusinessException jeśli zakres jest pusty lub zbyt długi
+     */
+    ActiveUsersSeriesDto getActiveUsers(@Nullable ActivityType activityType, @Nullable TrainingPeriod period,
+                                        LocalDate from, LocalDate to);
+
+    /**
+     * Buduje od nowa szkice dzienne ze wszystkich treningów.
+     *
+     * @return liczba szkiców dziennych
+     */
+    int rebuild();
+}
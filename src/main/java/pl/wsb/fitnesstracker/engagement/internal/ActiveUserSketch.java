@@ -0,0 +1,52 @@
+package pl.wsb.fitnesstracker.engagement.internal;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.time.LocalDate;
+
+/**
+ * Persisted HyperLogLog registers of the users active on one day in one activity type, stored in the compact form
+ * of {@link pl.wsb.fitnesstracker.sketch.api.HyperLogLog#toBytes()}: a few bytes per user on quiet days
+ * and 6 bits per register once the sketch is dense.
+ */
+@Entity
+@Table(name = "active_user_sketches", uniqueConstraints = @UniqueConstraint(
+        name = "uk_active_user_sketches_key", columnNames = {"activity_day", "activity_type"}))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+class ActiveUserSketch {
+
+    /**
+     * Upper bound of a serialized sketch up to precision 14.
+     */
+    static final int MAX_REGISTERS_BYTES = 16384;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "active_user_sketches_seq")
+    @SequenceGenerator(name = "active_user_sketches_seq", sequenceName = "active_user_sketches_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "activity_day", nullable = false)
+    private LocalDate day;
+
+    @Enumerated(EnumType.ORDINAL)
+    @Column(name = "activity_type", nullable = false)
+    private ActivityType activityType;
+
+    @Column(name = "registers", nullable = false, length = MAX_REGISTERS_BYTES)
+    private byte[] registers;
+
+    ActiveUserSketch(ActiveUserSketches.Key key, byte[] registers) {
+        this.day = key.day();
+        this.activityType = key.activityType();
+        this.registers = registers;
+    }
+
+    ActiveUserSketches.Key key() {
+        return new ActiveUserSketches.Key(day, activityType);
+    }
+}
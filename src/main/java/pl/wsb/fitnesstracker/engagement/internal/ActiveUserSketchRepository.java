@@ -0,0 +1,16 @@
+package pl.wsb.fitnesstracker.engagement.internal;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+interface ActiveUserSketchRepository extends JpaRepository<ActiveUserSketch, Long> {
+
+    /**
+     * Replaces the stored registers without loading the row.
+     */
+    @Modifying
+    @Query("update ActiveUserSketch s set s.registers = :registers where s.id = :id")
+    int updateRegisters(@Param("id") long id, @Param("registers") byte[] registers);
+}
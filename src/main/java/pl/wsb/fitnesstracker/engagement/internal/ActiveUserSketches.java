@@ -0,0 +1,281 @@
+package pl.wsb.fitnesstracker.engagement.internal;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.wsb.fitnesstracker.sketch.api.HyperLogLog;
+import pl.wsb.fitnesstracker.training.api.Training;
+import pl.wsb.fitnesstracker.training.api.TrainingChangedEvent;
+import pl.wsb.fitnesstracker.training.api.TrainingProvider;
+import pl.wsb.fitnesstracker.training.api.TrainingRowDto;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+import pl.wsb.fitnesstracker.transaction.api.TransactionBatch;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * In-memory {@link HyperLogLog} sketches of the users active on each day in each activity type.
+ *
+ * <p>
+ * A user is active on the UTC day their training ends. Created and updated trainings add their user to the sketch
+ * of that day once the transaction commits; adding the same user twice has no effect. Sketches cannot forget users,
+ * so a deleted training, or the old day of a moved one, still counts its user as active. Active users of a longer
+ * range are estimated by merging the daily sketches of that range, optionally of all activity types.
+ * </p>
+ *
+ * <p>
+ * Changed sketches are written to the {@code active_user_sketches} table every {@code engagement.active-users.flush-interval}
+ * and on shutdown, and loaded back at startup; they are rebuilt from the trainings table when the table is empty,
+ * and rebuilt sketches replace the current ones once the rebuild commits.
+ * The number of sketches is published as the {@code engagement.active-users.sketches} gauge and their estimated heap as
+ * {@code engagement.active-users.memory}.
+ * </p>
+ */
+@Component
+@Slf4j
+class ActiveUserSketches {
+
+    static final int MAX_PRECISION = 14;
+
+    private final ActiveUserSketchRepository repository;
+    private final TrainingProvider trainingProvider;
+    private final int precision;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionBatch<List<Activity>> pending = TransactionBatch.afterCommit(ArrayList::new, this::apply);
+    private final TransactionBatch<Rebuilt> rebuilds = TransactionBatch.afterCommit(Rebuilt::new, this::replace);
+    private volatile Map<Key, Entry> sketches = new ConcurrentHashMap<>();
+
+    ActiveUserSketches(ActiveUserSketchRepository repository,
+                       TrainingProvider trainingProvider,
+                       EngagementProperties properties,
+                       PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry) {
+        if (properties.getPrecision() > MAX_PRECISION) {
+            throw new IllegalArgumentException("engagement.active-users.precision must not exceed " + MAX_PRECISION);
+        }
+        this.repository = repository;
+        this.trainingProvider = trainingProvider;
+        this.precision = properties.getPrecision();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        Gauge.builder("engagement.active-users.sketches", this, ActiveUserSketches::size)
+                .description("Number of daily active-user sketches held in memory")
+                .register(meterRegistry);
+        Gauge.builder("engagement.active-users.memory", this, ActiveUserSketches::estimatedBytes)
+                .description("Estimated heap held by daily active-user sketches")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Sketch of the users active on one day in one activity type.
+     */
+    record Key(LocalDate day, ActivityType activityType) {
+    }
+
+    private record Activity(Key key, long userId) {
+    }
+
+    /**
+     * Sketches built by a rebuild, to replace the current ones after commit.
+     */
+    private static final class Rebuilt {
+
+        @Nullable
+        private Map<Key, Entry> sketches;
+    }
+
+    private static final class Entry {
+
+        private final HyperLogLog sketch;
+        @Nullable
+        private Long id;
+        private boolean dirty;
+
+        private Entry(HyperLogLog sketch, @Nullable Long id) {
+            this.sketch = sketch;
+            this.id = id;
+        }
+    }
+
+    int size() {
+        return sketches.size();
+    }
+
+    double standardError() {
+        return HyperLogLog.standardError(precision);
+    }
+
+    /**
+     * Estimates the number of distinct users active on the days {@code [from, to)}.
+     *
+     * @param activityType only users active in this activity type, or {@code null} for all types
+     */
+    long estimate(@Nullable ActivityType activityType, LocalDate from, LocalDate to) {
+        Map<Key, Entry> current = sketches;
+        HyperLogLog union = new HyperLogLog(precision);
+        ActivityType[] activityTypes = activityType != null ? new ActivityType[]{activityType} : ActivityType.values();
+        for (LocalDate day = from; day.isBefore(to); day = day.plusDays(1)) {
+            for (ActivityType type : activityTypes) {
+                Entry entry = current.get(new Key(day, type));
+                if (entry != null) {
+                    synchronized (entry) {
+                        union.merge(entry.sketch);
+                    }
+                }
+            }
+        }
+        return union.estimate();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void loadOrRebuild() {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!load()) {
+                rebuild();
+            }
+        });
+    }
+
+    /**
+     * Records the training's user as active on its day, to be added to the sketch after commit.
+     * Activity is collected in one batch per transaction, so a bulk import registers a single synchronization.
+     */
+    @EventListener
+    void onTrainingChanged(TrainingChangedEvent event) {
+        if (event.change() == TrainingChangedEvent.Change.DELETED) {
+            return;
+        }
+        Training training = event.training();
+        Activity activity = new Activity(new Key(day(training.getEndTime()), training.getActivityType()),
+                training.getUser().getId());
+        pending.add(activities -> activities.add(activity));
+    }
+
+    /**
+     * Builds all sketches with one pass over the trainings table and replaces the stored ones.
+     * Must be called in a transaction; the sketches in memory are replaced once it commits.
+     *
+     * @return number of daily sketches
+     */
+    int rebuild() {
+        Map<Key, Entry> rebuilt = new ConcurrentHashMap<>();
+        try (Stream<TrainingRowDto> rows = trainingProvider.streamAllRows()) {
+            rows.forEach(row -> rebuilt.computeIfAbsent(new Key(day(row.endTime()), row.activityType()),
+                    key -> new Entry(new HyperLogLog(precision), null)).sketch.add(row.userId()));
+        }
+        repository.deleteAllInBatch();
+        List<ActiveUserSketch> rows = repository.saveAll(rebuilt.entrySet().stream()
+                .map(entry -> new ActiveUserSketch(entry.getKey(), entry.getValue().sketch.toBytes()))
+                .toList());
+        repository.flush();
+        rows.forEach(row -> rebuilt.get(row.key()).id = row.getId());
+        rebuilds.add(batch -> batch.sketches = rebuilt);
+        log.info("Active-user sketches rebuilt for {} days and activity types", rebuilt.size());
+        return rebuilt.size();
+    }
+
+    /**
+     * Writes sketches changed since the last write to the database. If the write fails, they stay marked as changed.
+     */
+    @Scheduled(fixedDelayString = "${engagement.active-users.flush-interval:PT1M}")
+    @PreDestroy
+    synchronized void flush() {
+        Map<Entry, Key> changed = new HashMap<>();
+        Map<Entry, byte[]> serialized = new HashMap<>();
+        sketches.forEach((key, entry) -> {
+            synchronized (entry) {
+                if (entry.dirty) {
+                    entry.dirty = false;
+                    changed.put(entry, key);
+                    serialized.put(entry, entry.sketch.toBytes());
+                }
+            }
+        });
+        if (changed.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> changed.forEach((entry, key) -> {
+                Long id = entry.id;
+                if (id == null) {
+                    entry.id = repository.save(new ActiveUserSketch(key, serialized.get(entry))).getId();
+                } else {
+                    repository.updateRegisters(id, serialized.get(entry));
+                }
+            }));
+        } catch (RuntimeException e) {
+            log.warn("Writing {} active-user sketches failed, retrying on next flush", changed.size(), e);
+            changed.keySet().forEach(entry -> {
+                synchronized (entry) {
+                    entry.dirty = true;
+                }
+            });
+        }
+    }
+
+    /**
+     * Loads the stored sketches.
+     *
+     * @return {@code false} if there are no stored sketches or they were written with a different precision
+     */
+    private boolean load() {
+        Map<Key, Entry> loaded = new ConcurrentHashMap<>();
+        for (ActiveUserSketch row : repository.findAll()) {
+            HyperLogLog sketch = HyperLogLog.fromBytes(row.getRegisters());
+            if (sketch.precision() != precision) {
+                return false;
+            }
+            loaded.put(row.key(), new Entry(sketch, row.getId()));
+        }
+        sketches = loaded;
+        log.info("Loaded {} active-user sketches", loaded.size());
+        return !loaded.isEmpty();
+    }
+
+    private void apply(List<Activity> activities) {
+        Map<Key, Entry> current = sketches;
+        for (Activity activity : activities) {
+            Entry entry = current.computeIfAbsent(activity.key(), key -> new Entry(new HyperLogLog(precision), null));
+            synchronized (entry) {
+                entry.sketch.add(activity.userId());
+                entry.dirty = true;
+            }
+        }
+    }
+
+    private void replace(Rebuilt batch) {
+        sketches = batch.sketches;
+    }
+
+    private long estimatedBytes() {
+        long bytes = 0;
+        for (Entry entry : sketches.values()) {
+            synchronized (entry) {
+                bytes += entry.sketch.estimatedBytes();
+            }
+        }
+        return bytes;
+    }
+
+    private static LocalDate day(Date endTime) {
+        return endTime.toInstant().atOffset(ZoneOffset.UTC).toLocalDate();
+    }
+}
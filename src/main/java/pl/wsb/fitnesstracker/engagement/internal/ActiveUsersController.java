@@ -0,0 +1,64 @@
+package pl.wsb.fitnesstracker.engagement.internal;
+
+import jakarta.annotation.Nullable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import pl.wsb.fitnesstracker.engagement.api.ActiveUsersSeriesDto;
+import pl.wsb.fitnesstracker.engagement.api.ActiveUsersService;
+import pl.wsb.fitnesstracker.training.api.TrainingPeriod;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.time.LocalDate;
+
+/**
+ * REST controller exposing daily, weekly and monthly active-user counts.
+ */
+@RestController
+@RequestMapping("/v1/analytics/active-users")
+@RequiredArgsConstructor
+public class ActiveUsersController {
+
+    private final ActiveUsersService activeUsersService;
+
+    /**
+     * Returns the number of distinct users who finished a training in each period of the range, e.g. monthly active
+     * runners with {@code /v1/analytics/active-users?activityType=RUNNING&period=MONTH&from=2024-01-01&to=2025-01-01}.
+     * Without {@code period} a single point covers the whole range.
+     *
+     * <p>
+     * Counts are HyperLogLog estimates. The response carries their relative standard error (about 1.6% by default):
+     * roughly 95% of the points are within two and 99.7% within three standard errors of the exact count,
+     * and counts up to a few thousand users are nearly exact.
+     * </p>
+     *
+     * @param activityType only users active in this activity type, all types by default
+     * @param period DAY, WEEK or MONTH for a series, none for a single point
+     * @param from the first UTC day of the range
+     * @param to the UTC day after the range
+     * @return HTTP 200 with the series, or HTTP 400 if the range is empty or too long
+     */
+    @GetMapping
+    public ActiveUsersSeriesDto getActiveUsers(
+            @RequestParam(required = false) @Nullable ActivityType activityType,
+            @RequestParam(required = false) @Nullable TrainingPeriod period,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return activeUsersService.getActiveUsers(activityType, period, from, to);
+    }
+
+    /**
+     * Rebuilds the daily active-user sketches from the trainings table.
+     *
+     * @return HTTP 200 with the number of daily sketches
+     */
+    @PostMapping("/rebuild")
+    public ResponseEntity<Integer> rebuild() {
+        return ResponseEntity.ok(activeUsersService.rebuild());
+    }
+}
@@ -0,0 +1,59 @@
+package pl.wsb.fitnesstracker.engagement.internal;
+
+import jakarta.annotation.Nullable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import pl.wsb.fitnesstracker.engagement.api.ActiveUsersPointDto;
+import pl.wsb.fitnesstracker.engagement.api.ActiveUsersSeriesDto;
+import pl.wsb.fitnesstracker.engagement.api.ActiveUsersService;
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+import pl.wsb.fitnesstracker.training.api.TrainingPeriod;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+class ActiveUsersServiceImpl implements ActiveUsersService {
+
+    private final ActiveUserSketches sketches;
+    private final EngagementProperties properties;
+
+    /**
+     * Estimates active users for every period of the range by merging the daily sketches of its days.
+     * The first and last period are clipped to the range, so e.g. a monthly series starting mid-month
+     * counts only the days from the start of the range.
+     */
+    @Override
+    public ActiveUsersSeriesDto getActiveUsers(@Nullable ActivityType activityType, @Nullable TrainingPeriod period,
+                                               LocalDate from, LocalDate to) {
+        if (!from.isBefore(to)) {
+            throw new BusinessException("Active users window 'from' must be before 'to'");
+        }
+        if (ChronoUnit.DAYS.between(from, to) > properties.getMaxQueryDays()) {
+            throw new BusinessException("Active users window must not exceed " + properties.getMaxQueryDays() + " days");
+        }
+        List<ActiveUsersPointDto> points = new ArrayList<>();
+        LocalDate start = from;
+        while (start.isBefore(to)) {
+            LocalDate end = period == null ? to : min(period.nextBucketStart(period.bucketStart(start)), to);
+            points.add(new ActiveUsersPointDto(start, end, sketches.estimate(activityType, start, end)));
+            start = end;
+        }
+        return new ActiveUsersSeriesDto(activityType, period, sketches.standardError(), points);
+    }
+
+    @Override
+    @Transactional
+    public int rebuild() {
+        return sketches.rebuild();
+    }
+
+    private static LocalDate min(LocalDate first, LocalDate second) {
+        return first.isBefore(second) ? first : second;
+    }
+}
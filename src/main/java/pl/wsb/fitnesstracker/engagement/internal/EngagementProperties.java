@@ -0,0 +1,40 @@
+package pl.wsb.fitnesstracker.engagement.internal;
+
+import lombok.Getter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the daily active-user sketches kept by {@link ActiveUserSketches}.
+ */
+@ConfigurationProperties(prefix = "engagement.active-users")
+@Getter
+class EngagementProperties {
+
+    /**
+     * HyperLogLog precision: a dense sketch has 2^precision registers (6 bits each when stored)
+     * and a relative standard error of 1.04 / sqrt(2^precision), about 1.6% for 12.
+     */
+    private final int precision;
+
+    /**
+     * Longest range of days a single query may merge.
+     */
+    private final int maxQueryDays;
+
+    /**
+     * Delay between writes of changed sketches to the database. Activity recorded after the last write is lost
+     * on a crash and restored by a rebuild.
+     */
+    private final Duration flushInterval;
+
+    EngagementProperties(@DefaultValue("12") int precision,
+                         @DefaultValue("3660") int maxQueryDays,
+                         @DefaultValue("PT1M") Duration flushInterval) {
+        this.precision = precision;
+        this.maxQueryDays = maxQueryDays;
+        this.flushInterval = flushInterval;
+    }
+}
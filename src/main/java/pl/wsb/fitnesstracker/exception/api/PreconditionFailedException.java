@@ -0,0 +1,18 @@
+package pl.wsb.fitnesstracker.exception.api;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Generic exception indicating that a conditional request (e.g. {@code If-Match}) no longer matches the resource,
+ * typically because it was modified concurrently.
+ * Will resolve to the {@link HttpStatus#PRECONDITION_FAILED} if handled by the Spring's exception handler.
+ */
+@ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+public class PreconditionFailedException extends RuntimeException {
+
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+
+}
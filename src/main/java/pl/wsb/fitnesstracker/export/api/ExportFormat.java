@@ -0,0 +1,33 @@
+package pl.wsb.fitnesstracker.export.api;
+
+/**
+ * Format danych eksportu strumieniowego.
+ */
+public enum ExportFormat {
+
+    /**
+     * Jeden obiekt JSON w każdej linii (newline-delimited JSON).
+     */
+    NDJSON("application/x-ndjson", "ndjson"),
+
+    /**
+     * Wartości rozdzielone przecinkami z wierszem nagłówka.
+     */
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -0,0 +1,35 @@
+package pl.wsb.fitnesstracker.export.api;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Serwis eksportujący pełne zbiory danych do strumienia wyjściowego.
+ *
+ * <p>
+ * Wiersze są odczytywane z kursora bazy danych i zapisywane do strumienia porcjami,
+ * więc zużycie pamięci nie zależy od liczby eksportowanych wierszy.
+ * </p>
+ */
+public interface ExportService {
+
+    /**
+     * Eksportuje wszystkich użytkowników w podanym formacie.
+     *
+     * @param format format danych
+     * @param output strumień, do którego zapisywane są dane (nie jest zamykany)
+     * @return liczba wyeksportowanych wierszy
+     * @throws IOException jeśli zapis do strumienia się nie powiedzie
+     */
+    long exportUsers(ExportFormat format, OutputStream output) throws IOException;
+
+    /**
+     * Eksportuje wszystkie treningi w podanym formacie.
+     *
+     * @param format format danych
+     * @param output strumień, do którego zapisywane są dane (nie jest zamykany)
+     * @return liczba wyeksportowanych wierszy
+     * @throws IOException jeśli zapis do strumienia się nie powiedzie
+     */
+    long exportTrainings(ExportFormat format, OutputStream output) throws IOException;
+}
@@ -0,0 +1,64 @@
+package pl.wsb.fitnesstracker.export.internal;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * {@link ExportWriter} zapisujący wiersze w formacie CSV (RFC 4180) z wierszem nagłówka.
+ * Daty typu {@link Date} zapisywane są jako znacznik czasu ISO-8601 w UTC.
+ */
+class CsvExportWriter<T> implements ExportWriter<T> {
+
+    private final Writer writer;
+    private final List<String> headers;
+    private final Function<T, List<?>> values;
+
+    CsvExportWriter(OutputStream output, List<String> headers, Function<T, List<?>> values) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        this.headers = headers;
+        this.values = values;
+    }
+
+    @Override
+    public void writeHeader() throws IOException {
+        writeLine(headers);
+    }
+
+    @Override
+    public void write(T row) throws IOException {
+        writeLine(values.apply(row));
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    private void writeLine(List<?> cells) throws IOException {
+        for (int i = 0; i < cells.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(escape(cells.get(i)));
+        }
+        writer.write("\r\n");
+    }
+
+    private static String escape(Object cell) {
+        if (cell == null) {
+            return "";
+        }
+        String value = cell instanceof Date date ? date.toInstant().toString() : cell.toString();
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
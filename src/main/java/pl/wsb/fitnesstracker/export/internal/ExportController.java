@@ -0,0 +1,60 @@
+package pl.wsb.fitnesstracker.export.internal;
+
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import pl.wsb.fitnesstracker.export.api.ExportFormat;
+import pl.wsb.fitnesstracker.export.api.ExportService;
+
+import java.io.IOException;
+
+/**
+ * REST controller exposing full dataset exports for the data warehouse.
+ * Responses are streamed in chunks instead of being built in memory.
+ */
+@RestController
+@RequestMapping("/v1/export")
+@RequiredArgsConstructor
+public class ExportController {
+
+    private final ExportService exportService;
+
+    /**
+     * Streams all users as NDJSON (default) or CSV.
+     *
+     * @param format output format
+     * @param response HTTP response the rows are written to
+     * @throws IOException if writing the response fails
+     */
+    @GetMapping("/users")
+    public void exportUsers(@RequestParam(defaultValue = "NDJSON") ExportFormat format,
+                            HttpServletResponse response) throws IOException {
+        prepare(response, format, "users");
+        exportService.exportUsers(format, response.getOutputStream());
+    }
+
+    /**
+     * Streams all trainings as NDJSON (default) or CSV.
+     *
+     * @param format output format
+     * @param response HTTP response the rows are written to
+     * @throws IOException if writing the response fails
+     */
+    @GetMapping("/trainings")
+    public void exportTrainings(@RequestParam(defaultValue = "NDJSON") ExportFormat format,
+                                HttpServletResponse response) throws IOException {
+        prepare(response, format, "trainings");
+        exportService.exportTrainings(format, response.getOutputStream());
+    }
+
+    private void prepare(HttpServletResponse response, ExportFormat format, String dataset) {
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"%s.%s\"".formatted(dataset, format.getExtension()));
+    }
+}
@@ -0,0 +1,108 @@
+package pl.wsb.fitnesstracker.export.internal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import pl.wsb.fitnesstracker.export.api.ExportFormat;
+import pl.wsb.fitnesstracker.export.api.ExportService;
+import pl.wsb.fitnesstracker.training.api.TrainingProvider;
+import pl.wsb.fitnesstracker.training.api.TrainingRowDto;
+import pl.wsb.fitnesstracker.user.api.UserDto;
+import pl.wsb.fitnesstracker.user.api.UserProvider;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of the {@link ExportService} streaming rows from a database cursor straight into the output.
+ *
+ * <p>
+ * Rows are read as DTO projections (no managed entities, no persistence context growth)
+ * and flushed to the client every {@value #FLUSH_EVERY_ROWS} rows, so heap usage stays constant
+ * regardless of the size of the exported table.
+ * </p>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ExportServiceImpl implements ExportService {
+
+    static final int FLUSH_EVERY_ROWS = 1000;
+
+    private static final List<String> USER_COLUMNS = List.of("id", "firstName", "lastName", "birthdate", "email");
+    private static final List<String> TRAINING_COLUMNS =
+            List.of("id", "userId", "startTime", "endTime", "activityType", "distance", "averageSpeed");
+
+    private final UserProvider userProvider;
+    private final TrainingProvider trainingProvider;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Streams all users to the output in the requested format.
+     *
+     * @param format output format
+     * @param output stream to write to, left open
+     * @return number of exported rows
+     * @throws IOException if writing to the output fails
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long exportUsers(ExportFormat format, OutputStream output) throws IOException {
+        try (Stream<UserDto> rows = userProvider.streamAllUsers()) {
+            return export("users", rows, writer(format, output, USER_COLUMNS, user -> Arrays.asList(
+                    user.id(), user.firstName(), user.lastName(), user.birthdate(), user.email())));
+        }
+    }
+
+    /**
+     * Streams all trainings to the output in the requested format.
+     *
+     * @param format output format
+     * @param output stream to write to, left open
+     * @return number of exported rows
+     * @throws IOException if writing to the output fails
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long exportTrainings(ExportFormat format, OutputStream output) throws IOException {
+        try (Stream<TrainingRowDto> rows = trainingProvider.streamAllRows()) {
+            return export("trainings", rows, writer(format, output, TRAINING_COLUMNS, training -> Arrays.asList(
+                    training.id(), training.userId(), training.startTime(), training.endTime(),
+                    training.activityType(), training.distance(), training.averageSpeed())));
+        }
+    }
+
+    private <T> ExportWriter<T> writer(ExportFormat format, OutputStream output,
+                                       List<String> columns, Function<T, List<?>> values) throws IOException {
+        return switch (format) {
+            case NDJSON -> new NdjsonExportWriter<>(objectMapper, output);
+            case CSV -> new CsvExportWriter<>(output, columns, values);
+        };
+    }
+
+    private <T> long export(String dataset, Stream<T> rows, ExportWriter<T> writer) throws IOException {
+        long start = System.nanoTime();
+        long count = 0;
+
+        writer.writeHeader();
+        Iterator<T> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            writer.write(iterator.next());
+            if (++count % FLUSH_EVERY_ROWS == 0) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+
+        long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        log.info("Exported {} {} rows in {} ms ({} rows/s)", count, dataset, elapsedMillis, count * 1000 / elapsedMillis);
+        return count;
+    }
+}
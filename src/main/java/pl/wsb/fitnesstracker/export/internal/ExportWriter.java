@@ -0,0 +1,20 @@
+package pl.wsb.fitnesstracker.export.internal;
+
+import java.io.IOException;
+
+/**
+ * Zapisuje kolejne wiersze eksportu w określonym formacie.
+ *
+ * @param <T> typ eksportowanego wiersza
+ */
+interface ExportWriter<T> {
+
+    void writeHeader() throws IOException;
+
+    void write(T row) throws IOException;
+
+    /**
+     * Wypycha zbuforowane dane do strumienia wyjściowego, bez jego zamykania.
+     */
+    void flush() throws IOException;
+}
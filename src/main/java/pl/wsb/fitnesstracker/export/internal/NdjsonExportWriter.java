@@ -0,0 +1,38 @@
+package pl.wsb.fitnesstracker.export.internal;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * {@link ExportWriter} zapisujący każdy wiersz jako osobny obiekt JSON zakończony znakiem nowej linii.
+ * Wykorzystuje {@link ObjectMapper} aplikacji, więc daty serializowane są tak samo jak w REST API.
+ */
+class NdjsonExportWriter<T> implements ExportWriter<T> {
+
+    private final JsonGenerator generator;
+
+    NdjsonExportWriter(ObjectMapper objectMapper, OutputStream output) throws IOException {
+        this.generator = objectMapper.getFactory().createGenerator(output);
+        this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.generator.setRootValueSeparator(null);
+    }
+
+    @Override
+    public void writeHeader() {
+        // NDJSON nie posiada nagłówka
+    }
+
+    @Override
+    public void write(T row) throws IOException {
+        generator.writeObject(row);
+        generator.writeRaw('\n');
+    }
+
+    @Override
+    public void flush() throws IOException {
+        generator.flush();
+    }
+}
@@ -0,0 +1,31 @@
+package pl.wsb.fitnesstracker.leaderboard.api;
+
+import jakarta.annotation.Nullable;
+import pl.wsb.fitnesstracker.training.api.TrainingPeriod;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Ranking użytkowników w jednym typie aktywności i okresie.
+ *
+ * @param activityType typ aktywności
+ * @param period       okres rankingu (tydzień lub miesiąc)
+ * @param periodStart  pierwszy dzień okresu
+ * @param metric       wartość, według której szeregowani są użytkownicy
+ * @param participants liczba użytkowników z treningiem tego typu w okresie
+ * @param top          najlepsze pozycje rankingu w kolejności miejsc
+ * @param user         pozycja wskazanego użytkownika lub {@code null}, jeśli nie wskazano użytkownika
+ *                     albo nie trenował w okresie
+ */
+public record LeaderboardDto(
+        ActivityType activityType,
+        TrainingPeriod period,
+        LocalDate periodStart,
+        LeaderboardMetric metric,
+        long participants,
+        List<LeaderboardEntryDto> top,
+        @Nullable LeaderboardEntryDto user
+) {
+}
@@ -0,0 +1,15 @@
+package pl.wsb.fitnesstracker.leaderboard.api;
+
+/**
+ * Pozycja użytkownika w rankingu.
+ *
+ * @param rank   miejsce w rankingu, od 1; przy równych wynikach wyżej jest użytkownik o mniejszym identyfikatorze
+ * @param userId identyfikator użytkownika
+ * @param score  wynik użytkownika w okresie (dystans lub prędkość)
+ */
+public record LeaderboardEntryDto(
+        long rank,
+        long userId,
+        double score
+) {
+}
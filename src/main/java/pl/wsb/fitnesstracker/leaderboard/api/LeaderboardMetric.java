@@ -0,0 +1,17 @@
+package pl.wsb.fitnesstracker.leaderboard.api;
+
+/**
+ * Wartość, według której szeregowani są użytkownicy w rankingu okresu.
+ */
+public enum LeaderboardMetric {
+
+    /**
+     * Łączny dystans treningów w okresie.
+     */
+    DISTANCE,
+
+    /**
+     * Najwyższa średnia prędkość pojedynczego treningu w okresie.
+     */
+    SPEED
+}
@@ -0,0 +1,42 @@
+package pl.wsb.fitnesstracker.leaderboard.api;
+
+import jakarta.annotation.Nullable;
+import pl.wsb.fitnesstracker.training.api.TrainingPeriod;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.time.LocalDate;
+
+/**
+ * Serwis tygodniowych i miesięcznych rankingów użytkowników według dystansu i prędkości.
+ *
+ * <p>
+ * Rankingi utrzymywane są w pamięci i aktualizowane po każdym zatwierdzonym dodaniu, zmianie lub usunięciu treningu,
+ * więc odczyt nie sortuje tabeli treningów. Przechowywane są rankingi bieżącego okresu i kilku poprzednich;
+ * starsze są usuwane, gdy zaczyna się nowy okres.
+ * </p>
+ */
+public interface LeaderboardService {
+
+    /**
+     * Zwraca najlepsze pozycje rankingu i opcjonalnie pozycję wskazanego użytkownika.
+     *
+     * @param activityType typ aktywności
+     * @param period       tydzień lub miesiąc
+     * @param metric       wartość, według której szeregowani są użytkownicy
+     * @param date         dowolny dzień okresu lub {@code null} dla bieżącego okresu (w strefie UTC)
+     * @param limit        liczba najlepszych pozycji
+     * @param userId       identyfikator użytkownika, którego pozycję zwrócić, lub {@code null}
+     * @return ranking okresu
+     * @throws pl.wsb.fitnesstracker.exception.api.BusinessException jeśli okres jest dniem, limit jest niepoprawny
+     *                                                                lub ranking okresu nie jest już przechowywany
+     */
+    LeaderboardDto getLeaderboard(ActivityType activityType, TrainingPeriod period, LeaderboardMetric metric,
+                                  @Nullable LocalDate date, int limit, @Nullable Long userId);
+
+    /**
+     * Buduje od nowa przechowywane rankingi z podsumowań okresów.
+     *
+     * @return liczba rankingów
+     */
+    int rebuild();
+}
@@ -0,0 +1,63 @@
+package pl.wsb.fitnesstracker.leaderboard.internal;
+
+import jakarta.annotation.Nullable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import pl.wsb.fitnesstracker.leaderboard.api.LeaderboardDto;
+import pl.wsb.fitnesstracker.leaderboard.api.LeaderboardMetric;
+import pl.wsb.fitnesstracker.leaderboard.api.LeaderboardService;
+import pl.wsb.fitnesstracker.training.api.TrainingPeriod;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.time.LocalDate;
+
+/**
+ * REST controller exposing weekly and monthly leaderboards.
+ */
+@RestController
+@RequestMapping("/v1/leaderboards")
+@RequiredArgsConstructor
+public class LeaderboardController {
+
+    private final LeaderboardService leaderboardService;
+
+    /**
+     * Returns the top users of a week or month and, optionally, the rank of one user, e.g. this week's ten longest
+     * running distances with {@code /v1/leaderboards?activityType=RUNNING&period=WEEK&metric=DISTANCE&userId=1}.
+     *
+     * @param activityType the activity type
+     * @param period       WEEK or MONTH
+     * @param metric       DISTANCE for the total distance, SPEED for the best average speed of a single training
+     * @param date         any UTC day of the period, today by default
+     * @param limit        the number of top entries
+     * @param userId       the user whose rank to return
+     * @return HTTP 200 with the leaderboard, HTTP 400 if the period is not retained or the limit is out of range,
+     * or HTTP 404 if the user does not exist
+     */
+    @GetMapping
+    public LeaderboardDto getLeaderboard(
+            @RequestParam ActivityType activityType,
+            @RequestParam TrainingPeriod period,
+            @RequestParam LeaderboardMetric metric,
+            @RequestParam(required = false) @Nullable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(required = false) @Nullable Long userId) {
+        return leaderboardService.getLeaderboard(activityType, period, metric, date, limit, userId);
+    }
+
+    /**
+     * Rebuilds the leaderboards of the retained periods from the training rollups.
+     *
+     * @return HTTP 200 with the number of leaderboards
+     */
+    @PostMapping("/rebuild")
+    public ResponseEntity<Integer> rebuild() {
+        return ResponseEntity.ok(leaderboardService.rebuild());
+    }
+}
@@ -0,0 +1,42 @@
+package pl.wsb.fitnesstracker.leaderboard.internal;
+
+import lombok.Getter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the in-memory leaderboards kept by {@link Leaderboards}.
+ */
+@ConfigurationProperties(prefix = "leaderboards")
+@Getter
+class LeaderboardProperties {
+
+    /**
+     * Number of weeks and months with leaderboards, including the current one. Older leaderboards are dropped
+     * when a new period starts and cannot be queried.
+     */
+    private final int retainedPeriods;
+
+    /**
+     * Largest number of top entries a single query may return.
+     */
+    private final int maxLimit;
+
+    /**
+     * Delay between checks for periods that are no longer retained.
+     */
+    private final Duration rolloverInterval;
+
+    LeaderboardProperties(@DefaultValue("2") int retainedPeriods,
+                          @DefaultValue("100") int maxLimit,
+                          @DefaultValue("PT10M") Duration rolloverInterval) {
+        if (retainedPeriods < 1) {
+            throw new IllegalArgumentException("leaderboards.retained-periods must be at least 1");
+        }
+        this.retainedPeriods = retainedPeriods;
+        this.maxLimit = maxLimit;
+        this.rolloverInterval = rolloverInterval;
+    }
+}
@@ -0,0 +1,70 @@
+package pl.wsb.fitnesstracker.leaderboard.internal;
+
+import jakarta.annotation.Nullable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+import pl.wsb.fitnesstracker.leaderboard.api.LeaderboardDto;
+import pl.wsb.fitnesstracker.leaderboard.api.LeaderboardEntryDto;
+import pl.wsb.fitnesstracker.leaderboard.api.LeaderboardMetric;
+import pl.wsb.fitnesstracker.leaderboard.api.LeaderboardService;
+import pl.wsb.fitnesstracker.training.api.TrainingPeriod;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+import pl.wsb.fitnesstracker.user.api.UserNotFoundException;
+import pl.wsb.fitnesstracker.user.api.UserProvider;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+@Service
+@RequiredArgsConstructor
+class LeaderboardServiceImpl implements LeaderboardService {
+
+    private final UserProvider userProvider;
+    private final Leaderboards leaderboards;
+    private final LeaderboardProperties properties;
+
+    /**
+     * Reads the leaderboard of the period containing {@code date}. Both the top entries and the user's rank
+     * come from the in-memory board, so the cost does not depend on the number of trainings.
+     *
+     * @throws BusinessException     if the period is not a week or a month, the limit is out of range
+     *                               or the period is no longer retained
+     * @throws UserNotFoundException if {@code userId} is given and the user does not exist
+     */
+    @Override
+    public LeaderboardDto getLeaderboard(ActivityType activityType, TrainingPeriod period, LeaderboardMetric metric,
+                                         @Nullable LocalDate date, int limit, @Nullable Long userId) {
+        if (!Leaderboards.PERIODS.contains(period)) {
+            throw new BusinessException("Leaderboards are available for " + Leaderboards.PERIODS);
+        }
+        if (limit < 1 || limit > properties.getMaxLimit()) {
+            throw new BusinessException("Limit must be between 1 and " + properties.getMaxLimit());
+        }
+        if (userId != null && userProvider.getUser(userId).isEmpty()) {
+            throw new UserNotFoundException(userId);
+        }
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        LocalDate periodStart = period.bucketStart(date != null ? date : today);
+        if (periodStart.isBefore(leaderboards.oldestRetained(period, today))) {
+            throw new BusinessException("Leaderboards are kept for the last " + properties.getRetainedPeriods()
+                    + " periods only");
+        }
+        Leaderboards.Snapshot snapshot = leaderboards.read(
+                new Leaderboards.Key(activityType, period, periodStart, metric), limit, userId);
+        return new LeaderboardDto(activityType, period, periodStart, metric, snapshot.participants(),
+                snapshot.top().stream().map(LeaderboardServiceImpl::toDto).toList(),
+                snapshot.user() != null ? toDto(snapshot.user()) : null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public int rebuild() {
+        return leaderboards.rebuild();
+    }
+
+    private static LeaderboardEntryDto toDto(RankedBoard.Entry entry) {
+        return new LeaderboardEntryDto(entry.rank(), entry.userId(), entry.score());
+    }
+}
@@ -0,0 +1,263 @@
+package pl.wsb.fitnesstracker.leaderboard.internal;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.wsb.fitnesstracker.leaderboard.api.LeaderboardMetric;
+import pl.wsb.fitnesstracker.training.api.TrainingPeriod;
+import pl.wsb.fitnesstracker.training.api.TrainingPeriodTotalChangedEvent;
+import pl.wsb.fitnesstracker.training.api.TrainingPeriodTotalDto;
+import pl.wsb.fitnesstracker.training.api.TrainingRollupsRebuiltEvent;
+import pl.wsb.fitnesstracker.training.api.TrainingService;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+import pl.wsb.fitnesstracker.transaction.api.TransactionBatch;
+import pl.wsb.fitnesstracker.user.api.UserChangedEvent;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory {@link RankedBoard}s of the retained weeks and months, one per activity type and metric.
+ *
+ * <p>
+ * Boards are built at startup from the weekly and monthly training rollups, so no query sorts the trainings table.
+ * They are updated from {@link TrainingPeriodTotalChangedEvent}s, which carry the user's total after the change,
+ * once the transaction that published them commits; a deleted user is removed from every board after commit as well.
+ * When the rollups are rebuilt, the boards are rebuilt from them after commit.
+ * </p>
+ *
+ * <p>
+ * Only the current period and {@code leaderboards.retained-periods - 1} previous ones are kept: changes to older
+ * periods are ignored and their boards are dropped every {@code leaderboards.rollover-interval}. A new period needs
+ * no rollover step, as its board is created by its first training. The number of boards is published as the
+ * {@code leaderboards.boards} gauge and the number of entries on all of them as {@code leaderboards.entries}.
+ * </p>
+ */
+@Component
+@Slf4j
+class Leaderboards {
+
+    /**
+     * Periods with leaderboards.
+     */
+    static final List<TrainingPeriod> PERIODS = List.of(TrainingPeriod.WEEK, TrainingPeriod.MONTH);
+
+    private final TrainingService trainingService;
+    private final int retainedPeriods;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionBatch<Pending> pending = TransactionBatch.afterCommit(Pending::new, this::apply);
+    private volatile Map<Key, RankedBoard> boards = new ConcurrentHashMap<>();
+
+    Leaderboards(TrainingService trainingService,
+                 LeaderboardProperties properties,
+                 PlatformTransactionManager transactionManager,
+                 MeterRegistry meterRegistry) {
+        this.trainingService = trainingService;
+        this.retainedPeriods = properties.getRetainedPeriods();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setReadOnly(true);
+        Gauge.builder("leaderboards.boards", this, Leaderboards::size)
+                .description("Number of leaderboards held in memory")
+                .register(meterRegistry);
+        Gauge.builder("leaderboards.entries", this, Leaderboards::entries)
+                .description("Number of user entries on all leaderboards held in memory")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Leaderboard of one period in one activity type.
+     */
+    record Key(ActivityType activityType, TrainingPeriod period, LocalDate periodStart, LeaderboardMetric metric) {
+    }
+
+    /**
+     * Top entries of a board and the entry of one user, read under the board's lock.
+     */
+    record Snapshot(long participants, List<RankedBoard.Entry> top, @Nullable RankedBoard.Entry user) {
+    }
+
+    int size() {
+        return boards.size();
+    }
+
+    /**
+     * Returns the first day of the oldest retained period on the given day.
+     */
+    LocalDate oldestRetained(TrainingPeriod period, LocalDate today) {
+        LocalDate current = period.bucketStart(today);
+        return switch (period) {
+            case DAY -> current.minusDays(retainedPeriods - 1);
+            case WEEK -> current.minusWeeks(retainedPeriods - 1);
+            case MONTH -> current.minusMonths(retainedPeriods - 1);
+        };
+    }
+
+    /**
+     * Reads the top entries of a board and, optionally, the entry of one user.
+     *
+     * @param userId the user whose entry to read, or {@code null}
+     */
+    Snapshot read(Key key, int limit, @Nullable Long userId) {
+        RankedBoard board = boards.get(key);
+        if (board == null) {
+            return new Snapshot(0, List.of(), null);
+        }
+        synchronized (board) {
+            return new Snapshot(board.size(), board.top(limit), userId != null ? board.entry(userId) : null);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void buildAtStartup() {
+        transactionTemplate.executeWithoutResult(status -> rebuild());
+    }
+
+    @EventListener
+    void onPeriodTotalChanged(TrainingPeriodTotalChangedEvent event) {
+        if (!PERIODS.contains(event.total().period())) {
+            return;
+        }
+        pending.add(batch -> batch.changes.add(event));
+    }
+
+    @EventListener
+    void onUserChanged(UserChangedEvent event) {
+        if (event.change() != UserChangedEvent.Change.DELETED) {
+            return;
+        }
+        Long userId = event.user().getId();
+        pending.add(batch -> batch.deletedUsers.add(userId));
+    }
+
+    /**
+     * Rebuilds the boards once the rebuilt rollups are committed.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    void onRollupsRebuilt(TrainingRollupsRebuiltEvent event) {
+        transactionTemplate.executeWithoutResult(status -> rebuild());
+    }
+
+    /**
+     * Builds the boards of the retained periods from the weekly and monthly rollups and replaces the current ones.
+     * Must be called in a transaction.
+     *
+     * @return number of boards
+     */
+    int rebuild() {
+        LocalDate today = today();
+        Map<Key, RankedBoard> rebuilt = new ConcurrentHashMap<>();
+        for (TrainingPeriod period : PERIODS) {
+            trainingService.forEachPeriodTotal(period, oldestRetained(period, today), total -> {
+                for (LeaderboardMetric metric : LeaderboardMetric.values()) {
+                    rebuilt.computeIfAbsent(key(total, metric), key -> new RankedBoard())
+                            .put(total.userId(), score(total, metric));
+                }
+            });
+        }
+        boards = rebuilt;
+        log.info("Leaderboards rebuilt: {} boards with {} entries", rebuilt.size(), entries());
+        return rebuilt.size();
+    }
+
+    /**
+     * Drops the boards of periods that are no longer retained.
+     */
+    @Scheduled(fixedDelayString = "${leaderboards.rollover-interval:PT10M}")
+    void rollOver() {
+        LocalDate today = today();
+        boolean removed = boards.keySet().removeIf(key -> key.periodStart().isBefore(oldestRetained(key.period(), today)));
+        if (removed) {
+            log.info("Dropped leaderboards of past periods, {} boards left", boards.size());
+        }
+    }
+
+    private void apply(Pending batch) {
+        Map<Key, RankedBoard> current = boards;
+        LocalDate today = today();
+        for (TrainingPeriodTotalChangedEvent change : batch.changes) {
+            TrainingPeriodTotalDto total = change.total();
+            if (total.bucketStart().isBefore(oldestRetained(total.period(), today))) {
+                continue;
+            }
+            for (LeaderboardMetric metric : LeaderboardMetric.values()) {
+                if (change.empty()) {
+                    current.computeIfPresent(key(total, metric), (key, board) -> {
+                        synchronized (board) {
+                            board.remove(total.userId());
+                            return board.isEmpty() ? null : board;
+                        }
+                    });
+                } else {
+                    current.compute(key(total, metric), (key, board) -> {
+                        RankedBoard target = board != null ? board : new RankedBoard();
+                        synchronized (target) {
+                            target.put(total.userId(), score(total, metric));
+                        }
+                        return target;
+                    });
+                }
+            }
+        }
+        if (!batch.deletedUsers.isEmpty()) {
+            for (Key boardKey : current.keySet()) {
+                current.computeIfPresent(boardKey, (key, board) -> {
+                    synchronized (board) {
+                        batch.deletedUsers.forEach(board::remove);
+                        return board.isEmpty() ? null : board;
+                    }
+                });
+            }
+        }
+    }
+
+    private long entries() {
+        long entries = 0;
+        for (RankedBoard board : boards.values()) {
+            synchronized (board) {
+                entries += board.size();
+            }
+        }
+        return entries;
+    }
+
+    private static Key key(TrainingPeriodTotalDto total, LeaderboardMetric metric) {
+        return new Key(total.activityType(), total.period(), total.bucketStart(), metric);
+    }
+
+    private static double score(TrainingPeriodTotalDto total, LeaderboardMetric metric) {
+        return switch (metric) {
+            case DISTANCE -> total.distance();
+            case SPEED -> total.maxSpeed();
+        };
+    }
+
+    private static LocalDate today() {
+        return LocalDate.now(ZoneOffset.UTC);
+    }
+
+    /**
+     * Changes collected in one transaction.
+     */
+    private static final class Pending {
+
+        private final List<TrainingPeriodTotalChangedEvent> changes = new ArrayList<>();
+        private final Set<Long> deletedUsers = new HashSet<>();
+    }
+}
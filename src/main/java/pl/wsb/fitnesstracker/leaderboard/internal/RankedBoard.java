@@ -0,0 +1,196 @@
+package pl.wsb.fitnesstracker.leaderboard.internal;
+
+import jakarta.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Scores of the users of one leaderboard, ranked from the highest score.
+ *
+ * <p>
+ * An order-statistic treap ordered by (score descending, user ID ascending), where each node also stores the size
+ * of its subtree, plus a map from user to score to find a user's node. Setting or removing a score and finding
+ * a user's rank cost expected O(log n), reading the top k entries O(log n + k). Equal scores are ranked
+ * by user ID, so every user has a distinct rank.
+ * </p>
+ *
+ * <p>
+ * Not thread-safe.
+ * </p>
+ */
+final class RankedBoard {
+
+    /**
+     * A ranked score.
+     *
+     * @param rank   position on the board, starting with 1
+     * @param userId the ID of the user
+     * @param score  the user's score
+     */
+    record Entry(long rank, long userId, double score) {
+    }
+
+    private final Map<Long, Double> scores = new HashMap<>();
+    private Node root;
+
+    int size() {
+        return scores.size();
+    }
+
+    boolean isEmpty() {
+        return scores.isEmpty();
+    }
+
+    /**
+     * Sets the user's score, replacing the previous one.
+     */
+    void put(long userId, double score) {
+        Double previous = scores.put(userId, score);
+        if (previous != null) {
+            if (previous == score) {
+                return;
+            }
+            detach(previous, userId);
+        }
+        Node[] parts = split(root, score, userId, false);
+        root = merge(merge(parts[0], new Node(userId, score)), parts[1]);
+    }
+
+    /**
+     * Removes the user from the board.
+     *
+     * @return {@code true} if the user was on the board
+     */
+    boolean remove(long userId) {
+        Double previous = scores.remove(userId);
+        if (previous == null) {
+            return false;
+        }
+        detach(previous, userId);
+        return true;
+    }
+
+    /**
+     * Returns the user's rank and score, or {@code null} if the user is not on the board.
+     */
+    @Nullable
+    Entry entry(long userId) {
+        Double score = scores.get(userId);
+        if (score == null) {
+            return null;
+        }
+        long before = 0;
+        Node node = root;
+        while (node != null) {
+            int compare = compare(node.score, node.userId, score, userId);
+            if (compare < 0) {
+                before += size(node.left) + 1;
+                node = node.right;
+            } else if (compare > 0) {
+                node = node.left;
+            } else {
+                before += size(node.left);
+                break;
+            }
+        }
+        return new Entry(before + 1, userId, score);
+    }
+
+    /**
+     * Returns up to {@code limit} entries with the highest scores, in rank order.
+     */
+    List<Entry> top(int limit) {
+        List<Entry> result = new ArrayList<>(Math.min(limit, size()));
+        List<Node> stack = new ArrayList<>();
+        Node current = root;
+        while ((current != null || !stack.isEmpty()) && result.size() < limit) {
+            while (current != null) {
+                stack.add(current);
+                current = current.left;
+            }
+            current = stack.remove(stack.size() - 1);
+            result.add(new Entry(result.size() + 1, current.userId, current.score));
+            current = current.right;
+        }
+        return result;
+    }
+
+    private void detach(double score, long userId) {
+        Node[] lower = split(root, score, userId, false);
+        Node[] upper = split(lower[1], score, userId, true);
+        root = merge(lower[0], upper[1]);
+    }
+
+    /**
+     * Orders by score descending, then by user ID ascending.
+     */
+    private static int compare(double score, long userId, double otherScore, long otherUserId) {
+        int compare = Double.compare(otherScore, score);
+        return compare != 0 ? compare : Long.compare(userId, otherUserId);
+    }
+
+    /**
+     * Splits the tree into the nodes ranked before the key (score, userId) and the rest;
+     * with {@code inclusive} the key goes to the first part.
+     */
+    private static Node[] split(Node node, double score, long userId, boolean inclusive) {
+        if (node == null) {
+            return new Node[]{null, null};
+        }
+        int compare = compare(node.score, node.userId, score, userId);
+        if (compare < 0 || (inclusive && compare == 0)) {
+            Node[] parts = split(node.right, score, userId, inclusive);
+            node.right = parts[0];
+            node.update();
+            return new Node[]{node, parts[1]};
+        }
+        Node[] parts = split(node.left, score, userId, inclusive);
+        node.left = parts[1];
+        node.update();
+        return new Node[]{parts[0], node};
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static final class Node {
+
+        private final long userId;
+        private final double score;
+        private final int priority = ThreadLocalRandom.current().nextInt();
+        private int size = 1;
+        private Node left;
+        private Node right;
+
+        private Node(long userId, double score) {
+            this.userId = userId;
+            this.score = score;
+        }
+
+        private void update() {
+            size = 1 + size(left) + size(right);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package pl.wsb.fitnesstracker.lookup.api;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Pobieranie elementów po liście identyfikatorów zapytaniami {@code IN (...)} dzielonymi na paczki.
+ *
+ * <p>
+ * Identyfikatory są deduplikowane, a lista dzielona na paczki po {@value #CHUNK_SIZE}, aby nie przekraczać
+ * limitów parametrów zapytania i utrzymać stałą liczbę wariantów planu. Liczba identyfikatorów w jednym żądaniu
+ * jest ograniczona do {@value #MAX_IDS}.
+ * </p>
+ */
+public final class IdBatches {
+
+    public static final int CHUNK_SIZE = 500;
+    public static final int MAX_IDS = 2000;
+
+    private IdBatches() {
+    }
+
+    /**
+     * Pobiera elementy o podanych identyfikatorach, wykonując jedno zapytanie na paczkę.
+     *
+     * @param ids   żądane identyfikatory (mogą się powtarzać)
+     * @param query zapytanie pobierające elementy dla paczki identyfikatorów
+     * @param idOf  funkcja zwracająca identyfikator elementu
+     * @param <T>   typ elementu
+     * @return znalezione elementy według identyfikatora
+     * @throws TooManyIdsException jeśli żądanie zawiera więcej niż {@value #MAX_IDS} identyfikatorów
+     */
+    public static <T> Map<Long, T> fetch(List<Long> ids, Function<List<Long>, List<T>> query, Function<T, Long> idOf) {
+        if (ids.size() > MAX_IDS) {
+            throw new TooManyIdsException(ids.size(), MAX_IDS);
+        }
+        List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        distinct.removeIf(Objects::isNull);
+        Map<Long, T> result = new HashMap<>();
+        for (int from = 0; from < distinct.size(); from += CHUNK_SIZE) {
+            List<Long> chunk = distinct.subList(from, Math.min(from + CHUNK_SIZE, distinct.size()));
+            query.apply(chunk).forEach(item -> result.put(idOf.apply(item), item));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,55 @@
+package pl.wsb.fitnesstracker.lookup.api;
+
+import jakarta.annotation.Nullable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Wynik pobrania pojedynczego elementu w ramach zapytania o listę identyfikatorów (multi-get).
+ *
+ * <p>
+ * Wyniki zwracane są w kolejności identyfikatorów z żądania (łącznie z powtórzeniami), a brak elementu
+ * jest jawnie oznaczony flagą {@code found = false} zamiast pominięcia pozycji.
+ * </p>
+ *
+ * @param id    identyfikator z żądania
+ * @param found czy element o tym identyfikatorze istnieje
+ * @param item  znaleziony element lub {@code null}
+ * @param <T>   typ elementu
+ */
+public record LookupResult<T>(
+        Long id,
+        boolean found,
+        @Nullable T item
+) {
+
+    /**
+     * Układa znalezione elementy w kolejności żądanych identyfikatorów, oznaczając brakujące.
+     *
+     * @param ids  identyfikatory w kolejności z żądania
+     * @param byId znalezione elementy według identyfikatora
+     * @param <T>  typ elementu
+     * @return wyniki w kolejności żądania
+     */
+    public static <T> List<LookupResult<T>> inRequestOrder(List<Long> ids, Map<Long, T> byId) {
+        return ids.stream()
+                .map(id -> {
+                    T item = byId.get(id);
+                    return new LookupResult<>(id, item != null, item);
+                })
+                .toList();
+    }
+
+    /**
+     * Przekształca element wyniku, zachowując identyfikator i flagę znalezienia.
+     *
+     * @param mapper funkcja mapująca element
+     * @param <R>    typ elementu wynikowego
+     * @return nowy wynik z przekształconym elementem
+     */
+    public <R> LookupResult<R> map(Function<T, R> mapper) {
+        return new LookupResult<>(id, found, item == null ? null : mapper.apply(item));
+    }
+}
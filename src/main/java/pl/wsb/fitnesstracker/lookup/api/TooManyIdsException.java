@@ -0,0 +1,15 @@
+package pl.wsb.fitnesstracker.lookup.api;
+
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+
+/**
+ * Exception indicating that a multi-get request asked for more ids than allowed.
+ */
+@SuppressWarnings("squid:S110")
+public class TooManyIdsException extends BusinessException {
+
+    public TooManyIdsException(int requested, int max) {
+        super("Too many ids requested: %d (max %d)".formatted(requested, max));
+    }
+
+}
@@ -0,0 +1,54 @@
+package pl.wsb.fitnesstracker.pagination.api;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.stream.Collectors;
+
+/**
+ * Kodowanie i dekodowanie nieprzezroczystych tokenów kursora dla {@link CursorPage}.
+ * Token to zakodowane w Base64 (URL-safe) wartości klucza sortowania ostatniego elementu strony.
+ */
+public final class Cursor {
+
+    private static final String SEPARATOR = ":";
+
+    private Cursor() {
+    }
+
+    /**
+     * Koduje wartości klucza w token kursora.
+     *
+     * @param keys kolejne składowe klucza (np. czas zakończenia w milisekundach i ID)
+     * @return token kursora
+     */
+    public static String encode(long... keys) {
+        String raw = Arrays.stream(keys)
+                .mapToObj(Long::toString)
+                .collect(Collectors.joining(SEPARATOR));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Dekoduje token kursora.
+     *
+     * @param token        token otrzymany od klienta
+     * @param expectedKeys oczekiwana liczba składowych klucza
+     * @return składowe klucza
+     * @throws InvalidCursorException jeśli token jest niepoprawny
+     */
+    public static long[] decode(String token, int expectedKeys) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            long[] keys = Arrays.stream(raw.split(SEPARATOR))
+                    .mapToLong(Long::parseLong)
+                    .toArray();
+            if (keys.length != expectedKeys) {
+                throw new InvalidCursorException(token);
+            }
+            return keys;
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(token);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package pl.wsb.fitnesstracker.pagination.api;
+
+import jakarta.annotation.Nullable;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Strona wyników stronicowania kursorowego (keyset pagination).
+ *
+ * <p>
+ * Zamiast numeru strony klient otrzymuje nieprzezroczysty token {@code nextCursor}, który przekazuje
+ * w kolejnym żądaniu. Token koduje klucz ostatniego zwróconego elementu, dzięki czemu kolejna strona
+ * jest pobierana zapytaniem {@code WHERE klucz > ? ORDER BY klucz LIMIT n}, a nie przez {@code OFFSET}.
+ * </p>
+ *
+ * @param items      elementy bieżącej strony
+ * @param nextCursor token kolejnej strony lub {@code null}, jeśli to ostatnia strona
+ * @param <T>        typ elementów strony
+ */
+public record CursorPage<T>(
+        List<T> items,
+        @Nullable String nextCursor
+) {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    /**
+     * Buduje stronę z wyników pobranych z limitem {@code limit + 1}.
+     * Nadmiarowy element służy wyłącznie do stwierdzenia, czy istnieje kolejna strona.
+     *
+     * @param fetched  wyniki zapytania (maksymalnie {@code limit + 1} elementów)
+     * @param limit    rozmiar strony
+     * @param cursorOf funkcja wyznaczająca token kursora dla elementu
+     * @param <T>      typ elementów strony
+     * @return strona wyników
+     */
+    public static <T> CursorPage<T> of(List<T> fetched, int limit, Function<T, String> cursorOf) {
+        if (fetched.size() <= limit) {
+            return new CursorPage<>(fetched, null);
+        }
+        List<T> items = List.copyOf(fetched.subList(0, limit));
+        return new CursorPage<>(items, cursorOf.apply(items.get(limit - 1)));
+    }
+
+    /**
+     * Ogranicza żądany rozmiar strony do przedziału {@code [1, MAX_LIMIT]}.
+     *
+     * @param requested rozmiar strony podany przez klienta
+     * @return bezpieczny rozmiar strony
+     */
+    public static int boundedLimit(int requested) {
+        return Math.max(1, Math.min(requested, MAX_LIMIT));
+    }
+
+    /**
+     * Zwraca wartość nagłówka {@code Link} (RFC 8288) wskazującą kolejną stronę pod podaną ścieżką
+     * lub {@code null}, jeśli to ostatnia strona. Token kursora jest bezpieczny w adresie URL.
+     *
+     * @param path  ścieżka endpointu stronicowanego, np. {@code /v1/users/page}
+     * @param limit rozmiar strony
+     * @return wartość nagłówka lub {@code null}
+     */
+    @Nullable
+    public String nextLink(String path, int limit) {
+        if (nextCursor == null) {
+            return null;
+        }
+        return "<" + path + "?cursor=" + nextCursor + "&limit=" + boundedLimit(limit) + ">; rel=\"next\"";
+    }
+
+    /**
+     * Przekształca elementy strony, zachowując token kolejnej strony.
+     *
+     * @param mapper funkcja mapująca elementy
+     * @param <R>    typ elementów wynikowych
+     * @return nowa strona z przekształconymi elementami
+     */
+    public <R> CursorPage<R> map(Function<T, R> mapper) {
+        return new CursorPage<>(items.stream().map(mapper).toList(), nextCursor);
+    }
+}
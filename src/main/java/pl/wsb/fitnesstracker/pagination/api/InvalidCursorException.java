@@ -0,0 +1,15 @@
+package pl.wsb.fitnesstracker.pagination.api;
+
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+
+/**
+ * Exception indicating that the pagination cursor sent by the client could not be decoded.
+ */
+@SuppressWarnings("squid:S110")
+public class InvalidCursorException extends BusinessException {
+
+    public InvalidCursorException(String cursor) {
+        super("Invalid pagination cursor: %s".formatted(cursor));
+    }
+
+}
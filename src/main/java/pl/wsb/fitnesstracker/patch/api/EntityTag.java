@@ -0,0 +1,60 @@
+package pl.wsb.fitnesstracker.patch.api;
+
+import jakarta.annotation.Nullable;
+import pl.wsb.fitnesstracker.exception.api.PreconditionFailedException;
+
+/**
+ * Silne znaczniki ETag oparte na numerze wersji encji ({@code @Version}) oraz obsługa nagłówka {@code If-Match}.
+ */
+public final class EntityTag {
+
+    private EntityTag() {
+    }
+
+    /**
+     * @param version numer wersji encji
+     * @return znacznik w postaci {@code "<wersja>"}
+     */
+    public static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Zwraca wersję oczekiwaną przez nagłówek {@code If-Match}.
+     *
+     * @param ifMatch wartość nagłówka lub {@code null}, jeśli nie został przesłany
+     * @return oczekiwana wersja lub {@code null}, jeśli dowolna wersja jest akceptowana (brak nagłówka lub {@code *})
+     * @throws PreconditionFailedException jeśli nagłówek nie jest znacznikiem wersji - taki warunek nigdy nie może być spełniony
+     */
+    @Nullable
+    public static Long expectedVersion(@Nullable String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.strip().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.strip();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        try {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException e) {
+            throw new PreconditionFailedException("If-Match does not match the current version: " + ifMatch);
+        }
+    }
+
+    /**
+     * Sprawdza, czy bieżąca wersja encji odpowiada oczekiwanej.
+     *
+     * @param expected oczekiwana wersja lub {@code null}, jeśli dowolna wersja jest akceptowana
+     * @param current  bieżąca wersja encji
+     * @throws PreconditionFailedException jeśli wersje się różnią
+     */
+    public static void checkVersion(@Nullable Long expected, long current) {
+        if (expected != null && expected != current) {
+            throw new PreconditionFailedException("Resource version is %d but If-Match expected %d".formatted(current, expected));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package pl.wsb.fitnesstracker.patch.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Implementacja JSON Merge Patch (RFC 7386).
+ *
+ * <p>
+ * Pola obecne w dokumencie zmian zastępują pola dokumentu docelowego, pola o wartości {@code null} są usuwane,
+ * a obiekty zagnieżdżone łączone są rekurencyjnie. Pola nieobecne w dokumencie zmian pozostają bez zmian.
+ * </p>
+ */
+public final class JsonMergePatch {
+
+    public static final String MEDIA_TYPE = "application/merge-patch+json";
+
+    private JsonMergePatch() {
+    }
+
+    /**
+     * Nakłada dokument zmian na dokument docelowy.
+     *
+     * @param target dokument docelowy (nie jest modyfikowany)
+     * @param patch  dokument zmian
+     * @return nowy dokument po nałożeniu zmian
+     */
+    public static JsonNode apply(JsonNode target, JsonNode patch) {
+        if (!patch.isObject()) {
+            return patch.deepCopy();
+        }
+        ObjectNode result = target.isObject() ? ((ObjectNode) target).deepCopy() : ((ObjectNode) patch).objectNode();
+        Iterator<Map.Entry<String, JsonNode>> fields = patch.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (field.getValue().isNull()) {
+                result.remove(field.getKey());
+            } else {
+                JsonNode current = result.path(field.getKey());
+                result.set(field.getKey(), apply(current, field.getValue()));
+            }
+        }
+        return result;
+    }
+}
@@ -7,16 +7,15 @@ import org.springframework.stereotype.Service;
 import pl.wsb.fitnesstracker.mail.api.EmailDto;
 import pl.wsb.fitnesstracker.mail.api.EmailService;
 import pl.wsb.fitnesstracker.report.api.ReportService;
-import pl.wsb.fitnesstracker.training.api.TrainingDto;
+import pl.wsb.fitnesstracker.training.api.TrainingPeriod;
+import pl.wsb.fitnesstracker.training.api.TrainingPeriodSummaryDto;
 import pl.wsb.fitnesstracker.training.api.TrainingService;
 import pl.wsb.fitnesstracker.user.api.User;
 import pl.wsb.fitnesstracker.user.internal.UserRepository;
 
-import java.time.Duration;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.ZoneOffset;
-import java.util.Date;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -26,7 +25,8 @@ import java.util.stream.Collectors;
  * <p>
  * On the first day of each month at 8:00 AM (UTC), this service collects training data
  * from the previous calendar month, summarizes it, and sends an email to each user
- * with their personal training overview.
+ * with their personal training overview. Daily totals are read from the persisted training rollups,
+ * so the report does not load each user's training history.
  * </p>
  */
 @Slf4j
@@ -50,26 +50,17 @@ public class ReportServiceImpl implements ReportService {
         List<User> users = userRepository.findAll();
 
         for (User user : users) {
-            List<TrainingDto> trainingsLastMonth = trainingService.findAllByUserId(user.getId()).stream()
-                    .filter(training -> {
-                        LocalDate endDate = toUtcDate(training.getEndTime());
-                        return !endDate.isBefore(startOfMonth) && !endDate.isAfter(endOfMonth);
-                    })
-                    .collect(Collectors.toList());
+            List<TrainingPeriodSummaryDto> days = trainingService.summarize(
+                    user.getId(), TrainingPeriod.DAY, startOfMonth, endOfMonth.plusDays(1));
 
-            long totalTrainings = trainingsLastMonth.size();
+            long totalTrainings = days.stream().mapToLong(TrainingPeriodSummaryDto::trainings).sum();
 
-            String trainingDates = trainingsLastMonth.stream()
-                    .map(t -> toUtcDate(t.getEndTime()).toString())
+            String trainingDates = days.stream()
+                    .flatMap(day -> Collections.nCopies((int) day.trainings(), day.bucketStart().toString()).stream())
                     .sorted()
                     .collect(Collectors.joining(", "));
 
-            long totalMinutes = trainingsLastMonth.stream()
-                    .mapToLong(t -> Duration.between(
-                            toUtcDateTime(t.getStartTime()),
-                            toUtcDateTime(t.getEndTime())
-                    ).toMinutes())
-                    .sum();
+            long totalMinutes = days.stream().mapToLong(TrainingPeriodSummaryDto::totalDurationSeconds).sum() / 60;
 
             String subject = "Your Monthly Training Summary";
             String content = String.format(
@@ -86,13 +77,4 @@ public class ReportServiceImpl implements ReportService {
             emailService.send(new EmailDto(user.getEmail(), subject, content));
         }
     }
-
-    private LocalDate toUtcDate(Date date) {
-        return date.toInstant().atZone(ZoneOffset.UTC).toLocalDate();
-    }
-
-    private LocalDateTime toUtcDateTime(Date date) {
-        return date.toInstant().atZone(ZoneOffset.UTC).toLocalDateTime();
-    }
 }
-
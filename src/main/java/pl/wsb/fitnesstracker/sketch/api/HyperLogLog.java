@@ -0,0 +1,313 @@
+package pl.wsb.fitnesstracker.sketch.api;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Szkic HyperLogLog szacujący liczbę różnych identyfikatorów (np. aktywnych użytkowników) w stałej pamięci.
+ *
+ * <p>
+ * Identyfikator jest mieszany do 64-bitowego skrótu, którego pierwsze {@code p} bitów wybiera jeden z {@code m = 2^p}
+ * rejestrów, a rejestr zapamiętuje największą pozycję pierwszej jedynki w pozostałych bitach. Błąd standardowy
+ * oszacowania wynosi {@code 1.04 / √m} (około 1,6% dla {@code p = 12}); dla małych liczności stosowane jest
+ * zliczanie liniowe, które jest niemal dokładne. Dodanie tego samego identyfikatora wielokrotnie nie zmienia szkicu,
+ * a scalenie szkiców (maksimum rejestrów) daje szkic sumy zbiorów, więc liczbę różnych identyfikatorów w miesiącu
+ * można wyznaczyć ze szkiców dziennych.
+ * </p>
+ *
+ * <p>
+ * Dopóki niezerowych rejestrów jest niewiele, przechowywane są rzadko - jako posortowana tablica par (rejestr, wartość) -
+ * i szkic zajmuje kilka bajtów na identyfikator. Po przekroczeniu {@code m / 4} par szkic przechodzi na tablicę
+ * wszystkich rejestrów. Obie postaci dają te same rejestry, więc i to samo oszacowanie.
+ * </p>
+ *
+ * <p>
+ * Klasa nie jest bezpieczna wątkowo.
+ * </p>
+ */
+public final class HyperLogLog {
+
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 16;
+
+    private static final byte FORMAT_VERSION = 1;
+    private static final byte SPARSE = 0;
+    private static final byte DENSE = 1;
+
+    /**
+     * Szacowany rozmiar obiektu szkicu bez tablic rejestrów.
+     */
+    private static final long HEADER_BYTES = 48;
+
+    private final int precision;
+    private final int registerCount;
+
+    /**
+     * Pary {@code rejestr << 8 | wartość} posortowane po numerze rejestru; {@code null} w postaci gęstej.
+     */
+    private int[] sparse = new int[0];
+    private int sparseSize;
+    private byte[] dense;
+
+    /**
+     * @param precision liczba bitów wybierających rejestr, od {@value #MIN_PRECISION} do {@value #MAX_PRECISION}
+     */
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION);
+        }
+        this.precision = precision;
+        this.registerCount = 1 << precision;
+    }
+
+    public int precision() {
+        return precision;
+    }
+
+    /**
+     * Względny błąd standardowy oszacowania, {@code 1.04 / √m}.
+     */
+    public double standardError() {
+        return standardError(precision);
+    }
+
+    public static double standardError(int precision) {
+        return 1.04 / Math.sqrt(1 << precision);
+    }
+
+    /**
+     * Szacowany rozmiar szkicu w pamięci w bajtach.
+     */
+    public long estimatedBytes() {
+        return HEADER_BYTES + (dense != null ? dense.length : 4L * sparse.length);
+    }
+
+    /**
+     * Dodaje identyfikator do szkicu.
+     */
+    public void add(long id) {
+        long hash = mix(id);
+        int index = (int) (hash >>> (64 - precision));
+        long remaining = hash << precision;
+        int rank = Math.min(Long.numberOfLeadingZeros(remaining) + 1, 64 - precision + 1);
+        set(index, rank);
+    }
+
+    /**
+     * Dodaje do szkicu identyfikatory innego szkicu o tej samej precyzji.
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge sketches with different precision");
+        }
+        if (other.dense != null) {
+            for (int index = 0; index < registerCount; index++) {
+                if (other.dense[index] != 0) {
+                    set(index, other.dense[index]);
+                }
+            }
+        } else {
+            for (int i = 0; i < other.sparseSize; i++) {
+                set(other.sparse[i] >>> 8, other.sparse[i] & 0xFF);
+            }
+        }
+    }
+
+    /**
+     * Szacuje liczbę różnych identyfikatorów dodanych do szkicu.
+     */
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        if (dense != null) {
+            for (byte register : dense) {
+                sum += Math.scalb(1.0, -register);
+                if (register == 0) {
+                    zeros++;
+                }
+            }
+        } else {
+            for (int i = 0; i < sparseSize; i++) {
+                sum += Math.scalb(1.0, -(sparse[i] & 0xFF));
+            }
+            zeros = registerCount - sparseSize;
+            sum += zeros;
+        }
+        double estimate = alpha() * registerCount * registerCount / sum;
+        if (estimate <= 2.5 * registerCount && zeros > 0) {
+            estimate = registerCount * Math.log((double) registerCount / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public boolean isEmpty() {
+        return dense == null && sparseSize == 0;
+    }
+
+    /**
+     * Zapisuje szkic w zwartej postaci binarnej: w postaci rzadkiej jako różnice kolejnych numerów rejestrów
+     * (liczby o zmiennej długości) i wartości, w postaci gęstej jako rejestry po 6 bitów.
+     */
+    public byte[] toBytes() {
+        ByteBuffer buffer;
+        if (dense != null) {
+            buffer = ByteBuffer.allocate(3 + (registerCount * 6 + 7) / 8);
+            buffer.put(FORMAT_VERSION).put((byte) precision).put(DENSE);
+            long bits = 0;
+            int pending = 0;
+            for (byte register : dense) {
+                bits |= (long) register << pending;
+                pending += 6;
+                while (pending >= 8) {
+                    buffer.put((byte) bits);
+                    bits >>>= 8;
+                    pending -= 8;
+                }
+            }
+            if (pending > 0) {
+                buffer.put((byte) bits);
+            }
+        } else {
+            buffer = ByteBuffer.allocate(3 + 5 + 4 * sparseSize);
+            buffer.put(FORMAT_VERSION).put((byte) precision).put(SPARSE);
+            putVarInt(buffer, sparseSize);
+            int previous = 0;
+            for (int i = 0; i < sparseSize; i++) {
+                int index = sparse[i] >>> 8;
+                putVarInt(buffer, index - previous);
+                buffer.put((byte) (sparse[i] & 0xFF));
+                previous = index;
+            }
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    /**
+     * Odtwarza szkic zapisany przez {@link #toBytes()}.
+     *
+     * @throws IllegalArgumentException jeśli dane nie są poprawnym szkicem
+     */
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            if (buffer.get() != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported HyperLogLog format");
+            }
+            HyperLogLog sketch = new HyperLogLog(buffer.get());
+            int maxRank = 64 - sketch.precision + 1;
+            byte mode = buffer.get();
+            if (mode == DENSE) {
+                sketch.dense = new byte[sketch.registerCount];
+                long bits = 0;
+                int available = 0;
+                for (int index = 0; index < sketch.registerCount; index++) {
+                    while (available < 6) {
+                        bits |= (long) (buffer.get() & 0xFF) << available;
+                        available += 8;
+                    }
+                    sketch.dense[index] = (byte) Math.min(bits & 0x3F, maxRank);
+                    bits >>>= 6;
+                    available -= 6;
+                }
+                sketch.sparse = null;
+            } else if (mode == SPARSE) {
+                int size = getVarInt(buffer);
+                if (size < 0 || size > sketch.registerCount) {
+                    throw new IllegalArgumentException("Corrupted HyperLogLog");
+                }
+                int index = 0;
+                for (int i = 0; i < size; i++) {
+                    index += getVarInt(buffer);
+                    int rank = buffer.get() & 0xFF;
+                    if (index >= sketch.registerCount || rank == 0 || rank > maxRank) {
+                        throw new IllegalArgumentException("Corrupted HyperLogLog");
+                    }
+                    sketch.set(index, rank);
+                }
+            } else {
+                throw new IllegalArgumentException("Unknown HyperLogLog encoding");
+            }
+            return sketch;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated HyperLogLog", e);
+        }
+    }
+
+    private void set(int index, int rank) {
+        if (dense != null) {
+            if (rank > dense[index]) {
+                dense[index] = (byte) rank;
+            }
+            return;
+        }
+        int position = Arrays.binarySearch(sparse, 0, sparseSize, index << 8 | 0xFF);
+        // klucz z wartością 0xFF jest większy od każdej pary z tym rejestrem, więc wyszukiwanie zawsze go "nie znajduje"
+        int insertion = -position - 1;
+        if (insertion > 0 && sparse[insertion - 1] >>> 8 == index) {
+            if (rank > (sparse[insertion - 1] & 0xFF)) {
+                sparse[insertion - 1] = index << 8 | rank;
+            }
+            return;
+        }
+        if (sparseSize >= registerCount / 4) {
+            toDense();
+            set(index, rank);
+            return;
+        }
+        if (sparseSize == sparse.length) {
+            sparse = Arrays.copyOf(sparse, Math.max(8, sparseSize * 2));
+        }
+        System.arraycopy(sparse, insertion, sparse, insertion + 1, sparseSize - insertion);
+        sparse[insertion] = index << 8 | rank;
+        sparseSize++;
+    }
+
+    private void toDense() {
+        dense = new byte[registerCount];
+        for (int i = 0; i < sparseSize; i++) {
+            dense[sparse[i] >>> 8] = (byte) (sparse[i] & 0xFF);
+        }
+        sparse = null;
+        sparseSize = 0;
+    }
+
+    private double alpha() {
+        return switch (registerCount) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / registerCount);
+        };
+    }
+
+    /**
+     * Miesza bity identyfikatora (funkcja końcowa SplitMix64), aby kolejne identyfikatory dawały niezależne skróty.
+     */
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static void putVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int getVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable-length number");
+    }
+}
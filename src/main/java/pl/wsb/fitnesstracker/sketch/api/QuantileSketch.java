@@ -0,0 +1,321 @@
+package pl.wsb.fitnesstracker.sketch.api;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Szkic kwantyli o stałym błędzie względnym (w stylu DDSketch / histogramu HDR) dla wartości nieujemnych.
+ *
+ * <p>
+ * Wartości zliczane są w kubełkach o logarytmicznie rosnącej szerokości: kubełek {@code i} obejmuje przedział
+ * {@code (γ^(i-1), γ^i]}, gdzie {@code γ = (1 + α) / (1 - α)}, a reprezentantem kubełka jest wartość, od której każda
+ * wartość z przedziału różni się o co najwyżej {@code α} (względnie). Dzięki temu kwantyl zwracany przez szkic różni się
+ * od dokładnego kwantyla o co najwyżej {@code α}, niezależnie od rozkładu i liczby wartości. Wartości mniejsze
+ * od {@value #MIN_INDEXABLE_VALUE} (w tym zero) zliczane są osobno.
+ * </p>
+ *
+ * <p>
+ * W przeciwieństwie do szkiców KLL czy t-digest szkic jest liczbą wystąpień w kubełkach, więc pozwala usunąć
+ * wcześniej dodaną wartość (np. przy zmianie treningu) oraz scalać szkice przez dodanie liczników.
+ * Liczba kubełków jest ograniczona - po przekroczeniu limitu najniższe kubełki są łączone, co psuje dokładność
+ * wyłącznie najmniejszych wartości. Kubełki przechowywane są w ciągłej tablicy obejmującej zakres od najmniejszego
+ * do największego zajętego indeksu.
+ * </p>
+ *
+ * <p>
+ * Klasa nie jest bezpieczna wątkowo.
+ * </p>
+ */
+public final class QuantileSketch {
+
+    /**
+     * Najmniejsza wartość zliczana w kubełkach; mniejsze wartości trafiają do licznika zer.
+     */
+    public static final double MIN_INDEXABLE_VALUE = 1e-6;
+
+    private static final byte FORMAT_VERSION = 1;
+
+    /**
+     * Szacowany rozmiar obiektu szkicu bez tablicy kubełków.
+     */
+    private static final long HEADER_BYTES = 80;
+
+    private final double relativeAccuracy;
+    private final int maxBuckets;
+    private final double gamma;
+    private final double logGamma;
+
+    private long[] counts = new long[0];
+    private int offset;
+    private long zeroCount;
+    private long count;
+
+    /**
+     * @param relativeAccuracy dopuszczalny błąd względny kwantyli, np. {@code 0.01} dla 1%
+     * @param maxBuckets       największa liczba kubełków (ogranicza pamięć do około {@code 8 * maxBuckets} bajtów)
+     */
+    public QuantileSketch(double relativeAccuracy, int maxBuckets) {
+        if (relativeAccuracy <= 0 || relativeAccuracy >= 1) {
+            throw new IllegalArgumentException("relativeAccuracy must be in (0, 1)");
+        }
+        if (maxBuckets < 1) {
+            throw new IllegalArgumentException("maxBuckets must be positive");
+        }
+        this.relativeAccuracy = relativeAccuracy;
+        this.maxBuckets = maxBuckets;
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+    }
+
+    public double relativeAccuracy() {
+        return relativeAccuracy;
+    }
+
+    /**
+     * Liczba wartości w szkicu.
+     */
+    public long count() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Szacowany rozmiar szkicu w pamięci w bajtach.
+     */
+    public long estimatedBytes() {
+        return HEADER_BYTES + 8L * counts.length;
+    }
+
+    /**
+     * Górne ograniczenie {@link #estimatedBytes()} szkicu o podanej największej liczbie kubełków.
+     */
+    public static long maxEstimatedBytes(int maxBuckets) {
+        return HEADER_BYTES + 8L * maxBuckets;
+    }
+
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    /**
+     * Usuwa jedno wystąpienie wartości dodanej wcześniej.
+     *
+     * @return {@code false}, jeśli w kubełku wartości nie było żadnego wystąpienia (szkic nie jest zmieniany)
+     */
+    public boolean remove(double value) {
+        if (!(value >= MIN_INDEXABLE_VALUE)) {
+            if (zeroCount == 0) {
+                return false;
+            }
+            zeroCount--;
+            count--;
+            return true;
+        }
+        int position = Math.max(index(value), offset) - offset;
+        if (position >= counts.length || counts[position] == 0) {
+            return false;
+        }
+        counts[position]--;
+        count--;
+        return true;
+    }
+
+    /**
+     * Dodaje do szkicu wszystkie wartości innego szkicu o tej samej dokładności.
+     */
+    public void merge(QuantileSketch other) {
+        if (other.gamma != gamma) {
+            throw new IllegalArgumentException("Cannot merge sketches with different relative accuracy");
+        }
+        zeroCount += other.zeroCount;
+        count += other.zeroCount;
+        for (int i = 0; i < other.counts.length; i++) {
+            if (other.counts[i] > 0) {
+                addToBucket(other.offset + i, other.counts[i]);
+            }
+        }
+    }
+
+    /**
+     * Zwraca przybliżony kwantyl rzędu {@code q} (np. {@code 0.5} dla mediany).
+     *
+     * @return kwantyl lub {@link Double#NaN} dla pustego szkicu
+     */
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Quantile must be in [0, 1]");
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = (long) Math.floor(q * (count - 1));
+        if (rank < zeroCount) {
+            return 0;
+        }
+        long seen = zeroCount;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen > rank) {
+                return value(offset + i);
+            }
+        }
+        return value(offset + counts.length - 1);
+    }
+
+    /**
+     * Zwraca przybliżoną liczbę wartości nie większych od podanej. Wartości z kubełka podanej wartości
+     * liczone są jako nie większe, więc wynik jest dokładny z dokładnością do szerokości kubełka.
+     */
+    public long countAtMost(double value) {
+        if (value < MIN_INDEXABLE_VALUE) {
+            return zeroCount;
+        }
+        long seen = zeroCount;
+        int last = Math.min(index(value) - offset, counts.length - 1);
+        for (int i = 0; i <= last; i++) {
+            seen += counts[i];
+        }
+        return seen;
+    }
+
+    /**
+     * Zapisuje szkic w zwartej postaci binarnej: liczniki kubełków kodowane są jako liczby o zmiennej długości.
+     */
+    public byte[] toBytes() {
+        int first = 0;
+        int last = counts.length - 1;
+        while (first <= last && counts[first] == 0) {
+            first++;
+        }
+        while (last >= first && counts[last] == 0) {
+            last--;
+        }
+        int length = Math.max(0, last - first + 1);
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 8 + 4 + 10 + 4 + 4 + 10 * length);
+        buffer.put(FORMAT_VERSION);
+        buffer.putDouble(relativeAccuracy);
+        buffer.putInt(maxBuckets);
+        putVarLong(buffer, zeroCount);
+        buffer.putInt(offset + first);
+        buffer.putInt(length);
+        for (int i = first; i <= last; i++) {
+            putVarLong(buffer, counts[i]);
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    /**
+     * Odtwarza szkic zapisany przez {@link #toBytes()}.
+     *
+     * @throws IllegalArgumentException jeśli dane nie są poprawnym szkicem
+     */
+    public static QuantileSketch fromBytes(byte[] bytes) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            if (buffer.get() != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported quantile sketch format");
+            }
+            QuantileSketch sketch = new QuantileSketch(buffer.getDouble(), buffer.getInt());
+            sketch.zeroCount = getVarLong(buffer);
+            sketch.count = sketch.zeroCount;
+            sketch.offset = buffer.getInt();
+            int length = buffer.getInt();
+            if (length < 0 || length > sketch.maxBuckets) {
+                throw new IllegalArgumentException("Corrupted quantile sketch");
+            }
+            sketch.counts = new long[length];
+            for (int i = 0; i < length; i++) {
+                sketch.counts[i] = getVarLong(buffer);
+                sketch.count += sketch.counts[i];
+            }
+            return sketch;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated quantile sketch", e);
+        }
+    }
+
+    private void add(double value, long occurrences) {
+        if (!(value >= MIN_INDEXABLE_VALUE)) {
+            zeroCount += occurrences;
+            count += occurrences;
+            return;
+        }
+        addToBucket(index(value), occurrences);
+    }
+
+    private void addToBucket(int index, long occurrences) {
+        count += occurrences;
+        if (counts.length == 0) {
+            counts = new long[Math.min(8, maxBuckets)];
+            offset = index;
+        }
+        if (index < offset) {
+            if (offset + counts.length - index > maxBuckets) {
+                // zakres przekroczyłby limit - wartość trafia do najniższego kubełka
+                counts[0] += occurrences;
+                return;
+            }
+            grow(index, offset + counts.length - 1);
+        } else if (index >= offset + counts.length) {
+            grow(offset, index);
+        }
+        counts[index - offset] += occurrences;
+    }
+
+    /**
+     * Powiększa tablicę tak, aby obejmowała indeksy {@code [low, high]}; jeśli zakres jest szerszy niż limit,
+     * najniższe kubełki łączone są w jeden.
+     */
+    private void grow(int low, int high) {
+        int needed = high - low + 1;
+        if (needed > maxBuckets) {
+            int newOffset = high - maxBuckets + 1;
+            long[] collapsed = new long[maxBuckets];
+            for (int i = 0; i < counts.length; i++) {
+                int target = Math.max(offset + i, newOffset) - newOffset;
+                collapsed[target] += counts[i];
+            }
+            counts = collapsed;
+            offset = newOffset;
+            return;
+        }
+        int capacity = Math.min(maxBuckets, Math.max(needed, counts.length * 2));
+        int newOffset = low < offset ? high - capacity + 1 : offset;
+        long[] grown = new long[capacity];
+        System.arraycopy(counts, 0, grown, offset - newOffset, counts.length);
+        counts = grown;
+        offset = newOffset;
+    }
+
+    private int index(double value) {
+        return (int) Math.ceil(Math.log(value) / logGamma);
+    }
+
+    private double value(int index) {
+        return 2 * Math.pow(gamma, index) / (gamma + 1);
+    }
+
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable-length number");
+    }
+}
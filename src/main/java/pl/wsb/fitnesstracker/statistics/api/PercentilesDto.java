@@ -0,0 +1,17 @@
+package pl.wsb.fitnesstracker.statistics.api;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * Selected percentiles of a distribution, {@code null} when there are no values.
+ *
+ * @param p50 the median
+ * @param p90 the 90th percentile
+ * @param p99 the 99th percentile
+ */
+public record PercentilesDto(
+        @Nullable Double p50,
+        @Nullable Double p90,
+        @Nullable Double p99
+) {
+}
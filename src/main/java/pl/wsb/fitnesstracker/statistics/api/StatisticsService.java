@@ -0,0 +1,21 @@
+package pl.wsb.fitnesstracker.statistics.api;
+
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+/**
+ * Service answering statistical questions about a user's trainings.
+ */
+public interface StatisticsService {
+
+    /**
+     * Returns the p50, p90 and p99 of the distance and average speed of the user's trainings of one activity type.
+     * The percentiles come from per-user quantile sketches kept up to date on every training write,
+     * so the cost does not depend on the number of the user's trainings.
+     *
+     * @param userId       the ID of the user
+     * @param activityType the activity type
+     * @return the percentiles, empty ones if the user has no trainings of this type
+     * @throws pl.wsb.fitnesstracker.user.api.UserNotFoundException if the user does not exist
+     */
+    TrainingPercentilesDto getTrainingPercentiles(Long userId, ActivityType activityType);
+}
@@ -0,0 +1,25 @@
+package pl.wsb.fitnesstracker.statistics.api;
+
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+/**
+ * Percentiles of the distance and average speed of a user's trainings of one activity type.
+ *
+ * @param userId           the ID of the user
+ * @param activityType     the activity type
+ * @param trainings        the number of the user's trainings of this type
+ * @param distance         percentiles of the training distance
+ * @param averageSpeed     percentiles of the training average speed
+ * @param relativeAccuracy maximum relative error of every percentile, e.g. 0.01 for 1%
+ * @param sketchBytes      estimated memory held by all the user's percentile sketches
+ */
+public record TrainingPercentilesDto(
+        Long userId,
+        ActivityType activityType,
+        long trainings,
+        PercentilesDto distance,
+        PercentilesDto averageSpeed,
+        double relativeAccuracy,
+        long sketchBytes
+) {
+}
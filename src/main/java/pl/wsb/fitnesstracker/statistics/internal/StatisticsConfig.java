@@ -0,0 +1,10 @@
+package pl.wsb.fitnesstracker.statistics.internal;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(StatisticsProperties.class)
+class StatisticsConfig {
+
+}
@@ -0,0 +1,35 @@
+package pl.wsb.fitnesstracker.statistics.internal;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import pl.wsb.fitnesstracker.statistics.api.StatisticsService;
+import pl.wsb.fitnesstracker.statistics.api.TrainingPercentilesDto;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+/**
+ * REST controller exposing statistics of users' trainings.
+ */
+@RestController
+@RequestMapping("/v1/statistics")
+@RequiredArgsConstructor
+public class StatisticsController {
+
+    private final StatisticsService statisticsService;
+
+    /**
+     * Returns the p50, p90 and p99 of the distance and average speed of the user's trainings of one activity type,
+     * e.g. {@code /v1/statistics/users/1/percentiles?activityType=RUNNING}.
+     *
+     * @param userId       the ID of the user
+     * @param activityType the activity type
+     * @return HTTP 200 with the percentiles (null ones if the user has no such trainings), or HTTP 404 if the user does not exist
+     */
+    @GetMapping("/users/{userId}/percentiles")
+    public TrainingPercentilesDto getTrainingPercentiles(@PathVariable Long userId, @RequestParam ActivityType activityType) {
+        return statisticsService.getTrainingPercentiles(userId, activityType);
+    }
+}
@@ -0,0 +1,29 @@
+package pl.wsb.fitnesstracker.statistics.internal;
+
+import lombok.Getter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration of the per-user training percentile sketches kept by {@link TrainingPercentileSketches}.
+ */
+@ConfigurationProperties(prefix = "statistics.percentiles")
+@Getter
+class StatisticsProperties {
+
+    /**
+     * Maximum relative error of the returned percentiles, e.g. 0.01 for 1%.
+     */
+    private final double relativeAccuracy;
+
+    /**
+     * Maximum number of buckets of a single sketch (about 8 bytes each). With 1% accuracy 256 buckets cover values
+     * spanning a factor of about 160; beyond that the lowest values are merged and lose accuracy.
+     */
+    private final int maxBuckets;
+
+    StatisticsProperties(@DefaultValue("0.01") double relativeAccuracy, @DefaultValue("256") int maxBuckets) {
+        this.relativeAccuracy = relativeAccuracy;
+        this.maxBuckets = maxBuckets;
+    }
+}
@@ -0,0 +1,31 @@
+package pl.wsb.fitnesstracker.statistics.internal;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import pl.wsb.fitnesstracker.statistics.api.StatisticsService;
+import pl.wsb.fitnesstracker.statistics.api.TrainingPercentilesDto;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+import pl.wsb.fitnesstracker.user.api.UserNotFoundException;
+import pl.wsb.fitnesstracker.user.api.UserProvider;
+
+@Service
+@RequiredArgsConstructor
+class StatisticsServiceImpl implements StatisticsService {
+
+    private final UserProvider userProvider;
+    private final TrainingPercentileSketches percentileSketches;
+    private final StatisticsProperties properties;
+
+    @Override
+    public TrainingPercentilesDto getTrainingPercentiles(Long userId, ActivityType activityType) {
+        if (userProvider.getUser(userId).isEmpty()) {
+            throw new UserNotFoundException(userId);
+        }
+        return percentileSketches.read(userId, sketches -> new TrainingPercentilesDto(userId, activityType,
+                sketches.count(activityType),
+                sketches.distancePercentiles(activityType),
+                sketches.averageSpeedPercentiles(activityType),
+                properties.getRelativeAccuracy(),
+                sketches.estimatedBytes()));
+    }
+}
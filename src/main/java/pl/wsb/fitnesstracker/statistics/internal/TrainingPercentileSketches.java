@@ -0,0 +1,149 @@
+package pl.wsb.fitnesstracker.statistics.internal;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import pl.wsb.fitnesstracker.training.api.TrainingMeasurement;
+import pl.wsb.fitnesstracker.training.api.TrainingMeasurementsChangedEvent;
+import pl.wsb.fitnesstracker.training.api.TrainingProvider;
+import pl.wsb.fitnesstracker.training.api.TrainingRowDto;
+import pl.wsb.fitnesstracker.transaction.api.TransactionBatch;
+import pl.wsb.fitnesstracker.user.api.UserChangedEvent;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Per-user {@link UserTrainingSketches} of all users, built at startup with one pass over the trainings table
+ * and updated from {@link TrainingMeasurementsChangedEvent}s once the transaction that published them commits.
+ * Sketches of a deleted user are dropped after commit as well.
+ *
+ * <p>
+ * The memory of one user is bounded by {@link UserTrainingSketches#maxBytes(int)}; the number of users with sketches
+ * is published as the {@code statistics.percentiles.users} gauge and the estimated heap of all sketches as
+ * {@code statistics.percentiles.memory}.
+ * </p>
+ */
+@Component
+@Slf4j
+class TrainingPercentileSketches {
+
+    private final TrainingProvider trainingProvider;
+    private final StatisticsProperties properties;
+    private final Map<Long, UserTrainingSketches> sketches = new ConcurrentHashMap<>();
+    private final TransactionBatch<Pending> pending = TransactionBatch.afterCommit(Pending::new, this::apply);
+
+    TrainingPercentileSketches(TrainingProvider trainingProvider,
+                               StatisticsProperties properties,
+                               MeterRegistry meterRegistry) {
+        this.trainingProvider = trainingProvider;
+        this.properties = properties;
+        Gauge.builder("statistics.percentiles.users", sketches, Map::size)
+                .description("Number of users with training percentile sketches")
+                .register(meterRegistry);
+        Gauge.builder("statistics.percentiles.memory", this, TrainingPercentileSketches::estimatedBytes)
+                .description("Estimated heap held by per-user training percentile sketches")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    void rebuild() {
+        Map<Long, UserTrainingSketches> rebuilt = new ConcurrentHashMap<>();
+        try (Stream<TrainingRowDto> rows = trainingProvider.streamAllRows()) {
+            rows.forEach(row -> rebuilt.computeIfAbsent(row.userId(), userId -> newSketches())
+                    .add(new TrainingMeasurement(row.userId(), row.activityType(), row.distance(), row.averageSpeed())));
+        }
+        sketches.clear();
+        sketches.putAll(rebuilt);
+        log.info("Training percentile sketches built for {} users", rebuilt.size());
+    }
+
+    /**
+     * Reads the user's sketches under their lock.
+     *
+     * @param reader called with the user's sketches, or with empty sketches if the user has no trainings
+     */
+    <T> T read(long userId, Function<UserTrainingSketches, T> reader) {
+        UserTrainingSketches userSketches = sketches.get(userId);
+        if (userSketches == null) {
+            return reader.apply(newSketches());
+        }
+        synchronized (userSketches) {
+            return reader.apply(userSketches);
+        }
+    }
+
+    @EventListener
+    void onMeasurementsChanged(TrainingMeasurementsChangedEvent event) {
+        pending.add(batch -> {
+            batch.removed.addAll(event.removed());
+            batch.added.addAll(event.added());
+        });
+    }
+
+    @EventListener
+    void onUserChanged(UserChangedEvent event) {
+        if (event.change() != UserChangedEvent.Change.DELETED) {
+            return;
+        }
+        Long userId = event.user().getId();
+        pending.add(batch -> batch.deletedUsers.add(userId));
+    }
+
+    private void apply(Pending batch) {
+        for (TrainingMeasurement measurement : batch.removed) {
+            sketches.computeIfPresent(measurement.userId(), (userId, userSketches) -> {
+                synchronized (userSketches) {
+                    userSketches.remove(measurement);
+                    return userSketches.isEmpty() ? null : userSketches;
+                }
+            });
+        }
+        for (TrainingMeasurement measurement : batch.added) {
+            sketches.compute(measurement.userId(), (userId, userSketches) -> {
+                UserTrainingSketches target = userSketches != null ? userSketches : newSketches();
+                synchronized (target) {
+                    target.add(measurement);
+                }
+                return target;
+            });
+        }
+        batch.deletedUsers.forEach(sketches::remove);
+    }
+
+    private UserTrainingSketches newSketches() {
+        return new UserTrainingSketches(properties.getRelativeAccuracy(), properties.getMaxBuckets());
+    }
+
+    private long estimatedBytes() {
+        long bytes = 0;
+        for (UserTrainingSketches userSketches : sketches.values()) {
+            synchronized (userSketches) {
+                bytes += userSketches.estimatedBytes();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Changes collected in one transaction.
+     */
+    private static final class Pending {
+
+        private final List<TrainingMeasurement> removed = new ArrayList<>();
+        private final List<TrainingMeasurement> added = new ArrayList<>();
+        private final Set<Long> deletedUsers = new HashSet<>();
+    }
+}
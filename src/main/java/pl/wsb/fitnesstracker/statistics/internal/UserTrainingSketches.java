@@ -0,0 +1,98 @@
+package pl.wsb.fitnesstracker.statistics.internal;
+
+import jakarta.annotation.Nullable;
+import pl.wsb.fitnesstracker.sketch.api.QuantileSketch;
+import pl.wsb.fitnesstracker.statistics.api.PercentilesDto;
+import pl.wsb.fitnesstracker.training.api.TrainingMeasurement;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Quantile sketches of the distance and average speed of one user's trainings, one pair per activity type.
+ *
+ * <p>
+ * Every sketch has at most {@code maxBuckets} buckets, so the memory of a user is bounded by
+ * {@link #maxBytes(int)} however many trainings they have. Sketches are created for the activity types
+ * the user actually trained and dropped when their last training of that type is removed.
+ * </p>
+ *
+ * <p>
+ * The class is not thread-safe.
+ * </p>
+ */
+final class UserTrainingSketches {
+
+    private final double relativeAccuracy;
+    private final int maxBuckets;
+    private final Map<ActivityType, Pair> pairs = new EnumMap<>(ActivityType.class);
+
+    UserTrainingSketches(double relativeAccuracy, int maxBuckets) {
+        this.relativeAccuracy = relativeAccuracy;
+        this.maxBuckets = maxBuckets;
+    }
+
+    /**
+     * Upper bound of the memory held by the sketches of one user.
+     */
+    static long maxBytes(int maxBuckets) {
+        return ActivityType.values().length * 2L * QuantileSketch.maxEstimatedBytes(maxBuckets);
+    }
+
+    void add(TrainingMeasurement measurement) {
+        Pair pair = pairs.computeIfAbsent(measurement.activityType(), activityType -> new Pair(
+                new QuantileSketch(relativeAccuracy, maxBuckets), new QuantileSketch(relativeAccuracy, maxBuckets)));
+        pair.distance.add(measurement.distance());
+        pair.averageSpeed.add(measurement.averageSpeed());
+    }
+
+    void remove(TrainingMeasurement measurement) {
+        Pair pair = pairs.get(measurement.activityType());
+        if (pair == null) {
+            return;
+        }
+        pair.distance.remove(measurement.distance());
+        pair.averageSpeed.remove(measurement.averageSpeed());
+        if (pair.distance.isEmpty() && pair.averageSpeed.isEmpty()) {
+            pairs.remove(measurement.activityType());
+        }
+    }
+
+    boolean isEmpty() {
+        return pairs.isEmpty();
+    }
+
+    long count(ActivityType activityType) {
+        Pair pair = pairs.get(activityType);
+        return pair == null ? 0 : pair.distance.count();
+    }
+
+    PercentilesDto distancePercentiles(ActivityType activityType) {
+        Pair pair = pairs.get(activityType);
+        return percentiles(pair == null ? null : pair.distance);
+    }
+
+    PercentilesDto averageSpeedPercentiles(ActivityType activityType) {
+        Pair pair = pairs.get(activityType);
+        return percentiles(pair == null ? null : pair.averageSpeed);
+    }
+
+    long estimatedBytes() {
+        long bytes = 0;
+        for (Pair pair : pairs.values()) {
+            bytes += pair.distance.estimatedBytes() + pair.averageSpeed.estimatedBytes();
+        }
+        return bytes;
+    }
+
+    private static PercentilesDto percentiles(@Nullable QuantileSketch sketch) {
+        if (sketch == null || sketch.isEmpty()) {
+            return new PercentilesDto(null, null, null);
+        }
+        return new PercentilesDto(sketch.quantile(0.5), sketch.quantile(0.9), sketch.quantile(0.99));
+    }
+
+    private record Pair(QuantileSketch distance, QuantileSketch averageSpeed) {
+    }
+}
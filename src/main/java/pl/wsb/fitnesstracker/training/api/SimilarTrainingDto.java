@@ -0,0 +1,14 @@
+package pl.wsb.fitnesstracker.training.api;
+
+/**
+ * Trening podobny do wskazanego treningu.
+ *
+ * @param training podobny trening
+ * @param distance odległość od wskazanego treningu w przestrzeni cech (dystans, średnia prędkość, czas trwania),
+ *                 wyrażona w odchyleniach standardowych cech dla danego typu aktywności - im mniejsza, tym bardziej podobny
+ */
+public record SimilarTrainingDto(
+        TrainingDto training,
+        double distance
+) {
+}
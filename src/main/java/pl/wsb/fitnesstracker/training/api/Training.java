@@ -1,14 +1,22 @@
 package pl.wsb.fitnesstracker.training.api;
 
+import jakarta.annotation.Nullable;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
 import pl.wsb.fitnesstracker.training.internal.ActivityType;
 import pl.wsb.fitnesstracker.user.api.User;
 
 import java.util.Date;
 
 @Entity
-@Table(name = "trainings")
+@Table(name = "trainings", indexes = {
+        @Index(name = "idx_trainings_user_end_time", columnList = "user_id, end_time, id"),
+        @Index(name = "idx_trainings_activity_end_time", columnList = "activity_type, end_time, id")
+})
+@EntityListeners(TrainingEntityListener.class)
+@DynamicUpdate
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
@@ -16,7 +24,8 @@ import java.util.Date;
 public class Training {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "trainings_seq")
+    @SequenceGenerator(name = "trainings_seq", sequenceName = "trainings_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -39,6 +48,22 @@ public class Training {
     @Column(name = "average_speed")
     private double averageSpeed;
 
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    @Setter(AccessLevel.NONE)
+    private long version;
+
+    /**
+     * ID właściciela zapisany w bazie (przy wczytaniu lub ostatnim zapisie); nie jest utrwalane.
+     */
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @Nullable
+    private Long persistedUserId;
+
     public Training(
             final User user,
             final Date startTime,
@@ -53,4 +78,23 @@ public class Training {
         this.distance = distance;
         this.averageSpeed = averageSpeed;
     }
+
+    /**
+     * Zwraca ID poprzedniego właściciela, jeśli od wczytania lub ostatniego zapisu trening przeniesiono
+     * do innego użytkownika.
+     *
+     * @return ID poprzedniego właściciela lub {@code null}, jeśli się nie zmienił
+     */
+    @Nullable
+    Long previousUserId() {
+        Long current = user != null ? user.getId() : null;
+        return persistedUserId != null && !persistedUserId.equals(current) ? persistedUserId : null;
+    }
+
+    /**
+     * Zapamiętuje bieżącego właściciela jako zapisanego w bazie. Wywoływane przez {@link TrainingEntityListener}.
+     */
+    void markPersisted() {
+        persistedUserId = user != null ? user.getId() : null;
+    }
 }
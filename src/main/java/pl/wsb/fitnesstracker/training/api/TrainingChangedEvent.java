@@ -0,0 +1,40 @@
+package pl.wsb.fitnesstracker.training.api;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * Zdarzenie aplikacyjne publikowane po zapisaniu zmiany encji {@link Training} w bazie danych.
+ *
+ * <p>
+ * Zdarzenie jest emitowane niezależnie od tego, czy zapis przeszedł przez {@link TrainingService},
+ * czy bezpośrednio przez repozytorium. Pozwala utrzymywać struktury pomocnicze (wersje danych,
+ * cache, agregaty) w zgodzie z tabelą {@code trainings}.
+ * </p>
+ *
+ * @param training       encja treningu w stanie po zmianie
+ * @param change         rodzaj zmiany
+ * @param previousUserId ID poprzedniego właściciela, jeśli aktualizacja przeniosła trening do innego użytkownika,
+ *                       w przeciwnym razie {@code null}
+ */
+public record TrainingChangedEvent(
+        Training training,
+        Change change,
+        @Nullable Long previousUserId
+) {
+
+    /**
+     * Tworzy zdarzenie zmiany, która nie przeniosła treningu do innego użytkownika.
+     */
+    public TrainingChangedEvent(Training training, Change change) {
+        this(training, change, null);
+    }
+
+    /**
+     * Rodzaj zmiany wykonanej na encji treningu.
+     */
+    public enum Change {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+}
@@ -27,8 +27,9 @@ public class TrainingDto {
     private ActivityType activityType;
     private double distance;
     private double averageSpeed;
+    private long version;
 
-    public TrainingDto(Long id, UserDto user, Date startTime, Date endTime, ActivityType activityType, double distance, double averageSpeed) {
+    public TrainingDto(Long id, UserDto user, Date startTime, Date endTime, ActivityType activityType, double distance, double averageSpeed, long version) {
         this.id = id;
         this.user = user;
         this.startTime = startTime;
@@ -36,5 +37,6 @@ public class TrainingDto {
         this.activityType = activityType;
         this.distance = distance;
         this.averageSpeed = averageSpeed;
+        this.version = version;
     }
 }
@@ -0,0 +1,41 @@
+package pl.wsb.fitnesstracker.training.api;
+
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * Listener JPA encji {@link Training} publikujący {@link TrainingChangedEvent} po każdym zapisie do bazy.
+ * Instancja tworzona jest przez Hibernate z użyciem kontenera Springa, dzięki czemu otrzymuje wstrzyknięte zależności.
+ */
+@RequiredArgsConstructor
+class TrainingEntityListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostLoad
+    void afterLoad(Training training) {
+        training.markPersisted();
+    }
+
+    @PostPersist
+    void afterCreate(Training training) {
+        training.markPersisted();
+        eventPublisher.publishEvent(new TrainingChangedEvent(training, TrainingChangedEvent.Change.CREATED));
+    }
+
+    @PostUpdate
+    void afterUpdate(Training training) {
+        Long previousUserId = training.previousUserId();
+        training.markPersisted();
+        eventPublisher.publishEvent(new TrainingChangedEvent(training, TrainingChangedEvent.Change.UPDATED, previousUserId));
+    }
+
+    @PostRemove
+    void afterDelete(Training training) {
+        eventPublisher.publishEvent(new TrainingChangedEvent(training, TrainingChangedEvent.Change.DELETED));
+    }
+}
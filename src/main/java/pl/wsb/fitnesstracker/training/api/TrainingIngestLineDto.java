@@ -0,0 +1,17 @@
+package pl.wsb.fitnesstracker.training.api;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * Wynik przetworzenia jednej linii masowego importu treningów.
+ *
+ * @param line       numer linii w przesłanym pliku (liczony od 1)
+ * @param trainingId identyfikator zapisanego treningu lub {@code null}, jeśli linia została odrzucona
+ * @param error      przyczyna odrzucenia lub {@code null}, jeśli trening został zapisany
+ */
+public record TrainingIngestLineDto(
+        long line,
+        @Nullable Long trainingId,
+        @Nullable String error
+) {
+}
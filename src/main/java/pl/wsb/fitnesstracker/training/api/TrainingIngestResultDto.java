@@ -0,0 +1,19 @@
+package pl.wsb.fitnesstracker.training.api;
+
+import java.util.List;
+
+/**
+ * Podsumowanie masowego importu treningów.
+ *
+ * @param accepted           liczba zapisanych treningów
+ * @param rejected           liczba odrzuconych linii
+ * @param trainingsPerSecond przepustowość importu (przetworzone linie na sekundę)
+ * @param lines              wynik każdej niepustej linii w kolejności z pliku
+ */
+public record TrainingIngestResultDto(
+        long accepted,
+        long rejected,
+        long trainingsPerSecond,
+        List<TrainingIngestLineDto> lines
+) {
+}
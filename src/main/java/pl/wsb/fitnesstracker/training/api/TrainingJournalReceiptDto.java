@@ -0,0 +1,12 @@
+package pl.wsb.fitnesstracker.training.api;
+
+/**
+ * Potwierdzenie przyjęcia treningu do dziennika. Trening zostanie zapisany w bazie asynchronicznie,
+ * a jego identyfikator nie jest jeszcze znany.
+ *
+ * @param sequence numer wpisu w dzienniku
+ */
+public record TrainingJournalReceiptDto(
+        long sequence
+) {
+}
@@ -0,0 +1,19 @@
+package pl.wsb.fitnesstracker.training.api;
+
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+/**
+ * Wartości pojedynczego treningu używane w rozkładach statystycznych.
+ *
+ * @param userId       identyfikator użytkownika
+ * @param activityType typ aktywności
+ * @param distance     dystans
+ * @param averageSpeed średnia prędkość
+ */
+public record TrainingMeasurement(
+        long userId,
+        ActivityType activityType,
+        double distance,
+        double averageSpeed
+) {
+}
@@ -0,0 +1,22 @@
+package pl.wsb.fitnesstracker.training.api;
+
+import java.util.List;
+
+/**
+ * Zdarzenie aplikacyjne publikowane w transakcji, która dodała lub usunęła treningi (zmiana treningu
+ * to usunięcie wartości sprzed zmiany i dodanie wartości po zmianie).
+ *
+ * <p>
+ * W odróżnieniu od {@link TrainingChangedEvent} zdarzenie niesie także wartości sprzed zmiany, więc pozwala
+ * utrzymywać rozkłady (np. szkice kwantyli), z których nie da się odczytać, co należy usunąć.
+ * Import paczki treningów publikuje jedno zdarzenie. Odbiorcy powinni nanosić zmiany dopiero po zatwierdzeniu transakcji.
+ * </p>
+ *
+ * @param added   wartości dodanych treningów
+ * @param removed wartości usuniętych treningów
+ */
+public record TrainingMeasurementsChangedEvent(
+        List<TrainingMeasurement> added,
+        List<TrainingMeasurement> removed
+) {
+}
@@ -0,0 +1,31 @@
+package pl.wsb.fitnesstracker.training.api;
+
+import jakarta.annotation.Nullable;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.time.LocalDate;
+
+/**
+ * Zdarzenie aplikacyjne publikowane w transakcji, która zmieniła miesięczny dystans użytkownika w jednym typie aktywności.
+ *
+ * <p>
+ * Zdarzenie niesie wartość przed zmianą i po zmianie, więc struktury utrzymujące rozkłady miesięcznych sum
+ * (np. szkice kwantyli kohort) mogą usunąć starą wartość i dodać nową bez odczytu historii treningów.
+ * Brak wartości oznacza, że w miesiącu nie było (lub nie ma już) żadnego treningu tego typu.
+ * Odbiorcy powinni nanosić zmiany dopiero po zatwierdzeniu transakcji.
+ * </p>
+ *
+ * @param userId           identyfikator użytkownika
+ * @param month            pierwszy dzień miesiąca
+ * @param activityType     typ aktywności
+ * @param previousDistance dystans w miesiącu przed zmianą
+ * @param currentDistance  dystans w miesiącu po zmianie
+ */
+public record TrainingMonthlyTotalChangedEvent(
+        long userId,
+        LocalDate month,
+        ActivityType activityType,
+        @Nullable Double previousDistance,
+        @Nullable Double currentDistance
+) {
+}
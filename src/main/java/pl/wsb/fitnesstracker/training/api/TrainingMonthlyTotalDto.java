@@ -0,0 +1,21 @@
+package pl.wsb.fitnesstracker.training.api;
+
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.time.LocalDate;
+
+/**
+ * Miesięczny dystans użytkownika w jednym typie aktywności.
+ *
+ * @param userId       identyfikator użytkownika
+ * @param month        pierwszy dzień miesiąca
+ * @param activityType typ aktywności
+ * @param distance     łączny dystans treningów w miesiącu
+ */
+public record TrainingMonthlyTotalDto(
+        long userId,
+        LocalDate month,
+        ActivityType activityType,
+        double distance
+) {
+}
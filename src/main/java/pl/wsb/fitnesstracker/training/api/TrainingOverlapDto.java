@@ -0,0 +1,13 @@
+package pl.wsb.fitnesstracker.training.api;
+
+/**
+ * Para treningów tego samego użytkownika, których czasy na siebie nachodzą.
+ *
+ * @param first  trening rozpoczynający się wcześniej
+ * @param second trening rozpoczynający się później
+ */
+public record TrainingOverlapDto(
+        TrainingDto first,
+        TrainingDto second
+) {
+}
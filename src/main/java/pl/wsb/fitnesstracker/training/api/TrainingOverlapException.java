@@ -0,0 +1,15 @@
+package pl.wsb.fitnesstracker.training.api;
+
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+
+/**
+ * Exception indicating that the {@link Training} overlaps another training of the same user.
+ */
+@SuppressWarnings("squid:S110")
+public class TrainingOverlapException extends BusinessException {
+
+    public TrainingOverlapException(Long overlappingTrainingId) {
+        super("Training overlaps training with ID=%s".formatted(overlappingTrainingId));
+    }
+
+}
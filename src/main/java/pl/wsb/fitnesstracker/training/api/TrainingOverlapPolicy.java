@@ -0,0 +1,24 @@
+package pl.wsb.fitnesstracker.training.api;
+
+/**
+ * Sposób obsługi treningu, którego czas nachodzi na inny trening tego samego użytkownika
+ * (np. ta sama sesja zapisana ręcznie i przez urządzenie).
+ */
+public enum TrainingOverlapPolicy {
+
+    /**
+     * Nachodzące treningi są zapisywane bez sprawdzania.
+     */
+    ALLOW,
+
+    /**
+     * Nachodzący trening jest odrzucany ({@link TrainingOverlapException}).
+     */
+    REJECT,
+
+    /**
+     * Nowy trening jest scalany z najwcześniejszym treningiem, na który nachodzi.
+     * Scalony trening obejmuje oba przedziały czasu i przyjmuje dystans oraz prędkość dłuższego z nich.
+     */
+    MERGE
+}
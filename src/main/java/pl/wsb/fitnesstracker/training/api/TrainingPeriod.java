@@ -0,0 +1,72 @@
+package pl.wsb.fitnesstracker.training.api;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Okres kalendarzowy, w którym agregowane są treningi (według dnia zakończenia treningu w strefie UTC).
+ */
+public enum TrainingPeriod {
+
+    /**
+     * Dzień.
+     */
+    DAY {
+        @Override
+        public LocalDate bucketStart(LocalDate date) {
+            return date;
+        }
+
+        @Override
+        public LocalDate nextBucketStart(LocalDate bucketStart) {
+            return bucketStart.plusDays(1);
+        }
+    },
+
+    /**
+     * Tydzień ISO-8601, rozpoczynający się w poniedziałek.
+     */
+    WEEK {
+        @Override
+        public LocalDate bucketStart(LocalDate date) {
+            return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        }
+
+        @Override
+        public LocalDate nextBucketStart(LocalDate bucketStart) {
+            return bucketStart.plusWeeks(1);
+        }
+    },
+
+    /**
+     * Miesiąc kalendarzowy.
+     */
+    MONTH {
+        @Override
+        public LocalDate bucketStart(LocalDate date) {
+            return date.withDayOfMonth(1);
+        }
+
+        @Override
+        public LocalDate nextBucketStart(LocalDate bucketStart) {
+            return bucketStart.plusMonths(1);
+        }
+    };
+
+    /**
+     * Zwraca pierwszy dzień okresu zawierającego podany dzień.
+     *
+     * @param date dzień
+     * @return pierwszy dzień okresu
+     */
+    public abstract LocalDate bucketStart(LocalDate date);
+
+    /**
+     * Zwraca pierwszy dzień okresu następującego po okresie zaczynającym się podanego dnia.
+     *
+     * @param bucketStart pierwszy dzień okresu
+     * @return pierwszy dzień kolejnego okresu
+     */
+    public abstract LocalDate nextBucketStart(LocalDate bucketStart);
+}
@@ -0,0 +1,27 @@
+package pl.wsb.fitnesstracker.training.api;
+
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.time.LocalDate;
+
+/**
+ * Podsumowanie treningów użytkownika jednego typu aktywności w jednym okresie kalendarzowym.
+ *
+ * @param period               rodzaj okresu
+ * @param bucketStart          pierwszy dzień okresu
+ * @param activityType         typ aktywności
+ * @param trainings            liczba treningów
+ * @param totalDistance        suma dystansów
+ * @param totalDurationSeconds łączny czas trwania w sekundach
+ * @param maxSpeed             najwyższa średnia prędkość spośród treningów
+ */
+public record TrainingPeriodSummaryDto(
+        TrainingPeriod period,
+        LocalDate bucketStart,
+        ActivityType activityType,
+        long trainings,
+        double totalDistance,
+        long totalDurationSeconds,
+        double maxSpeed
+) {
+}
@@ -0,0 +1,21 @@
+package pl.wsb.fitnesstracker.training.api;
+
+/**
+ * Zdarzenie aplikacyjne publikowane w transakcji, która zmieniła tygodniowe lub miesięczne podsumowanie użytkownika
+ * w jednym typie aktywności (zmiany podsumowań dziennych nie są publikowane).
+ *
+ * <p>
+ * Zdarzenie niesie stan podsumowania po zmianie, więc odbiorca może go nanieść bez znajomości poprzedniej wartości.
+ * Odbiorcy powinni nanosić zmiany dopiero po zatwierdzeniu transakcji, w kolejności publikacji.
+ * Usunięcie użytkownika usuwa jego podsumowania bez publikowania zdarzeń - odbiorcy powinni obsłużyć
+ * {@link pl.wsb.fitnesstracker.user.api.UserChangedEvent}.
+ * </p>
+ *
+ * @param total podsumowanie po zmianie
+ * @param empty {@code true}, jeśli w okresie nie został żaden trening tego typu; wartości {@code total} są wtedy zerowe
+ */
+public record TrainingPeriodTotalChangedEvent(
+        TrainingPeriodTotalDto total,
+        boolean empty
+) {
+}
@@ -0,0 +1,25 @@
+package pl.wsb.fitnesstracker.training.api;
+
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.time.LocalDate;
+
+/**
+ * Dystans i najwyższa prędkość użytkownika w jednym okresie i typie aktywności.
+ *
+ * @param userId       identyfikator użytkownika
+ * @param period       okres
+ * @param bucketStart  pierwszy dzień okresu
+ * @param activityType typ aktywności
+ * @param distance     łączny dystans treningów w okresie
+ * @param maxSpeed     najwyższa średnia prędkość treningu w okresie
+ */
+public record TrainingPeriodTotalDto(
+        long userId,
+        TrainingPeriod period,
+        LocalDate bucketStart,
+        ActivityType activityType,
+        double distance,
+        double maxSpeed
+) {
+}
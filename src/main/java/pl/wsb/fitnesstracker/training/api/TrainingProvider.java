@@ -3,6 +3,7 @@ package pl.wsb.fitnesstracker.training.api;
 import pl.wsb.fitnesstracker.user.api.User;
 
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface TrainingProvider {
 
@@ -15,4 +16,12 @@ public interface TrainingProvider {
      */
     Optional<User> getTraining(Long trainingId);
 
+    /**
+     * Streams all trainings as flat rows ordered by ID, without loading entities.
+     * Requires an active transaction; the stream must be consumed and closed before it ends.
+     *
+     * @return stream of all trainings
+     */
+    Stream<TrainingRowDto> streamAllRows();
+
 }
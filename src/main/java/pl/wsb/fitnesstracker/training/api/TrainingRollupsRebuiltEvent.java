@@ -0,0 +1,13 @@
+package pl.wsb.fitnesstracker.training.api;
+
+/**
+ * Zdarzenie aplikacyjne publikowane w transakcji, która zbudowała od nowa podsumowania okresów treningów.
+ * Zmiany sum w trakcie przebudowy nie są publikowane jako {@link TrainingMonthlyTotalChangedEvent},
+ * więc struktury wyliczane z podsumowań powinny zostać zbudowane ponownie.
+ *
+ * @param rows liczba zapisanych wierszy podsumowań
+ */
+public record TrainingRollupsRebuiltEvent(
+        int rows
+) {
+}
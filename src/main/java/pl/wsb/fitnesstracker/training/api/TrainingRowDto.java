@@ -0,0 +1,32 @@
+package pl.wsb.fitnesstracker.training.api;
+
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.util.Date;
+
+/**
+ * Płaska reprezentacja treningu, w której użytkownik jest wskazany wyłącznie identyfikatorem.
+ *
+ * <p>
+ * Wykorzystywana w zapytaniach projekcyjnych, które nie powinny ładować encji {@link Training}
+ * ani powiązanych z nimi użytkowników (np. eksport całej tabeli).
+ * </p>
+ *
+ * @param id           identyfikator treningu
+ * @param userId       identyfikator użytkownika
+ * @param startTime    czas rozpoczęcia
+ * @param endTime      czas zakończenia
+ * @param activityType typ aktywności
+ * @param distance     dystans
+ * @param averageSpeed średnia prędkość
+ */
+public record TrainingRowDto(
+        Long id,
+        Long userId,
+        Date startTime,
+        Date endTime,
+        ActivityType activityType,
+        double distance,
+        double averageSpeed
+) {
+}
@@ -0,0 +1,31 @@
+package pl.wsb.fitnesstracker.training.api;
+
+import jakarta.annotation.Nullable;
+import org.springframework.format.annotation.DateTimeFormat;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.time.LocalDateTime;
+
+/**
+ * Kryteria wyszukiwania treningów. Każde kryterium jest opcjonalne, a podane kryteria łączone są koniunkcją.
+ *
+ * @param userId       identyfikator użytkownika
+ * @param activityType typ aktywności
+ * @param from         początek okna czasowego (włącznie) dla czasu zakończenia treningu
+ * @param to           koniec okna czasowego (wyłącznie) dla czasu zakończenia treningu
+ * @param minDistance  minimalny dystans (włącznie)
+ * @param maxDistance  maksymalny dystans (włącznie)
+ * @param minSpeed     minimalna średnia prędkość (włącznie)
+ * @param maxSpeed     maksymalna średnia prędkość (włącznie)
+ */
+public record TrainingSearchCriteria(
+        @Nullable Long userId,
+        @Nullable ActivityType activityType,
+        @Nullable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+        @Nullable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+        @Nullable Double minDistance,
+        @Nullable Double maxDistance,
+        @Nullable Double minSpeed,
+        @Nullable Double maxSpeed
+) {
+}
@@ -1,11 +1,17 @@
 package pl.wsb.fitnesstracker.training.api;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.annotation.Nullable;
+import pl.wsb.fitnesstracker.lookup.api.LookupResult;
+import pl.wsb.fitnesstracker.pagination.api.CursorPage;
 import pl.wsb.fitnesstracker.training.internal.ActivityType;
 import pl.wsb.fitnesstracker.user.api.User;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Interfejs serwisu odpowiedzialnego za zarządzanie operacjami treningowymi.
@@ -28,6 +34,44 @@ public interface TrainingService {
      */
     List<TrainingDto> findAllByUserId(Long userId);
 
+    /**
+     * Zwraca stronę wszystkich treningów posortowanych po ID (stronicowanie kursorem).
+     *
+     * @param cursor token kolejnej strony lub {@code null} dla pierwszej strony
+     * @param limit  rozmiar strony
+     * @return strona treningów wraz z tokenem kolejnej strony
+     */
+    CursorPage<TrainingDto> findAllPage(@Nullable String cursor, int limit);
+
+    /**
+     * Wyszukuje treningi spełniające jednocześnie wszystkie podane kryteria.
+     * Wyniki posortowane są po czasie zakończenia i ID oraz stronicowane kursorem.
+     *
+     * @param criteria kryteria wyszukiwania
+     * @param cursor   token kolejnej strony lub {@code null} dla pierwszej strony
+     * @param limit    rozmiar strony
+     * @return strona pasujących treningów wraz z tokenem kolejnej strony
+     */
+    CursorPage<TrainingDto> search(TrainingSearchCriteria criteria, @Nullable String cursor, int limit);
+
+    /**
+     * Pobiera treningi o podanych identyfikatorach zapytaniami {@code IN (...)} dzielonymi na paczki.
+     *
+     * @param ids identyfikatory treningów w kolejności oczekiwanej przez klienta
+     * @return wyniki w kolejności identyfikatorów, z oznaczeniem nieistniejących treningów
+     */
+    List<LookupResult<TrainingDto>> findAllByIds(List<Long> ids);
+
+    /**
+     * Zwraca stronę treningów użytkownika posortowanych po czasie zakończenia i ID (stronicowanie kursorem).
+     *
+     * @param userId unikalny identyfikator użytkownika
+     * @param cursor token kolejnej strony lub {@code null} dla pierwszej strony
+     * @param limit  rozmiar strony
+     * @return strona treningów użytkownika wraz z tokenem kolejnej strony
+     */
+    CursorPage<TrainingDto> findAllByUserIdPage(Long userId, @Nullable String cursor, int limit);
+
     /**
      * Zwraca listę treningów przypisanych do danego typu aktywności.
      *
@@ -44,12 +88,85 @@ public interface TrainingService {
      */
     List<TrainingDto> findAllFinishedAfter(LocalDate afterTime);
 
+    /**
+     * Zwraca pary treningów tego samego użytkownika, których przedziały czasu na siebie nachodzą.
+     *
+     * @param userId identyfikator użytkownika lub {@code null}, aby przeszukać wszystkich użytkowników
+     * @param limit  maksymalna liczba zwracanych par
+     * @return pary nachodzących treningów
+     */
+    List<TrainingOverlapDto> findOverlaps(@Nullable Long userId, int limit);
+
+    /**
+     * Wyszukuje treningi tego samego typu aktywności najbardziej podobne do wskazanego treningu
+     * pod względem dystansu, średniej prędkości i czasu trwania.
+     *
+     * @param trainingId   identyfikator wzorcowego treningu
+     * @param k            liczba zwracanych treningów
+     * @param sameUserOnly czy ograniczyć wyniki do treningów właściciela wzorcowego treningu
+     * @return podobne treningi od najbardziej podobnego
+     * @throws TrainingNotFoundException jeśli trening nie istnieje
+     */
+    List<SimilarTrainingDto> findSimilar(Long trainingId, int k, boolean sameUserOnly);
+
+    /**
+     * Zwraca podsumowania treningów użytkownika w okresach kalendarzowych, osobno dla każdego typu aktywności.
+     * Okresy bez treningów są pomijane.
+     *
+     * @param userId identyfikator użytkownika
+     * @param period rodzaj okresu
+     * @param from   pierwszy dzień zakresu (włącznie)
+     * @param to     ostatni dzień zakresu (wyłącznie)
+     * @return podsumowania okresów zawierających dni z zakresu, uporządkowane po początku okresu i typie aktywności
+     * @throws pl.wsb.fitnesstracker.exception.api.BusinessException jeśli zakres jest pusty
+     */
+    List<TrainingPeriodSummaryDto> summarize(Long userId, TrainingPeriod period, LocalDate from, LocalDate to);
+
+    /**
+     * Zwraca sumy treningów użytkownika zakończonych w zakresie dni.
+     *
+     * @param userId identyfikator użytkownika
+     * @param from   pierwszy dzień zakresu (włącznie)
+     * @param to     ostatni dzień zakresu (wyłącznie)
+     * @return liczba treningów, suma dystansów i łączny czas trwania
+     * @throws pl.wsb.fitnesstracker.exception.api.BusinessException jeśli zakres jest pusty
+     */
+    TrainingTotalsDto findTotals(Long userId, LocalDate from, LocalDate to);
+
+    /**
+     * Przelicza od nowa podsumowania okresów na podstawie wszystkich treningów.
+     *
+     * @return liczba zapisanych podsumowań
+     */
+    int rebuildRollups();
+
+    /**
+     * Przekazuje kolejno miesięczne dystanse wszystkich użytkowników w każdym typie aktywności,
+     * odczytywane strumieniowo z podsumowań okresów (bez przeglądania tabeli treningów).
+     *
+     * @param consumer odbiorca miesięcznych dystansów
+     */
+    void forEachMonthlyTotal(Consumer<TrainingMonthlyTotalDto> consumer);
+
+    /**
+     * Przekazuje kolejno dystanse i najwyższe prędkości wszystkich użytkowników w każdym typie aktywności
+     * z okresów rozpoczynających się nie wcześniej niż podany dzień, odczytywane strumieniowo z podsumowań okresów.
+     *
+     * @param period   okres
+     * @param from     najwcześniejszy pierwszy dzień okresu
+     * @param consumer odbiorca podsumowań
+     */
+    void forEachPeriodTotal(TrainingPeriod period, LocalDate from, Consumer<TrainingPeriodTotalDto> consumer);
+
     /**
      * Tworzy nowy trening na podstawie danych wejściowych oraz przypisanego użytkownika.
+     * Jeśli trening nachodzi na inny trening użytkownika, zostaje odrzucony albo scalony z nim
+     * zgodnie z {@link TrainingOverlapPolicy}.
      *
      * @param body dane treningu przekazane przez klienta
      * @param user użytkownik, do którego przypisany jest trening
-     * @return nowo utworzony trening w postaci {@link TrainingDto}
+     * @return nowo utworzony (lub scalony) trening w postaci {@link TrainingDto}
+     * @throws TrainingOverlapException jeśli trening nachodzi na inny, a polityka to {@link TrainingOverlapPolicy#REJECT}
      */
     TrainingDto create(TrainingRequestBody body, User user);
 
@@ -60,9 +177,24 @@ public interface TrainingService {
      * @param body nowe dane treningu
      * @param user użytkownik powiązany z treningiem
      * @return zaktualizowany trening jako {@link TrainingDto}
+     * @throws TrainingOverlapException jeśli nowy przedział nachodzi na inny trening użytkownika
      */
     TrainingDto update(Long trainingId, TrainingRequestBody body, User user);
 
+    /**
+     * Częściowo aktualizuje trening dokumentem JSON Merge Patch (RFC 7386) w formacie {@link TrainingRequestBody}.
+     *
+     * @param trainingId      identyfikator treningu
+     * @param patch           dokument zmian
+     * @param expectedVersion wersja oczekiwana przez klienta ({@code If-Match}) lub {@code null}, jeśli dowolna
+     * @param userResolver    wyszukuje nowego właściciela, jeśli dokument zmienia {@code userId}
+     * @return zaktualizowany trening jako {@link TrainingDto}
+     * @throws TrainingNotFoundException jeśli trening nie istnieje
+     * @throws pl.wsb.fitnesstracker.exception.api.PreconditionFailedException jeśli wersja treningu jest inna niż oczekiwana
+     */
+    TrainingDto patch(Long trainingId, JsonNode patch, @Nullable Long expectedVersion,
+                      Function<Long, Optional<User>> userResolver);
+
     /**
      * Usuwa wszystkie treningi przypisane do użytkownika o podanym identyfikatorze.
      *
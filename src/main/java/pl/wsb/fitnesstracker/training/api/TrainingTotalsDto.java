@@ -0,0 +1,21 @@
+package pl.wsb.fitnesstracker.training.api;
+
+import java.time.LocalDate;
+
+/**
+ * Sumy treningów użytkownika zakończonych w zakresie dni (według dnia zakończenia w strefie UTC).
+ *
+ * @param from                 pierwszy dzień zakresu (włącznie)
+ * @param to                   ostatni dzień zakresu (wyłącznie)
+ * @param trainings            liczba treningów
+ * @param totalDistance        suma dystansów
+ * @param totalDurationSeconds łączny czas trwania w sekundach
+ */
+public record TrainingTotalsDto(
+        LocalDate from,
+        LocalDate to,
+        long trainings,
+        double totalDistance,
+        long totalDurationSeconds
+) {
+}
@@ -1,13 +1,32 @@
 package pl.wsb.fitnesstracker.training.internal;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.annotation.Nullable;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import pl.wsb.fitnesstracker.lookup.api.IdBatches;
+import pl.wsb.fitnesstracker.lookup.api.LookupResult;
+import pl.wsb.fitnesstracker.pagination.api.CursorPage;
+import pl.wsb.fitnesstracker.patch.api.EntityTag;
+import pl.wsb.fitnesstracker.patch.api.JsonMergePatch;
+import pl.wsb.fitnesstracker.training.api.SimilarTrainingDto;
 import pl.wsb.fitnesstracker.training.api.TrainingDto;
+import pl.wsb.fitnesstracker.training.api.TrainingIngestResultDto;
+import pl.wsb.fitnesstracker.training.api.TrainingOverlapDto;
+import pl.wsb.fitnesstracker.training.api.TrainingPeriod;
+import pl.wsb.fitnesstracker.training.api.TrainingPeriodSummaryDto;
 import pl.wsb.fitnesstracker.training.api.TrainingRequestBody;
+import pl.wsb.fitnesstracker.training.api.TrainingSearchCriteria;
 import pl.wsb.fitnesstracker.user.api.User;
-import pl.wsb.fitnesstracker.user.internal.UserRepository;
+import pl.wsb.fitnesstracker.user.api.UserProvider;
+import pl.wsb.fitnesstracker.version.api.ChangeVersions;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -21,29 +40,166 @@ import java.util.List;
 public class TrainingController {
 
     private final TrainingServiceImpl trainingService;
-    private final UserRepository userRepository;
+    private final UserProvider userProvider;
+    private final ChangeVersions changeVersions;
+    private final TrainingIngestService trainingIngestService;
 
     /**
-     * Zwraca wszystkie treningi zapisane w systemie.
+     * Zwraca pierwsze treningi posortowane po ID, najwyżej {@code limit}.
+     * Jeśli treningów jest więcej, nagłówek {@code Link} z {@code rel="next"} wskazuje kolejną stronę
+     * w {@code /v1/trainings/page}, więc odpowiedź nigdy nie obejmuje całej tabeli.
      *
+     * @param limit maksymalna liczba treningów (domyślnie 50, maksymalnie 500)
      * @return odpowiedź HTTP 200 z listą treningów
+     * @deprecated należy używać {@code /v1/trainings/page}
      */
+    @Deprecated
     @GetMapping
-    public ResponseEntity<List<TrainingDto>> getAll() {
-        List<TrainingDto> trainings = trainingService.findAll();
-        return ResponseEntity.ok(trainings);
+    public ResponseEntity<List<TrainingDto>> getAll(@RequestParam(defaultValue = "" + CursorPage.DEFAULT_LIMIT) int limit) {
+        CursorPage<TrainingDto> page = trainingService.findAllPage(null, limit);
+        return withNextLink(ResponseEntity.ok(), page, "/v1/trainings/page", limit).body(page.items());
     }
 
     /**
-     * Zwraca wszystkie treningi przypisane do danego użytkownika.
+     * Zwraca treningi o podanych identyfikatorach w jednym żądaniu (np. {@code ?ids=1,2,3}).
+     * Wyniki są w kolejności z żądania, a nieistniejące treningi oznaczone są flagą {@code found = false}.
+     *
+     * @param ids identyfikatory treningów (maksymalnie {@value IdBatches#MAX_IDS})
+     * @return odpowiedź HTTP 200 z listą wyników w kolejności identyfikatorów
+     */
+    @GetMapping(params = "ids")
+    public ResponseEntity<List<LookupResult<TrainingDto>>> getAllByIds(@RequestParam List<Long> ids) {
+        return ResponseEntity.ok(trainingService.findAllByIds(ids));
+    }
+
+    /**
+     * Zwraca pierwsze treningi użytkownika posortowane po czasie zakończenia, najwyżej {@code limit}.
+     * Jeśli treningów jest więcej, nagłówek {@code Link} z {@code rel="next"} wskazuje kolejną stronę
+     * w {@code /v1/trainings/{userId}/page}.
+     * Odpowiedź zawiera ETag wersji treningów i danych tego użytkownika; przy zgodnym nagłówku {@code If-None-Match}
+     * zwracany jest kod 304 bez odpytywania bazy danych.
      *
      * @param userId identyfikator użytkownika
-     * @return odpowiedź HTTP 200 z listą treningów użytkownika
+     * @param limit maksymalna liczba treningów (domyślnie 50, maksymalnie 500)
+     * @param request bieżące żądanie (do obsługi żądań warunkowych)
+     * @return odpowiedź HTTP 200 z listą treningów użytkownika lub 304, jeśli dane się nie zmieniły
+     * @deprecated należy używać {@code /v1/trainings/{userId}/page}
      */
+    @Deprecated
     @GetMapping("/{userId}")
-    public ResponseEntity<List<TrainingDto>> getAllByUser(@PathVariable Long userId) {
-        List<TrainingDto> trainings = trainingService.findAllByUserId(userId);
-        return ResponseEntity.ok(trainings);
+    public ResponseEntity<List<TrainingDto>> getAllByUser(@PathVariable Long userId,
+                                                          @RequestParam(defaultValue = "" + CursorPage.DEFAULT_LIMIT) int limit,
+                                                          WebRequest request) {
+        String etag = changeVersions.etag(userId, ChangeVersions.Dataset.TRAININGS, ChangeVersions.Dataset.USERS)
+                + "-" + CursorPage.boundedLimit(limit);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        CursorPage<TrainingDto> page = trainingService.findAllByUserIdPage(userId, null, limit);
+        return withNextLink(ResponseEntity.ok().eTag(etag), page, "/v1/trainings/" + userId + "/page", limit)
+                .body(page.items());
+    }
+
+    /**
+     * Zwraca stronę wszystkich treningów posortowanych po ID (stronicowanie kursorem).
+     *
+     * @param cursor token kolejnej strony z poprzedniej odpowiedzi (pomijany dla pierwszej strony)
+     * @param limit rozmiar strony (domyślnie 50, maksymalnie 500)
+     * @return odpowiedź HTTP 200 ze stroną treningów
+     */
+    @GetMapping("/page")
+    public ResponseEntity<CursorPage<TrainingDto>> getAllPage(@RequestParam(required = false) @Nullable String cursor,
+                                                              @RequestParam(defaultValue = "" + CursorPage.DEFAULT_LIMIT) int limit) {
+        return ResponseEntity.ok(trainingService.findAllPage(cursor, limit));
+    }
+
+    /**
+     * Zwraca stronę treningów użytkownika posortowanych po czasie zakończenia (stronicowanie kursorem).
+     *
+     * @param userId identyfikator użytkownika
+     * @param cursor token kolejnej strony z poprzedniej odpowiedzi (pomijany dla pierwszej strony)
+     * @param limit rozmiar strony (domyślnie 50, maksymalnie 500)
+     * @return odpowiedź HTTP 200 ze stroną treningów użytkownika
+     */
+    @GetMapping("/{userId}/page")
+    public ResponseEntity<CursorPage<TrainingDto>> getAllByUserPage(@PathVariable Long userId,
+                                                                    @RequestParam(required = false) @Nullable String cursor,
+                                                                    @RequestParam(defaultValue = "" + CursorPage.DEFAULT_LIMIT) int limit) {
+        return ResponseEntity.ok(trainingService.findAllByUserIdPage(userId, cursor, limit));
+    }
+
+    /**
+     * Wyszukuje treningi według dowolnej kombinacji kryteriów: użytkownika, typu aktywności, okna czasu zakończenia
+     * ({@code from}, {@code to} w formacie ISO, np. {@code 2024-05-01T00:00:00}) oraz zakresów dystansu i prędkości.
+     *
+     * @param criteria kryteria wyszukiwania przekazane jako parametry zapytania
+     * @param cursor token kolejnej strony z poprzedniej odpowiedzi (pomijany dla pierwszej strony)
+     * @param limit rozmiar strony (domyślnie 50, maksymalnie 500)
+     * @return odpowiedź HTTP 200 ze stroną treningów posortowanych po czasie zakończenia
+     */
+    @GetMapping("/search")
+    public ResponseEntity<CursorPage<TrainingDto>> search(TrainingSearchCriteria criteria,
+                                                          @RequestParam(required = false) @Nullable String cursor,
+                                                          @RequestParam(defaultValue = "" + CursorPage.DEFAULT_LIMIT) int limit) {
+        return ResponseEntity.ok(trainingService.search(criteria, cursor, limit));
+    }
+
+    /**
+     * Zwraca pary treningów tego samego użytkownika, których czas na siebie nachodzi (np. zduplikowane sesje).
+     *
+     * @param userId identyfikator użytkownika (opcjonalny - domyślnie wszyscy użytkownicy)
+     * @param limit maksymalna liczba par (domyślnie 100, maksymalnie 1000)
+     * @return odpowiedź HTTP 200 z listą par uporządkowaną po użytkowniku i czasie rozpoczęcia
+     */
+    @GetMapping("/overlaps")
+    public ResponseEntity<List<TrainingOverlapDto>> getOverlaps(@RequestParam(required = false) @Nullable Long userId,
+                                                                @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(trainingService.findOverlaps(userId, limit));
+    }
+
+    /**
+     * Zwraca treningi tego samego typu aktywności najbardziej podobne do wskazanego treningu
+     * pod względem dystansu, średniej prędkości i czasu trwania.
+     *
+     * @param trainingId identyfikator treningu
+     * @param k liczba zwracanych treningów (domyślnie 10, maksymalnie 100)
+     * @param sameUser czy ograniczyć wyniki do treningów tego samego użytkownika (domyślnie nie)
+     * @return odpowiedź HTTP 200 z listą treningów od najbardziej podobnego
+     */
+    @GetMapping("/{trainingId}/similar")
+    public ResponseEntity<List<SimilarTrainingDto>> getSimilar(@PathVariable Long trainingId,
+                                                               @RequestParam(defaultValue = "10") int k,
+                                                               @RequestParam(defaultValue = "false") boolean sameUser) {
+        return ResponseEntity.ok(trainingService.findSimilar(trainingId, k, sameUser));
+    }
+
+    /**
+     * Zwraca podsumowania treningów użytkownika w okresach kalendarzowych (według dnia zakończenia w UTC),
+     * osobno dla każdego typu aktywności. Podsumowania odczytywane są z utrzymywanych na bieżąco sum,
+     * więc koszt nie zależy od długości historii użytkownika.
+     *
+     * @param userId identyfikator użytkownika
+     * @param period rodzaj okresu: DAY, WEEK (tydzień ISO) lub MONTH (domyślnie MONTH)
+     * @param from pierwszy dzień zakresu w formacie YYYY-MM-DD (włącznie)
+     * @param to ostatni dzień zakresu w formacie YYYY-MM-DD (wyłącznie)
+     * @return odpowiedź HTTP 200 z podsumowaniami okresów zawierających dni z zakresu
+     */
+    @GetMapping("/{userId}/summary")
+    public ResponseEntity<List<TrainingPeriodSummaryDto>> getSummary(@PathVariable Long userId,
+                                                                     @RequestParam(defaultValue = "MONTH") TrainingPeriod period,
+                                                                     @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                     @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(trainingService.summarize(userId, period, from, to));
+    }
+
+    /**
+     * Przelicza od nowa podsumowania okresów ze wszystkich treningów, np. po zmianach wprowadzonych bezpośrednio w bazie.
+     *
+     * @return odpowiedź HTTP 200 z liczbą zapisanych podsumowań
+     */
+    @PostMapping("/rollups/rebuild")
+    public ResponseEntity<Integer> rebuildRollups() {
+        return ResponseEntity.ok(trainingService.rebuildRollups());
     }
 
     /**
@@ -80,13 +236,26 @@ public class TrainingController {
      */
     @PostMapping
     public ResponseEntity<TrainingDto> create(@RequestBody TrainingRequestBody body) {
-        User user = userRepository.findById(body.getUserId())
+        User user = userProvider.getUser(body.getUserId())
                 .orElseThrow(() -> new IllegalArgumentException("Nie znaleziono użytkownika o ID: " + body.getUserId()));
 
         TrainingDto created = trainingService.create(body, user);
         return ResponseEntity.status(201).body(created);
     }
 
+    /**
+     * Importuje wiele treningów z treści NDJSON (jeden obiekt {@link TrainingRequestBody} w każdej linii).
+     * Treść jest przetwarzana strumieniowo, a błędne linie są odrzucane bez przerywania importu.
+     *
+     * @param body strumień danych NDJSON
+     * @return odpowiedź HTTP 200 z wynikiem każdej linii i przepustowością importu
+     * @throws IOException jeśli nie udało się odczytać treści żądania
+     */
+    @PostMapping(value = "/ingest", consumes = "application/x-ndjson")
+    public ResponseEntity<TrainingIngestResultDto> ingest(InputStream body) throws IOException {
+        return ResponseEntity.ok(trainingIngestService.ingest(body));
+    }
+
     /**
      * Aktualizuje istniejący trening o podanym ID.
      * Użytkownik powiązany z treningiem musi istnieć.
@@ -98,11 +267,36 @@ public class TrainingController {
      */
     @PutMapping("/{trainingId}")
     public ResponseEntity<TrainingDto> update(@PathVariable Long trainingId, @RequestBody TrainingRequestBody body) {
-        User user = userRepository.findById(body.getUserId())
+        User user = userProvider.getUser(body.getUserId())
                 .orElseThrow(() -> new IllegalArgumentException("Nie znaleziono użytkownika o ID: " + body.getUserId()));
 
         TrainingDto updated = trainingService.update(trainingId, body, user);
         return ResponseEntity.ok(updated);
     }
 
+    /**
+     * Częściowo aktualizuje trening dokumentem JSON Merge Patch - zmieniane są tylko przesłane pola.
+     * Jeśli przesłano nagłówek {@code If-Match} (wersja z pola {@code version} lub ETagu poprzedniej odpowiedzi),
+     * a trening został w międzyczasie zmieniony, zwracany jest kod 412.
+     *
+     * @param trainingId identyfikator treningu
+     * @param ifMatch ETag wersji, na podstawie której klient przygotował zmiany (opcjonalny)
+     * @param patch dokument zmian w formacie {@link TrainingRequestBody}
+     * @return odpowiedź HTTP 200 z zaktualizowanym treningiem i nowym ETagiem
+     */
+    @PatchMapping(value = "/{trainingId}", consumes = JsonMergePatch.MEDIA_TYPE)
+    public ResponseEntity<TrainingDto> patch(@PathVariable Long trainingId,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) @Nullable String ifMatch,
+                                             @RequestBody JsonNode patch) {
+        TrainingDto patched = trainingService.patch(trainingId, patch, EntityTag.expectedVersion(ifMatch), userProvider::getUser);
+        return ResponseEntity.ok()
+                .eTag(EntityTag.of(patched.getVersion()))
+                .body(patched);
+    }
+
+    private static ResponseEntity.BodyBuilder withNextLink(ResponseEntity.BodyBuilder response, CursorPage<?> page,
+                                                           String path, int limit) {
+        String link = page.nextLink(path, limit);
+        return link == null ? response : response.header(HttpHeaders.LINK, link);
+    }
 }
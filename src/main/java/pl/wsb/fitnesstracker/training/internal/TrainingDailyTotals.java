@@ -0,0 +1,153 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import java.time.LocalDate;
+
+/**
+ * Dzienne sumy treningów jednego użytkownika w drzewach Fenwicka (binary indexed tree),
+ * indeksowanych numerem dnia od pierwszego dnia zakresu.
+ *
+ * <p>
+ * Drzewo przechowuje sumy prefiksowe liczby treningów, dystansu i czasu trwania, więc suma dowolnego zakresu dni
+ * to różnica dwóch prefiksów, a dopisanie treningu zmienia O(log n) komórek. Dzień spoza zakresu
+ * powiększa tablice dwukrotnie (z zapasem po stronie, po której leży nowy dzień) i buduje drzewo od nowa w O(n),
+ * więc koszt rozszerzania jest zamortyzowany.
+ * </p>
+ *
+ * <p>
+ * Metody są synchronizowane - odczyt zakresu nie może widzieć częściowo naniesionej zmiany.
+ * </p>
+ */
+final class TrainingDailyTotals {
+
+    private static final int MIN_CAPACITY = 64;
+
+    /**
+     * Sumy zakresu dni.
+     *
+     * @param trainings       liczba treningów
+     * @param distance        suma dystansów
+     * @param durationSeconds łączny czas trwania w sekundach
+     */
+    record Totals(long trainings, double distance, long durationSeconds) {
+    }
+
+    private long firstDay;
+    private long[] trainings;
+    private double[] distance;
+    private long[] durationSeconds;
+
+    /**
+     * @param firstDay pierwszy dzień zakresu (np. dzień najstarszego treningu)
+     */
+    TrainingDailyTotals(LocalDate firstDay) {
+        this.firstDay = firstDay.toEpochDay();
+        this.trainings = new long[MIN_CAPACITY + 1];
+        this.distance = new double[MIN_CAPACITY + 1];
+        this.durationSeconds = new long[MIN_CAPACITY + 1];
+    }
+
+    /**
+     * Liczba dni, dla których zaalokowano drzewo.
+     */
+    synchronized int capacity() {
+        return trainings.length - 1;
+    }
+
+    /**
+     * Dodaje (lub przy ujemnych wartościach odejmuje) sumy treningów dnia.
+     */
+    synchronized void add(LocalDate day, long trainingsDelta, double distanceDelta, long durationSecondsDelta) {
+        long epochDay = day.toEpochDay();
+        ensureCovers(epochDay);
+        for (int i = (int) (epochDay - firstDay) + 1; i < trainings.length; i += i & -i) {
+            trainings[i] += trainingsDelta;
+            distance[i] += distanceDelta;
+            durationSeconds[i] += durationSecondsDelta;
+        }
+    }
+
+    /**
+     * Zwraca sumy dni z zakresu {@code [from, to)}.
+     */
+    synchronized Totals sum(LocalDate from, LocalDate to) {
+        long fromIndex = clamp(from.toEpochDay() - firstDay);
+        long toIndex = clamp(to.toEpochDay() - firstDay);
+        if (fromIndex >= toIndex) {
+            return new Totals(0, 0, 0);
+        }
+        long count = 0;
+        double distanceSum = 0;
+        long durationSum = 0;
+        for (int i = (int) toIndex; i > 0; i -= i & -i) {
+            count += trainings[i];
+            distanceSum += distance[i];
+            durationSum += durationSeconds[i];
+        }
+        for (int i = (int) fromIndex; i > 0; i -= i & -i) {
+            count -= trainings[i];
+            distanceSum -= distance[i];
+            durationSum -= durationSeconds[i];
+        }
+        return new Totals(count, distanceSum, durationSum);
+    }
+
+    private long clamp(long index) {
+        return Math.max(0, Math.min(index, trainings.length - 1));
+    }
+
+    private void ensureCovers(long epochDay) {
+        int capacity = trainings.length - 1;
+        if (epochDay >= firstDay && epochDay < firstDay + capacity) {
+            return;
+        }
+        long newFirstDay = Math.min(firstDay, epochDay);
+        long lastDay = Math.max(firstDay + capacity - 1, epochDay);
+        long needed = lastDay - newFirstDay + 1;
+        long newCapacity = Math.max((long) capacity * 2, needed + needed / 2);
+        if (newCapacity > Integer.MAX_VALUE - 1) {
+            throw new IllegalArgumentException("Day %s is too far from the tracked range".formatted(LocalDate.ofEpochDay(epochDay)));
+        }
+        if (epochDay < firstDay) {
+            // zapas przed nowym dniem: kolejne starsze treningi zwykle są jeszcze wcześniejsze
+            newFirstDay = lastDay - newCapacity + 1;
+        }
+        rebuild(newFirstDay, (int) newCapacity);
+    }
+
+    /**
+     * Odtwarza wartości poszczególnych dni i buduje drzewo o nowym zakresie w czasie liniowym.
+     */
+    private void rebuild(long newFirstDay, int newCapacity) {
+        int capacity = trainings.length - 1;
+        long[] newTrainings = new long[newCapacity + 1];
+        double[] newDistance = new double[newCapacity + 1];
+        long[] newDuration = new long[newCapacity + 1];
+        int shift = (int) (firstDay - newFirstDay);
+        // komórka i drzewa zawiera sumę dni (i - lowbit(i), i], więc wartości dni odzyskiwane są od końca
+        for (int i = capacity; i > 0; i--) {
+            int parentEnd = i - (i & -i);
+            for (int j = i - 1; j > parentEnd; j -= j & -j) {
+                trainings[i] -= trainings[j];
+                distance[i] -= distance[j];
+                durationSeconds[i] -= durationSeconds[j];
+            }
+        }
+        for (int i = 1; i <= capacity; i++) {
+            newTrainings[i + shift] = trainings[i];
+            newDistance[i + shift] = distance[i];
+            newDuration[i + shift] = durationSeconds[i];
+        }
+        for (int i = 1; i <= newCapacity; i++) {
+            int parent = i + (i & -i);
+            if (parent <= newCapacity) {
+                newTrainings[parent] += newTrainings[i];
+                newDistance[parent] += newDistance[i];
+                newDuration[parent] += newDuration[i];
+            }
+        }
+        firstDay = newFirstDay;
+        trainings = newTrainings;
+        distance = newDistance;
+        durationSeconds = newDuration;
+    }
+}
@@ -0,0 +1,268 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.annotation.Nullable;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.wsb.fitnesstracker.lookup.api.LookupResult;
+import pl.wsb.fitnesstracker.training.api.Training;
+import pl.wsb.fitnesstracker.training.api.TrainingIngestLineDto;
+import pl.wsb.fitnesstracker.training.api.TrainingIngestResultDto;
+import pl.wsb.fitnesstracker.training.api.TrainingOverlapPolicy;
+import pl.wsb.fitnesstracker.training.api.TrainingRequestBody;
+import pl.wsb.fitnesstracker.user.api.User;
+import pl.wsb.fitnesstracker.user.api.UserProvider;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Serwis masowego importu treningów przesyłanych w formacie NDJSON (jeden trening {@link TrainingRequestBody} w linii).
+ *
+ * <p>
+ * Treść żądania czytana jest linia po linii, a każda linia wiązana osobno przez {@link ObjectReader},
+ * więc w pamięci znajduje się tylko bieżąca paczka, a błędna linia nie przerywa importu pozostałych.
+ * Poprawne linie zbierane są w paczki po {@value #CHUNK_SIZE}; dla każdej paczki użytkownicy pobierani są
+ * jednym zapytaniem, a treningi zapisywane w osobnej transakcji wsadowymi instrukcjami JDBC
+ * (identyfikatory z sekwencji), po czym kontekst utrwalania jest czyszczony.
+ * </p>
+ *
+ * <p>
+ * Jeśli polityka {@link TrainingOverlapPolicy} jest inna niż {@code ALLOW}, linie nachodzące na zapisane treningi
+ * użytkownika ({@link TrainingOverlapIndex}) lub na wcześniejsze linie tej samej paczki są odrzucane.
+ * Import nie scala treningów, bo wynik linii musi wskazywać trening utworzony z tej linii.
+ * </p>
+ */
+@Service
+@Slf4j
+class TrainingIngestService {
+
+    static final int CHUNK_SIZE = 500;
+
+    private final UserProvider userProvider;
+    private final TrainingOverlapIndex overlapIndex;
+    private final TrainingOverlapProperties overlapProperties;
+    private final TrainingRollups rollups;
+    private final ObjectReader trainingReader;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    TrainingIngestService(UserProvider userProvider,
+                          TrainingOverlapIndex overlapIndex,
+                          TrainingOverlapProperties overlapProperties,
+                          TrainingRollups rollups,
+                          ObjectMapper objectMapper,
+                          EntityManager entityManager,
+                          PlatformTransactionManager transactionManager) {
+        this.userProvider = userProvider;
+        this.overlapIndex = overlapIndex;
+        this.overlapProperties = overlapProperties;
+        this.rollups = rollups;
+        this.trainingReader = objectMapper.readerFor(TrainingRequestBody.class);
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Importuje treningi z treści NDJSON. Puste linie są pomijane.
+     *
+     * @param input treść żądania
+     * @return wynik każdej linii oraz podsumowanie importu
+     * @throws IOException jeśli nie udało się odczytać treści żądania
+     */
+    TrainingIngestResultDto ingest(InputStream input) throws IOException {
+        IngestSession session = new IngestSession();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            long line = 0;
+            String content;
+            while ((content = reader.readLine()) != null) {
+                line++;
+                if (content.isBlank()) {
+                    continue;
+                }
+                try {
+                    session.accept(line, trainingReader.readValue(content));
+                } catch (JsonProcessingException e) {
+                    session.reject(line, "Malformed training: " + e.getOriginalMessage());
+                }
+            }
+        }
+        return session.finish();
+    }
+
+    @Nullable
+    private static String validate(TrainingRequestBody body) {
+        if (body.getUserId() == null) {
+            return "userId is required";
+        }
+        if (body.getStartTime() == null || body.getEndTime() == null) {
+            return "startTime and endTime are required";
+        }
+        if (body.getEndTime().before(body.getStartTime())) {
+            return "endTime must not be before startTime";
+        }
+        if (body.getActivityType() == null) {
+            return "activityType is required";
+        }
+        if (body.getDistance() < 0 || body.getAverageSpeed() < 0) {
+            return "distance and averageSpeed must not be negative";
+        }
+        return null;
+    }
+
+    private record PendingLine(long line, TrainingRequestBody body) {
+    }
+
+    private record ResolvedLine(long line, User user, TrainingRequestBody body) {
+
+        Training toTraining() {
+            return new Training(user, body.getStartTime(), body.getEndTime(),
+                    body.getActivityType(), body.getDistance(), body.getAverageSpeed());
+        }
+    }
+
+    /**
+     * Stan pojedynczego importu: bieżąca paczka oraz wyniki linii.
+     * Wyniki są sortowane po numerze linii na końcu, bo odrzucenia z walidacji trafiają do nich przed zapisem paczki.
+     */
+    private final class IngestSession {
+
+        private final long startNanos = System.nanoTime();
+        private final List<PendingLine> chunk = new ArrayList<>(CHUNK_SIZE);
+        private final List<TrainingIngestLineDto> results = new ArrayList<>();
+        private long accepted;
+        private long rejected;
+
+        void accept(long line, TrainingRequestBody body) {
+            String error = validate(body);
+            if (error != null) {
+                reject(line, error);
+                return;
+            }
+            chunk.add(new PendingLine(line, body));
+            if (chunk.size() == CHUNK_SIZE) {
+                persistChunk();
+            }
+        }
+
+        void reject(long line, String reason) {
+            results.add(new TrainingIngestLineDto(line, null, reason));
+            rejected++;
+        }
+
+        TrainingIngestResultDto finish() {
+            persistChunk();
+            long elapsedMillis = Math.max(1, (System.nanoTime() - startNanos) / 1_000_000);
+            long throughput = (accepted + rejected) * 1000 / elapsedMillis;
+            log.info("Ingested {} trainings ({} rejected) in {} ms ({} trainings/s)", accepted, rejected, elapsedMillis, throughput);
+            results.sort(Comparator.comparingLong(TrainingIngestLineDto::line));
+            return new TrainingIngestResultDto(accepted, rejected, throughput, results);
+        }
+
+        private void persistChunk() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            List<Long> userIds = chunk.stream().map(pending -> pending.body().getUserId()).distinct().toList();
+            Map<Long, User> users = new HashMap<>();
+            for (LookupResult<User> result : userProvider.findUsersByIds(userIds)) {
+                if (result.found()) {
+                    users.put(result.id(), result.item());
+                }
+            }
+
+            boolean checkOverlaps = overlapProperties.getPolicy() != TrainingOverlapPolicy.ALLOW;
+            Map<Long, TrainingIntervalTree> chunkIntervals = new HashMap<>();
+            List<ResolvedLine> resolved = new ArrayList<>(chunk.size());
+            for (PendingLine pending : chunk) {
+                TrainingRequestBody body = pending.body();
+                User user = users.get(body.getUserId());
+                if (user == null) {
+                    reject(pending.line(), "User with ID=%s was not found".formatted(body.getUserId()));
+                    continue;
+                }
+                if (checkOverlaps) {
+                    String overlap = findOverlap(pending, chunkIntervals);
+                    if (overlap != null) {
+                        reject(pending.line(), overlap);
+                        continue;
+                    }
+                }
+                resolved.add(new ResolvedLine(pending.line(), user, body));
+            }
+            chunk.clear();
+            if (resolved.isEmpty()) {
+                return;
+            }
+
+            try {
+                persist(resolved);
+            } catch (PersistenceException | DataAccessException e) {
+                log.warn("Chunk insert failed, retrying {} trainings one by one: {}", resolved.size(), e.getMessage());
+                for (ResolvedLine line : resolved) {
+                    try {
+                        persist(List.of(line));
+                    } catch (PersistenceException | DataAccessException single) {
+                        reject(line.line(), "Training could not be saved");
+                    }
+                }
+            }
+        }
+
+        /**
+         * Sprawdza linię względem zapisanych treningów użytkownika i wcześniejszych linii paczki,
+         * które nie zostały jeszcze zapisane, więc nie ma ich w indeksie. Linie paczki przechowywane są
+         * w osobnym drzewie dla każdego użytkownika, kluczem jest numer linii.
+         *
+         * @return powód odrzucenia lub {@code null}, jeśli linia na nic nie nachodzi
+         */
+        @Nullable
+        private String findOverlap(PendingLine pending, Map<Long, TrainingIntervalTree> chunkIntervals) {
+            TrainingRequestBody body = pending.body();
+            long start = body.getStartTime().getTime();
+            long end = body.getEndTime().getTime();
+            List<Long> stored = overlapIndex.findOverlapping(body.getUserId(), start, end, null, 1);
+            if (!stored.isEmpty()) {
+                return "Training overlaps training with ID=%s".formatted(stored.get(0));
+            }
+            TrainingIntervalTree lines = chunkIntervals.computeIfAbsent(body.getUserId(), userId -> new TrainingIntervalTree());
+            List<Long> earlier = lines.overlapping(start, end, null, 1);
+            if (!earlier.isEmpty()) {
+                return "Training overlaps line %d".formatted(earlier.get(0));
+            }
+            lines.insert(pending.line(), start, end);
+            return null;
+        }
+
+        /**
+         * Zapisuje linie wraz z podsumowaniami okresów w jednej transakcji. Encje tworzone są przy każdej próbie od nowa,
+         * aby ponowienie po nieudanej paczce nie używało identyfikatorów z wycofanej transakcji. Wkład nieudanej paczki
+         * w podsumowania wycofuje się razem z nią, a struktury w pamięci otrzymują zmiany podsumowań dopiero po
+         * zatwierdzeniu, więc ponowienie linii pojedynczo nie liczy ich dwa razy.
+         */
+        private void persist(List<ResolvedLine> lines) {
+            List<Training> trainings = lines.stream().map(ResolvedLine::toTraining).toList();
+            transactionTemplate.executeWithoutResult(status -> {
+                trainings.forEach(entityManager::persist);
+                entityManager.flush();
+                rollups.add(trainings.stream().map(TrainingRollups.Contribution::of).toList());
+                entityManager.clear();
+            });
+            for (int i = 0; i < lines.size(); i++) {
+                results.add(new TrainingIngestLineDto(lines.get(i).line(), trainings.get(i).getId(), null));
+                accepted++;
+            }
+        }
+    }
+}
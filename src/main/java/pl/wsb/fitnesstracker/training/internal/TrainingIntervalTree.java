@@ -0,0 +1,197 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * Drzewo przedziałów czasu treningów jednego użytkownika.
+ *
+ * <p>
+ * Zbalansowane drzewo BST (treap) uporządkowane po (początek, ID), w którym każdy węzeł przechowuje dodatkowo
+ * największy koniec przedziału w swoim poddrzewie. Pozwala to pominąć całe poddrzewa, które kończą się
+ * przed szukanym przedziałem, więc wstawienie, usunięcie i sprawdzenie, czy przedział na coś nachodzi,
+ * kosztują oczekiwanie O(log n), a wyszukanie wszystkich k nachodzących przedziałów O(log n + k).
+ * Przedziały są prawostronnie otwarte: trening kończący się dokładnie w chwili rozpoczęcia następnego na niego nie nachodzi.
+ * </p>
+ *
+ * <p>
+ * Klasa nie jest bezpieczna wątkowo.
+ * </p>
+ */
+final class TrainingIntervalTree {
+
+    /**
+     * Para nachodzących na siebie treningów.
+     *
+     * @param firstId  ID treningu rozpoczynającego się wcześniej
+     * @param secondId ID treningu rozpoczynającego się później
+     */
+    record Overlap(long firstId, long secondId) {
+    }
+
+    private Node root;
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void insert(long id, long start, long end) {
+        Node[] parts = split(root, start, id, false);
+        root = merge(merge(parts[0], new Node(id, start, end)), parts[1]);
+        size++;
+    }
+
+    /**
+     * Usuwa przedział o podanym ID i początku.
+     *
+     * @return {@code true}, jeśli przedział był w drzewie
+     */
+    boolean remove(long id, long start) {
+        Node[] lower = split(root, start, id, false);
+        Node[] upper = split(lower[1], start, id, true);
+        boolean removed = upper[0] != null;
+        root = merge(lower[0], upper[1]);
+        if (removed) {
+            size--;
+        }
+        return removed;
+    }
+
+    /**
+     * Zwraca ID przedziałów nachodzących na {@code [start, end)}, w kolejności początków.
+     *
+     * @param excludeId ID pomijanego przedziału (np. aktualizowanego treningu) lub {@code null}
+     * @param limit     maksymalna liczba wyników
+     */
+    List<Long> overlapping(long start, long end, Long excludeId, int limit) {
+        List<Long> result = new ArrayList<>();
+        collect(root, start, end, excludeId, limit, result);
+        return result;
+    }
+
+    /**
+     * Wyznacza wszystkie pary nachodzących przedziałów jednym przejściem (sweep line) w kolejności początków.
+     *
+     * @param limit  maksymalna liczba par
+     * @param target lista, do której dopisywane są znalezione pary
+     */
+    void overlaps(int limit, List<Overlap> target) {
+        PriorityQueue<Node> active = new PriorityQueue<>((a, b) -> Long.compare(a.end, b.end));
+        forEach(node -> {
+            while (!active.isEmpty() && active.peek().end <= node.start) {
+                active.poll();
+            }
+            for (Node open : active) {
+                if (target.size() >= limit) {
+                    return;
+                }
+                target.add(new Overlap(open.id, node.id));
+            }
+            active.add(node);
+        });
+    }
+
+    private void forEach(Consumer<Node> consumer) {
+        List<Node> stack = new ArrayList<>();
+        Node current = root;
+        while (current != null || !stack.isEmpty()) {
+            while (current != null) {
+                stack.add(current);
+                current = current.left;
+            }
+            current = stack.remove(stack.size() - 1);
+            consumer.accept(current);
+            current = current.right;
+        }
+    }
+
+    private static void collect(Node node, long start, long end, Long excludeId, int limit, List<Long> result) {
+        if (node == null || node.maxEnd <= start || result.size() >= limit) {
+            return;
+        }
+        collect(node.left, start, end, excludeId, limit, result);
+        if (node.start >= end || result.size() >= limit) {
+            // prawe poddrzewo zaczyna się nie wcześniej niż ten węzeł, więc też nie nachodzi na przedział
+            return;
+        }
+        if (node.end > start && (excludeId == null || node.id != excludeId)) {
+            result.add(node.id);
+        }
+        collect(node.right, start, end, excludeId, limit, result);
+    }
+
+    /**
+     * Dzieli drzewo na węzły mniejsze od klucza (start, id) i pozostałe;
+     * przy {@code inclusive} klucz trafia do lewej części.
+     */
+    private static Node[] split(Node node, long start, long id, boolean inclusive) {
+        if (node == null) {
+            return new Node[]{null, null};
+        }
+        int compare = node.start != start ? Long.compare(node.start, start) : Long.compare(node.id, id);
+        if (compare < 0 || (inclusive && compare == 0)) {
+            Node[] parts = split(node.right, start, id, inclusive);
+            node.right = parts[0];
+            node.update();
+            return new Node[]{node, parts[1]};
+        }
+        Node[] parts = split(node.left, start, id, inclusive);
+        node.left = parts[1];
+        node.update();
+        return new Node[]{parts[0], node};
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+
+    private static final class Node {
+
+        private final long id;
+        private final long start;
+        private final long end;
+        private final int priority = ThreadLocalRandom.current().nextInt();
+        private long maxEnd;
+        private Node left;
+        private Node right;
+
+        private Node(long id, long start, long end) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+            this.maxEnd = end;
+        }
+
+        private void update() {
+            long max = end;
+            if (left != null && left.maxEnd > max) {
+                max = left.maxEnd;
+            }
+            if (right != null && right.maxEnd > max) {
+                max = right.maxEnd;
+            }
+            maxEnd = max;
+        }
+    }
+}
@@ -0,0 +1,453 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Trwały dziennik treningów (append-only) oparty na plikach segmentów mapowanych w pamięci.
+ *
+ * <p>
+ * Każdy wpis ma stały rozmiar {@value #RECORD_SIZE} B i kolejny numer sekwencyjny, więc jego położenie wynika wprost
+ * z numeru: {@code HEADER_SIZE + (sekwencja - pierwsza sekwencja segmentu) * RECORD_SIZE}. Wpis kończy się sumą
+ * kontrolną CRC32C, która przy odtwarzaniu po awarii pozwala odrzucić niedokończony zapis na końcu dziennika.
+ * </p>
+ *
+ * <p>
+ * Zapis jest potwierdzany dopiero po utrwaleniu na dysku ({@link MappedByteBuffer#force()}) w trybie group commit:
+ * pierwszy oczekujący wątek staje się liderem i wykonuje jedno {@code msync} za wszystkie wpisy dopisane do tej chwili,
+ * a pozostałe wątki czekają na jego wynik. Przy serii równoległych zapisów jedno utrwalenie obejmuje wiele wpisów.
+ * </p>
+ *
+ * <p>
+ * Klasa nie wie nic o bazie danych - zapisane wpisy odczytuje {@link TrainingJournalDrainer},
+ * który po przeniesieniu ich do tabeli {@code trainings} zwalnia ({@link #release(long)}) całe przetworzone segmenty.
+ * </p>
+ */
+@Slf4j
+class TrainingJournal implements Closeable {
+
+    static final int RECORD_SIZE = 64;
+    static final int HEADER_SIZE = 16;
+
+    private static final int MAGIC = 0x46544A31;
+    private static final int CHECKSUMMED_BYTES = RECORD_SIZE - Integer.BYTES;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final Path directory;
+    private final int recordsPerSegment;
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private Segment active;
+    private long lastSequence;
+
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition synced = syncLock.newCondition();
+    private volatile long durableSequence;
+    private boolean syncing;
+    private long syncCount;
+    private long syncedRecords;
+
+    /**
+     * Otwiera dziennik w podanym katalogu, odtwarzając stan z istniejących segmentów.
+     *
+     * @param directory   katalog segmentów (tworzony, jeśli nie istnieje)
+     * @param segmentSize docelowy rozmiar pliku segmentu w bajtach
+     * @throws UncheckedIOException jeśli nie udało się odczytać lub utworzyć segmentów
+     */
+    TrainingJournal(Path directory, long segmentSize) {
+        this.directory = directory;
+        this.recordsPerSegment = (int) Math.max(1, (segmentSize - HEADER_SIZE) / RECORD_SIZE);
+        try {
+            Files.createDirectories(directory);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open training journal in " + directory, e);
+        }
+    }
+
+    /**
+     * Wpis dziennika - dane jednego treningu.
+     *
+     * @param sequence     numer sekwencyjny wpisu (od 1)
+     * @param appendedAt   czas dopisania wpisu (ms od epoki)
+     * @param userId       identyfikator użytkownika
+     * @param startTime    czas rozpoczęcia (ms od epoki)
+     * @param endTime      czas zakończenia (ms od epoki)
+     * @param activityType numer porządkowy typu aktywności
+     * @param distance     dystans
+     * @param averageSpeed średnia prędkość
+     */
+    record Entry(long sequence, long appendedAt, long userId, long startTime, long endTime,
+                 int activityType, double distance, double averageSpeed) {
+    }
+
+    /**
+     * Dopisuje trening do dziennika i czeka, aż wpis zostanie utrwalony na dysku.
+     *
+     * @return numer sekwencyjny wpisu
+     */
+    long append(long userId, long startTime, long endTime, int activityType, double distance, double averageSpeed) {
+        long sequence;
+        appendLock.lock();
+        try {
+            if (active.count == recordsPerSegment) {
+                roll(lastSequence + 1);
+            }
+            sequence = lastSequence + 1;
+            write(active, active.count, new Entry(sequence, System.currentTimeMillis(), userId, startTime, endTime,
+                    activityType, distance, averageSpeed));
+            active.count++;
+            lastSequence = sequence;
+        } finally {
+            appendLock.unlock();
+        }
+        awaitDurable(sequence);
+        return sequence;
+    }
+
+    /**
+     * Odczytuje utrwalone wpisy następujące po podanym numerze.
+     *
+     * @param afterSequence numer ostatniego przetworzonego wpisu
+     * @param max           maksymalna liczba wpisów
+     * @return wpisy w kolejności numerów (pusta lista, jeśli brak nowych)
+     */
+    List<Entry> read(long afterSequence, int max) {
+        long durable = durableSequence;
+        List<Entry> entries = new ArrayList<>(Math.min(max, 1024));
+        long sequence = afterSequence + 1;
+        while (sequence <= durable && entries.size() < max) {
+            Map.Entry<Long, Segment> floor = segments.floorEntry(sequence);
+            if (floor == null) {
+                // segment zwolniony lub nigdy nie istniał - przechodzimy do pierwszego dostępnego
+                Long first = segments.ceilingKey(sequence);
+                if (first == null) {
+                    break;
+                }
+                sequence = first;
+                continue;
+            }
+            Segment segment = floor.getValue();
+            int index = (int) (sequence - segment.firstSequence);
+            if (index >= segment.count) {
+                Long next = segments.higherKey(segment.firstSequence);
+                if (next == null) {
+                    break;
+                }
+                sequence = next;
+                continue;
+            }
+            entries.add(readAt(segment, index));
+            sequence++;
+        }
+        return entries;
+    }
+
+    /**
+     * Zwraca czas dopisania wpisu o podanym numerze.
+     *
+     * @return czas w ms od epoki lub {@code -1}, jeśli wpis nie jest dostępny
+     */
+    long appendedAt(long sequence) {
+        if (sequence > durableSequence) {
+            return -1;
+        }
+        Map.Entry<Long, Segment> floor = segments.floorEntry(sequence);
+        if (floor == null || sequence - floor.getKey() >= floor.getValue().count) {
+            return -1;
+        }
+        return floor.getValue().buffer.getLong(offset((int) (sequence - floor.getKey())) + Long.BYTES);
+    }
+
+    /**
+     * Usuwa zamknięte segmenty, których wszystkie wpisy zostały już przetworzone.
+     *
+     * @param appliedSequence numer ostatniego przetworzonego wpisu
+     */
+    void release(long appliedSequence) {
+        for (Segment segment : segments.values()) {
+            if (segment == active || segment.firstSequence + segment.count - 1 > appliedSequence) {
+                break;
+            }
+            segments.remove(segment.firstSequence);
+            try {
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                log.warn("Cannot delete applied journal segment {}: {}", segment.path, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Zapewnia, że kolejne wpisy otrzymają numery większe od podanego.
+     * Używane przy starcie, gdy punkt kontrolny w bazie wyprzedza dziennik (np. po usunięciu katalogu dziennika).
+     */
+    void advanceTo(long sequence) {
+        appendLock.lock();
+        try {
+            if (lastSequence >= sequence) {
+                return;
+            }
+            roll(sequence + 1);
+            lastSequence = sequence;
+        } finally {
+            appendLock.unlock();
+        }
+        syncLock.lock();
+        try {
+            durableSequence = Math.max(durableSequence, sequence);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    long durableSequence() {
+        return durableSequence;
+    }
+
+    int segmentCount() {
+        return segments.size();
+    }
+
+    long sizeOnDisk() {
+        return (long) segments.size() * (HEADER_SIZE + (long) recordsPerSegment * RECORD_SIZE);
+    }
+
+    /**
+     * @return liczba wykonanych utrwaleń (msync)
+     */
+    long syncCount() {
+        syncLock.lock();
+        try {
+            return syncCount;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * @return liczba wpisów potwierdzonych przez wszystkie utrwalenia; iloraz z {@link #syncCount()} to średni rozmiar grupy
+     */
+    long syncedRecords() {
+        syncLock.lock();
+        try {
+            return syncedRecords;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        appendLock.lock();
+        try {
+            if (active != null) {
+                active.buffer.force();
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Group commit: jeden wątek (lider) utrwala wszystkie dopisane wpisy, pozostałe czekają na wynik.
+     */
+    private void awaitDurable(long sequence) {
+        syncLock.lock();
+        try {
+            while (durableSequence < sequence) {
+                if (syncing) {
+                    synced.awaitUninterruptibly();
+                    continue;
+                }
+                syncing = true;
+                long target;
+                syncLock.unlock();
+                try {
+                    target = force();
+                } finally {
+                    syncLock.lock();
+                    syncing = false;
+                }
+                syncCount++;
+                syncedRecords += target - durableSequence;
+                durableSequence = target;
+                synced.signalAll();
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private long force() {
+        MappedByteBuffer buffer;
+        long target;
+        appendLock.lock();
+        try {
+            buffer = active.buffer;
+            target = lastSequence;
+        } finally {
+            appendLock.unlock();
+        }
+        // poprzednie segmenty są utrwalane przy zamknięciu w roll()
+        buffer.force();
+        return target;
+    }
+
+    private void roll(long firstSequence) {
+        if (active != null) {
+            active.buffer.force();
+        }
+        active = createSegment(firstSequence);
+        segments.put(firstSequence, active);
+    }
+
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing
+                    .filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+        for (Path file : files) {
+            Segment segment = openSegment(file);
+            if (segment != null) {
+                segments.put(segment.firstSequence, segment);
+                active = segment;
+                lastSequence = segment.firstSequence + segment.count - 1;
+            }
+        }
+        if (active == null) {
+            roll(1);
+            lastSequence = 0;
+        } else {
+            log.info("Recovered training journal: {} segments, last sequence {}", segments.size(), lastSequence);
+        }
+        durableSequence = lastSequence;
+    }
+
+    private Segment createSegment(long firstSequence) {
+        Path path = directory.resolve(SEGMENT_PREFIX + "%020d".formatted(firstSequence) + SEGMENT_SUFFIX);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + (long) recordsPerSegment * RECORD_SIZE);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(Integer.BYTES, RECORD_SIZE);
+            buffer.putLong(2 * Integer.BYTES, firstSequence);
+            buffer.force();
+            return new Segment(path, firstSequence, buffer, 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create journal segment " + path, e);
+        }
+    }
+
+    /**
+     * Otwiera istniejący segment i wyznacza liczbę poprawnych wpisów - pierwszy wpis z błędną sumą kontrolną
+     * lub nieoczekiwanym numerem (niedokończony zapis przed awarią) kończy segment.
+     */
+    private Segment openSegment(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + RECORD_SIZE) {
+                log.warn("Skipping truncated journal segment {}", path);
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != RECORD_SIZE) {
+                log.warn("Skipping journal segment {} with unknown format", path);
+                return null;
+            }
+            long firstSequence = buffer.getLong(2 * Integer.BYTES);
+            int capacity = (int) ((size - HEADER_SIZE) / RECORD_SIZE);
+            Segment segment = new Segment(path, firstSequence, buffer, 0);
+            int count = 0;
+            while (count < capacity && isValid(segment, count)) {
+                count++;
+            }
+            segment.count = count;
+            return segment;
+        }
+    }
+
+    private boolean isValid(Segment segment, int index) {
+        int offset = offset(index);
+        if (segment.buffer.getLong(offset) != segment.firstSequence + index) {
+            return false;
+        }
+        return segment.buffer.getInt(offset + CHECKSUMMED_BYTES) == checksum(segment.buffer, offset);
+    }
+
+    private static void write(Segment segment, int index, Entry entry) {
+        MappedByteBuffer buffer = segment.buffer;
+        int offset = offset(index);
+        buffer.putLong(offset, entry.sequence());
+        buffer.putLong(offset + 8, entry.appendedAt());
+        buffer.putLong(offset + 16, entry.userId());
+        buffer.putLong(offset + 24, entry.startTime());
+        buffer.putLong(offset + 32, entry.endTime());
+        buffer.putInt(offset + 40, entry.activityType());
+        buffer.putDouble(offset + 44, entry.distance());
+        buffer.putDouble(offset + 52, entry.averageSpeed());
+        buffer.putInt(offset + CHECKSUMMED_BYTES, checksum(buffer, offset));
+    }
+
+    private static Entry readAt(Segment segment, int index) {
+        MappedByteBuffer buffer = segment.buffer;
+        int offset = offset(index);
+        return new Entry(
+                buffer.getLong(offset),
+                buffer.getLong(offset + 8),
+                buffer.getLong(offset + 16),
+                buffer.getLong(offset + 24),
+                buffer.getLong(offset + 32),
+                buffer.getInt(offset + 40),
+                buffer.getDouble(offset + 44),
+                buffer.getDouble(offset + 52));
+    }
+
+    private static int checksum(MappedByteBuffer buffer, int offset) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(offset, CHECKSUMMED_BYTES));
+        return (int) crc.getValue();
+    }
+
+    private static int offset(int index) {
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+
+    private static final class Segment {
+
+        private final Path path;
+        private final long firstSequence;
+        private final MappedByteBuffer buffer;
+        private volatile int count;
+
+        private Segment(Path path, long firstSequence, MappedByteBuffer buffer, int count) {
+            this.path = path;
+            this.firstSequence = firstSequence;
+            this.buffer = buffer;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Punkt kontrolny {@link TrainingJournal} - numer ostatniego wpisu przeniesionego do tabeli {@code trainings}.
+ * Aktualizowany w tej samej transakcji co wstawiane treningi, więc po awarii żaden wpis nie jest zapisywany dwukrotnie.
+ */
+@Entity
+@Table(name = "training_journal_checkpoint")
+@Getter
+@Setter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+class TrainingJournalCheckpoint {
+
+    static final long ID = 1L;
+
+    @Id
+    private Long id;
+
+    @Column(name = "applied_sequence", nullable = false)
+    private long appliedSequence;
+
+    TrainingJournalCheckpoint(long appliedSequence) {
+        this.id = ID;
+        this.appliedSequence = appliedSequence;
+    }
+}
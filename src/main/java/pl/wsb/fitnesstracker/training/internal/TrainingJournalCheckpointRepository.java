@@ -0,0 +1,7 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+interface TrainingJournalCheckpointRepository extends JpaRepository<TrainingJournalCheckpoint, Long> {
+
+}
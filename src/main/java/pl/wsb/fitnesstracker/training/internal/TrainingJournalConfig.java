@@ -0,0 +1,34 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(prefix = "trainings.journal", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(TrainingJournalProperties.class)
+class TrainingJournalConfig {
+
+    @Bean(destroyMethod = "close")
+    TrainingJournal trainingJournal(TrainingJournalProperties properties, MeterRegistry meterRegistry) {
+        TrainingJournal journal = new TrainingJournal(properties.getDirectory(), properties.getSegmentSize().toBytes());
+        FunctionCounter.builder("trainings.journal.syncs", journal, TrainingJournal::syncCount)
+                .description("Number of journal fsyncs (group commits)")
+                .register(meterRegistry);
+        FunctionCounter.builder("trainings.journal.synced.records", journal, TrainingJournal::syncedRecords)
+                .description("Number of journal entries made durable by group commits")
+                .register(meterRegistry);
+        Gauge.builder("trainings.journal.segments", journal, TrainingJournal::segmentCount)
+                .description("Number of journal segment files not yet fully applied to the database")
+                .register(meterRegistry);
+        Gauge.builder("trainings.journal.disk", journal, TrainingJournal::sizeOnDisk)
+                .description("Disk space reserved by journal segment files")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        return journal;
+    }
+}
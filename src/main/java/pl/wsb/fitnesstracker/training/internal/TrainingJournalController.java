@@ -0,0 +1,59 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import pl.wsb.fitnesstracker.training.api.TrainingJournalReceiptDto;
+import pl.wsb.fitnesstracker.training.api.TrainingOverlapException;
+import pl.wsb.fitnesstracker.training.api.TrainingOverlapPolicy;
+import pl.wsb.fitnesstracker.training.api.TrainingRequestBody;
+import pl.wsb.fitnesstracker.user.api.UserNotFoundException;
+import pl.wsb.fitnesstracker.user.api.UserProvider;
+
+/**
+ * Kontroler przyjmujący treningi przez trwały dziennik ({@link TrainingJournal}).
+ * Dostępny tylko przy włączonej właściwości {@code trainings.journal.enabled}.
+ */
+@RestController
+@RequestMapping("/v1/trainings")
+@ConditionalOnProperty(prefix = "trainings.journal", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class TrainingJournalController {
+
+    private final TrainingJournal journal;
+    private final UserProvider userProvider;
+    private final TrainingOverlapIndex overlapIndex;
+    private final TrainingOverlapProperties overlapProperties;
+
+    /**
+     * Przyjmuje trening do dziennika i potwierdza go od razu po utrwaleniu wpisu na dysku,
+     * bez zajmowania połączenia z bazą danych. Trening zostanie zapisany w tabeli {@code trainings} w tle.
+     * Nachodzenie na inne treningi sprawdzane jest tylko względem już zapisanych treningów ({@link TrainingOverlapIndex}).
+     *
+     * @param body dane treningu
+     * @return odpowiedź HTTP 202 z numerem wpisu w dzienniku
+     * @throws UserNotFoundException jeśli użytkownik nie istnieje
+     * @throws TrainingOverlapException jeśli trening nachodzi na inny, a polityka jest inna niż {@code ALLOW}
+     */
+    @PostMapping("/journal")
+    public ResponseEntity<TrainingJournalReceiptDto> submit(@RequestBody TrainingRequestBody body) {
+        TrainingServiceImpl.validate(body);
+        userProvider.getUser(body.getUserId())
+                .orElseThrow(() -> new UserNotFoundException(body.getUserId()));
+        if (overlapProperties.getPolicy() != TrainingOverlapPolicy.ALLOW) {
+            overlapIndex.findOverlapping(body.getUserId(), body.getStartTime().getTime(), body.getEndTime().getTime(), null, 1)
+                    .stream()
+                    .findFirst()
+                    .ifPresent(overlapping -> {
+                        throw new TrainingOverlapException(overlapping);
+                    });
+        }
+        long sequence = journal.append(body.getUserId(), body.getStartTime().getTime(), body.getEndTime().getTime(),
+                body.getActivityType().ordinal(), body.getDistance(), body.getAverageSpeed());
+        return ResponseEntity.accepted().body(new TrainingJournalReceiptDto(sequence));
+    }
+}
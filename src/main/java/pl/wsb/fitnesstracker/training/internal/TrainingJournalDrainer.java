@@ -0,0 +1,216 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.wsb.fitnesstracker.lookup.api.LookupResult;
+import pl.wsb.fitnesstracker.training.api.Training;
+import pl.wsb.fitnesstracker.user.api.User;
+import pl.wsb.fitnesstracker.user.api.UserProvider;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Przenosi wpisy {@link TrainingJournal} do tabeli {@code trainings}.
+ *
+ * <p>
+ * Wpisy odczytywane są paczkami po {@code trainings.journal.drain-batch-size}; użytkownicy paczki pobierani są
+ * jednym zapytaniem, a treningi wstawiane wsadowo w jednej transakcji razem z aktualizacją
+ * {@link TrainingJournalCheckpoint}. Dzięki temu po awarii aplikacji odtwarzane są dokładnie te wpisy,
+ * których transakcja nie została zatwierdzona. Jeśli paczka się nie powiedzie, wpisy zapisywane są pojedynczo.
+ * Odrzucany jest wyłącznie wpis z trwałym, własnym błędem - użytkownik nie istnieje lub typ aktywności jest nieznany -
+ * a jego pełna treść trafia do logu. Każdy inny błąd bazy (np. przekroczony czas blokady, utracone połączenie)
+ * przerywa przenoszenie bez przesuwania punktu kontrolnego, więc wpis zostanie ponowiony przy kolejnym przebiegu.
+ * </p>
+ *
+ * <p>
+ * Opóźnienie dziennika publikowane jest jako {@code trainings.journal.lag} (liczba oczekujących wpisów)
+ * oraz {@code trainings.journal.lag.seconds} (wiek najstarszego oczekującego wpisu).
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(prefix = "trainings.journal", name = "enabled", havingValue = "true")
+@Slf4j
+class TrainingJournalDrainer {
+
+    private static final ActivityType[] ACTIVITY_TYPES = ActivityType.values();
+
+    private final TrainingJournal journal;
+    private final UserProvider userProvider;
+    private final TrainingJournalCheckpointRepository checkpointRepository;
+    private final TrainingRollups rollups;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Counter appliedCounter;
+    private final Counter rejectedCounter;
+
+    private volatile long appliedSequence;
+    private volatile boolean recovered;
+
+    TrainingJournalDrainer(TrainingJournal journal,
+                           UserProvider userProvider,
+                           TrainingJournalCheckpointRepository checkpointRepository,
+                           TrainingRollups rollups,
+                           EntityManager entityManager,
+                           PlatformTransactionManager transactionManager,
+                           TrainingJournalProperties properties,
+                           MeterRegistry meterRegistry) {
+        this.journal = journal;
+        this.userProvider = userProvider;
+        this.checkpointRepository = checkpointRepository;
+        this.rollups = rollups;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.max(1, properties.getDrainBatchSize());
+        this.appliedCounter = Counter.builder("trainings.journal.applied")
+                .description("Number of journal entries inserted into the trainings table")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("trainings.journal.rejected")
+                .description("Number of journal entries that could not be inserted and were skipped")
+                .register(meterRegistry);
+        Gauge.builder("trainings.journal.lag", this, TrainingJournalDrainer::lag)
+                .description("Number of durable journal entries not yet applied to the database")
+                .register(meterRegistry);
+        Gauge.builder("trainings.journal.lag.seconds", this, TrainingJournalDrainer::lagSeconds)
+                .description("Age of the oldest journal entry not yet applied to the database")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Odtwarza stan po starcie: wczytuje punkt kontrolny i przenosi do bazy wpisy, które nie zostały zapisane
+     * przed zatrzymaniem aplikacji.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void recover() {
+        appliedSequence = checkpointRepository.findById(TrainingJournalCheckpoint.ID)
+                .map(TrainingJournalCheckpoint::getAppliedSequence)
+                .orElse(0L);
+        journal.advanceTo(appliedSequence);
+        long pending = lag();
+        if (pending > 0) {
+            log.info("Replaying {} training journal entries after sequence {}", pending, appliedSequence);
+        }
+        recovered = true;
+        drain();
+    }
+
+    @Scheduled(fixedDelayString = "${trainings.journal.drain-interval:PT0.2S}")
+    void scheduledDrain() {
+        if (recovered) {
+            drain();
+        }
+    }
+
+    /**
+     * Przenosi do bazy wszystkie utrwalone, nieprzetworzone wpisy dziennika.
+     * Błąd bazy przerywa przebieg; nieprzetworzone wpisy zostaną ponowione przy kolejnym.
+     *
+     * @return liczba przetworzonych wpisów (zapisanych i odrzuconych)
+     */
+    synchronized int drain() {
+        long startSequence = appliedSequence;
+        List<TrainingJournal.Entry> batch;
+        try {
+            while (!(batch = journal.read(appliedSequence, batchSize)).isEmpty()) {
+                apply(batch);
+            }
+        } catch (PersistenceException | DataAccessException e) {
+            log.warn("Journal drain stopped after sequence {}, retrying on next drain: {}", appliedSequence, e.getMessage());
+        }
+        int processed = (int) (appliedSequence - startSequence);
+        if (processed > 0) {
+            journal.release(appliedSequence);
+        }
+        return processed;
+    }
+
+    long lag() {
+        return Math.max(0, journal.durableSequence() - appliedSequence);
+    }
+
+    double lagSeconds() {
+        long appendedAt = journal.appendedAt(appliedSequence + 1);
+        return appendedAt < 0 ? 0 : Math.max(0, System.currentTimeMillis() - appendedAt) / 1000.0;
+    }
+
+    private void apply(List<TrainingJournal.Entry> batch) {
+        List<Long> userIds = batch.stream().map(TrainingJournal.Entry::userId).distinct().toList();
+        Map<Long, User> users = new HashMap<>();
+        for (LookupResult<User> result : userProvider.findUsersByIds(userIds)) {
+            if (result.found()) {
+                users.put(result.id(), result.item());
+            }
+        }
+        try {
+            persist(batch, users);
+        } catch (PersistenceException | DataAccessException e) {
+            log.warn("Journal batch insert failed, retrying {} entries one by one: {}", batch.size(), e.getMessage());
+            for (TrainingJournal.Entry entry : batch) {
+                try {
+                    persist(List.of(entry), users);
+                } catch (PersistenceException | DataAccessException single) {
+                    if (userProvider.getUser(entry.userId()).isPresent()) {
+                        throw single;
+                    }
+                    // użytkownik został usunięty po odczycie paczki - błąd trwały, dotyczący tylko tego wpisu
+                    persist(List.of(entry), Map.of());
+                }
+            }
+        }
+    }
+
+    /**
+     * Wstawia treningi wpisów, dolicza je do podsumowań okresów i przesuwa punkt kontrolny w jednej transakcji.
+     * Wpisy bez istniejącego użytkownika lub z nieznanym typem aktywności są odrzucane, a ich treść zapisywana w logu.
+     */
+    private void persist(List<TrainingJournal.Entry> entries, Map<Long, User> users) {
+        long lastSequence = entries.get(entries.size() - 1).sequence();
+        List<Training> trainings = new ArrayList<>(entries.size());
+        int rejected = 0;
+        for (TrainingJournal.Entry entry : entries) {
+            User user = users.get(entry.userId());
+            if (user == null || entry.activityType() < 0 || entry.activityType() >= ACTIVITY_TYPES.length) {
+                log.warn("Rejecting journal entry without an existing user or a known activity type: {}", entry);
+                rejected++;
+                continue;
+            }
+            trainings.add(new Training(user, new Date(entry.startTime()), new Date(entry.endTime()),
+                    ACTIVITY_TYPES[entry.activityType()], entry.distance(), entry.averageSpeed()));
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            trainings.forEach(entityManager::persist);
+            TrainingJournalCheckpoint checkpoint = entityManager.find(TrainingJournalCheckpoint.class, TrainingJournalCheckpoint.ID);
+            if (checkpoint == null) {
+                entityManager.persist(new TrainingJournalCheckpoint(lastSequence));
+            } else {
+                checkpoint.setAppliedSequence(lastSequence);
+            }
+            entityManager.flush();
+            rollups.add(trainings.stream().map(TrainingRollups.Contribution::of).toList());
+            entityManager.clear();
+        });
+        appliedSequence = lastSequence;
+        appliedCounter.increment(trainings.size());
+        if (rejected > 0) {
+            log.warn("Rejected {} journal entries up to sequence {}", rejected, lastSequence);
+            rejectedCounter.increment(rejected);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import lombok.Getter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+
+/**
+ * Configuration of the {@link TrainingJournal} and its {@link TrainingJournalDrainer}.
+ */
+@ConfigurationProperties(prefix = "trainings.journal")
+@Getter
+class TrainingJournalProperties {
+
+    /**
+     * Whether trainings can be submitted through the journal ({@code POST /v1/trainings/journal}).
+     */
+    private final boolean enabled;
+
+    /**
+     * Directory holding the journal segment files. Must survive restarts together with the database.
+     */
+    private final Path directory;
+
+    /**
+     * Size of a single segment file.
+     */
+    private final DataSize segmentSize;
+
+    /**
+     * Maximum number of journal entries inserted into the database in one transaction.
+     */
+    private final int drainBatchSize;
+
+    TrainingJournalProperties(@DefaultValue("false") boolean enabled,
+                              @DefaultValue("data/journal") Path directory,
+                              @DefaultValue("64MB") DataSize segmentSize,
+                              @DefaultValue("500") int drainBatchSize) {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.drainBatchSize = drainBatchSize;
+    }
+}
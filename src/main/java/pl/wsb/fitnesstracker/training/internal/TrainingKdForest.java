@@ -0,0 +1,337 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * Zbiór drzew k-wymiarowych (KD-tree) z cechami treningów jednego typu aktywności,
+ * pozwalający wyszukiwać k najbliższych sąsiadów.
+ *
+ * <p>
+ * Pojedyncze drzewo jest statyczne i zbalansowane: punkty leżą w tablicy, a węzłem zakresu jest jego mediana
+ * względem osi wybieranej cyklicznie, więc drzewo nie ma obiektów węzłów. Aby przyjmować nowe punkty,
+ * las utrzymuje drzewa na poziomach jak licznik binarny (metoda logarytmiczna Bentleya-Saxe'a): nowy punkt
+ * scala kolejne zajęte poziomy w jedno drzewo na pierwszym wolnym poziomie. Wstawienie kosztuje zamortyzowanie
+ * O(log² n), a wyszukiwanie przegląda O(log n) drzew, odrzucając gałęzie dalsze niż k-ty znaleziony sąsiad.
+ * </p>
+ *
+ * <p>
+ * Usunięty lub zmieniony punkt zostaje w drzewie do najbliższego scalenia i jest pomijany dzięki
+ * {@code live}. Gdy takich punktów jest więcej niż aktualnych, las budowany jest od nowa.
+ * </p>
+ *
+ * <p>
+ * Odległość to ważona odległość euklidesowa, a wagą osi jest odwrotność wariancji cechy wśród aktualnych punktów,
+ * dzięki czemu kilometry, km/h i minuty są porównywalne. Skalowanie osi nie zmienia podziałów drzewa,
+ * więc wagi wyliczane są przy każdym wyszukiwaniu i nie wymagają przebudowy.
+ * </p>
+ *
+ * <p>
+ * Klasa nie jest bezpieczna wątkowo.
+ * </p>
+ */
+final class TrainingKdForest {
+
+    static final int DIMENSIONS = 3;
+
+    /**
+     * Najmniejsza liczba nieaktualnych punktów, od której las jest przebudowywany.
+     */
+    private static final int MIN_STALE_TO_REBUILD = 64;
+
+    /**
+     * Cechy treningu w przestrzeni wyszukiwania.
+     *
+     * @param id              identyfikator treningu
+     * @param userId          identyfikator użytkownika
+     * @param activityType    typ aktywności
+     * @param distance        dystans
+     * @param averageSpeed    średnia prędkość
+     * @param durationMinutes czas trwania w minutach
+     */
+    record Point(long id, long userId, ActivityType activityType,
+                 double distance, double averageSpeed, double durationMinutes) {
+
+        double coordinate(int axis) {
+            return switch (axis) {
+                case 0 -> distance;
+                case 1 -> averageSpeed;
+                default -> durationMinutes;
+            };
+        }
+    }
+
+    /**
+     * Znaleziony sąsiad.
+     *
+     * @param point    cechy treningu
+     * @param distance ważona odległość od szukanego punktu
+     */
+    record Neighbour(Point point, double distance) {
+    }
+
+    private final Predicate<Point> live;
+    private final List<Tree> levels = new ArrayList<>();
+    private final double[] sums = new double[DIMENSIONS];
+    private final double[] squareSums = new double[DIMENSIONS];
+    private int liveCount;
+    private int storedCount;
+
+    /**
+     * @param live sprawdza, czy punkt w drzewie jest nadal aktualną wersją treningu
+     */
+    TrainingKdForest(Predicate<Point> live) {
+        this.live = live;
+    }
+
+    int size() {
+        return liveCount;
+    }
+
+    /**
+     * Liczba punktów przechowywanych w drzewach, łącznie z nieaktualnymi.
+     */
+    int storedSize() {
+        return storedCount;
+    }
+
+    /**
+     * Zastępuje zawartość lasu jednym zbalansowanym drzewem z podanych punktów.
+     */
+    void load(List<Point> points) {
+        levels.clear();
+        Arrays.fill(sums, 0);
+        Arrays.fill(squareSums, 0);
+        liveCount = 0;
+        storedCount = 0;
+        points.forEach(this::count);
+        if (!points.isEmpty()) {
+            place(new Tree(points.toArray(Point[]::new)));
+        }
+    }
+
+    void add(Point point) {
+        count(point);
+        List<Point> carry = new ArrayList<>();
+        carry.add(point);
+        int level = 0;
+        while (level < levels.size() && levels.get(level) != null) {
+            Tree tree = levels.set(level, null);
+            storedCount -= tree.points.length;
+            for (Point stored : tree.points) {
+                if (live.test(stored)) {
+                    carry.add(stored);
+                }
+            }
+            level++;
+        }
+        place(level, new Tree(carry.toArray(Point[]::new)));
+    }
+
+    /**
+     * Odnotowuje, że punkt przestał być aktualny. Sam punkt zostaje w drzewie do najbliższego scalenia.
+     */
+    void remove(Point point) {
+        liveCount--;
+        for (int axis = 0; axis < DIMENSIONS; axis++) {
+            double value = point.coordinate(axis);
+            sums[axis] -= value;
+            squareSums[axis] -= value * value;
+        }
+        int stale = storedCount - liveCount;
+        if (stale > liveCount && stale >= MIN_STALE_TO_REBUILD) {
+            List<Point> points = new ArrayList<>(liveCount);
+            for (Tree tree : levels) {
+                if (tree != null) {
+                    for (Point stored : tree.points) {
+                        if (live.test(stored)) {
+                            points.add(stored);
+                        }
+                    }
+                }
+            }
+            load(points);
+        }
+    }
+
+    /**
+     * Wyszukuje {@code k} punktów najbliższych podanemu.
+     *
+     * @param query  szukany punkt
+     * @param k      liczba sąsiadów
+     * @param accept dodatkowy warunek, który musi spełniać sąsiad (np. inny trening niż szukany)
+     * @return sąsiedzi od najbliższego
+     */
+    List<Neighbour> nearest(Point query, int k, Predicate<Point> accept) {
+        double[] weights = weights();
+        Search search = new Search(query, k, weights, live.and(accept));
+        for (Tree tree : levels) {
+            if (tree != null) {
+                search.visit(tree.points, 0, tree.points.length, 0);
+            }
+        }
+        return search.best.stream()
+                .sorted(Comparator.comparingDouble(Candidate::squaredDistance))
+                .map(candidate -> new Neighbour(candidate.point(), Math.sqrt(candidate.squaredDistance())))
+                .toList();
+    }
+
+    /**
+     * Wagi osi: odwrotności wariancji cech aktualnych punktów, a dla stałej cechy 1.
+     */
+    double[] weights() {
+        double[] weights = new double[DIMENSIONS];
+        for (int axis = 0; axis < DIMENSIONS; axis++) {
+            double variance = liveCount > 1
+                    ? (squareSums[axis] - sums[axis] * sums[axis] / liveCount) / (liveCount - 1)
+                    : 0;
+            weights[axis] = variance > 1e-9 ? 1 / variance : 1;
+        }
+        return weights;
+    }
+
+    private void count(Point point) {
+        liveCount++;
+        for (int axis = 0; axis < DIMENSIONS; axis++) {
+            double value = point.coordinate(axis);
+            sums[axis] += value;
+            squareSums[axis] += value * value;
+        }
+    }
+
+    /**
+     * Umieszcza drzewo na najniższym poziomie, którego pojemność 2^poziom je mieści.
+     */
+    private void place(Tree tree) {
+        int level = 0;
+        while ((1L << level) < tree.points.length) {
+            level++;
+        }
+        place(level, tree);
+    }
+
+    private void place(int level, Tree tree) {
+        while (levels.size() <= level) {
+            levels.add(null);
+        }
+        levels.set(level, tree);
+        storedCount += tree.points.length;
+    }
+
+    /**
+     * Statyczne drzewo KD zapisane w tablicy: węzłem zakresu {@code [from, to)} jest element środkowy,
+     * po jego lewej stronie leżą punkty o nie większej współrzędnej na osi {@code głębokość % 3}, a po prawej nie mniejszej.
+     */
+    private static final class Tree {
+
+        private final Point[] points;
+
+        private Tree(Point[] points) {
+            this.points = points;
+            build(0, points.length, 0);
+        }
+
+        private void build(int from, int to, int depth) {
+            if (to - from <= 1) {
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            select(from, to - 1, middle, depth % DIMENSIONS);
+            build(from, middle, depth + 1);
+            build(middle + 1, to, depth + 1);
+        }
+
+        /**
+         * Ustawia na pozycji {@code target} element, który znalazłby się tam po posortowaniu zakresu (quickselect).
+         */
+        private void select(int left, int right, int target, int axis) {
+            while (left < right) {
+                double pivot = points[(left + right) >>> 1].coordinate(axis);
+                int i = left;
+                int j = right;
+                while (i <= j) {
+                    while (points[i].coordinate(axis) < pivot) {
+                        i++;
+                    }
+                    while (points[j].coordinate(axis) > pivot) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        Point swap = points[i];
+                        points[i] = points[j];
+                        points[j] = swap;
+                        i++;
+                        j--;
+                    }
+                }
+                if (target <= j) {
+                    right = j;
+                } else if (target >= i) {
+                    left = i;
+                } else {
+                    return;
+                }
+            }
+        }
+    }
+
+    private record Candidate(Point point, double squaredDistance) {
+    }
+
+    private static final class Search {
+
+        private final Point query;
+        private final int k;
+        private final double[] weights;
+        private final Predicate<Point> accept;
+        private final PriorityQueue<Candidate> best;
+
+        private Search(Point query, int k, double[] weights, Predicate<Point> accept) {
+            this.query = query;
+            this.k = k;
+            this.weights = weights;
+            this.accept = accept;
+            this.best = new PriorityQueue<>(k + 1, Comparator.comparingDouble(Candidate::squaredDistance).reversed());
+        }
+
+        private void visit(Point[] points, int from, int to, int depth) {
+            if (from >= to) {
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            Point point = points[middle];
+            if (accept.test(point)) {
+                offer(point);
+            }
+            int axis = depth % DIMENSIONS;
+            double difference = query.coordinate(axis) - point.coordinate(axis);
+            boolean queryOnLeft = difference <= 0;
+            visit(points, queryOnLeft ? from : middle + 1, queryOnLeft ? middle : to, depth + 1);
+            if (best.size() < k || weights[axis] * difference * difference <= worstSquared()) {
+                visit(points, queryOnLeft ? middle + 1 : from, queryOnLeft ? to : middle, depth + 1);
+            }
+        }
+
+        private void offer(Point point) {
+            double squared = 0;
+            for (int axis = 0; axis < DIMENSIONS; axis++) {
+                double difference = query.coordinate(axis) - point.coordinate(axis);
+                squared += weights[axis] * difference * difference;
+            }
+            if (best.size() < k) {
+                best.add(new Candidate(point, squared));
+            } else if (squared < worstSquared()) {
+                best.poll();
+                best.add(new Candidate(point, squared));
+            }
+        }
+
+        private double worstSquared() {
+            return best.peek().squaredDistance();
+        }
+    }
+}
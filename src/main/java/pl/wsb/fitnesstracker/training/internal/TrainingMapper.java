@@ -39,7 +39,8 @@ public class TrainingMapper {
                 training.getEndTime(),
                 training.getActivityType(),
                 training.getDistance(),
-                training.getAverageSpeed()
+                training.getAverageSpeed(),
+                training.getVersion()
         );
     }
 
@@ -0,0 +1,201 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import pl.wsb.fitnesstracker.training.api.Training;
+import pl.wsb.fitnesstracker.training.api.TrainingChangedEvent;
+import pl.wsb.fitnesstracker.training.api.TrainingRowDto;
+import pl.wsb.fitnesstracker.transaction.api.TransactionBatch;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Indeks przedziałów czasu treningów w pamięci - osobne {@link TrainingIntervalTree} dla każdego użytkownika.
+ *
+ * <p>
+ * Sprawdzenie, czy nowy trening nachodzi na istniejący, kosztuje O(log n) względem liczby treningów użytkownika
+ * i nie wymaga zapytania do bazy, więc może być wykonywane dla każdego wiersza importu masowego.
+ * Indeks budowany jest przy starcie aplikacji i aktualizowany zdarzeniami {@link TrainingChangedEvent}
+ * dopiero po zatwierdzeniu transakcji, więc inne wątki widzą tylko zatwierdzone przedziały.
+ * Wyszukiwanie w transakcji, która sama zmieniła treningi, uwzględnia dodatkowo jej niezatwierdzone przedziały:
+ * walidacja kolejnych wierszy importu masowego musi widzieć treningi dodane wcześniej w tej samej transakcji.
+ * </p>
+ */
+@Component
+@Slf4j
+class TrainingOverlapIndex {
+
+    /**
+     * Szacowany rozmiar przedziału w indeksie: węzeł drzewa i wpis w mapie po ID.
+     */
+    static final long ESTIMATED_INTERVAL_BYTES = 120;
+
+    private final TrainingRepository trainingRepository;
+    private final Map<Long, TrainingIntervalTree> treesByUser = new ConcurrentHashMap<>();
+    private final Map<Long, Interval> intervalsById = new ConcurrentHashMap<>();
+    /**
+     * Przedziały zmienione w bieżącej transakcji po ID treningu; {@code null} oznacza usunięty trening.
+     */
+    private final TransactionBatch<Map<Long, Interval>> pending = TransactionBatch.afterCommit(HashMap::new, this::apply);
+
+    TrainingOverlapIndex(TrainingRepository trainingRepository, MeterRegistry meterRegistry) {
+        this.trainingRepository = trainingRepository;
+        Gauge.builder("trainings.overlap.index.size", this, TrainingOverlapIndex::size)
+                .description("Number of training intervals in the overlap index")
+                .register(meterRegistry);
+        Gauge.builder("trainings.overlap.index.memory", this, index -> index.size() * ESTIMATED_INTERVAL_BYTES)
+                .description("Estimated heap held by the training overlap index")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    private record Interval(long userId, long start, long end) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    void rebuild() {
+        try (Stream<TrainingRowDto> rows = trainingRepository.streamAllRows()) {
+            rows.forEach(row -> put(row.id(), row.userId(), row.startTime().getTime(), row.endTime().getTime()));
+        }
+        log.info("Training overlap index built with {} trainings of {} users", size(), treesByUser.size());
+    }
+
+    int size() {
+        return intervalsById.size();
+    }
+
+    /**
+     * Zwraca ID treningów użytkownika nachodzących na przedział {@code [start, end)}, w kolejności rozpoczęcia.
+     * W transakcji zmieniającej treningi uwzględniane są jej niezatwierdzone zmiany.
+     *
+     * @param userId    identyfikator użytkownika
+     * @param start     początek przedziału (ms od epoki)
+     * @param end       koniec przedziału (ms od epoki)
+     * @param excludeId ID pomijanego treningu (np. aktualizowanego) lub {@code null}
+     * @param limit     maksymalna liczba wyników
+     * @return ID nachodzących treningów
+     */
+    List<Long> findOverlapping(Long userId, long start, long end, @Nullable Long excludeId, int limit) {
+        Map<Long, Interval> changes = pending.current();
+        if (changes == null || changes.isEmpty()) {
+            return findCommitted(userId, start, end, excludeId, limit);
+        }
+        // zatwierdzone przedziały zmienione w tej transakcji są pomijane, więc pobieranych jest ich odpowiednio więcej
+        int committedLimit = (int) Math.min(Integer.MAX_VALUE, (long) limit + changes.size());
+        Map<Long, Interval> found = new HashMap<>();
+        for (Long id : findCommitted(userId, start, end, excludeId, committedLimit)) {
+            Interval interval = intervalsById.get(id);
+            if (interval != null && !changes.containsKey(id)) {
+                found.put(id, interval);
+            }
+        }
+        changes.forEach((id, interval) -> {
+            if (interval != null && interval.userId() == userId && !id.equals(excludeId)
+                    && interval.start() < end && start < interval.end()) {
+                found.put(id, interval);
+            }
+        });
+        return found.entrySet().stream()
+                .sorted(Comparator.comparingLong(entry -> entry.getValue().start()))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private List<Long> findCommitted(Long userId, long start, long end, @Nullable Long excludeId, int limit) {
+        TrainingIntervalTree tree = treesByUser.get(userId);
+        if (tree == null) {
+            return List.of();
+        }
+        synchronized (tree) {
+            return tree.overlapping(start, end, excludeId, limit);
+        }
+    }
+
+    /**
+     * Wyznacza pary nachodzących na siebie treningów.
+     *
+     * @param userId identyfikator użytkownika lub {@code null} dla wszystkich użytkowników
+     * @param limit  maksymalna liczba par
+     * @return pary ID treningów, pogrupowane po użytkownikach i uporządkowane po czasie rozpoczęcia
+     */
+    List<TrainingIntervalTree.Overlap> findOverlaps(@Nullable Long userId, int limit) {
+        List<TrainingIntervalTree.Overlap> overlaps = new ArrayList<>();
+        List<Long> userIds = userId != null
+                ? List.of(userId)
+                : treesByUser.keySet().stream().sorted().toList();
+        for (Long id : userIds) {
+            TrainingIntervalTree tree = treesByUser.get(id);
+            if (tree == null) {
+                continue;
+            }
+            synchronized (tree) {
+                tree.overlaps(limit, overlaps);
+            }
+            if (overlaps.size() >= limit) {
+                break;
+            }
+        }
+        return overlaps;
+    }
+
+    @EventListener
+    void onTrainingChanged(TrainingChangedEvent event) {
+        Training training = event.training();
+        Interval interval = event.change() == TrainingChangedEvent.Change.DELETED
+                ? null
+                : new Interval(training.getUser().getId(), training.getStartTime().getTime(), training.getEndTime().getTime());
+        pending.add(changes -> changes.put(training.getId(), interval));
+    }
+
+    /**
+     * Nanosi zatwierdzone zmiany przedziałów; przeniesienie treningu usuwa go z drzewa poprzedniego użytkownika.
+     */
+    private void apply(Map<Long, Interval> changes) {
+        changes.forEach((id, interval) -> {
+            if (interval == null) {
+                remove(id);
+            } else {
+                put(id, interval.userId(), interval.start(), interval.end());
+            }
+        });
+    }
+
+    private void put(long id, long userId, long start, long end) {
+        remove(id);
+        TrainingIntervalTree tree = treesByUser.computeIfAbsent(userId, key -> new TrainingIntervalTree());
+        synchronized (tree) {
+            tree.insert(id, start, end);
+            intervalsById.put(id, new Interval(userId, start, end));
+        }
+    }
+
+    private void remove(long id) {
+        Interval interval = intervalsById.get(id);
+        if (interval == null) {
+            return;
+        }
+        TrainingIntervalTree tree = treesByUser.get(interval.userId());
+        if (tree == null) {
+            intervalsById.remove(id, interval);
+            return;
+        }
+        synchronized (tree) {
+            tree.remove(id, interval.start());
+            intervalsById.remove(id, interval);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import lombok.Getter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import pl.wsb.fitnesstracker.training.api.TrainingOverlapPolicy;
+
+/**
+ * Configuration of overlapping training detection.
+ */
+@ConfigurationProperties(prefix = "trainings.overlap")
+@Getter
+class TrainingOverlapProperties {
+
+    /**
+     * How a training overlapping another training of the same user is handled on create, update and ingest.
+     */
+    private final TrainingOverlapPolicy policy;
+
+    TrainingOverlapProperties(@DefaultValue("REJECT") TrainingOverlapPolicy policy) {
+        this.policy = policy;
+    }
+}
@@ -1,17 +1,42 @@
 package pl.wsb.fitnesstracker.training.internal;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 import pl.wsb.fitnesstracker.training.api.Training;
+import pl.wsb.fitnesstracker.training.api.TrainingRowDto;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Repozytorium JPA dla encji {@link Training}.
  * Udostępnia standardowe operacje CRUD oraz dodatkowe metody wyszukiwania treningów według użytkownika, typu aktywności i daty.
+ *
+ * <p>
+ * Metody zwracające listy treningów pobierają użytkowników w tym samym zapytaniu ({@link EntityGraph} lub {@code join fetch}),
+ * dzięki czemu mapowanie do DTO nie wykonuje osobnego zapytania o użytkownika dla każdego wiersza.
+ * </p>
  */
-public interface TrainingRepository extends JpaRepository<Training, Long> {
+public interface TrainingRepository extends JpaRepository<Training, Long>, JpaSpecificationExecutor<Training> {
+
+    /**
+     * Zwraca wszystkie treningi wraz z ich użytkownikami jednym zapytaniem.
+     *
+     * @return lista wszystkich treningów
+     */
+    @Override
+    @EntityGraph(attributePaths = "user")
+    List<Training> findAll();
 
     /**
      * Usuwa wszystkie treningi powiązane z użytkownikiem o wskazanym identyfikatorze.
@@ -28,6 +53,7 @@ public interface TrainingRepository extends JpaRepository<Training, Long> {
      * @param userId identyfikator użytkownika
      * @return lista treningów należących do użytkownika
      */
+    @EntityGraph(attributePaths = "user")
     List<Training> findByUser_Id(Long userId);
 
     /**
@@ -36,6 +62,7 @@ public interface TrainingRepository extends JpaRepository<Training, Long> {
      * @param activityType typ aktywności (np. RUNNING, SWIMMING)
      * @return lista treningów zgodnych z danym typem aktywności
      */
+    @EntityGraph(attributePaths = "user")
     List<Training> findByActivityType(ActivityType activityType);
 
     /**
@@ -44,5 +71,90 @@ public interface TrainingRepository extends JpaRepository<Training, Long> {
      * @param endTime data graniczna zakończenia treningu
      * @return lista treningów zakończonych po dacie {@code endTime}
      */
+    @EntityGraph(attributePaths = "user")
     List<Training> findByEndTimeAfter(Date endTime);
+
+    /**
+     * Zwraca treningi o podanych identyfikatorach wraz z ich użytkownikami, pobranymi w tym samym zapytaniu.
+     *
+     * @param ids identyfikatory treningów
+     * @return znalezione treningi
+     */
+    @Query("select t from Training t join fetch t.user where t.id in :ids")
+    List<Training> findAllWithUserByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Zwraca treningi o identyfikatorze większym niż podany, posortowane po ID.
+     * Wykorzystywane przy stronicowaniu kursorem wszystkich treningów.
+     *
+     * @param afterId dolna (wyłączna) granica identyfikatora
+     * @param limit   maksymalna liczba zwracanych treningów
+     * @return treningi następujące po podanym ID
+     */
+    @EntityGraph(attributePaths = "user")
+    List<Training> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+    /**
+     * Zwraca pierwsze treningi użytkownika w kolejności (czas zakończenia, ID).
+     *
+     * @param userId identyfikator użytkownika
+     * @param limit  maksymalna liczba zwracanych treningów
+     * @return pierwsza strona treningów użytkownika
+     */
+    @EntityGraph(attributePaths = "user")
+    List<Training> findByUser_IdOrderByEndTimeAscIdAsc(Long userId, Limit limit);
+
+    /**
+     * Zwraca treningi użytkownika następujące po kluczu (czas zakończenia, ID) ostatniego elementu poprzedniej strony.
+     * Zapytanie korzysta z indeksu {@code idx_trainings_user_end_time}, więc koszt nie zależy od głębokości stronicowania.
+     *
+     * @param userId  identyfikator użytkownika
+     * @param endTime czas zakończenia ostatniego treningu poprzedniej strony
+     * @param id      identyfikator ostatniego treningu poprzedniej strony
+     * @param limit   maksymalna liczba zwracanych treningów
+     * @return kolejna strona treningów użytkownika
+     */
+    @Query("""
+            select t from Training t
+            join fetch t.user
+            where t.user.id = :userId
+              and (t.endTime > :endTime or (t.endTime = :endTime and t.id > :id))
+            order by t.endTime, t.id""")
+    List<Training> findByUserAfter(@Param("userId") Long userId,
+                                   @Param("endTime") Date endTime,
+                                   @Param("id") Long id,
+                                   Limit limit);
+
+    /**
+     * Strumieniuje wszystkie treningi w postaci płaskich wierszy bezpośrednio z kursora bazy danych, posortowane po ID.
+     * Zapytanie nie ładuje encji treningów ani użytkowników. Strumień musi zostać skonsumowany w transakcji i zamknięty.
+     *
+     * @return strumień wszystkich treningów
+     */
+    @Query("""
+            select new pl.wsb.fitnesstracker.training.api.TrainingRowDto(
+                t.id, t.user.id, t.startTime, t.endTime, t.activityType, t.distance, t.averageSpeed)
+            from Training t
+            order by t.id""")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<TrainingRowDto> streamAllRows();
+
+    /**
+     * Zwraca najwyższą średnią prędkość treningów użytkownika danego typu zakończonych w zakresie {@code [from, to)}.
+     * Zapytanie korzysta z indeksu {@code idx_trainings_user_end_time}.
+     *
+     * @param userId       identyfikator użytkownika
+     * @param activityType typ aktywności
+     * @param from         początek zakresu (włącznie)
+     * @param to           koniec zakresu (wyłącznie)
+     * @return najwyższa średnia prędkość lub 0, jeśli w zakresie nie ma treningów
+     */
+    @Query("""
+            select coalesce(max(t.averageSpeed), 0) from Training t
+            where t.user.id = :userId and t.activityType = :activityType
+              and t.endTime >= :from and t.endTime < :to""")
+    double findMaxAverageSpeed(@Param("userId") Long userId,
+                               @Param("activityType") ActivityType activityType,
+                               @Param("from") Date from,
+                               @Param("to") Date to);
 }
@@ -0,0 +1,64 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import pl.wsb.fitnesstracker.training.api.TrainingPeriod;
+
+import java.time.LocalDate;
+
+/**
+ * Zagregowane treningi użytkownika jednego typu aktywności w jednym okresie kalendarzowym (dzień, tydzień ISO, miesiąc).
+ * Wiersze utrzymywane są przez {@link TrainingRollups} w tej samej transakcji co zmiany treningów.
+ * Kolejność kolumn klucza pozwala odczytać zakres okresów użytkownika jednym przeszukaniem indeksu.
+ */
+@Entity
+@Table(name = "training_rollups", uniqueConstraints = @UniqueConstraint(
+        name = "uk_training_rollups_key", columnNames = {"user_id", "period", "bucket_start", "activity_type"}))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+class TrainingRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "training_rollups_seq")
+    @SequenceGenerator(name = "training_rollups_seq", sequenceName = "training_rollups_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "period", nullable = false, length = 8)
+    private TrainingPeriod period;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDate bucketStart;
+
+    @Enumerated(EnumType.ORDINAL)
+    @Column(name = "activity_type", nullable = false)
+    private ActivityType activityType;
+
+    @Column(name = "trainings", nullable = false)
+    private long trainings;
+
+    @Column(name = "total_distance", nullable = false)
+    private double totalDistance;
+
+    @Column(name = "total_duration_seconds", nullable = false)
+    private long totalDurationSeconds;
+
+    @Column(name = "max_speed", nullable = false)
+    private double maxSpeed;
+
+    TrainingRollup(TrainingRollups.Key key, long trainings, double totalDistance, long totalDurationSeconds, double maxSpeed) {
+        this.userId = key.userId();
+        this.period = key.period();
+        this.bucketStart = key.bucketStart();
+        this.activityType = key.activityType();
+        this.trainings = trainings;
+        this.totalDistance = totalDistance;
+        this.totalDurationSeconds = totalDurationSeconds;
+        this.maxSpeed = maxSpeed;
+    }
+}
@@ -0,0 +1,161 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import pl.wsb.fitnesstracker.training.api.TrainingMonthlyTotalDto;
+import pl.wsb.fitnesstracker.training.api.TrainingPeriod;
+import pl.wsb.fitnesstracker.training.api.TrainingPeriodSummaryDto;
+import pl.wsb.fitnesstracker.training.api.TrainingPeriodTotalDto;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+interface TrainingRollupRepository extends JpaRepository<TrainingRollup, Long> {
+
+    /**
+     * Zwraca podsumowania okresów użytkownika rozpoczynających się w zakresie {@code [from, to)},
+     * uporządkowane po początku okresu i typie aktywności. Wiersze odczytywane są projekcją,
+     * więc nie trafiają do kontekstu utrwalania, którego encje nie widziałyby późniejszych zmian instrukcjami UPDATE.
+     */
+    @Query("""
+            select new pl.wsb.fitnesstracker.training.api.TrainingPeriodSummaryDto(
+                r.period, r.bucketStart, r.activityType, r.trainings, r.totalDistance, r.totalDurationSeconds, r.maxSpeed)
+            from TrainingRollup r
+            where r.userId = :userId and r.period = :period and r.bucketStart >= :from and r.bucketStart < :to
+            order by r.bucketStart, r.activityType""")
+    List<TrainingPeriodSummaryDto> findSummaries(@Param("userId") long userId,
+                                                 @Param("period") TrainingPeriod period,
+                                                 @Param("from") LocalDate from,
+                                                 @Param("to") LocalDate to);
+
+    /**
+     * Dodaje wartości do istniejącego wiersza jedną instrukcją UPDATE, bez wcześniejszego odczytu wiersza.
+     * Zapytanie jest natywne, bo Hibernate rzutuje parametry zmiennoprzecinkowe w wyrażeniach arytmetycznych
+     * na typ {@code float(p)}, którego H2 nie akceptuje.
+     *
+     * @param period       nazwa {@link TrainingPeriod}
+     * @param activityType numer porządkowy {@link ActivityType}
+     * @return liczba zmienionych wierszy (0, jeśli wiersza jeszcze nie ma)
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(nativeQuery = true, value = """
+            update training_rollups
+            set trainings = trainings + :trainings,
+                total_distance = total_distance + :distance,
+                total_duration_seconds = total_duration_seconds + :durationSeconds,
+                max_speed = greatest(max_speed, :maxSpeed)
+            where user_id = :userId and period = :period and bucket_start = :bucketStart and activity_type = :activityType""")
+    int increment(@Param("userId") long userId,
+                  @Param("period") String period,
+                  @Param("bucketStart") LocalDate bucketStart,
+                  @Param("activityType") int activityType,
+                  @Param("trainings") long trainings,
+                  @Param("distance") double distance,
+                  @Param("durationSeconds") long durationSeconds,
+                  @Param("maxSpeed") double maxSpeed);
+
+    /**
+     * Odejmuje wartości od wiersza i ustawia przeliczoną najwyższą prędkość.
+     *
+     * @see #increment
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(nativeQuery = true, value = """
+            update training_rollups
+            set trainings = trainings - :trainings,
+                total_distance = total_distance - :distance,
+                total_duration_seconds = total_duration_seconds - :durationSeconds,
+                max_speed = :maxSpeed
+            where user_id = :userId and period = :period and bucket_start = :bucketStart and activity_type = :activityType""")
+    int decrement(@Param("userId") long userId,
+                  @Param("period") String period,
+                  @Param("bucketStart") LocalDate bucketStart,
+                  @Param("activityType") int activityType,
+                  @Param("trainings") long trainings,
+                  @Param("distance") double distance,
+                  @Param("durationSeconds") long durationSeconds,
+                  @Param("maxSpeed") double maxSpeed);
+
+    @Modifying(flushAutomatically = true)
+    @Query("delete from TrainingRollup r where r.userId = :userId and r.trainings <= 0")
+    int deleteEmpty(@Param("userId") long userId);
+
+    @Modifying(flushAutomatically = true)
+    @Query("delete from TrainingRollup r where r.userId = :userId")
+    int deleteByUserId(@Param("userId") long userId);
+
+    /**
+     * Sumy wszystkich typów aktywności w jednym dniu.
+     */
+    record DailyTotal(LocalDate day, long trainings, double distance, long durationSeconds) {
+    }
+
+    /**
+     * Zwraca dzienne sumy treningów użytkownika (wszystkie typy aktywności razem), uporządkowane po dniu.
+     */
+    @Query("""
+            select new pl.wsb.fitnesstracker.training.internal.TrainingRollupRepository$DailyTotal(
+                r.bucketStart, sum(r.trainings), sum(r.totalDistance), sum(r.totalDurationSeconds))
+            from TrainingRollup r
+            where r.userId = :userId and r.period = pl.wsb.fitnesstracker.training.api.TrainingPeriod.DAY
+            group by r.bucketStart
+            order by r.bucketStart""")
+    List<DailyTotal> findDailyTotals(@Param("userId") long userId);
+
+    /**
+     * Liczba treningów, dystans i najwyższa prędkość w jednym wierszu podsumowania.
+     */
+    record BucketTotal(long trainings, double distance, double maxSpeed) {
+    }
+
+    /**
+     * Odczytuje wartości wiersza projekcją, więc widzi zmiany wykonane instrukcjami UPDATE.
+     */
+    @Query("""
+            select new pl.wsb.fitnesstracker.training.internal.TrainingRollupRepository$BucketTotal(
+                r.trainings, r.totalDistance, r.maxSpeed)
+            from TrainingRollup r
+            where r.userId = :userId and r.period = :period and r.bucketStart = :bucketStart and r.activityType = :activityType""")
+    Optional<BucketTotal> findBucketTotal(@Param("userId") long userId,
+                                          @Param("period") TrainingPeriod period,
+                                          @Param("bucketStart") LocalDate bucketStart,
+                                          @Param("activityType") ActivityType activityType);
+
+    /**
+     * Zwraca miesięczne dystanse użytkownika we wszystkich typach aktywności.
+     */
+    @Query("""
+            select new pl.wsb.fitnesstracker.training.api.TrainingMonthlyTotalDto(r.userId, r.bucketStart, r.activityType, r.totalDistance)
+            from TrainingRollup r
+            where r.userId = :userId and r.period = pl.wsb.fitnesstracker.training.api.TrainingPeriod.MONTH""")
+    List<TrainingMonthlyTotalDto> findMonthlyTotals(@Param("userId") long userId);
+
+    /**
+     * Strumieniuje miesięczne dystanse wszystkich użytkowników; strumień musi zostać zamknięty w transakcji.
+     */
+    @Query("""
+            select new pl.wsb.fitnesstracker.training.api.TrainingMonthlyTotalDto(r.userId, r.bucketStart, r.activityType, r.totalDistance)
+            from TrainingRollup r
+            where r.period = pl.wsb.fitnesstracker.training.api.TrainingPeriod.MONTH""")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<TrainingMonthlyTotalDto> streamMonthlyTotals();
+
+    /**
+     * Strumieniuje podsumowania wszystkich użytkowników z okresów rozpoczynających się nie wcześniej niż {@code from};
+     * strumień musi zostać zamknięty w transakcji.
+     */
+    @Query("""
+            select new pl.wsb.fitnesstracker.training.api.TrainingPeriodTotalDto(
+                r.userId, r.period, r.bucketStart, r.activityType, r.totalDistance, r.maxSpeed)
+            from TrainingRollup r
+            where r.period = :period and r.bucketStart >= :from""")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<TrainingPeriodTotalDto> streamPeriodTotals(@Param("period") TrainingPeriod period, @Param("from") LocalDate from);
+}
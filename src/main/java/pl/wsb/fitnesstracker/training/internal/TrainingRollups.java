@@ -0,0 +1,389 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import jakarta.annotation.Nullable;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import pl.wsb.fitnesstracker.training.api.Training;
+import pl.wsb.fitnesstracker.training.api.TrainingMeasurement;
+import pl.wsb.fitnesstracker.training.api.TrainingMeasurementsChangedEvent;
+import pl.wsb.fitnesstracker.training.api.TrainingMonthlyTotalChangedEvent;
+import pl.wsb.fitnesstracker.training.api.TrainingMonthlyTotalDto;
+import pl.wsb.fitnesstracker.training.api.TrainingPeriod;
+import pl.wsb.fitnesstracker.training.api.TrainingPeriodSummaryDto;
+import pl.wsb.fitnesstracker.training.api.TrainingPeriodTotalChangedEvent;
+import pl.wsb.fitnesstracker.training.api.TrainingPeriodTotalDto;
+import pl.wsb.fitnesstracker.training.api.TrainingRollupsRebuiltEvent;
+import pl.wsb.fitnesstracker.training.api.TrainingRowDto;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Utrzymuje tabelę {@link TrainingRollup} - sumy treningów w okresach dziennych, tygodniowych i miesięcznych.
+ *
+ * <p>
+ * Zmiany nanoszone są w transakcji zapisującej treningi, więc podsumowanie okresu jest zawsze zgodne z tabelą treningów
+ * i nie wymaga przeglądania historii użytkownika. Dodanie treningu zwiększa wiersze jednym UPDATE na okres
+ * (wstawiając wiersz, jeśli go nie ma, i ponawiając zwiększenie, gdy równolegle wstawiła go inna transakcja), a usunięcie zmniejsza je i przelicza najwyższą prędkość
+ * z treningów pozostałych w okresie - maksimum nie da się odjąć. Wiersze, w których nie został żaden trening, są usuwane.
+ * Trening należy do okresu według dnia zakończenia w strefie UTC. Zmiany dziennych sum przekazywane są
+ * do {@link TrainingTotalsCache}, z którego liczone są sumy dowolnych zakresów dni, a zmiany miesięcznych dystansów
+ * publikowane są jako {@link TrainingMonthlyTotalChangedEvent}, stan tygodniowych i miesięcznych wierszy po zmianie
+ * jako {@link TrainingPeriodTotalChangedEvent}, a wartości dodanych i usuniętych treningów
+ * jako {@link TrainingMeasurementsChangedEvent}.
+ * </p>
+ *
+ * <p>
+ * Metody modyfikujące muszą być wywoływane po wysłaniu zmian treningów do bazy ({@code flush}),
+ * bo przeliczenie prędkości czyta aktualny stan tabeli treningów.
+ * </p>
+ */
+@Component
+@Slf4j
+class TrainingRollups {
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private final TrainingRollupRepository rollupRepository;
+    private final TrainingRepository trainingRepository;
+    private final TrainingTotalsCache totalsCache;
+    private final EntityManager entityManager;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    TrainingRollups(TrainingRollupRepository rollupRepository,
+                    TrainingRepository trainingRepository,
+                    TrainingTotalsCache totalsCache,
+                    EntityManager entityManager,
+                    NamedParameterJdbcTemplate jdbcTemplate,
+                    ApplicationEventPublisher eventPublisher) {
+        this.rollupRepository = rollupRepository;
+        this.trainingRepository = trainingRepository;
+        this.totalsCache = totalsCache;
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Klucz wiersza podsumowania.
+     */
+    record Key(long userId, TrainingPeriod period, LocalDate bucketStart, ActivityType activityType) {
+    }
+
+    /**
+     * Wkład pojedynczego treningu w podsumowania.
+     *
+     * @param userId          identyfikator użytkownika
+     * @param activityType    typ aktywności
+     * @param day             dzień zakończenia treningu w strefie UTC
+     * @param distance        dystans
+     * @param durationSeconds czas trwania w sekundach
+     * @param averageSpeed    średnia prędkość
+     */
+    record Contribution(long userId, ActivityType activityType, LocalDate day,
+                        double distance, long durationSeconds, double averageSpeed) {
+
+        static Contribution of(Training training) {
+            return of(training.getUser().getId(), training.getActivityType(), training.getStartTime(), training.getEndTime(),
+                    training.getDistance(), training.getAverageSpeed());
+        }
+
+        static Contribution of(TrainingRowDto row) {
+            return of(row.userId(), row.activityType(), row.startTime(), row.endTime(), row.distance(), row.averageSpeed());
+        }
+
+        private static Contribution of(long userId, ActivityType activityType, Date startTime, Date endTime,
+                                       double distance, double averageSpeed) {
+            return new Contribution(userId, activityType, endTime.toInstant().atOffset(ZoneOffset.UTC).toLocalDate(),
+                    distance, (endTime.getTime() - startTime.getTime()) / 1000, averageSpeed);
+        }
+
+        Key key(TrainingPeriod period) {
+            return new Key(userId, period, period.bucketStart(day), activityType);
+        }
+
+        TrainingMeasurement measurement() {
+            return new TrainingMeasurement(userId, activityType, distance, averageSpeed);
+        }
+    }
+
+    private static final class Totals {
+
+        private long trainings;
+        private double distance;
+        private long durationSeconds;
+        private double maxSpeed;
+
+        private void add(Contribution contribution) {
+            trainings++;
+            distance += contribution.distance();
+            durationSeconds += contribution.durationSeconds();
+            maxSpeed = Math.max(maxSpeed, contribution.averageSpeed());
+        }
+    }
+
+    /**
+     * Przy starcie buduje podsumowania, jeśli tabela jest pusta, a treningi już istnieją
+     * (np. po wczytaniu danych przykładowych lub pierwszym uruchomieniu na istniejącej bazie).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    void rebuildIfEmpty() {
+        if (rollupRepository.count() == 0 && trainingRepository.count() > 0) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Dolicza treningi do podsumowań. Treningi z tym samym kluczem sumowane są przed zapisem,
+     * więc paczka importu wykonuje jedną instrukcję na okres, a nie na trening.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    void add(Collection<Contribution> contributions) {
+        Map<Key, Totals> added = aggregate(contributions.stream());
+        added.forEach((key, totals) -> {
+            if (upsert(key, totals)) {
+                publishPeriodChange(key, null,
+                        new TrainingRollupRepository.BucketTotal(totals.trainings, totals.distance, totals.maxSpeed));
+            } else if (key.period() != TrainingPeriod.DAY) {
+                TrainingRollupRepository.BucketTotal current = currentTotal(key);
+                publishPeriodChange(key, current.distance() - totals.distance, current);
+            }
+        });
+        totalsCache.apply(dailyDeltas(added, 1));
+        publishMeasurements(contributions, List.of());
+    }
+
+    /**
+     * Odejmuje treningi od podsumowań. Zmiany usuwanych lub zmienianych treningów muszą być już wysłane do bazy.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    void remove(Collection<Contribution> contributions) {
+        Map<Key, Totals> removed = aggregate(contributions.stream());
+        removed.forEach((key, totals) -> {
+            LocalDate to = key.period().nextBucketStart(key.bucketStart());
+            double maxSpeed = trainingRepository.findMaxAverageSpeed(key.userId(), key.activityType(),
+                    toDate(key.bucketStart()), toDate(to));
+            int updated = rollupRepository.decrement(key.userId(), key.period().name(), key.bucketStart(),
+                    key.activityType().ordinal(), totals.trainings, totals.distance, totals.durationSeconds, maxSpeed);
+            if (updated > 0 && key.period() != TrainingPeriod.DAY) {
+                TrainingRollupRepository.BucketTotal current = currentTotal(key);
+                publishPeriodChange(key, current.distance() + totals.distance, current);
+            }
+        });
+        removed.keySet().stream()
+                .mapToLong(Key::userId)
+                .distinct()
+                .forEach(rollupRepository::deleteEmpty);
+        totalsCache.apply(dailyDeltas(removed, -1));
+        publishMeasurements(List.of(), contributions);
+    }
+
+    /**
+     * Zastępuje wkład treningu przed zmianą wkładem po zmianie.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    void replace(Contribution before, Contribution after) {
+        if (!before.equals(after)) {
+            remove(List.of(before));
+            add(List.of(after));
+        }
+    }
+
+    /**
+     * Usuwa wszystkie podsumowania użytkownika.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    void removeUser(long userId) {
+        rollupRepository.findMonthlyTotals(userId).forEach(total -> eventPublisher.publishEvent(
+                new TrainingMonthlyTotalChangedEvent(userId, total.month(), total.activityType(), total.distance(), null)));
+        rollupRepository.deleteByUserId(userId);
+        totalsCache.invalidate(userId);
+    }
+
+    /**
+     * Zwraca sumy treningów użytkownika z dni {@code [from, to)} z drzewa w {@link TrainingTotalsCache},
+     * ładowanego przy pierwszym odczycie z dziennych podsumowań.
+     */
+    @Transactional(readOnly = true)
+    TrainingDailyTotals.Totals sum(long userId, LocalDate from, LocalDate to) {
+        return totalsCache.sum(userId, from, to, rollupRepository::findDailyTotals);
+    }
+
+    /**
+     * Odczytuje podsumowania użytkownika z okresów rozpoczynających się w zakresie {@code [from, to)}.
+     */
+    @Transactional(readOnly = true)
+    List<TrainingPeriodSummaryDto> find(long userId, TrainingPeriod period, LocalDate from, LocalDate to) {
+        return rollupRepository.findSummaries(userId, period, from, to);
+    }
+
+    /**
+     * Przekazuje strumieniowo miesięczne dystanse wszystkich użytkowników.
+     */
+    @Transactional(readOnly = true)
+    void forEachMonthlyTotal(Consumer<TrainingMonthlyTotalDto> consumer) {
+        try (Stream<TrainingMonthlyTotalDto> totals = rollupRepository.streamMonthlyTotals()) {
+            totals.forEach(consumer);
+        }
+    }
+
+    /**
+     * Przekazuje strumieniowo podsumowania wszystkich użytkowników z okresów rozpoczynających się od {@code from}.
+     */
+    @Transactional(readOnly = true)
+    void forEachPeriodTotal(TrainingPeriod period, LocalDate from, Consumer<TrainingPeriodTotalDto> consumer) {
+        try (Stream<TrainingPeriodTotalDto> totals = rollupRepository.streamPeriodTotals(period, from)) {
+            totals.forEach(consumer);
+        }
+    }
+
+    /**
+     * Buduje podsumowania od nowa jednym przejściem po tabeli treningów.
+     * Zmiany miesięcznych dystansów i podsumowań okresów nie są publikowane pojedynczo - zamiast nich publikowane jest
+     * {@link TrainingRollupsRebuiltEvent}.
+     *
+     * @return liczba zapisanych wierszy podsumowań
+     */
+    @Transactional
+    int rebuild() {
+        rollupRepository.deleteAllInBatch();
+        totalsCache.invalidateAll();
+        Map<Key, Totals> totals;
+        try (Stream<TrainingRowDto> rows = trainingRepository.streamAllRows()) {
+            totals = aggregate(rows.map(Contribution::of));
+        }
+        List<TrainingRollup> batch = new ArrayList<>(REBUILD_BATCH_SIZE);
+        for (Map.Entry<Key, Totals> entry : totals.entrySet()) {
+            Totals value = entry.getValue();
+            batch.add(new TrainingRollup(entry.getKey(), value.trainings, value.distance, value.durationSeconds, value.maxSpeed));
+            if (batch.size() == REBUILD_BATCH_SIZE) {
+                saveBatch(batch);
+            }
+        }
+        saveBatch(batch);
+        log.info("Training rollups rebuilt with {} rows", totals.size());
+        eventPublisher.publishEvent(new TrainingRollupsRebuiltEvent(totals.size()));
+        return totals.size();
+    }
+
+    /**
+     * Zwiększa wiersz podsumowania albo wstawia go, jeśli jeszcze nie istnieje.
+     * Gdy dwie transakcje jednocześnie dodają pierwszy trening okresu, obie nie znajdują wiersza, ale wstawić go może
+     * tylko jedna - druga dostaje naruszenie klucza {@code uk_training_rollups_key} i ponawia zwiększenie
+     * wiersza zatwierdzonego przez pierwszą.
+     *
+     * @return {@code true}, jeśli wiersz został wstawiony
+     */
+    private boolean upsert(Key key, Totals totals) {
+        while (rollupRepository.increment(key.userId(), key.period().name(), key.bucketStart(), key.activityType().ordinal(),
+                totals.trainings, totals.distance, totals.durationSeconds, totals.maxSpeed) == 0) {
+            if (insert(key, totals)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Wstawia wiersz podsumowania z pominięciem Hibernate: błąd instrukcji zgłoszony przez {@link EntityManager}
+     * oznaczyłby całą transakcję do wycofania, a naruszenie klucza przez równoległe wstawienie nie jest tu błędem.
+     * Identyfikator pobierany jest z tej samej sekwencji co przy zapisie encji.
+     *
+     * @return {@code false}, jeśli wiersz o tym kluczu wstawiła w międzyczasie inna transakcja
+     */
+    private boolean insert(Key key, Totals totals) {
+        try {
+            jdbcTemplate.update("""
+                    insert into training_rollups (id, user_id, period, bucket_start, activity_type,
+                                                  trainings, total_distance, total_duration_seconds, max_speed)
+                    values (next value for training_rollups_seq, :userId, :period, :bucketStart, :activityType,
+                            :trainings, :distance, :durationSeconds, :maxSpeed)""", new MapSqlParameterSource()
+                    .addValue("userId", key.userId())
+                    .addValue("period", key.period().name())
+                    .addValue("bucketStart", key.bucketStart())
+                    .addValue("activityType", key.activityType().ordinal())
+                    .addValue("trainings", totals.trainings)
+                    .addValue("distance", totals.distance)
+                    .addValue("durationSeconds", totals.durationSeconds)
+                    .addValue("maxSpeed", totals.maxSpeed));
+            return true;
+        } catch (DuplicateKeyException e) {
+            log.debug("Training rollup {} inserted concurrently, incrementing it instead", key);
+            return false;
+        }
+    }
+
+    private TrainingRollupRepository.BucketTotal currentTotal(Key key) {
+        return rollupRepository.findBucketTotal(key.userId(), key.period(), key.bucketStart(), key.activityType())
+                .orElseThrow(() -> new IllegalStateException("Missing training rollup " + key));
+    }
+
+    /**
+     * Publikuje zmianę tygodniowego lub miesięcznego wiersza; wiersz bez treningów oznacza, że okres został opróżniony.
+     */
+    private void publishPeriodChange(Key key, @Nullable Double previousDistance, TrainingRollupRepository.BucketTotal current) {
+        boolean empty = current.trainings() <= 0;
+        eventPublisher.publishEvent(new TrainingPeriodTotalChangedEvent(new TrainingPeriodTotalDto(key.userId(), key.period(),
+                key.bucketStart(), key.activityType(), empty ? 0 : current.distance(), empty ? 0 : current.maxSpeed()), empty));
+        if (key.period() == TrainingPeriod.MONTH) {
+            eventPublisher.publishEvent(new TrainingMonthlyTotalChangedEvent(key.userId(), key.bucketStart(),
+                    key.activityType(), previousDistance, empty ? null : current.distance()));
+        }
+    }
+
+    private void publishMeasurements(Collection<Contribution> added, Collection<Contribution> removed) {
+        if (!added.isEmpty() || !removed.isEmpty()) {
+            eventPublisher.publishEvent(new TrainingMeasurementsChangedEvent(
+                    added.stream().map(Contribution::measurement).toList(),
+                    removed.stream().map(Contribution::measurement).toList()));
+        }
+    }
+
+    private void saveBatch(List<TrainingRollup> batch) {
+        rollupRepository.saveAll(batch);
+        rollupRepository.flush();
+        batch.forEach(entityManager::detach);
+        batch.clear();
+    }
+
+    private static Map<Key, Totals> aggregate(Stream<Contribution> contributions) {
+        Map<Key, Totals> totals = new LinkedHashMap<>();
+        contributions.forEach(contribution -> {
+            for (TrainingPeriod period : TrainingPeriod.values()) {
+                totals.computeIfAbsent(contribution.key(period), key -> new Totals()).add(contribution);
+            }
+        });
+        return totals;
+    }
+
+    private static List<TrainingTotalsCache.Delta> dailyDeltas(Map<Key, Totals> totals, int sign) {
+        return totals.entrySet().stream()
+                .filter(entry -> entry.getKey().period() == TrainingPeriod.DAY)
+                .map(entry -> new TrainingTotalsCache.Delta(entry.getKey().userId(), entry.getKey().bucketStart(),
+                        sign * entry.getValue().trainings, sign * entry.getValue().distance, sign * entry.getValue().durationSeconds))
+                .toList();
+    }
+
+    private static Date toDate(LocalDate date) {
+        return Date.from(date.atStartOfDay(ZoneOffset.UTC).toInstant());
+    }
+}
@@ -1,8 +1,25 @@
 package pl.wsb.fitnesstracker.training.internal;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.Nullable;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+import pl.wsb.fitnesstracker.exception.api.PreconditionFailedException;
+import pl.wsb.fitnesstracker.lookup.api.IdBatches;
+import pl.wsb.fitnesstracker.lookup.api.LookupResult;
+import pl.wsb.fitnesstracker.pagination.api.Cursor;
+import pl.wsb.fitnesstracker.pagination.api.CursorPage;
+import pl.wsb.fitnesstracker.patch.api.EntityTag;
+import pl.wsb.fitnesstracker.patch.api.JsonMergePatch;
 import pl.wsb.fitnesstracker.training.api.*;
 import pl.wsb.fitnesstracker.user.api.User;
 
@@ -10,8 +27,13 @@ import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Implementacja serwisu odpowiedzialnego za operacje na treningach.
@@ -22,8 +44,18 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class TrainingServiceImpl implements TrainingService, TrainingProvider {
 
+    private static final Sort SEARCH_ORDER = Sort.by("endTime", "id");
+    static final int MAX_OVERLAPS_LIMIT = 1000;
+    static final int MAX_SIMILAR_LIMIT = 100;
+
     private final TrainingRepository trainingRepository;
     private final TrainingMapper trainingMapper;
+    private final ObjectMapper objectMapper;
+    private final TrainingTimelineCache timelineCache;
+    private final TrainingOverlapIndex overlapIndex;
+    private final TrainingOverlapProperties overlapProperties;
+    private final TrainingSimilarityIndex similarityIndex;
+    private final TrainingRollups rollups;
 
     /**
      * Zwraca wszystkie treningi z bazy danych.
@@ -31,6 +63,7 @@ public class TrainingServiceImpl implements TrainingService, TrainingProvider {
      * @return lista treningów w postaci DTO
      */
     @Override
+    @Transactional(readOnly = true)
     public List<TrainingDto> findAll() {
         return trainingRepository.findAll()
                 .stream()
@@ -39,17 +72,121 @@ public class TrainingServiceImpl implements TrainingService, TrainingProvider {
     }
 
     /**
-     * Zwraca wszystkie treningi przypisane do użytkownika o podanym ID.
+     * Zwraca wszystkie treningi przypisane do użytkownika o podanym ID, posortowane po ID.
+     * Historia serwowana jest z {@link TrainingTimelineCache}; baza danych odpytywana jest tylko przy braku wpisu.
      *
      * @param userId identyfikator użytkownika
      * @return lista treningów danego użytkownika jako DTO
      */
     @Override
+    @Transactional(readOnly = true)
     public List<TrainingDto> findAllByUserId(Long userId) {
-        return trainingRepository.findByUser_Id(userId)
+        return timelineCache.get(userId, key -> trainingRepository.findByUser_Id(key)
                 .stream()
                 .map(trainingMapper::toDto)
-                .collect(Collectors.toList());
+                .toList());
+    }
+
+    /**
+     * Zwraca stronę wszystkich treningów posortowanych po ID.
+     * Kolejna strona pobierana jest warunkiem {@code id > ?} zamiast przesunięcia {@code OFFSET}.
+     *
+     * @param cursor token kolejnej strony lub {@code null} dla pierwszej strony
+     * @param limit rozmiar strony (ograniczony do {@link CursorPage#MAX_LIMIT})
+     * @return strona treningów jako DTO
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<TrainingDto> findAllPage(@Nullable String cursor, int limit) {
+        int boundedLimit = CursorPage.boundedLimit(limit);
+        long afterId = cursor == null ? 0L : Cursor.decode(cursor, 1)[0];
+        List<Training> fetched = trainingRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(boundedLimit + 1));
+        return CursorPage.of(fetched, boundedLimit, training -> Cursor.encode(training.getId()))
+                .map(trainingMapper::toDto);
+    }
+
+    /**
+     * Wyszukuje treningi jednym dynamicznym zapytaniem złożonym z podanych kryteriów.
+     * Użytkownicy pobierani są w tym samym zapytaniu, a kolejna strona warunkiem na kluczu (czas zakończenia, ID).
+     *
+     * @param criteria kryteria wyszukiwania
+     * @param cursor token kolejnej strony lub {@code null} dla pierwszej strony
+     * @param limit rozmiar strony (ograniczony do {@link CursorPage#MAX_LIMIT})
+     * @return strona pasujących treningów jako DTO
+     * @throws BusinessException jeśli zakres czasu, dystansu lub prędkości jest pusty
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<TrainingDto> search(TrainingSearchCriteria criteria, @Nullable String cursor, int limit) {
+        validate(criteria);
+        int boundedLimit = CursorPage.boundedLimit(limit);
+        Specification<Training> specification = TrainingSpecifications.matching(criteria);
+        if (cursor != null) {
+            long[] key = Cursor.decode(cursor, 2);
+            specification = specification.and(TrainingSpecifications.after(new Date(key[0]), key[1]));
+        }
+        List<Training> fetched = trainingRepository.findBy(specification, query -> query
+                .sortBy(SEARCH_ORDER)
+                .project("user")
+                .limit(boundedLimit + 1)
+                .all());
+        return CursorPage.of(fetched, boundedLimit,
+                        training -> Cursor.encode(training.getEndTime().getTime(), training.getId()))
+                .map(trainingMapper::toDto);
+    }
+
+    private static void validate(TrainingSearchCriteria criteria) {
+        if (criteria.from() != null && criteria.to() != null && !criteria.from().isBefore(criteria.to())) {
+            throw new BusinessException("Search window 'from' must be before 'to'");
+        }
+        if (criteria.minDistance() != null && criteria.maxDistance() != null && criteria.minDistance() > criteria.maxDistance()) {
+            throw new BusinessException("minDistance must not be greater than maxDistance");
+        }
+        if (criteria.minSpeed() != null && criteria.maxSpeed() != null && criteria.minSpeed() > criteria.maxSpeed()) {
+            throw new BusinessException("minSpeed must not be greater than maxSpeed");
+        }
+    }
+
+    /**
+     * Zwraca treningi o podanych identyfikatorach w kolejności z żądania.
+     * Treningi wraz z użytkownikami pobierane są jednym zapytaniem na paczkę identyfikatorów.
+     *
+     * @param ids identyfikatory treningów
+     * @return wyniki w kolejności identyfikatorów, z oznaczeniem nieistniejących treningów
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<LookupResult<TrainingDto>> findAllByIds(List<Long> ids) {
+        Map<Long, Training> trainings = IdBatches.fetch(ids, trainingRepository::findAllWithUserByIdIn, Training::getId);
+        return LookupResult.inRequestOrder(ids, trainings).stream()
+                .map(result -> result.map(trainingMapper::toDto))
+                .toList();
+    }
+
+    /**
+     * Zwraca stronę treningów użytkownika posortowanych po czasie zakończenia i ID.
+     * Kursor koduje parę (czas zakończenia, ID) ostatniego treningu poprzedniej strony.
+     *
+     * @param userId identyfikator użytkownika
+     * @param cursor token kolejnej strony lub {@code null} dla pierwszej strony
+     * @param limit rozmiar strony (ograniczony do {@link CursorPage#MAX_LIMIT})
+     * @return strona treningów użytkownika jako DTO
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<TrainingDto> findAllByUserIdPage(Long userId, @Nullable String cursor, int limit) {
+        int boundedLimit = CursorPage.boundedLimit(limit);
+        Limit fetchLimit = Limit.of(boundedLimit + 1);
+        List<Training> fetched;
+        if (cursor == null) {
+            fetched = trainingRepository.findByUser_IdOrderByEndTimeAscIdAsc(userId, fetchLimit);
+        } else {
+            long[] key = Cursor.decode(cursor, 2);
+            fetched = trainingRepository.findByUserAfter(userId, new Date(key[0]), key[1], fetchLimit);
+        }
+        return CursorPage.of(fetched, boundedLimit,
+                        training -> Cursor.encode(training.getEndTime().getTime(), training.getId()))
+                .map(trainingMapper::toDto);
     }
 
     /**
@@ -59,6 +196,7 @@ public class TrainingServiceImpl implements TrainingService, TrainingProvider {
      * @return lista treningów jako DTO
      */
     @Override
+    @Transactional(readOnly = true)
     public List<TrainingDto> findAllByActivityType(ActivityType activityType) {
         return trainingRepository.findByActivityType(activityType)
                 .stream()
@@ -73,6 +211,7 @@ public class TrainingServiceImpl implements TrainingService, TrainingProvider {
      * @return lista treningów zakończonych po tej dacie w postaci DTO
      */
     @Override
+    @Transactional(readOnly = true)
     public List<TrainingDto> findAllFinishedAfter(LocalDate afterTime) {
         Date afterDate = Date.from(afterTime.atStartOfDay(ZoneId.systemDefault()).toInstant());
         return trainingRepository.findByEndTimeAfter(afterDate)
@@ -83,6 +222,7 @@ public class TrainingServiceImpl implements TrainingService, TrainingProvider {
 
     /**
      * Tworzy nowy trening na podstawie danych wejściowych i przypisanego użytkownika.
+     * Zapis jest od razu wysyłany do bazy, więc zdarzenie zmiany aktualizuje {@link TrainingTimelineCache} jeszcze w tym wywołaniu.
      *
      * @param body dane wejściowe treningu
      * @param user właściciel treningu
@@ -91,13 +231,32 @@ public class TrainingServiceImpl implements TrainingService, TrainingProvider {
     @Override
     @Transactional
     public TrainingDto create(TrainingRequestBody body, User user) {
+        Optional<Long> overlapping = findOverlapping(user.getId(), body.getStartTime(), body.getEndTime(), null);
+        if (overlapping.isPresent()) {
+            if (overlapProperties.getPolicy() == TrainingOverlapPolicy.MERGE) {
+                Optional<Training> merged = trainingRepository.findById(overlapping.get())
+                        .map(existing -> {
+                            TrainingRollups.Contribution before = TrainingRollups.Contribution.of(existing);
+                            Training result = mergeInto(existing, body);
+                            rollups.replace(before, TrainingRollups.Contribution.of(result));
+                            return result;
+                        });
+                if (merged.isPresent()) {
+                    return trainingMapper.toDto(merged.get());
+                }
+            } else {
+                throw new TrainingOverlapException(overlapping.get());
+            }
+        }
         Training training = trainingMapper.toEntity(body, user);
-        Training saved = trainingRepository.save(training);
+        Training saved = trainingRepository.saveAndFlush(training);
+        rollups.add(List.of(TrainingRollups.Contribution.of(saved)));
         return trainingMapper.toDto(saved);
     }
 
     /**
      * Aktualizuje istniejący trening na podstawie podanego ID i nowych danych.
+     * Zapis jest od razu wysyłany do bazy, więc zdarzenie zmiany aktualizuje {@link TrainingTimelineCache} jeszcze w tym wywołaniu.
      *
      * @param trainingId identyfikator treningu
      * @param body nowe dane treningu
@@ -110,6 +269,11 @@ public class TrainingServiceImpl implements TrainingService, TrainingProvider {
     public TrainingDto update(Long trainingId, TrainingRequestBody body, User user) {
         Training existing = trainingRepository.findById(trainingId)
                 .orElseThrow(() -> new IllegalArgumentException("Training not found"));
+        findOverlapping(user.getId(), body.getStartTime(), body.getEndTime(), trainingId)
+                .ifPresent(overlapping -> {
+                    throw new TrainingOverlapException(overlapping);
+                });
+        TrainingRollups.Contribution before = TrainingRollups.Contribution.of(existing);
 
         existing.setUser(user);
         existing.setStartTime(body.getStartTime());
@@ -118,12 +282,251 @@ public class TrainingServiceImpl implements TrainingService, TrainingProvider {
         existing.setDistance(body.getDistance());
         existing.setAverageSpeed(body.getAverageSpeed());
 
-        Training updated = trainingRepository.save(existing);
+        Training updated = trainingRepository.saveAndFlush(existing);
+        rollups.replace(before, TrainingRollups.Contribution.of(updated));
+        return trainingMapper.toDto(updated);
+    }
+
+    /**
+     * Częściowo aktualizuje trening dokumentem JSON Merge Patch.
+     * Dokument nakładany jest na bieżący stan treningu w postaci {@link TrainingRequestBody}.
+     * Wersja sprawdzana jest przed nałożeniem zmian oraz ponownie przez UPDATE z warunkiem na wersję,
+     * który dzięki {@code @DynamicUpdate} zapisuje tylko faktycznie zmienione kolumny i nie zakłada blokad.
+     *
+     * @param trainingId identyfikator treningu
+     * @param patch dokument zmian
+     * @param expectedVersion wersja oczekiwana przez klienta lub {@code null}, jeśli dowolna
+     * @param userResolver wyszukuje nowego właściciela, jeśli dokument zmienia {@code userId}
+     * @return zaktualizowany trening jako DTO
+     * @throws TrainingNotFoundException jeśli trening nie istnieje
+     * @throws PreconditionFailedException jeśli trening został zmieniony od oczekiwanej wersji
+     * @throws BusinessException jeśli trening po zmianach jest niepoprawny
+     */
+    @Override
+    @Transactional
+    public TrainingDto patch(Long trainingId, JsonNode patch, @Nullable Long expectedVersion,
+                             Function<Long, Optional<User>> userResolver) {
+        Training existing = trainingRepository.findById(trainingId)
+                .orElseThrow(() -> new TrainingNotFoundException(trainingId));
+        EntityTag.checkVersion(expectedVersion, existing.getVersion());
+
+        TrainingRequestBody patched = readPatched(JsonMergePatch.apply(objectMapper.valueToTree(toRequestBody(existing)), patch));
+        validate(patched);
+        findOverlapping(patched.getUserId(), patched.getStartTime(), patched.getEndTime(), trainingId)
+                .ifPresent(overlapping -> {
+                    throw new TrainingOverlapException(overlapping);
+                });
+        TrainingRollups.Contribution before = TrainingRollups.Contribution.of(existing);
+        if (!Objects.equals(patched.getUserId(), existing.getUser().getId())) {
+            existing.setUser(userResolver.apply(patched.getUserId())
+                    .orElseThrow(() -> new BusinessException("User with ID=%s was not found".formatted(patched.getUserId()))));
+        }
+        existing.setStartTime(patched.getStartTime());
+        existing.setEndTime(patched.getEndTime());
+        existing.setActivityType(patched.getActivityType());
+        existing.setDistance(patched.getDistance());
+        existing.setAverageSpeed(patched.getAverageSpeed());
+        Training updated;
+        try {
+            updated = trainingRepository.saveAndFlush(existing);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw new PreconditionFailedException("Training with ID=%s was modified concurrently".formatted(trainingId));
+        }
+        rollups.replace(before, TrainingRollups.Contribution.of(updated));
         return trainingMapper.toDto(updated);
     }
 
+    /**
+     * Zwraca pary nachodzących na siebie treningów tego samego użytkownika.
+     * Pary wyznaczane są z {@link TrainingOverlapIndex}, a z bazy pobierane są tylko treningi, które w nich występują.
+     *
+     * @param userId identyfikator użytkownika lub {@code null} dla wszystkich użytkowników
+     * @param limit maksymalna liczba par (ograniczona do {@value #MAX_OVERLAPS_LIMIT})
+     * @return pary treningów uporządkowane po użytkowniku i czasie rozpoczęcia
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<TrainingOverlapDto> findOverlaps(@Nullable Long userId, int limit) {
+        int boundedLimit = Math.max(1, Math.min(limit, MAX_OVERLAPS_LIMIT));
+        List<TrainingIntervalTree.Overlap> overlaps = overlapIndex.findOverlaps(userId, boundedLimit);
+        if (overlaps.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = overlaps.stream()
+                .flatMap(overlap -> Stream.of(overlap.firstId(), overlap.secondId()))
+                .distinct()
+                .toList();
+        Map<Long, TrainingDto> trainings = IdBatches.fetch(ids, trainingRepository::findAllWithUserByIdIn, Training::getId)
+                .values().stream()
+                .map(trainingMapper::toDto)
+                .collect(Collectors.toMap(TrainingDto::getId, Function.identity(), (a, b) -> a));
+        return overlaps.stream()
+                .filter(overlap -> trainings.containsKey(overlap.firstId()) && trainings.containsKey(overlap.secondId()))
+                .map(overlap -> new TrainingOverlapDto(trainings.get(overlap.firstId()), trainings.get(overlap.secondId())))
+                .toList();
+    }
+
+    /**
+     * Wyszukuje podobne treningi w {@link TrainingSimilarityIndex}, a z bazy pobiera tylko znalezione treningi.
+     *
+     * @param trainingId identyfikator wzorcowego treningu
+     * @param k liczba zwracanych treningów (ograniczona do {@value #MAX_SIMILAR_LIMIT})
+     * @param sameUserOnly czy ograniczyć wyniki do treningów właściciela wzorcowego treningu
+     * @return podobne treningi od najbardziej podobnego
+     * @throws TrainingNotFoundException jeśli trening nie istnieje
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<SimilarTrainingDto> findSimilar(Long trainingId, int k, boolean sameUserOnly) {
+        int boundedK = Math.max(1, Math.min(k, MAX_SIMILAR_LIMIT));
+        List<TrainingSimilarityIndex.Similar> similar = similarityIndex.findSimilar(trainingId, boundedK, sameUserOnly)
+                .orElseThrow(() -> new TrainingNotFoundException(trainingId));
+        Map<Long, Training> trainings = IdBatches.fetch(
+                similar.stream().map(TrainingSimilarityIndex.Similar::trainingId).toList(),
+                trainingRepository::findAllWithUserByIdIn, Training::getId);
+        return similar.stream()
+                .filter(match -> trainings.containsKey(match.trainingId()))
+                .map(match -> new SimilarTrainingDto(trainingMapper.toDto(trainings.get(match.trainingId())), match.distance()))
+                .toList();
+    }
+
+    /**
+     * Zwraca podsumowania okresów odczytane z {@link TrainingRollups}, bez przeglądania treningów użytkownika.
+     * Zakres rozszerzany jest do pełnych okresów: obejmuje okres zawierający {@code from} i okres zawierający ostatni dzień przed {@code to}.
+     *
+     * @param userId identyfikator użytkownika
+     * @param period rodzaj okresu
+     * @param from pierwszy dzień zakresu (włącznie)
+     * @param to ostatni dzień zakresu (wyłącznie)
+     * @return podsumowania okresów uporządkowane po początku okresu i typie aktywności
+     * @throws BusinessException jeśli {@code from} nie jest przed {@code to}
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<TrainingPeriodSummaryDto> summarize(Long userId, TrainingPeriod period, LocalDate from, LocalDate to) {
+        if (!from.isBefore(to)) {
+            throw new BusinessException("Summary window 'from' must be before 'to'");
+        }
+        LocalDate lastBucket = period.bucketStart(to.minusDays(1));
+        return rollups.find(userId, period, period.bucketStart(from), period.nextBucketStart(lastBucket));
+    }
+
+    /**
+     * Zwraca sumy treningów użytkownika z zakresu dni jako różnicę dwóch sum prefiksowych drzewa Fenwicka
+     * z {@link TrainingTotalsCache}, więc koszt nie zależy od długości zakresu ani historii użytkownika.
+     *
+     * @param userId identyfikator użytkownika
+     * @param from pierwszy dzień zakresu (włącznie)
+     * @param to ostatni dzień zakresu (wyłącznie)
+     * @return liczba treningów, suma dystansów i łączny czas trwania
+     * @throws BusinessException jeśli {@code from} nie jest przed {@code to}
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public TrainingTotalsDto findTotals(Long userId, LocalDate from, LocalDate to) {
+        if (!from.isBefore(to)) {
+            throw new BusinessException("Totals window 'from' must be before 'to'");
+        }
+        TrainingDailyTotals.Totals totals = rollups.sum(userId, from, to);
+        return new TrainingTotalsDto(from, to, totals.trainings(), totals.distance(), totals.durationSeconds());
+    }
+
+    /**
+     * Przelicza od nowa podsumowania okresów jednym przejściem po tabeli treningów.
+     *
+     * @return liczba zapisanych podsumowań
+     */
+    @Override
+    @Transactional
+    public int rebuildRollups() {
+        return rollups.rebuild();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachMonthlyTotal(Consumer<TrainingMonthlyTotalDto> consumer) {
+        rollups.forEachMonthlyTotal(consumer);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachPeriodTotal(TrainingPeriod period, LocalDate from, Consumer<TrainingPeriodTotalDto> consumer) {
+        rollups.forEachPeriodTotal(period, from, consumer);
+    }
+
+    /**
+     * Wyszukuje w {@link TrainingOverlapIndex} pierwszy trening użytkownika nachodzący na podany przedział.
+     * Przy polityce {@link TrainingOverlapPolicy#ALLOW} lub niepełnym przedziale nic nie jest sprawdzane.
+     */
+    private Optional<Long> findOverlapping(Long userId, @Nullable Date startTime, @Nullable Date endTime, @Nullable Long excludeId) {
+        if (overlapProperties.getPolicy() == TrainingOverlapPolicy.ALLOW || startTime == null || endTime == null) {
+            return Optional.empty();
+        }
+        return overlapIndex.findOverlapping(userId, startTime.getTime(), endTime.getTime(), excludeId, 1)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * Scala nowy trening z istniejącym: przedział czasu obejmuje oba treningi,
+     * a dystans i prędkość pochodzą z treningu o dłuższym dystansie.
+     */
+    private Training mergeInto(Training existing, TrainingRequestBody body) {
+        if (body.getStartTime().before(existing.getStartTime())) {
+            existing.setStartTime(body.getStartTime());
+        }
+        if (body.getEndTime().after(existing.getEndTime())) {
+            existing.setEndTime(body.getEndTime());
+        }
+        if (body.getDistance() > existing.getDistance()) {
+            existing.setDistance(body.getDistance());
+            existing.setAverageSpeed(body.getAverageSpeed());
+        }
+        return trainingRepository.saveAndFlush(existing);
+    }
+
+    private static TrainingRequestBody toRequestBody(Training training) {
+        TrainingRequestBody body = new TrainingRequestBody();
+        body.setUserId(training.getUser().getId());
+        body.setStartTime(training.getStartTime());
+        body.setEndTime(training.getEndTime());
+        body.setActivityType(training.getActivityType());
+        body.setDistance(training.getDistance());
+        body.setAverageSpeed(training.getAverageSpeed());
+        return body;
+    }
+
+    private TrainingRequestBody readPatched(JsonNode merged) {
+        try {
+            return objectMapper.treeToValue(merged, TrainingRequestBody.class);
+        } catch (JsonProcessingException e) {
+            throw new BusinessException("Malformed training patch: " + e.getOriginalMessage());
+        }
+    }
+
+    /**
+     * Sprawdza kompletność i spójność danych treningu.
+     *
+     * @param body dane treningu
+     * @throws BusinessException jeśli brakuje wymaganych pól lub wartości są niepoprawne
+     */
+    static void validate(TrainingRequestBody body) {
+        if (body.getUserId() == null || body.getStartTime() == null || body.getEndTime() == null
+                || body.getActivityType() == null) {
+            throw new BusinessException("userId, startTime, endTime and activityType are required");
+        }
+        if (body.getEndTime().before(body.getStartTime())) {
+            throw new BusinessException("endTime must not be before startTime");
+        }
+        if (body.getDistance() < 0 || body.getAverageSpeed() < 0) {
+            throw new BusinessException("distance and averageSpeed must not be negative");
+        }
+    }
+
     /**
      * Usuwa wszystkie treningi przypisane do użytkownika o wskazanym identyfikatorze.
+     * Usunięcia są od razu wysyłane do bazy, więc treningi znikają z {@link TrainingTimelineCache} jeszcze w tym wywołaniu.
+     * W tej samej transakcji usuwane są podsumowania okresów użytkownika.
      *
      * @param userId identyfikator użytkownika
      */
@@ -131,6 +534,8 @@ public class TrainingServiceImpl implements TrainingService, TrainingProvider {
     @Transactional
     public void deleteTrainingsByUserId(Long userId) {
         trainingRepository.deleteByUser_Id(userId);
+        trainingRepository.flush();
+        rollups.removeUser(userId);
     }
 
     /**
@@ -144,4 +549,16 @@ public class TrainingServiceImpl implements TrainingService, TrainingProvider {
         return trainingRepository.findById(trainingId)
                 .map(Training::getUser);
     }
+
+    /**
+     * Streamuje wszystkie treningi jako płaskie wiersze odczytywane kursorem bazy danych.
+     * Dołącza do transakcji wywołującego, która musi trwać do zamknięcia strumienia.
+     *
+     * @return strumień wszystkich treningów w kolejności ID
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Stream<TrainingRowDto> streamAllRows() {
+        return trainingRepository.streamAllRows();
+    }
 }
@@ -0,0 +1,202 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import pl.wsb.fitnesstracker.training.api.Training;
+import pl.wsb.fitnesstracker.training.api.TrainingChangedEvent;
+import pl.wsb.fitnesstracker.training.api.TrainingRowDto;
+import pl.wsb.fitnesstracker.transaction.api.TransactionBatch;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Indeks podobieństwa treningów w pamięci - osobny {@link TrainingKdForest} dla każdego typu aktywności.
+ *
+ * <p>
+ * Trening opisany jest dystansem, średnią prędkością i czasem trwania; typ aktywności wybiera las,
+ * więc sąsiadami są zawsze treningi tego samego typu. Wyszukanie k najbliższych sąsiadów nie wymaga
+ * przeglądania tabeli treningów. Indeks budowany jest przy starcie aplikacji i aktualizowany zdarzeniami
+ * {@link TrainingChangedEvent}, nanoszonymi po zatwierdzeniu transakcji, która je wprowadziła.
+ * </p>
+ */
+@Component
+@Slf4j
+class TrainingSimilarityIndex {
+
+    /**
+     * Szacowany rozmiar treningu w indeksie: punkt, wpis w mapie po ID i miejsce w tablicy drzewa.
+     */
+    static final long ESTIMATED_POINT_BYTES = 112;
+
+    private final TrainingRepository trainingRepository;
+    private final Map<Long, TrainingKdForest.Point> pointsById = new ConcurrentHashMap<>();
+    private final Map<ActivityType, TrainingKdForest> forests = new EnumMap<>(ActivityType.class);
+    private final Map<ActivityType, ReadWriteLock> locks = new EnumMap<>(ActivityType.class);
+    private final TransactionBatch<Map<Long, TrainingKdForest.Point>> pending =
+            TransactionBatch.afterCommit(LinkedHashMap::new, this::apply);
+
+    TrainingSimilarityIndex(TrainingRepository trainingRepository, MeterRegistry meterRegistry) {
+        this.trainingRepository = trainingRepository;
+        Predicate<TrainingKdForest.Point> live = point -> pointsById.get(point.id()) == point;
+        for (ActivityType activityType : ActivityType.values()) {
+            forests.put(activityType, new TrainingKdForest(live));
+            locks.put(activityType, new ReentrantReadWriteLock());
+        }
+        Gauge.builder("trainings.similarity.index.size", this, TrainingSimilarityIndex::size)
+                .description("Number of trainings in the similarity index")
+                .register(meterRegistry);
+        Gauge.builder("trainings.similarity.index.memory", this, TrainingSimilarityIndex::estimatedBytes)
+                .description("Estimated heap held by the training similarity index, including stale points awaiting merge")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Znaleziony podobny trening.
+     *
+     * @param trainingId identyfikator treningu
+     * @param distance   odległość od wzorcowego treningu w odchyleniach standardowych cech
+     */
+    record Similar(long trainingId, double distance) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    void rebuild() {
+        Map<ActivityType, List<TrainingKdForest.Point>> points = new EnumMap<>(ActivityType.class);
+        try (Stream<TrainingRowDto> rows = trainingRepository.streamAllRows()) {
+            rows.forEach(row -> {
+                TrainingKdForest.Point point = toPoint(row.id(), row.userId(), row.activityType(), row.distance(),
+                        row.averageSpeed(), row.endTime().getTime() - row.startTime().getTime());
+                pointsById.put(point.id(), point);
+                points.computeIfAbsent(point.activityType(), type -> new ArrayList<>()).add(point);
+            });
+        }
+        for (ActivityType activityType : ActivityType.values()) {
+            ReadWriteLock lock = locks.get(activityType);
+            lock.writeLock().lock();
+            try {
+                forests.get(activityType).load(points.getOrDefault(activityType, List.of()));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        log.info("Training similarity index built with {} trainings", size());
+    }
+
+    int size() {
+        return pointsById.size();
+    }
+
+    /**
+     * Wyszukuje treningi najbardziej podobne do podanego treningu, z pominięciem jego samego.
+     *
+     * @param trainingId   identyfikator wzorcowego treningu
+     * @param k            liczba zwracanych treningów
+     * @param sameUserOnly czy ograniczyć wyniki do treningów właściciela wzorcowego treningu
+     * @return podobne treningi od najbardziej podobnego lub pusty {@link Optional}, jeśli treningu nie ma w indeksie
+     */
+    Optional<List<Similar>> findSimilar(long trainingId, int k, boolean sameUserOnly) {
+        TrainingKdForest.Point query = pointsById.get(trainingId);
+        if (query == null) {
+            return Optional.empty();
+        }
+        Predicate<TrainingKdForest.Point> accept = point -> point.id() != trainingId
+                && (!sameUserOnly || point.userId() == query.userId());
+        ReadWriteLock lock = locks.get(query.activityType());
+        lock.readLock().lock();
+        try {
+            return Optional.of(forests.get(query.activityType()).nearest(query, k, accept).stream()
+                    .map(neighbour -> new Similar(neighbour.point().id(), neighbour.distance()))
+                    .toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener
+    void onTrainingChanged(TrainingChangedEvent event) {
+        Training training = event.training();
+        TrainingKdForest.Point point = event.change() == TrainingChangedEvent.Change.DELETED ? null : toPoint(training);
+        pending.add(changes -> changes.put(training.getId(), point));
+    }
+
+    private long estimatedBytes() {
+        long stored = 0;
+        for (ActivityType activityType : ActivityType.values()) {
+            ReadWriteLock lock = locks.get(activityType);
+            lock.readLock().lock();
+            try {
+                stored += forests.get(activityType).storedSize();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        return Math.max(stored, size()) * ESTIMATED_POINT_BYTES;
+    }
+
+    private void put(TrainingKdForest.Point point) {
+        TrainingKdForest.Point previous = pointsById.put(point.id(), point);
+        if (previous != null) {
+            withWriteLock(previous.activityType(), forest -> forest.remove(previous));
+        }
+        withWriteLock(point.activityType(), forest -> forest.add(point));
+    }
+
+    private void remove(long trainingId) {
+        TrainingKdForest.Point previous = pointsById.remove(trainingId);
+        if (previous != null) {
+            withWriteLock(previous.activityType(), forest -> forest.remove(previous));
+        }
+    }
+
+    private void withWriteLock(ActivityType activityType, Consumer<TrainingKdForest> action) {
+        ReadWriteLock lock = locks.get(activityType);
+        lock.writeLock().lock();
+        try {
+            action.accept(forests.get(activityType));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Nanosi zatwierdzone zmiany; dla usuniętego treningu zapamiętany jest {@code null}.
+     * Zmiany zbierane są w jednej mapie na transakcję, więc import masowy nanosi tylko ostatni stan każdego treningu.
+     */
+    private void apply(Map<Long, TrainingKdForest.Point> changes) {
+        changes.forEach((trainingId, point) -> {
+            if (point == null) {
+                remove(trainingId);
+            } else {
+                put(point);
+            }
+        });
+    }
+
+    private static TrainingKdForest.Point toPoint(Training training) {
+        return toPoint(training.getId(), training.getUser().getId(), training.getActivityType(), training.getDistance(),
+                training.getAverageSpeed(), training.getEndTime().getTime() - training.getStartTime().getTime());
+    }
+
+    private static TrainingKdForest.Point toPoint(long id, long userId, ActivityType activityType,
+                                                  double distance, double averageSpeed, long durationMillis) {
+        return new TrainingKdForest.Point(id, userId, activityType, distance, averageSpeed, durationMillis / 60_000.0);
+    }
+}
@@ -0,0 +1,79 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+import pl.wsb.fitnesstracker.training.api.Training;
+import pl.wsb.fitnesstracker.training.api.TrainingSearchCriteria;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Specyfikacje JPA budujące dynamiczne zapytania o treningi.
+ *
+ * <p>
+ * Do zapytania trafiają tylko podane kryteria, więc z filtrem użytkownika lub typu aktywności
+ * oraz oknem czasowym zapytanie jest przeszukaniem zakresu indeksu {@code (user_id, end_time, id)}
+ * lub {@code (activity_type, end_time, id)}, a pozostałe warunki filtrują już zawężony zakres.
+ * </p>
+ */
+final class TrainingSpecifications {
+
+    private TrainingSpecifications() {
+    }
+
+    /**
+     * @param criteria kryteria wyszukiwania
+     * @return specyfikacja łącząca wszystkie podane kryteria
+     */
+    static Specification<Training> matching(TrainingSearchCriteria criteria) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (criteria.userId() != null) {
+                predicates.add(cb.equal(root.get("user").get("id"), criteria.userId()));
+            }
+            if (criteria.activityType() != null) {
+                predicates.add(cb.equal(root.get("activityType"), criteria.activityType()));
+            }
+            if (criteria.from() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("endTime"), toDate(criteria.from())));
+            }
+            if (criteria.to() != null) {
+                predicates.add(cb.lessThan(root.get("endTime"), toDate(criteria.to())));
+            }
+            if (criteria.minDistance() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("distance"), criteria.minDistance()));
+            }
+            if (criteria.maxDistance() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("distance"), criteria.maxDistance()));
+            }
+            if (criteria.minSpeed() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("averageSpeed"), criteria.minSpeed()));
+            }
+            if (criteria.maxSpeed() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("averageSpeed"), criteria.maxSpeed()));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    /**
+     * Warunek kursora: treningi następujące po kluczu (czas zakończenia, ID) ostatniego elementu poprzedniej strony.
+     *
+     * @param endTime czas zakończenia ostatniego treningu poprzedniej strony
+     * @param id      identyfikator ostatniego treningu poprzedniej strony
+     * @return specyfikacja warunku kursora
+     */
+    static Specification<Training> after(Date endTime, long id) {
+        return (root, query, cb) -> cb.or(
+                cb.greaterThan(root.get("endTime"), endTime),
+                cb.and(cb.equal(root.get("endTime"), endTime), cb.greaterThan(root.get("id"), id)));
+    }
+
+    private static Date toDate(LocalDateTime value) {
+        return Date.from(value.atZone(ZoneId.systemDefault()).toInstant());
+    }
+}
@@ -0,0 +1,312 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import pl.wsb.fitnesstracker.training.api.Training;
+import pl.wsb.fitnesstracker.training.api.TrainingChangedEvent;
+import pl.wsb.fitnesstracker.training.api.TrainingDto;
+import pl.wsb.fitnesstracker.transaction.api.TransactionBatch;
+import pl.wsb.fitnesstracker.user.api.UserChangedEvent;
+import pl.wsb.fitnesstracker.user.api.UserDto;
+import pl.wsb.fitnesstracker.user.internal.UserMapper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Cache zmapowanych historii treningów użytkowników (lista {@link TrainingDto} posortowana po ID).
+ *
+ * <p>
+ * Rozmiar cache ograniczony jest łączną liczbą treningów we wszystkich historiach, a nie liczbą użytkowników,
+ * więc kilku użytkowników z długą historią nie wypiera z pamięci wszystkich pozostałych.
+ * Zmiany treningów ({@link TrainingChangedEvent}) i użytkowników ({@link UserChangedEvent}) nanoszone są
+ * na zapamiętane historie w miejscu - zamiast unieważnienia wpisu - po zatwierdzeniu transakcji, która je wprowadziła,
+ * więc wycofane zmiany nigdy nie trafiają do cache. Odczyt w transakcji, która sama zmieniła historię użytkownika,
+ * ładuje ją z bazy z pominięciem cache. Zapamiętane listy są niemodyfikowalne i podmieniane atomowo.
+ * </p>
+ *
+ * <p>
+ * Statystyki trafień i chybień publikowane są jako metryki {@code cache.*} z tagiem {@code cache=trainings.timeline},
+ * liczba zapamiętanych treningów jako {@code trainings.timeline.trainings}, a szacowana zajętość pamięci jako {@code trainings.timeline.memory}.
+ * </p>
+ */
+@Component
+class TrainingTimelineCache {
+
+    /**
+     * Szacowany rozmiar jednego treningu w historii: {@link TrainingDto}, dwie daty i referencja w liście.
+     */
+    static final long ESTIMATED_TRAINING_BYTES = 144;
+
+    /**
+     * Szacowany stały koszt jednej historii: klucz, wpis cache, lista oraz współdzielony {@link UserDto}.
+     */
+    static final long ESTIMATED_TIMELINE_BYTES = 320;
+
+    private static final int CHANGE_STRIPES = 256;
+
+    private static final Comparator<TrainingDto> BY_ID = Comparator.comparing(TrainingDto::getId);
+
+    private final Cache<Long, List<TrainingDto>> timelines;
+    private final Map<Long, Long> ownerByTrainingId = new ConcurrentHashMap<>();
+    private final AtomicLongArray changes = new AtomicLongArray(CHANGE_STRIPES);
+    private final TransactionBatch<Pending> pending = TransactionBatch.afterCommit(Pending::new, this::applyCommitted);
+    private final TrainingMapper trainingMapper;
+    private final UserMapper userMapper;
+
+    TrainingTimelineCache(TrainingTimelineCacheProperties properties,
+                          TrainingMapper trainingMapper,
+                          UserMapper userMapper,
+                          MeterRegistry meterRegistry) {
+        this.trainingMapper = trainingMapper;
+        this.userMapper = userMapper;
+        this.timelines = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaximumTrainings())
+                .weigher((Long userId, List<TrainingDto> timeline) -> Math.max(1, timeline.size()))
+                .expireAfterWrite(properties.getTtl())
+                .executor(Runnable::run)
+                .removalListener((Long userId, List<TrainingDto> timeline, RemovalCause cause) -> {
+                    if (timeline != null && cause != RemovalCause.REPLACED) {
+                        timeline.forEach(training -> ownerByTrainingId.remove(training.getId(), userId));
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, timelines, "trainings.timeline");
+        Gauge.builder("trainings.timeline.memory", this, TrainingTimelineCache::estimatedBytes)
+                .description("Estimated heap held by cached training timelines")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("trainings.timeline.trainings", this, TrainingTimelineCache::cachedTrainings)
+                .description("Number of trainings held by cached training timelines")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Zwraca historię treningów użytkownika z cache lub ładuje ją przekazaną funkcją.
+     *
+     * <p>
+     * Ładowanie odbywa się poza blokadą wpisu, ponieważ zapytanie może wymusić flush kontekstu utrwalania,
+     * a ten publikuje zdarzenia zmian dotyczące tej samej historii. Wczytana historia trafia do cache tylko wtedy,
+     * gdy w trakcie ładowania nie naniesiono żadnej zmiany na treningi tego użytkownika (licznik zmian w paskach)
+     * ani flush nie zmienił jej w bieżącej transakcji. Historia użytkownika zmienionego w bieżącej transakcji
+     * jest zawsze ładowana z bazy i nie trafia do cache.
+     * </p>
+     *
+     * @param userId identyfikator użytkownika
+     * @param loader funkcja ładująca treningi użytkownika z bazy
+     * @return niemodyfikowalna lista treningów posortowana po ID
+     */
+    List<TrainingDto> get(Long userId, Function<Long, List<TrainingDto>> loader) {
+        if (changedInCurrentTransaction(userId)) {
+            List<TrainingDto> own = new ArrayList<>(loader.apply(userId));
+            own.sort(BY_ID);
+            return Collections.unmodifiableList(own);
+        }
+        List<TrainingDto> cached = timelines.getIfPresent(userId);
+        if (cached != null) {
+            return cached;
+        }
+        int stripe = stripe(userId);
+        long changesBefore = changes.get(stripe);
+        List<TrainingDto> loaded = new ArrayList<>(loader.apply(userId));
+        loaded.sort(BY_ID);
+        shareUser(loaded);
+        List<TrainingDto> timeline = Collections.unmodifiableList(loaded);
+        if (changes.get(stripe) == changesBefore && !changedInCurrentTransaction(userId)) {
+            List<TrainingDto> raced = timelines.asMap().putIfAbsent(userId, timeline);
+            if (raced != null) {
+                return raced;
+            }
+            timeline.forEach(training -> ownerByTrainingId.put(training.getId(), userId));
+        }
+        return timeline;
+    }
+
+    long estimatedBytes() {
+        return cachedTrainings() * ESTIMATED_TRAINING_BYTES + timelines.estimatedSize() * ESTIMATED_TIMELINE_BYTES;
+    }
+
+    long cachedTrainings() {
+        return timelines.policy().eviction()
+                .flatMap(eviction -> eviction.weightedSize().stream().boxed().findFirst())
+                .orElse(0L);
+    }
+
+    /**
+     * Wykonuje zaległe operacje utrzymaniowe cache (wymianę wpisów ponad limit).
+     */
+    void cleanUp() {
+        timelines.cleanUp();
+    }
+
+    @EventListener
+    void onTrainingChanged(TrainingChangedEvent event) {
+        Training training = event.training();
+        Long userId = training.getUser().getId();
+        Long previousUserId = event.previousUserId();
+        if (previousUserId != null && !previousUserId.equals(userId)) {
+            pending.add(batch -> batch.users.add(previousUserId));
+        }
+        if (event.change() == TrainingChangedEvent.Change.DELETED) {
+            Long trainingId = training.getId();
+            afterCommit(userId, () -> remove(userId, trainingId));
+        } else {
+            TrainingDto dto = trainingMapper.toDto(training);
+            afterCommit(userId, () -> upsert(userId, dto));
+        }
+    }
+
+    @EventListener
+    void onUserChanged(UserChangedEvent event) {
+        Long userId = event.user().getId();
+        switch (event.change()) {
+            case UPDATED -> {
+                UserDto user = userMapper.toDto(event.user());
+                afterCommit(userId, () -> replaceUser(userId, user));
+            }
+            case DELETED -> afterCommit(userId, () -> timelines.invalidate(userId));
+            default -> {
+                // nowy użytkownik nie ma jeszcze zapamiętanej historii
+            }
+        }
+    }
+
+    private void upsert(Long userId, TrainingDto training) {
+        Long previousOwner = ownerByTrainingId.get(training.getId());
+        if (previousOwner != null && !previousOwner.equals(userId)) {
+            remove(previousOwner, training.getId());
+        }
+        timelines.asMap().computeIfPresent(userId, (key, timeline) -> {
+            TrainingDto cached = timeline.isEmpty() ? training : withUser(training, timeline.get(0).getUser());
+            List<TrainingDto> updated = new ArrayList<>(timeline.size() + 1);
+            updated.addAll(timeline);
+            int index = indexOf(updated, training.getId());
+            if (index >= 0) {
+                updated.set(index, cached);
+            } else {
+                updated.add(-index - 1, cached);
+            }
+            ownerByTrainingId.put(training.getId(), key);
+            return Collections.unmodifiableList(updated);
+        });
+    }
+
+    private void remove(Long userId, Long trainingId) {
+        timelines.asMap().computeIfPresent(userId, (key, timeline) -> {
+            int index = indexOf(timeline, trainingId);
+            if (index < 0) {
+                return timeline;
+            }
+            List<TrainingDto> updated = new ArrayList<>(timeline);
+            updated.remove(index);
+            return Collections.unmodifiableList(updated);
+        });
+        ownerByTrainingId.remove(trainingId, userId);
+    }
+
+    private void replaceUser(Long userId, UserDto user) {
+        timelines.asMap().computeIfPresent(userId, (key, timeline) -> {
+            List<TrainingDto> updated = new ArrayList<>(timeline.size());
+            for (TrainingDto training : timeline) {
+                updated.add(withUser(training, user));
+            }
+            return Collections.unmodifiableList(updated);
+        });
+    }
+
+    private static int stripe(Long userId) {
+        return Long.hashCode(userId) & (CHANGE_STRIPES - 1);
+    }
+
+    private static TrainingDto withUser(TrainingDto training, UserDto user) {
+        return new TrainingDto(training.getId(), user, training.getStartTime(), training.getEndTime(),
+                training.getActivityType(), training.getDistance(), training.getAverageSpeed(), training.getVersion());
+    }
+
+    /**
+     * Wyszukiwanie binarne po ID w historii posortowanej po ID.
+     *
+     * @return indeks treningu lub {@code -(punkt wstawienia) - 1}, jeśli go nie ma
+     */
+    private static int indexOf(List<TrainingDto> timeline, long trainingId) {
+        int low = 0;
+        int high = timeline.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = timeline.get(mid).getId();
+            if (midId < trainingId) {
+                low = mid + 1;
+            } else if (midId > trainingId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Wszystkie treningi jednej historii należą do tego samego użytkownika, więc współdzielą jeden {@link UserDto}.
+     * Wywoływane tylko na świeżo zmapowanej liście, zanim trafi do cache.
+     */
+    private static void shareUser(List<TrainingDto> timeline) {
+        if (timeline.isEmpty()) {
+            return;
+        }
+        UserDto user = timeline.get(timeline.size() - 1).getUser();
+        timeline.forEach(training -> training.setUser(user));
+    }
+
+    /**
+     * Zapamiętuje zmianę historii użytkownika do naniesienia po zatwierdzeniu bieżącej transakcji.
+     */
+    private void afterCommit(Long userId, Runnable change) {
+        pending.add(batch -> {
+            batch.users.add(userId);
+            batch.changes.add(new Change(userId, change));
+        });
+    }
+
+    /**
+     * Nanosi zatwierdzone zmiany w kolejności ich wprowadzenia. Zwiększenie licznika paska przed każdą zmianą
+     * sprawia, że historia wczytana równolegle sprzed zatwierdzenia nie trafi do cache po naniesieniu zmiany.
+     */
+    private void applyCommitted(Pending batch) {
+        for (Change change : batch.changes) {
+            changes.incrementAndGet(stripe(change.userId()));
+            change.apply().run();
+        }
+    }
+
+    private boolean changedInCurrentTransaction(Long userId) {
+        Pending current = pending.current();
+        return current != null && current.users.contains(userId);
+    }
+
+    private record Change(Long userId, Runnable apply) {
+    }
+
+    /**
+     * Zmiany historii wprowadzone w jednej transakcji.
+     */
+    private static final class Pending {
+
+        private final Set<Long> users = new HashSet<>();
+        private final List<Change> changes = new ArrayList<>();
+    }
+}
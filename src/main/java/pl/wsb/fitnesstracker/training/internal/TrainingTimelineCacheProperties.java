@@ -0,0 +1,30 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import lombok.Getter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the {@link TrainingTimelineCache}.
+ */
+@ConfigurationProperties(prefix = "trainings.timeline-cache")
+@Getter
+class TrainingTimelineCacheProperties {
+
+    /**
+     * Maximum number of trainings kept in all cached timelines together.
+     */
+    private final long maximumTrainings;
+
+    /**
+     * Time after which a cached timeline is reloaded from the database, regardless of in-place updates.
+     */
+    private final Duration ttl;
+
+    TrainingTimelineCacheProperties(@DefaultValue("100000") long maximumTrainings, @DefaultValue("30m") Duration ttl) {
+        this.maximumTrainings = maximumTrainings;
+        this.ttl = ttl;
+    }
+}
@@ -0,0 +1,252 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import pl.wsb.fitnesstracker.transaction.api.TransactionBatch;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongFunction;
+
+/**
+ * Cache drzew {@link TrainingDailyTotals} użytkowników, z których liczone są sumy treningów w dowolnym zakresie dni.
+ *
+ * <p>
+ * Drzewo użytkownika budowane jest przy pierwszym odczycie z dziennych podsumowań ({@link TrainingRollups}),
+ * a nie z historii treningów. Rozmiar cache ograniczony jest łączną liczbą zaalokowanych dni, a nieczytane drzewa
+ * wygasają po czasie bezczynności, więc pamięć zajmują tylko aktywni użytkownicy.
+ * </p>
+ *
+ * <p>
+ * Zmiany sum nie są idempotentne, więc nanoszone są dokładnie raz - po zatwierdzeniu transakcji, która je wprowadziła.
+ * Odczyt w transakcji, która sama zmieniła treningi użytkownika, liczy sumy z bazy z pominięciem cache.
+ * Aby drzewo wczytane równolegle z zatwierdzaną transakcją nie pominęło ani nie policzyło jej zmian dwa razy,
+ * trafia do cache tylko wtedy, gdy w czasie ładowania żadna transakcja zmieniająca użytkowników z tego samego paska
+ * nie była w trakcie zatwierdzania.
+ * </p>
+ *
+ * <p>
+ * Statystyki trafień i chybień publikowane są jako metryki {@code cache.*} z tagiem {@code cache=trainings.totals},
+ * a szacowana zajętość pamięci jako {@code trainings.totals.memory}.
+ * </p>
+ */
+@Component
+class TrainingTotalsCache {
+
+    /**
+     * Rozmiar jednego dnia drzewa: licznik, dystans i czas trwania.
+     */
+    static final long BYTES_PER_DAY = 24;
+
+    /**
+     * Szacowany stały koszt jednego drzewa: klucz, wpis cache i obiekty tablic.
+     */
+    static final long ESTIMATED_TREE_BYTES = 200;
+
+    private static final int STRIPES = 256;
+
+    private final Cache<Long, TrainingDailyTotals> trees;
+    private final Object[] locks = new Object[STRIPES];
+    private final int[] committing = new int[STRIPES];
+    private final long[] versions = new long[STRIPES];
+    private final TransactionBatch<Pending> pending = new TransactionBatch<>(Pending::new, this::markCommitting, this::complete);
+
+    TrainingTotalsCache(TrainingTotalsCacheProperties properties, MeterRegistry meterRegistry) {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        this.trees = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaximumDays())
+                .weigher((Long userId, TrainingDailyTotals tree) -> tree.capacity())
+                .expireAfterAccess(properties.getIdleTtl())
+                .executor(Runnable::run)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, trees, "trainings.totals");
+        Gauge.builder("trainings.totals.memory", this, TrainingTotalsCache::estimatedBytes)
+                .description("Estimated heap held by cached per-user training totals trees")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Zmiana sum jednego dnia użytkownika.
+     */
+    record Delta(long userId, LocalDate day, long trainings, double distance, long durationSeconds) {
+    }
+
+    /**
+     * Zwraca sumy treningów użytkownika z dni {@code [from, to)}.
+     *
+     * @param userId identyfikator użytkownika
+     * @param from   pierwszy dzień (włącznie)
+     * @param to     ostatni dzień (wyłącznie)
+     * @param loader ładuje dzienne sumy użytkownika z bazy
+     */
+    TrainingDailyTotals.Totals sum(long userId, LocalDate from, LocalDate to,
+                                   LongFunction<List<TrainingRollupRepository.DailyTotal>> loader) {
+        boolean cacheable = !changedInCurrentTransaction(userId);
+        if (cacheable) {
+            TrainingDailyTotals cached = trees.getIfPresent(userId);
+            if (cached != null) {
+                return cached.sum(from, to);
+            }
+        }
+        int stripe = stripe(userId);
+        long version;
+        synchronized (locks[stripe]) {
+            version = committing[stripe] == 0 ? versions[stripe] : -1;
+        }
+        TrainingDailyTotals tree = build(loader.apply(userId));
+        if (cacheable) {
+            synchronized (locks[stripe]) {
+                if (version >= 0 && committing[stripe] == 0 && versions[stripe] == version) {
+                    TrainingDailyTotals raced = trees.asMap().putIfAbsent(userId, tree);
+                    if (raced != null) {
+                        tree = raced;
+                    }
+                }
+            }
+        }
+        return tree.sum(from, to);
+    }
+
+    /**
+     * Zapamiętuje zmiany sum do naniesienia po zatwierdzeniu bieżącej transakcji.
+     */
+    void apply(List<Delta> deltas) {
+        pending.add(batch -> deltas.forEach(delta ->
+                batch.deltas.computeIfAbsent(delta.userId(), userId -> new ArrayList<>()).add(delta)));
+    }
+
+    /**
+     * Usuwa drzewo użytkownika po zakończeniu bieżącej transakcji (np. po usunięciu wszystkich jego treningów).
+     */
+    void invalidate(long userId) {
+        pending.add(batch -> {
+            batch.deltas.remove(userId);
+            batch.invalidated.add(userId);
+        });
+    }
+
+    /**
+     * Usuwa wszystkie drzewa po zakończeniu bieżącej transakcji (np. po przebudowie podsumowań).
+     */
+    void invalidateAll() {
+        pending.add(batch -> batch.all = true);
+    }
+
+    long estimatedBytes() {
+        long days = trees.policy().eviction()
+                .flatMap(eviction -> eviction.weightedSize().stream().boxed().findFirst())
+                .orElse(0L);
+        return days * BYTES_PER_DAY + trees.estimatedSize() * ESTIMATED_TREE_BYTES;
+    }
+
+    /**
+     * Wykonuje zaległe operacje utrzymaniowe cache (wymianę wpisów ponad limit).
+     */
+    void cleanUp() {
+        trees.cleanUp();
+    }
+
+    private static TrainingDailyTotals build(List<TrainingRollupRepository.DailyTotal> days) {
+        TrainingDailyTotals tree = new TrainingDailyTotals(days.isEmpty() ? LocalDate.now() : days.get(0).day());
+        days.forEach(day -> tree.add(day.day(), day.trainings(), day.distance(), day.durationSeconds()));
+        return tree;
+    }
+
+    private void applyToCached(Delta delta) {
+        TrainingDailyTotals tree = trees.getIfPresent(delta.userId());
+        if (tree != null) {
+            tree.add(delta.day(), delta.trainings(), delta.distance(), delta.durationSeconds());
+        }
+    }
+
+    private void invalidateAllNow() {
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            synchronized (locks[stripe]) {
+                versions[stripe]++;
+            }
+        }
+        trees.invalidateAll();
+    }
+
+    private static int stripe(long userId) {
+        return Long.hashCode(userId) & (STRIPES - 1);
+    }
+
+    private boolean changedInCurrentTransaction(long userId) {
+        Pending current = pending.current();
+        return current != null
+                && (current.all || current.deltas.containsKey(userId) || current.invalidated.contains(userId));
+    }
+
+    /**
+     * Tuż przed zatwierdzeniem oznacza paski zmienionych użytkowników jako zatwierdzane, aby drzewa wczytywane
+     * w tym czasie nie trafiły do cache. Zapamiętuje oznaczone paski, bo zmiany wprowadzone później
+     * (np. przez flush w trakcie zatwierdzania) mogą dotyczyć kolejnych pasków.
+     */
+    private void markCommitting(Pending batch) {
+        Set<Integer> stripes = new HashSet<>(batch.usersByStripe().keySet());
+        stripes.forEach(stripe -> {
+            synchronized (locks[stripe]) {
+                committing[stripe]++;
+            }
+        });
+        batch.committingStripes = stripes;
+    }
+
+    private void complete(Pending batch, boolean committed) {
+        Map<Integer, List<Long>> usersByStripe = batch.usersByStripe();
+        Set<Integer> stripes = new HashSet<>(usersByStripe.keySet());
+        stripes.addAll(batch.committingStripes);
+        stripes.forEach(stripe -> {
+            synchronized (locks[stripe]) {
+                if (batch.committingStripes.contains(stripe)) {
+                    committing[stripe]--;
+                }
+                versions[stripe]++;
+                if (committed) {
+                    for (Long userId : usersByStripe.getOrDefault(stripe, List.of())) {
+                        if (batch.invalidated.contains(userId)) {
+                            trees.invalidate(userId);
+                        } else {
+                            batch.deltas.get(userId).forEach(this::applyToCached);
+                        }
+                    }
+                }
+            }
+        });
+        if (committed && batch.all) {
+            invalidateAllNow();
+        }
+    }
+
+    /**
+     * Zmiany sum wprowadzone w jednej transakcji.
+     */
+    private static final class Pending {
+
+        private final Map<Long, List<Delta>> deltas = new HashMap<>();
+        private final Set<Long> invalidated = new HashSet<>();
+        private boolean all;
+        private Set<Integer> committingStripes = Set.of();
+
+        private Map<Integer, List<Long>> usersByStripe() {
+            Map<Integer, List<Long>> users = new HashMap<>();
+            deltas.keySet().forEach(userId -> users.computeIfAbsent(stripe(userId), stripe -> new ArrayList<>()).add(userId));
+            invalidated.forEach(userId -> users.computeIfAbsent(stripe(userId), stripe -> new ArrayList<>()).add(userId));
+            return users;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import lombok.Getter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the {@link TrainingTotalsCache}.
+ */
+@ConfigurationProperties(prefix = "trainings.totals-cache")
+@Getter
+class TrainingTotalsCacheProperties {
+
+    /**
+     * Maximum number of days allocated in all cached per-user trees together (about 24 bytes per day).
+     */
+    private final long maximumDays;
+
+    /**
+     * Time after the last read after which a user's tree is evicted.
+     */
+    private final Duration idleTtl;
+
+    TrainingTotalsCacheProperties(@DefaultValue("1000000") long maximumDays, @DefaultValue("30m") Duration idleTtl) {
+        this.maximumDays = maximumDays;
+        this.idleTtl = idleTtl;
+    }
+}
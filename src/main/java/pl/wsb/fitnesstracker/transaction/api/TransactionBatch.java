@@ -0,0 +1,143 @@
+package pl.wsb.fitnesstracker.transaction.api;
+
+import jakarta.annotation.Nullable;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Paczka zmian zbieranych w bieżącej transakcji i nanoszonych na struktury w pamięci po jej zakończeniu.
+ *
+ * <p>
+ * Pierwsza zmiana w transakcji tworzy paczkę, wiąże ją z transakcją i rejestruje jej obsługę po zakończeniu;
+ * kolejne zmiany trafiają do tej samej paczki. Dzięki temu struktury w pamięci widzą tylko zatwierdzone dane,
+ * a zmiany wielu wierszy nanoszone są jednym przebiegiem. Bez aktywnej transakcji zmiana trafia do nowej paczki,
+ * która jest od razu obsługiwana jak zatwierdzona.
+ * </p>
+ *
+ * <p>
+ * Paczka utworzona dopiero w trakcie zatwierdzania (np. przez zdarzenia publikowane przy flush w commit)
+ * jest obsługiwana po zakończeniu transakcji, ale nie przechodzi przez krok {@code beforeCommit}.
+ * Paczka jest używana tylko przez wątek transakcji, więc nie musi być bezpieczna wątkowo.
+ * </p>
+ *
+ * @param <B> typ paczki zmian
+ */
+public final class TransactionBatch<B> {
+
+    /**
+     * Obsługa paczki po zakończeniu transakcji.
+     *
+     * @param <B> typ paczki zmian
+     */
+    @FunctionalInterface
+    public interface Completion<B> {
+
+        /**
+         * @param batch     zmiany zebrane w transakcji
+         * @param committed {@code true}, jeśli transakcja została zatwierdzona, {@code false} po jej wycofaniu
+         */
+        void complete(B batch, boolean committed);
+    }
+
+    private final Supplier<B> factory;
+    @Nullable
+    private final Consumer<? super B> beforeCommit;
+    private final Completion<? super B> completion;
+
+    /**
+     * @param factory    tworzy pustą paczkę
+     * @param completion obsługuje paczkę po zatwierdzeniu lub wycofaniu transakcji
+     */
+    public TransactionBatch(Supplier<B> factory, Completion<? super B> completion) {
+        this(factory, null, completion);
+    }
+
+    /**
+     * @param factory      tworzy pustą paczkę
+     * @param beforeCommit wywoływane tuż przed zatwierdzeniem transakcji lub {@code null}
+     * @param completion   obsługuje paczkę po zatwierdzeniu lub wycofaniu transakcji
+     */
+    public TransactionBatch(Supplier<B> factory,
+                            @Nullable Consumer<? super B> beforeCommit,
+                            Completion<? super B> completion) {
+        this.factory = factory;
+        this.beforeCommit = beforeCommit;
+        this.completion = completion;
+    }
+
+    /**
+     * Tworzy paczkę nanoszoną wyłącznie po zatwierdzeniu transakcji; po wycofaniu zmiany są porzucane.
+     *
+     * @param factory  tworzy pustą paczkę
+     * @param onCommit nanosi zatwierdzone zmiany
+     * @param <B>      typ paczki zmian
+     */
+    public static <B> TransactionBatch<B> afterCommit(Supplier<B> factory, Consumer<? super B> onCommit) {
+        return new TransactionBatch<>(factory, (batch, committed) -> {
+            if (committed) {
+                onCommit.accept(batch);
+            }
+        });
+    }
+
+    /**
+     * Dodaje zmianę do paczki bieżącej transakcji, tworząc ją przy pierwszej zmianie.
+     * Bez aktywnej transakcji zmiana jest obsługiwana od razu.
+     *
+     * @param addition dopisuje zmianę do paczki
+     */
+    public void add(Consumer<? super B> addition) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            B batch = factory.get();
+            addition.accept(batch);
+            if (beforeCommit != null) {
+                beforeCommit.accept(batch);
+            }
+            completion.complete(batch, true);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        B batch = (B) TransactionSynchronizationManager.getResource(this);
+        if (batch == null) {
+            batch = register();
+        }
+        addition.accept(batch);
+    }
+
+    /**
+     * Zwraca paczkę bieżącej transakcji bez jej tworzenia.
+     *
+     * @return zmiany zebrane dotąd w bieżącej transakcji lub {@code null}, jeśli nie było żadnych
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public B current() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        return (B) TransactionSynchronizationManager.getResource(this);
+    }
+
+    private B register() {
+        B created = factory.get();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                if (beforeCommit != null) {
+                    beforeCommit.accept(created);
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(TransactionBatch.this);
+                completion.complete(created, status == STATUS_COMMITTED);
+            }
+        });
+        return created;
+    }
+}
@@ -3,6 +3,8 @@ package pl.wsb.fitnesstracker.user.api;
 import jakarta.annotation.Nullable;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDate;
 
@@ -11,7 +13,9 @@ import java.time.LocalDate;
  * Zawiera podstawowe dane identyfikacyjne oraz kontaktowe.
  */
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = @Index(name = "idx_users_birthdate", columnList = "birthdate"))
+@EntityListeners(UserEntityListener.class)
+@DynamicUpdate
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
@@ -20,9 +24,11 @@ public class User {
 
     /**
      * Unikalny identyfikator użytkownika (generowany automatycznie).
+     * Pobierany z sekwencji w pulach po 50 wartości, co pozwala Hibernate grupować INSERT-y w batche JDBC.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     @Nullable
     private Long id;
 
@@ -50,6 +56,16 @@ public class User {
     @Column(nullable = false, unique = true)
     private String email;
 
+    /**
+     * Wersja rekordu do optymistycznej kontroli współbieżności (zwiększana przy każdej zmianie).
+     * Udostępniana klientom jako ETag i sprawdzana w nagłówku {@code If-Match}.
+     */
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    @Setter(AccessLevel.NONE)
+    private long version;
+
     /**
      * Konstruktor tworzący nowego użytkownika.
      * Używany np. przy rejestracji lub inicjalizacji danych.
@@ -70,4 +86,17 @@ public class User {
         this.birthdate = birthdate;
         this.email = email;
     }
+
+    /**
+     * Tworzy odłączoną kopię użytkownika z tym samym ID i wersją.
+     * Pozwala współdzielonym strukturom (np. cache) nie udostępniać własnych, zmiennych instancji.
+     *
+     * @return nowa instancja z tymi samymi danymi
+     */
+    public User copy() {
+        User copy = new User(firstName, lastName, birthdate, email);
+        copy.id = id;
+        copy.version = version;
+        return copy;
+    }
 }
@@ -0,0 +1,34 @@
+package pl.wsb.fitnesstracker.user.api;
+
+/**
+ * Zdarzenie aplikacyjne publikowane po wysłaniu zmiany encji {@link User} do bazy danych ({@code flush}).
+ *
+ * <p>
+ * Zdarzenie jest emitowane niezależnie od tego, czy zapis przeszedł przez {@link UserService},
+ * czy bezpośrednio przez repozytorium (np. loader danych startowych). Pozwala utrzymywać
+ * struktury pomocnicze (indeksy, cache) w zgodzie z tabelą {@code users}.
+ * </p>
+ *
+ * <p>
+ * Zdarzenie publikowane jest przed zatwierdzeniem transakcji, która może jeszcze zostać wycofana. Odbiorcy utrzymujący
+ * struktury widoczne dla innych wątków powinni nanosić zmiany dopiero po zatwierdzeniu, np. przez
+ * {@code @TransactionalEventListener(phase = AFTER_COMMIT)}.
+ * </p>
+ *
+ * @param user   encja użytkownika w stanie po zmianie
+ * @param change rodzaj zmiany
+ */
+public record UserChangedEvent(
+        User user,
+        Change change
+) {
+
+    /**
+     * Rodzaj zmiany wykonanej na encji użytkownika.
+     */
+    public enum Change {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+}
@@ -1,6 +1,7 @@
 package pl.wsb.fitnesstracker.user.api;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.annotation.Nullable;
 
 import java.time.LocalDate;
@@ -18,12 +19,21 @@ import java.time.LocalDate;
  * @param lastName  nazwisko użytkownika
  * @param birthdate data urodzenia w formacie yyyy-MM-dd
  * @param email     adres e-mail użytkownika
+ * @param version   wersja rekordu (ETag); pomijana w JSON, jeśli nieznana, np. w eksporcie lub żądaniu utworzenia
  */
 public record UserDto(
         @Nullable Long id,
         String firstName,
         String lastName,
         @JsonFormat(pattern = "yyyy-MM-dd") LocalDate birthdate,
-        String email
+        String email,
+        @JsonInclude(JsonInclude.Include.NON_NULL) @Nullable Long version
 ) {
+
+    /**
+     * Tworzy DTO bez wersji rekordu (np. w projekcjach zapytań i imporcie).
+     */
+    public UserDto(@Nullable Long id, String firstName, String lastName, LocalDate birthdate, String email) {
+        this(id, firstName, lastName, birthdate, email, null);
+    }
 }
@@ -0,0 +1,15 @@
+package pl.wsb.fitnesstracker.user.api;
+
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+
+/**
+ * Exception indicating that another {@link User} is already registered with the given email.
+ */
+@SuppressWarnings("squid:S110")
+public class UserEmailAlreadyExistsException extends BusinessException {
+
+    public UserEmailAlreadyExistsException(String email) {
+        super("User with email %s already exists".formatted(email));
+    }
+
+}
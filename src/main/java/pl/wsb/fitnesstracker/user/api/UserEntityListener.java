@@ -0,0 +1,32 @@
+package pl.wsb.fitnesstracker.user.api;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * Listener JPA encji {@link User} publikujący {@link UserChangedEvent} po każdym zapisie do bazy.
+ * Instancja tworzona jest przez Hibernate z użyciem kontenera Springa, dzięki czemu otrzymuje wstrzyknięte zależności.
+ */
+@RequiredArgsConstructor
+class UserEntityListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    void afterCreate(User user) {
+        eventPublisher.publishEvent(new UserChangedEvent(user, UserChangedEvent.Change.CREATED));
+    }
+
+    @PostUpdate
+    void afterUpdate(User user) {
+        eventPublisher.publishEvent(new UserChangedEvent(user, UserChangedEvent.Change.UPDATED));
+    }
+
+    @PostRemove
+    void afterDelete(User user) {
+        eventPublisher.publishEvent(new UserChangedEvent(user, UserChangedEvent.Change.DELETED));
+    }
+}
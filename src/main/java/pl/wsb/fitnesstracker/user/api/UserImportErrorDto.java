@@ -0,0 +1,17 @@
+package pl.wsb.fitnesstracker.user.api;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * Opis wiersza odrzuconego podczas masowego importu użytkowników.
+ *
+ * @param row    numer rekordu w przesłanych danych (liczony od 1, bez wiersza nagłówka CSV)
+ * @param email  adres e-mail z odrzuconego rekordu, jeśli udało się go odczytać
+ * @param reason przyczyna odrzucenia
+ */
+public record UserImportErrorDto(
+        long row,
+        @Nullable String email,
+        String reason
+) {
+}
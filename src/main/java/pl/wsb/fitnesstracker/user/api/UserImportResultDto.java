@@ -0,0 +1,15 @@
+package pl.wsb.fitnesstracker.user.api;
+
+import java.util.List;
+
+/**
+ * Podsumowanie masowego importu użytkowników.
+ *
+ * @param imported liczba zapisanych użytkowników
+ * @param rejected wiersze odrzucone wraz z przyczyną (np. konflikt unikalności adresu e-mail)
+ */
+public record UserImportResultDto(
+        long imported,
+        List<UserImportErrorDto> rejected
+) {
+}
@@ -1,7 +1,10 @@
 package pl.wsb.fitnesstracker.user.api;
 
+import pl.wsb.fitnesstracker.lookup.api.LookupResult;
+
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Interfejs API służący do odczytu danych użytkowników.
@@ -19,4 +22,14 @@ public interface UserProvider {
     Optional<User> getUserByEmail(String email);
 
     List<User> findAllUsers();
+
+    List<LookupResult<User>> findUsersByIds(List<Long> ids);
+
+    /**
+     * Strumieniuje wszystkich użytkowników jako DTO, w kolejności ID, bez ładowania encji.
+     * Wymaga aktywnej transakcji; strumień należy skonsumować i zamknąć przed jej zakończeniem.
+     *
+     * @return strumień wszystkich użytkowników
+     */
+    Stream<UserDto> streamAllUsers();
 }
@@ -1,5 +1,11 @@
 package pl.wsb.fitnesstracker.user.api;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.annotation.Nullable;
+import pl.wsb.fitnesstracker.lookup.api.LookupResult;
+import pl.wsb.fitnesstracker.pagination.api.CursorPage;
+import pl.wsb.fitnesstracker.training.api.TrainingTotalsDto;
+
 import java.time.LocalDate;
 import java.util.List;
 
@@ -42,20 +48,82 @@ public interface UserService {
      */
     User updateUser(Long id, User updatedUser);
 
+    /**
+     * Częściowo aktualizuje użytkownika dokumentem JSON Merge Patch (RFC 7386).
+     *
+     * @param id              identyfikator użytkownika
+     * @param patch           dokument zmian w formacie {@link UserDto}
+     * @param expectedVersion wersja oczekiwana przez klienta ({@code If-Match}) lub {@code null}, jeśli dowolna
+     * @return zaktualizowany użytkownik
+     * @throws UserNotFoundException jeśli użytkownik nie istnieje
+     * @throws pl.wsb.fitnesstracker.exception.api.PreconditionFailedException jeśli wersja użytkownika jest inna niż oczekiwana
+     */
+    User patchUser(Long id, JsonNode patch, @Nullable Long expectedVersion);
+
+    /**
+     * Zwraca stronę użytkowników posortowanych po ID, stronicowaną kursorem.
+     *
+     * @param cursor token kolejnej strony z poprzedniej odpowiedzi lub {@code null} dla pierwszej strony
+     * @param limit  rozmiar strony
+     * @return strona użytkowników wraz z tokenem kolejnej strony
+     */
+    CursorPage<User> findUsersPage(@Nullable String cursor, int limit);
+
     /**
      * Wyszukuje użytkowników, których adres e-mail zawiera podany fragment (niewrażliwy na wielkość liter).
      *
      * @param fragment fragment adresu e-mail
-     * @return lista użytkowników pasujących do wzorca
+     * @param limit    maksymalna liczba zwracanych użytkowników
+     * @return lista użytkowników pasujących do wzorca, posortowana po ID
+     */
+    List<User> findByPartialEmail(String fragment, int limit);
+
+    /**
+     * Podpowiada użytkowników, których imię, nazwisko lub adres e-mail zaczyna się od wpisanego tekstu.
+     *
+     * @param query wpisany tekst (prefiks, opcjonalnie kilka słów)
+     * @param limit maksymalna liczba zwracanych użytkowników
+     * @return lista pasujących użytkowników w kolejności podpowiedzi
      */
-    List<User> findByPartialEmail(String fragment);
+    List<User> suggestUsers(String query, int limit);
+
+    /**
+     * Pobiera użytkowników o podanych identyfikatorach zapytaniami {@code IN (...)} dzielonymi na paczki.
+     *
+     * @param ids identyfikatory użytkowników w kolejności oczekiwanej przez klienta
+     * @return wyniki w kolejności identyfikatorów, z oznaczeniem nieistniejących użytkowników
+     */
+    List<LookupResult<User>> findUsersByIds(List<Long> ids);
 
     /**
      * Zwraca użytkowników starszych niż określony próg wieku,
      * czyli takich, których data urodzenia jest wcześniejsza niż wskazana.
      *
+     * Wyniki są stronicowane i posortowane po dacie urodzenia, a następnie po ID.
+     *
      * @param ageThreshold maksymalna dopuszczalna data urodzenia (np. LocalDate.now().minusYears(18))
-     * @return lista użytkowników spełniających warunek wieku
+     * @param page         numer strony (liczony od zera)
+     * @param size         rozmiar strony
+     * @return lista użytkowników spełniających warunek wieku na wskazanej stronie
+     */
+    List<User> findOlderThan(LocalDate ageThreshold, int page, int size);
+
+    /**
+     * Zlicza użytkowników urodzonych przed wskazaną datą bez pobierania ich danych.
+     *
+     * @param ageThreshold maksymalna dopuszczalna data urodzenia
+     * @return liczba użytkowników spełniających warunek wieku
+     */
+    long countOlderThan(LocalDate ageThreshold);
+
+    /**
+     * Zwraca sumy treningów użytkownika (liczba, dystans, czas trwania) zakończonych w zakresie dni.
+     *
+     * @param id   identyfikator użytkownika
+     * @param from pierwszy dzień zakresu (włącznie)
+     * @param to   ostatni dzień zakresu (wyłącznie)
+     * @return sumy treningów z zakresu
+     * @throws UserNotFoundException jeśli użytkownik nie istnieje
      */
-    List<User> findOlderThan(LocalDate ageThreshold);
+    TrainingTotalsDto getTrainingTotals(Long id, LocalDate from, LocalDate to);
 }
@@ -0,0 +1,111 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import jakarta.annotation.Nullable;
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming reader of CSV records as defined by RFC 4180, one record at a time.
+ *
+ * <p>
+ * Fields are separated by commas and records by CRLF or a bare LF. A field enclosed in double quotes may contain
+ * commas, line breaks and doubled quotes ({@code ""}), so it reads everything written by the CSV export.
+ * Quotes inside an unquoted field and characters after a closing quote are kept as they are.
+ * </p>
+ *
+ * <p>
+ * Not thread-safe.
+ * </p>
+ */
+final class CsvRecordReader {
+
+    private final Reader reader;
+    private int pushedBack = -1;
+    private long line = 1;
+
+    /**
+     * @param reader buffered source of the CSV text, not closed by this reader
+     */
+    CsvRecordReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return the fields of the record, or {@code null} at the end of the input
+     * @throws IOException if the input cannot be read
+     * @throws BusinessException if a quoted field is not closed before the end of the input
+     */
+    @Nullable
+    List<String> next() throws IOException {
+        int c = read();
+        if (c == -1) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean fieldStart = true;
+        long startLine = line;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new BusinessException("Unterminated quoted field starting on CSV line " + startLine);
+                }
+                if (c == '"') {
+                    int following = read();
+                    if (following == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        c = following;
+                        continue;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == -1 || c == '\n') {
+                fields.add(field.toString());
+                return fields;
+            } else if (c == '\r') {
+                int following = read();
+                if (following != '\n') {
+                    pushedBack = following;
+                }
+                fields.add(field.toString());
+                return fields;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                fieldStart = true;
+                c = read();
+                continue;
+            } else if (c == '"' && fieldStart) {
+                quoted = true;
+            } else {
+                field.append((char) c);
+            }
+            fieldStart = false;
+            c = read();
+        }
+    }
+
+    private int read() throws IOException {
+        int c;
+        if (pushedBack != -1) {
+            c = pushedBack;
+            pushedBack = -1;
+        } else {
+            c = reader.read();
+        }
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+}
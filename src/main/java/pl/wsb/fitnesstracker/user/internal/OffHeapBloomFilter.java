@@ -0,0 +1,59 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Filtr Blooma na 64-bitowych skrótach, z tablicą bitów w bezpośrednim {@link ByteBuffer}.
+ *
+ * <p>
+ * Pozycje bitów wyznaczane są podwójnym haszowaniem ({@code h1 + i * h2}) z dwóch połówek skrótu,
+ * więc dodanie i sprawdzenie nie alokują pamięci. Filtr nie obsługuje usuwania - usunięte wpisy
+ * zwiększają jedynie odsetek fałszywych trafień do czasu przebudowy.
+ * Klasa nie jest bezpieczna wątkowo.
+ * </p>
+ */
+final class OffHeapBloomFilter {
+
+    static final int BITS_PER_ENTRY = 10;
+    static final int HASH_COUNT = 7;
+
+    private final ByteBuffer bits;
+    private final long bitMask;
+
+    /**
+     * @param expectedEntries oczekiwana maksymalna liczba wpisów; przy 10 bitach na wpis i 7 funkcjach
+     *                        odsetek fałszywych trafień wynosi ok. 1%
+     */
+    OffHeapBloomFilter(int expectedEntries) {
+        long bitCount = Long.highestOneBit(Math.max(1024L, (long) expectedEntries * BITS_PER_ENTRY - 1)) << 1;
+        this.bits = ByteBuffer.allocateDirect((int) (bitCount / Byte.SIZE)).order(ByteOrder.nativeOrder());
+        this.bitMask = bitCount - 1;
+    }
+
+    void add(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < HASH_COUNT; i++) {
+            long bit = (h1 + (long) i * h2) & bitMask;
+            int word = (int) (bit >>> 6) * Long.BYTES;
+            bits.putLong(word, bits.getLong(word) | (1L << bit));
+        }
+    }
+
+    boolean mightContain(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < HASH_COUNT; i++) {
+            long bit = (h1 + (long) i * h2) & bitMask;
+            if ((bits.getLong((int) (bit >>> 6) * Long.BYTES) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long offHeapBytes() {
+        return bits.capacity();
+    }
+}
@@ -0,0 +1,203 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Tablica mieszająca {@code long -> long} z adresowaniem otwartym (sondowanie liniowe), przechowywana poza stertą.
+ *
+ * <p>
+ * Każdy slot zajmuje 16 bajtów bezpośredniego {@link ByteBuffer} (klucz i wartość), więc wpisy nie tworzą
+ * obiektów na stercie i nie obciążają GC. Klucz {@code 0} oznacza pusty slot, a {@link Long#MIN_VALUE}
+ * slot usunięty - obu wartości nie można używać jako kluczy. Tablica jest przebudowywana do większej,
+ * gdy zajętość (łącznie z usuniętymi slotami) przekroczy połowę pojemności.
+ * </p>
+ *
+ * <p>
+ * Klasa nie jest bezpieczna wątkowo - synchronizację zapewnia właściciel.
+ * </p>
+ */
+final class OffHeapLongMap {
+
+    static final long MISSING = 0L;
+
+    private static final long EMPTY = 0L;
+    private static final long DELETED = Long.MIN_VALUE;
+    private static final int SLOT_BYTES = 2 * Long.BYTES;
+    private static final int MIN_CAPACITY = 1024;
+    private static final int MAX_CAPACITY = 1 << 26;
+
+    private ByteBuffer slots;
+    private int capacity;
+    private int size;
+    private int used;
+
+    OffHeapLongMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Zapisuje wartość dla klucza.
+     *
+     * @param key   klucz (różny od {@code 0} i {@link Long#MIN_VALUE})
+     * @param value wartość (różna od {@link #MISSING})
+     * @return poprzednia wartość lub {@link #MISSING}
+     */
+    long put(long key, long value) {
+        checkKey(key);
+        if (used + 1 > capacity / 2) {
+            resize();
+        }
+        int mask = capacity - 1;
+        int firstDeleted = -1;
+        for (int slot = index(key, mask); ; slot = (slot + 1) & mask) {
+            long current = keyAt(slot);
+            if (current == key) {
+                long previous = valueAt(slot);
+                write(slot, key, value);
+                return previous;
+            }
+            if (current == DELETED && firstDeleted < 0) {
+                firstDeleted = slot;
+            } else if (current == EMPTY) {
+                if (firstDeleted >= 0) {
+                    slot = firstDeleted;
+                } else {
+                    used++;
+                }
+                write(slot, key, value);
+                size++;
+                return MISSING;
+            }
+        }
+    }
+
+    /**
+     * @param key klucz
+     * @return wartość dla klucza lub {@link #MISSING}
+     */
+    long get(long key) {
+        checkKey(key);
+        int slot = find(key);
+        return slot < 0 ? MISSING : valueAt(slot);
+    }
+
+    /**
+     * Usuwa klucz, pozostawiając w slocie znacznik usunięcia, aby nie przerwać łańcuchów sondowania.
+     *
+     * @param key klucz
+     * @return usunięta wartość lub {@link #MISSING}
+     */
+    long remove(long key) {
+        checkKey(key);
+        int slot = find(key);
+        if (slot < 0) {
+            return MISSING;
+        }
+        long previous = valueAt(slot);
+        write(slot, DELETED, MISSING);
+        size--;
+        return previous;
+    }
+
+    /**
+     * Wywołuje funkcję dla każdego wpisu; wynik funkcji jest ignorowany.
+     *
+     * @param consumer funkcja otrzymująca klucz i wartość
+     */
+    void forEach(LongBinaryOperator consumer) {
+        for (int slot = 0; slot < capacity; slot++) {
+            long key = keyAt(slot);
+            if (key != EMPTY && key != DELETED) {
+                consumer.applyAsLong(key, valueAt(slot));
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    long offHeapBytes() {
+        return (long) capacity * SLOT_BYTES;
+    }
+
+    private int find(long key) {
+        int mask = capacity - 1;
+        for (int slot = index(key, mask); ; slot = (slot + 1) & mask) {
+            long current = keyAt(slot);
+            if (current == key) {
+                return slot;
+            }
+            if (current == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    private void resize() {
+        int newCapacity = MIN_CAPACITY;
+        while (newCapacity < (size + 1) * 3L && newCapacity < MAX_CAPACITY) {
+            newCapacity <<= 1;
+        }
+        if (newCapacity == MAX_CAPACITY && size + 1 > MAX_CAPACITY / 2) {
+            throw new IllegalStateException("Off-heap map is full: " + size + " entries");
+        }
+        ByteBuffer oldSlots = slots;
+        int oldCapacity = capacity;
+        allocate(newCapacity);
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            long key = oldSlots.getLong(slot * SLOT_BYTES);
+            if (key != EMPTY && key != DELETED) {
+                put(key, oldSlots.getLong(slot * SLOT_BYTES + Long.BYTES));
+            }
+        }
+    }
+
+    private void allocate(int newCapacity) {
+        slots = ByteBuffer.allocateDirect(newCapacity * SLOT_BYTES).order(ByteOrder.nativeOrder());
+        capacity = newCapacity;
+        size = 0;
+        used = 0;
+    }
+
+    private long keyAt(int slot) {
+        return slots.getLong(slot * SLOT_BYTES);
+    }
+
+    private long valueAt(int slot) {
+        return slots.getLong(slot * SLOT_BYTES + Long.BYTES);
+    }
+
+    private void write(int slot, long key, long value) {
+        slots.putLong(slot * SLOT_BYTES, key);
+        slots.putLong(slot * SLOT_BYTES + Long.BYTES, value);
+    }
+
+    private static int index(long key, int mask) {
+        return (int) mix(key) & mask;
+    }
+
+    private static void checkKey(long key) {
+        if (key == EMPTY || key == DELETED) {
+            throw new IllegalArgumentException("Reserved key: " + key);
+        }
+    }
+
+    /**
+     * Finalizer funkcji MurmurHash3 - rozprasza bity kluczy sekwencyjnych (np. kolejnych ID) po całej tablicy.
+     */
+    static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,118 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import pl.wsb.fitnesstracker.user.api.User;
+import pl.wsb.fitnesstracker.user.api.UserChangedEvent;
+
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Ograniczony rozmiarem i czasem życia cache użytkowników, indeksowany po ID oraz po adresie e-mail.
+ *
+ * <p>
+ * Oparty na Caffeine (polityka wymiany W-TinyLFU). Cache e-mail przechowuje jedynie odwzorowanie
+ * adresu (małymi literami) na ID, a encja zawsze pochodzi z cache ID - dzięki temu unieważnienie
+ * wpisu po ID wystarcza, a nieaktualne odwzorowanie e-mail jest wykrywane przy odczycie.
+ * Wpisy są unieważniane po zatwierdzeniu transakcji, która zaktualizowała lub usunęła użytkownika
+ * ({@link UserChangedEvent}), więc wycofana zmiana nie usuwa aktualnego wpisu, a odczyt w trakcie zmiany
+ * nie zapamiętuje go ponownie po unieważnieniu. Cache przechowuje własne kopie encji i przy każdym odczycie
+ * zwraca nową kopię, więc zmiana zwróconego obiektu przez wywołującego nie wpływa na zawartość cache.
+ * Statystyki trafień, chybień i usunięć są publikowane w Micrometer jako metryki {@code cache.*}
+ * z tagiem {@code cache=users.byId} oraz {@code cache=users.byEmail}.
+ * </p>
+ */
+@Component
+class UserCache {
+
+    private final Cache<Long, User> byId;
+    private final Cache<String, Long> idByEmail;
+
+    UserCache(UserCacheProperties properties, MeterRegistry meterRegistry) {
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+        this.idByEmail = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, "users.byId");
+        CaffeineCacheMetrics.monitor(meterRegistry, idByEmail, "users.byEmail");
+    }
+
+    /**
+     * Zwraca użytkownika z cache lub ładuje go przekazaną funkcją. Brak użytkownika nie jest zapamiętywany.
+     *
+     * @param id     identyfikator użytkownika
+     * @param loader funkcja ładująca użytkownika z bazy
+     * @return znaleziony użytkownik
+     */
+    Optional<User> getById(Long id, Function<Long, Optional<User>> loader) {
+        return Optional.ofNullable(byId.get(id, key -> loader.apply(key).map(User::copy).orElse(null)))
+                .map(User::copy);
+    }
+
+    /**
+     * Zwraca użytkownika o podanym adresie e-mail (bez względu na wielkość liter) z cache lub ładuje go przekazaną funkcją.
+     *
+     * @param email      adres e-mail
+     * @param loader     funkcja ładująca użytkownika po adresie e-mail
+     * @param byIdLoader funkcja ładująca użytkownika po ID, używana przy nieobecności encji w cache ID
+     * @return znaleziony użytkownik
+     */
+    Optional<User> getByEmail(String email,
+                              Function<String, Optional<User>> loader,
+                              Function<Long, Optional<User>> byIdLoader) {
+        String key = normalize(email);
+        Long cachedId = idByEmail.getIfPresent(key);
+        if (cachedId != null) {
+            Optional<User> cached = getById(cachedId, byIdLoader)
+                    .filter(user -> normalize(user.getEmail()).equals(key));
+            if (cached.isPresent()) {
+                return cached;
+            }
+            idByEmail.invalidate(key);
+        }
+        Optional<User> loaded = loader.apply(email);
+        loaded.ifPresent(user -> {
+            byId.put(user.getId(), user.copy());
+            idByEmail.put(key, user.getId());
+        });
+        return loaded;
+    }
+
+    /**
+     * Usuwa z cache wszystkie wpisy dotyczące użytkownika.
+     *
+     * @param user użytkownik, którego dane uległy zmianie
+     */
+    void evict(User user) {
+        User cached = byId.getIfPresent(user.getId());
+        byId.invalidate(user.getId());
+        idByEmail.invalidate(normalize(user.getEmail()));
+        if (cached != null) {
+            idByEmail.invalidate(normalize(cached.getEmail()));
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    void onUserChanged(UserChangedEvent event) {
+        if (event.change() != UserChangedEvent.Change.CREATED && event.user().getId() != null) {
+            evict(event.user());
+        }
+    }
+
+    private static String normalize(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+}
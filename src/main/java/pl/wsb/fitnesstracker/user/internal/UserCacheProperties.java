@@ -0,0 +1,30 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import lombok.Getter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the {@link UserCache}.
+ */
+@ConfigurationProperties(prefix = "users.cache")
+@Getter
+class UserCacheProperties {
+
+    /**
+     * Maximum number of entries kept in each of the caches (by ID and by email).
+     */
+    private final long maximumSize;
+
+    /**
+     * Time after which a cached user is reloaded from the database, regardless of invalidation.
+     */
+    private final Duration ttl;
+
+    UserCacheProperties(@DefaultValue("10000") long maximumSize, @DefaultValue("10m") Duration ttl) {
+        this.maximumSize = maximumSize;
+        this.ttl = ttl;
+    }
+}
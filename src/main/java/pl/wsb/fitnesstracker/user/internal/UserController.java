@@ -1,12 +1,28 @@
 package pl.wsb.fitnesstracker.user.internal;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.annotation.Nullable;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import pl.wsb.fitnesstracker.pagination.api.CursorPage;
+import pl.wsb.fitnesstracker.patch.api.EntityTag;
+import pl.wsb.fitnesstracker.patch.api.JsonMergePatch;
+import pl.wsb.fitnesstracker.training.api.TrainingTotalsDto;
 import pl.wsb.fitnesstracker.user.api.SimpleUserDto;
 import pl.wsb.fitnesstracker.user.api.UserDto;
 import pl.wsb.fitnesstracker.user.api.UserEmailDto;
+import pl.wsb.fitnesstracker.user.api.UserImportResultDto;
+import pl.wsb.fitnesstracker.lookup.api.IdBatches;
+import pl.wsb.fitnesstracker.lookup.api.LookupResult;
+import pl.wsb.fitnesstracker.version.api.ChangeVersions;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -21,54 +37,148 @@ public class UserController {
 
     private final UserServiceImpl userService;
     private final UserMapper userMapper;
+    private final UserImportService userImportService;
+    private final ChangeVersions changeVersions;
 
     /**
-     * Zwraca wszystkich użytkowników.
+     * Zwraca pierwszych użytkowników posortowanych po ID, najwyżej {@code limit}.
+     * Jeśli użytkowników jest więcej, nagłówek {@code Link} z {@code rel="next"} wskazuje kolejną stronę
+     * w {@code /v1/users/page}, więc odpowiedź nigdy nie obejmuje całej tabeli.
+     * @param limit maksymalna liczba użytkowników (domyślnie 50, maksymalnie 500)
      * @return lista użytkowników
+     * @deprecated należy używać {@code /v1/users/page}
      */
+    @Deprecated
     @GetMapping
-    public List<UserDto> getAllUsers() {
-        return userService.findAllUsers()
+    public ResponseEntity<List<UserDto>> getAllUsers(@RequestParam(defaultValue = "" + CursorPage.DEFAULT_LIMIT) int limit) {
+        CursorPage<UserDto> page = userService.findUsersPage(null, limit).map(userMapper::toDto);
+        return withNextLink(ResponseEntity.ok(), page, "/v1/users/page", limit).body(page.items());
+    }
+
+    /**
+     * Zwraca użytkowników o podanych identyfikatorach w jednym żądaniu (np. {@code ?ids=1,2,3}).
+     * Wyniki są w kolejności z żądania, a nieistniejący użytkownicy oznaczeni są flagą {@code found = false}.
+     * @param ids identyfikatory użytkowników (maksymalnie {@value IdBatches#MAX_IDS})
+     * @return lista wyników w kolejności identyfikatorów
+     */
+    @GetMapping(params = "ids")
+    public List<LookupResult<UserDto>> getUsersByIds(@RequestParam List<Long> ids) {
+        return userService.findUsersByIds(ids)
                 .stream()
-                .map(userMapper::toDto)
+                .map(result -> result.map(userMapper::toDto))
                 .toList();
     }
 
     /**
-     * Zwraca listę podstawowych informacji o wszystkich użytkownikach zapisanych w systemie.
+     * Zwraca podstawowe informacje o pierwszych użytkownikach posortowanych po ID, najwyżej {@code limit}.
      * Każdy obiekt w liście zawiera jedynie identyfikator użytkownika oraz jego nazwę (np. imię i nazwisko lub login).
      * Endpoint służy do prezentacji uproszczonych danych użytkowników, bez ujawniania danych wrażliwych.
+     * Jeśli użytkowników jest więcej, nagłówek {@code Link} z {@code rel="next"} wskazuje kolejną stronę
+     * w {@code /v1/users/simple/page}.
+     * Odpowiedź zawiera ETag wersji tabeli użytkowników; jeśli klient prześle go w nagłówku {@code If-None-Match},
+     * a dane się nie zmieniły, zwracany jest kod 304 bez odpytywania bazy danych.
+     * @param limit maksymalna liczba użytkowników (domyślnie 50, maksymalnie 500)
+     * @param request bieżące żądanie (do obsługi żądań warunkowych)
      * @return lista użytkowników w postaci obiektów {@link SimpleUserDto}, zawierających tylko ID i nazwę użytkownika
+     * @deprecated należy używać {@code /v1/users/simple/page}
      */
+    @Deprecated
     @GetMapping("/simple")
-    public List<SimpleUserDto> getSimpleUsers() {
-        return userService.findAllUsers().stream()
-                .map(userMapper::toSimpleDto)
-                .toList();
+    public ResponseEntity<List<SimpleUserDto>> getSimpleUsers(@RequestParam(defaultValue = "" + CursorPage.DEFAULT_LIMIT) int limit,
+                                                              WebRequest request) {
+        String etag = changeVersions.etag(ChangeVersions.Dataset.USERS) + "-" + CursorPage.boundedLimit(limit);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        CursorPage<SimpleUserDto> page = userService.findUsersPage(null, limit).map(userMapper::toSimpleDto);
+        return withNextLink(ResponseEntity.ok().eTag(etag), page, "/v1/users/simple/page", limit).body(page.items());
+    }
+
+    /**
+     * Zwraca stronę użytkowników posortowanych po ID (stronicowanie kursorem).
+     * Aby pobrać kolejną stronę, należy przekazać {@code nextCursor} z poprzedniej odpowiedzi.
+     * @param cursor token kolejnej strony (pomijany dla pierwszej strony)
+     * @param limit rozmiar strony (domyślnie 50, maksymalnie 500)
+     * @return strona użytkowników w postaci {@link UserDto}
+     */
+    @GetMapping("/page")
+    public CursorPage<UserDto> getUsersPage(@RequestParam(required = false) @Nullable String cursor,
+                                            @RequestParam(defaultValue = "" + CursorPage.DEFAULT_LIMIT) int limit) {
+        return userService.findUsersPage(cursor, limit).map(userMapper::toDto);
     }
 
+    /**
+     * Zwraca stronę uproszczonych danych użytkowników (stronicowanie kursorem).
+     * @param cursor token kolejnej strony (pomijany dla pierwszej strony)
+     * @param limit rozmiar strony (domyślnie 50, maksymalnie 500)
+     * @return strona użytkowników w postaci {@link SimpleUserDto}
+     */
+    @GetMapping("/simple/page")
+    public CursorPage<SimpleUserDto> getSimpleUsersPage(@RequestParam(required = false) @Nullable String cursor,
+                                                        @RequestParam(defaultValue = "" + CursorPage.DEFAULT_LIMIT) int limit) {
+        return userService.findUsersPage(cursor, limit).map(userMapper::toSimpleDto);
+    }
 
     /**
      * Pobiera szczegóły użytkownika na podstawie jego identyfikatora.
+     * Odpowiedź zawiera ETag z wersją rekordu, którego można użyć w nagłówku {@code If-Match} przy {@code PATCH}.
+     * Obsługuje żądania warunkowe ({@code If-None-Match}) - przy niezmienionym rekordzie zwraca 304 bez treści.
      * @param id identyfikator użytkownika
+     * @param request bieżące żądanie (do obsługi żądań warunkowych)
      * @return obiekt {@link UserDto} jeśli użytkownik istnieje, w przeciwnym razie kod odpowiedzi 404 (Not Found)
      */
     @GetMapping("/{id}")
-    public ResponseEntity<UserDto> getUserById(@PathVariable Long id) {
-        return userService.getUser(id)
+    public ResponseEntity<UserDto> getUserById(@PathVariable Long id, WebRequest request) {
+        var user = userService.getUser(id);
+        if (user.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        String etag = EntityTag.of(user.get().getVersion());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(userMapper.toDto(user.get()));
+    }
+
+    /**
+     * Zwraca sumy treningów użytkownika (liczba, dystans, czas trwania) zakończonych w zakresie dni, według dnia zakończenia w UTC.
+     * Dowolny zakres liczony jest w czasie logarytmicznym, bez pobierania historii treningów.
+     * @param id identyfikator użytkownika
+     * @param from pierwszy dzień zakresu w formacie YYYY-MM-DD (włącznie)
+     * @param to ostatni dzień zakresu w formacie YYYY-MM-DD (wyłącznie)
+     * @return sumy treningów z zakresu lub kod odpowiedzi 404 (Not Found), jeśli użytkownik nie istnieje
+     */
+    @GetMapping("/{id}/totals")
+    public TrainingTotalsDto getTrainingTotals(@PathVariable Long id,
+                                               @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                               @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return userService.getTrainingTotals(id, from, to);
+    }
+
+    /**
+     * Podpowiada użytkowników w trakcie pisania - dopasowuje prefiks imienia, nazwiska lub adresu e-mail.
+     * @param q wpisany tekst
+     * @param limit maksymalna liczba podpowiedzi (domyślnie 10)
+     * @return lista pasujących użytkowników (pusta, jeśli brak dopasowań)
+     */
+    @GetMapping("/suggest")
+    public List<UserDto> suggestUsers(@RequestParam String q,
+                                      @RequestParam(defaultValue = "10") int limit) {
+        return userService.suggestUsers(q, limit).stream()
                 .map(userMapper::toDto)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+                .toList();
     }
 
     /**
      * Wyszukuje użytkowników zawierających podany fragment adresu e-mail (ignorując wielkość liter).
      * @param email fragment adresu e-mail
+     * @param limit maksymalna liczba wyników (domyślnie 50)
      * @return lista dopasowanych użytkowników w postaci {@link UserEmailDto} (tylko ID i adres e-mail), lub kod 404, jeśli brak wyników
      */
     @GetMapping("/email")
-    public ResponseEntity<List<UserEmailDto>> getUserByEmail(@RequestParam String email) {
-        var users = userService.findByPartialEmail(email).stream()
+    public ResponseEntity<List<UserEmailDto>> getUserByEmail(@RequestParam String email,
+                                                             @RequestParam(defaultValue = "50") int limit) {
+        var users = userService.findByPartialEmail(email, limit).stream()
                 .map(userMapper::toEmailDto)
                 .toList();
 
@@ -83,16 +193,30 @@ public class UserController {
     /**
      * Wyszukuje użytkowników starszych niż podany wiek.
      * @param date wiek minimalny
-     * @return pasujący użytkownicy
+     * @param page numer strony liczony od zera (domyślnie 0)
+     * @param size rozmiar strony (domyślnie 100)
+     * @return pasujący użytkownicy ze wskazanej strony
      */
     @GetMapping("/older/{date}")
-    public List<UserDto> findOlderThanDate(@PathVariable("date") LocalDate date) {
-        return userService.findOlderThan(date)
+    public List<UserDto> findOlderThanDate(@PathVariable("date") LocalDate date,
+                                           @RequestParam(defaultValue = "0") int page,
+                                           @RequestParam(defaultValue = "100") int size) {
+        return userService.findOlderThan(date, page, size)
                 .stream()
                 .map(userMapper::toDto)
                 .toList();
     }
 
+    /**
+     * Zwraca liczbę użytkowników starszych niż podany wiek, bez pobierania ich danych.
+     * @param date wiek minimalny
+     * @return liczba pasujących użytkowników
+     */
+    @GetMapping("/older/{date}/count")
+    public long countOlderThanDate(@PathVariable("date") LocalDate date) {
+        return userService.countOlderThan(date);
+    }
+
     /**
      * Tworzy nowego użytkownika.
      * @param userDto dane nowego użytkownika
@@ -104,6 +228,30 @@ public class UserController {
         return ResponseEntity.status(201).body(userMapper.toDto(created));
     }
 
+    /**
+     * Importuje wielu użytkowników z tablicy JSON (w formacie {@link UserDto}).
+     * Wiersze z zajętym lub powtórzonym adresem e-mail są odrzucane bez przerywania importu.
+     * @param body strumień z tablicą JSON użytkowników
+     * @return podsumowanie importu z listą odrzuconych wierszy
+     * @throws IOException jeśli nie udało się odczytać treści żądania
+     */
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public UserImportResultDto importUsersFromJson(InputStream body) throws IOException {
+        return userImportService.importJson(body);
+    }
+
+    /**
+     * Importuje wielu użytkowników z pliku CSV z nagłówkiem {@code firstName,lastName,birthdate,email}.
+     * Wiersze z zajętym lub powtórzonym adresem e-mail są odrzucane bez przerywania importu.
+     * @param body strumień danych CSV
+     * @return podsumowanie importu z listą odrzuconych wierszy
+     * @throws IOException jeśli nie udało się odczytać treści żądania
+     */
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public UserImportResultDto importUsersFromCsv(InputStream body) throws IOException {
+        return userImportService.importCsv(body);
+    }
+
     /**
      * Usuwa użytkownika o podanym identyfikatorze.
      * Sprawdza, czy użytkownik o danym ID istnieje, a jeśli tak, usuwa go wraz z powiązanymi danymi.
@@ -134,4 +282,29 @@ public class UserController {
         var updated = userService.updateUser(id, userMapper.toEntity(userDto));
         return ResponseEntity.ok(userMapper.toDto(updated));
     }
+
+    /**
+     * Częściowo aktualizuje użytkownika dokumentem JSON Merge Patch - zmieniane są tylko przesłane pola,
+     * a pole o wartości {@code null} jest usuwane (dla pól wymaganych kończy się to kodem 400).
+     * Jeśli przesłano nagłówek {@code If-Match}, a użytkownik został w międzyczasie zmieniony, zwracany jest kod 412.
+     * @param id identyfikator użytkownika
+     * @param ifMatch ETag wersji, na podstawie której klient przygotował zmiany (opcjonalny)
+     * @param patch dokument zmian
+     * @return zaktualizowany użytkownik wraz z nowym ETagiem
+     */
+    @PatchMapping(value = "/{id}", consumes = JsonMergePatch.MEDIA_TYPE)
+    public ResponseEntity<UserDto> patchUser(@PathVariable Long id,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) @Nullable String ifMatch,
+                                             @RequestBody JsonNode patch) {
+        var patched = userService.patchUser(id, patch, EntityTag.expectedVersion(ifMatch));
+        return ResponseEntity.ok()
+                .eTag(EntityTag.of(patched.getVersion()))
+                .body(userMapper.toDto(patched));
+    }
+
+    private static ResponseEntity.BodyBuilder withNextLink(ResponseEntity.BodyBuilder response, CursorPage<?> page,
+                                                           String path, int limit) {
+        String link = page.nextLink(path, limit);
+        return link == null ? response : response.header(HttpHeaders.LINK, link);
+    }
 }
@@ -0,0 +1,274 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import pl.wsb.fitnesstracker.user.api.User;
+import pl.wsb.fitnesstracker.user.api.UserChangedEvent;
+import pl.wsb.fitnesstracker.user.api.UserEmailDto;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Trigramowy indeks adresów e-mail użytkowników utrzymywany w pamięci.
+ *
+ * <p>
+ * Każdy adres (po sprowadzeniu do małych liter) rozbijany jest na nakładające się fragmenty
+ * trzyznakowe, a dla każdego trigramu przechowywana jest posortowana lista identyfikatorów użytkowników.
+ * Wyszukiwanie fragmentu sprowadza się do przecięcia list dla trigramów zapytania, zaczynając od najkrótszej,
+ * więc koszt zależy od selektywności fragmentu, a nie od liczby użytkowników w tabeli.
+ * </p>
+ *
+ * <p>
+ * Indeks jest odbudowywany z bazy przy starcie aplikacji i aktualizowany na podstawie {@link UserChangedEvent}
+ * po zatwierdzeniu transakcji, więc wycofana zmiana adresu lub usunięcie nie zmieniają indeksu. Wyniki są jedynie
+ * kandydatami - ostateczne encje pobierane są z bazy po identyfikatorach.
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+class UserEmailIndex {
+
+    static final int GRAM_LENGTH = 3;
+
+    private final UserRepository userRepository;
+
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final NavigableMap<Long, String> emails = new TreeMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Wczytuje do indeksu wszystkie adresy e-mail zapisane w bazie.
+     * Istniejące wpisy nie są czyszczone, aby nie zgubić zmian opublikowanych w trakcie odbudowy.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void rebuild() {
+        List<UserEmailDto> all = userRepository.findAllEmails();
+        all.forEach(user -> put(user.id(), user.email()));
+        log.info("User email index built with {} entries and {} trigrams", all.size(), trigramCount());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    void onUserChanged(UserChangedEvent event) {
+        User user = event.user();
+        if (event.change() == UserChangedEvent.Change.DELETED) {
+            remove(user.getId());
+        } else {
+            put(user.getId(), user.getEmail());
+        }
+    }
+
+    /**
+     * Dodaje lub aktualizuje wpis użytkownika w indeksie.
+     *
+     * @param id    identyfikator użytkownika
+     * @param email aktualny adres e-mail
+     */
+    void put(Long id, String email) {
+        if (id == null || email == null) {
+            return;
+        }
+        String normalized = normalize(email);
+        lock.writeLock().lock();
+        try {
+            String previous = emails.put(id, normalized);
+            if (normalized.equals(previous)) {
+                return;
+            }
+            if (previous != null) {
+                removePostings(id, previous);
+            }
+            for (String gram : trigrams(normalized)) {
+                postings.computeIfAbsent(gram, key -> new PostingList()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Usuwa użytkownika z indeksu.
+     *
+     * @param id identyfikator użytkownika
+     */
+    void remove(Long id) {
+        if (id == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            String previous = emails.remove(id);
+            if (previous != null) {
+                removePostings(id, previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Zwraca identyfikatory użytkowników, których adres e-mail zawiera podany fragment (bez względu na wielkość liter).
+     * Wyniki są posortowane rosnąco po ID i ograniczone do {@code limit} pozycji.
+     *
+     * @param fragment szukany fragment adresu e-mail
+     * @param limit    maksymalna liczba wyników
+     * @return lista identyfikatorów pasujących użytkowników
+     */
+    List<Long> search(String fragment, int limit) {
+        String needle = normalize(fragment);
+        lock.readLock().lock();
+        try {
+            if (needle.length() < GRAM_LENGTH) {
+                return scan(needle, limit);
+            }
+            return intersect(needle, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return emails.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int trigramCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Long> scan(String needle, int limit) {
+        List<Long> result = new ArrayList<>();
+        for (Map.Entry<Long, String> entry : emails.entrySet()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (entry.getValue().contains(needle)) {
+                result.add(entry.getKey());
+            }
+        }
+        return result;
+    }
+
+    private List<Long> intersect(String needle, int limit) {
+        List<PostingList> lists = new ArrayList<>();
+        for (String gram : trigrams(needle)) {
+            PostingList list = postings.get(gram);
+            if (list == null) {
+                return List.of();
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(PostingList::size));
+
+        PostingList smallest = lists.get(0);
+        List<Long> result = new ArrayList<>();
+        for (int i = 0; i < smallest.size() && result.size() < limit; i++) {
+            long id = smallest.get(i);
+            if (containsInAll(lists, id) && emails.get(id).contains(needle)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    private static boolean containsInAll(List<PostingList> lists, long id) {
+        for (int i = 1; i < lists.size(); i++) {
+            if (!lists.get(i).contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void removePostings(Long id, String email) {
+        for (String gram : trigrams(email)) {
+            PostingList list = postings.get(gram);
+            if (list != null && list.remove(id) && list.size() == 0) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    private static Set<String> trigrams(String value) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= value.length(); i++) {
+            grams.add(value.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Posortowana rosnąco lista identyfikatorów oparta na tablicy prymitywów.
+     * Nowi użytkownicy dostają rosnące ID, więc dodanie jest zazwyczaj dopisaniem na końcu.
+     */
+    private static final class PostingList {
+
+        private long[] ids = new long[4];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        long get(int index) {
+            return ids[index];
+        }
+
+        boolean contains(long id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        void add(long id) {
+            if (size > 0 && ids[size - 1] < id) {
+                ensureCapacity();
+                ids[size++] = id;
+                return;
+            }
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                return;
+            }
+            int insertAt = -position - 1;
+            ensureCapacity();
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+            return true;
+        }
+
+        private void ensureCapacity() {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+        }
+    }
+}
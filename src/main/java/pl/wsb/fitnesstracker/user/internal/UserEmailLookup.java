@@ -0,0 +1,203 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import pl.wsb.fitnesstracker.user.api.User;
+import pl.wsb.fitnesstracker.user.api.UserChangedEvent;
+import pl.wsb.fitnesstracker.user.api.UserEmailDto;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.OptionalLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Indeks adresów e-mail użytkowników poza stertą, z filtrem Blooma przed tablicą mieszającą.
+ *
+ * <p>
+ * Adres (małymi literami) jest sprowadzany do 64-bitowego skrótu. Filtr Blooma odrzuca większość
+ * nieistniejących adresów bez dostępu do tablicy, a {@link OffHeapLongMap} odwzorowuje skrót na ID użytkownika.
+ * Druga tablica ({@code ID -> skrót}) pozwala usunąć poprzedni adres przy zmianie lub usunięciu użytkownika.
+ * Ponieważ przechowywany jest tylko skrót, trafienie jest kandydatem, który wywołujący weryfikuje z encją.
+ * Kolizja 64-bitowych skrótów jest praktycznie wykluczona, a ewentualną błędną odpowiedź i tak zatrzymuje
+ * ograniczenie unikalności kolumny {@code email} w bazie.
+ * </p>
+ *
+ * <p>
+ * Indeks jest odbudowywany z bazy przy starcie aplikacji i aktualizowany na podstawie {@link UserChangedEvent}
+ * po zatwierdzeniu transakcji, więc wycofane wstawienie lub usunięcie nie zaburza wstępnego sprawdzania unikalności.
+ * Zapisy z pominięciem JPA (np. bezpośredni SQL) nie są widoczne do kolejnej odbudowy.
+ * Zajętość pamięci poza stertą i liczba wpisów publikowane są jako metryki {@code users.email.index.memory}
+ * oraz {@code users.email.index.size}.
+ * </p>
+ */
+@Component
+@Slf4j
+class UserEmailLookup {
+
+    private final UserRepository userRepository;
+
+    private final OffHeapLongMap idByHash = new OffHeapLongMap();
+    private final OffHeapLongMap hashById = new OffHeapLongMap();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private OffHeapBloomFilter bloomFilter;
+    private int bloomCapacity;
+
+    UserEmailLookup(UserRepository userRepository, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        rebuildBloomFilter();
+        Gauge.builder("users.email.index.memory", this, UserEmailLookup::offHeapBytes)
+                .description("Off-heap memory held by the user email index and its Bloom filter")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("users.email.index.size", this, UserEmailLookup::size)
+                .description("Number of emails in the off-heap user email index")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Wczytuje do indeksu wszystkie adresy e-mail zapisane w bazie.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void rebuild() {
+        List<UserEmailDto> all = userRepository.findAllEmails();
+        all.forEach(user -> put(user.id(), user.email()));
+        log.info("Off-heap user email index built with {} entries, {} KiB", size(), offHeapBytes() / 1024);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    void onUserChanged(UserChangedEvent event) {
+        User user = event.user();
+        if (event.change() == UserChangedEvent.Change.DELETED) {
+            remove(user.getId());
+        } else {
+            put(user.getId(), user.getEmail());
+        }
+    }
+
+    /**
+     * Zwraca ID użytkownika, do którego prawdopodobnie należy adres e-mail.
+     * Pusty wynik oznacza, że adresu nie ma w indeksie - w większości przypadków rozstrzyga to sam filtr Blooma.
+     *
+     * @param email adres e-mail (bez względu na wielkość liter)
+     * @return ID kandydata do weryfikacji lub pusty wynik
+     */
+    OptionalLong findId(String email) {
+        if (email == null) {
+            return OptionalLong.empty();
+        }
+        long hash = hash(email);
+        lock.readLock().lock();
+        try {
+            if (!bloomFilter.mightContain(hash)) {
+                return OptionalLong.empty();
+            }
+            long id = idByHash.get(hash);
+            return id == OffHeapLongMap.MISSING ? OptionalLong.empty() : OptionalLong.of(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Dodaje lub aktualizuje adres e-mail użytkownika, usuwając jego poprzedni adres.
+     *
+     * @param id    identyfikator użytkownika
+     * @param email aktualny adres e-mail
+     */
+    void put(Long id, String email) {
+        if (id == null || email == null) {
+            return;
+        }
+        long hash = hash(email);
+        lock.writeLock().lock();
+        try {
+            long previous = hashById.put(id, hash);
+            if (previous != OffHeapLongMap.MISSING && previous != hash && idByHash.get(previous) == id) {
+                idByHash.remove(previous);
+            }
+            idByHash.put(hash, id);
+            if (idByHash.capacity() != bloomCapacity) {
+                rebuildBloomFilter();
+            } else {
+                bloomFilter.add(hash);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Usuwa użytkownika z indeksu. Bity filtra Blooma pozostają do jego przebudowy.
+     *
+     * @param id identyfikator użytkownika
+     */
+    void remove(Long id) {
+        if (id == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            long hash = hashById.remove(id);
+            if (hash != OffHeapLongMap.MISSING && idByHash.get(hash) == id) {
+                idByHash.remove(hash);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return idByHash.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long offHeapBytes() {
+        lock.readLock().lock();
+        try {
+            return idByHash.offHeapBytes() + hashById.offHeapBytes() + bloomFilter.offHeapBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Tworzy filtr Blooma dopasowany do bieżącej pojemności tablicy (maksymalnie połowa slotów jest zajęta)
+     * i wypełnia go aktualnymi wpisami, co przy okazji usuwa bity usuniętych adresów.
+     */
+    private void rebuildBloomFilter() {
+        OffHeapBloomFilter rebuilt = new OffHeapBloomFilter(idByHash.capacity() / 2);
+        idByHash.forEach((hash, id) -> {
+            rebuilt.add(hash);
+            return hash;
+        });
+        bloomFilter = rebuilt;
+        bloomCapacity = idByHash.capacity();
+    }
+
+    /**
+     * 64-bitowy skrót FNV-1a adresu sprowadzonego do małych liter, z końcowym rozproszeniem bitów.
+     * Wartości zarezerwowane przez {@link OffHeapLongMap} są zastępowane stałą.
+     */
+    static long hash(String email) {
+        String normalized = email.toLowerCase(Locale.ROOT);
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < normalized.length(); i++) {
+            hash ^= normalized.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash = OffHeapLongMap.mix(hash);
+        return hash == 0L || hash == Long.MIN_VALUE ? 0x9e3779b97f4a7c15L : hash;
+    }
+}
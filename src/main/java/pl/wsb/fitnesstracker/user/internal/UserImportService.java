@@ -0,0 +1,261 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.Nullable;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+import pl.wsb.fitnesstracker.user.api.UserDto;
+import pl.wsb.fitnesstracker.user.api.UserImportErrorDto;
+import pl.wsb.fitnesstracker.user.api.UserImportResultDto;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Service importing large numbers of users from a JSON array or a CSV stream.
+ *
+ * <p>
+ * Input is parsed incrementally and persisted in chunks of {@value #CHUNK_SIZE} rows, each in its own
+ * transaction. Thanks to sequence-generated IDs Hibernate sends a chunk as JDBC batch inserts,
+ * after which the persistence context is flushed and cleared, so memory use does not grow with the input.
+ * Rows whose email, compared case-insensitively, is already registered or repeated in the input are rejected and reported
+ * without aborting the rest of the import.
+ * </p>
+ */
+@Service
+@Slf4j
+class UserImportService {
+
+    static final int CHUNK_SIZE = 500;
+
+    private static final List<String> CSV_COLUMNS = List.of("firstName", "lastName", "birthdate", "email");
+    private static final String CSV_IGNORED_COLUMN = "id";
+
+    private final UserRepository userRepository;
+    private final UserMapper userMapper;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    UserImportService(UserRepository userRepository,
+                      UserMapper userMapper,
+                      ObjectMapper objectMapper,
+                      EntityManager entityManager,
+                      PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.userMapper = userMapper;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Imports users from a JSON array of {@link UserDto} objects, reading one element at a time.
+     *
+     * @param input request body
+     * @return import summary
+     * @throws IOException if the input cannot be read
+     */
+    UserImportResultDto importJson(InputStream input) throws IOException {
+        ImportSession session = new ImportSession();
+        try (JsonParser parser = objectMapper.getFactory().createParser(input)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new BusinessException("Expected a JSON array of users");
+            }
+            long row = 0;
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                row++;
+                JsonNode node = parser.readValueAsTree();
+                try {
+                    session.accept(row, objectMapper.treeToValue(node, UserDto.class));
+                } catch (JsonProcessingException e) {
+                    session.reject(row, node.path("email").asText(null), "Malformed user: " + e.getOriginalMessage());
+                }
+            }
+        }
+        return session.finish();
+    }
+
+    /**
+     * Imports users from RFC 4180 CSV with a header row containing {@code firstName,lastName,birthdate,email}
+     * (in any order). An {@code id} column, as written by the CSV export, is allowed and ignored.
+     *
+     * @param input request body
+     * @return import summary
+     * @throws IOException if the input cannot be read
+     */
+    UserImportResultDto importCsv(InputStream input) throws IOException {
+        ImportSession session = new ImportSession();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            CsvRecordReader records = new CsvRecordReader(reader);
+            Map<String, Integer> columns = readCsvHeader(records.next());
+            long row = 0;
+            List<String> cells;
+            while ((cells = records.next()) != null) {
+                if (cells.size() == 1 && cells.get(0).isBlank()) {
+                    continue;
+                }
+                row++;
+                if (cells.size() != columns.size()) {
+                    session.reject(row, null, "Expected %d columns but got %d".formatted(columns.size(), cells.size()));
+                    continue;
+                }
+                String email = cells.get(columns.get("email")).trim();
+                try {
+                    session.accept(row, new UserDto(
+                            null,
+                            cells.get(columns.get("firstName")).trim(),
+                            cells.get(columns.get("lastName")).trim(),
+                            LocalDate.parse(cells.get(columns.get("birthdate")).trim()),
+                            email));
+                } catch (DateTimeParseException e) {
+                    session.reject(row, email, "Invalid birthdate, expected yyyy-MM-dd");
+                }
+            }
+        }
+        return session.finish();
+    }
+
+    private static Map<String, Integer> readCsvHeader(@Nullable List<String> header) {
+        if (header == null) {
+            throw new BusinessException("CSV import requires a header row");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim(), i);
+        }
+        Set<String> unexpected = new HashSet<>(columns.keySet());
+        unexpected.removeAll(CSV_COLUMNS);
+        unexpected.remove(CSV_IGNORED_COLUMN);
+        if (!columns.keySet().containsAll(CSV_COLUMNS) || !unexpected.isEmpty() || columns.size() != header.size()) {
+            throw new BusinessException("CSV header must contain exactly the columns " + String.join(",", CSV_COLUMNS)
+                    + " and optionally " + CSV_IGNORED_COLUMN);
+        }
+        return columns;
+    }
+
+    @Nullable
+    private static String validate(UserDto user) {
+        if (isBlank(user.firstName()) || isBlank(user.lastName())) {
+            return "First and last name are required";
+        }
+        if (user.birthdate() == null) {
+            return "Birthdate is required";
+        }
+        if (isBlank(user.email())) {
+            return "Email is required";
+        }
+        return null;
+    }
+
+    private static String normalize(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isBlank(@Nullable String value) {
+        return value == null || value.isBlank();
+    }
+
+    private record PendingRow(long row, UserDto user) {
+    }
+
+    /**
+     * State of a single import: the current chunk, emails seen so far and the running summary.
+     */
+    private final class ImportSession {
+
+        private final long startNanos = System.nanoTime();
+        private final List<PendingRow> chunk = new ArrayList<>(CHUNK_SIZE);
+        private final Set<String> seenEmails = new HashSet<>();
+        private final List<UserImportErrorDto> rejected = new ArrayList<>();
+        private long imported;
+
+        void accept(long row, UserDto user) {
+            String error = validate(user);
+            if (error != null) {
+                reject(row, user.email(), error);
+                return;
+            }
+            chunk.add(new PendingRow(row, user));
+            if (chunk.size() == CHUNK_SIZE) {
+                persistChunk();
+            }
+        }
+
+        void reject(long row, @Nullable String email, String reason) {
+            rejected.add(new UserImportErrorDto(row, email, reason));
+        }
+
+        UserImportResultDto finish() {
+            persistChunk();
+            long elapsedMillis = Math.max(1, (System.nanoTime() - startNanos) / 1_000_000);
+            log.info("Imported {} users ({} rejected) in {} ms ({} rows/s)",
+                    imported, rejected.size(), elapsedMillis, (imported + rejected.size()) * 1000 / elapsedMillis);
+            return new UserImportResultDto(imported, List.copyOf(rejected));
+        }
+
+        private void persistChunk() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            Set<String> registered = new HashSet<>(userRepository.findExistingEmails(
+                    chunk.stream().map(pending -> normalize(pending.user().email())).toList()));
+
+            List<PendingRow> accepted = new ArrayList<>(chunk.size());
+            for (PendingRow pending : chunk) {
+                String email = pending.user().email();
+                if (registered.contains(normalize(email))) {
+                    reject(pending.row(), email, "Email is already registered");
+                } else if (!seenEmails.add(normalize(email))) {
+                    reject(pending.row(), email, "Email is duplicated in the import");
+                } else {
+                    accepted.add(pending);
+                }
+            }
+            chunk.clear();
+
+            try {
+                persist(accepted);
+                imported += accepted.size();
+            } catch (PersistenceException | DataIntegrityViolationException e) {
+                log.warn("Chunk insert failed, retrying {} rows one by one: {}", accepted.size(), e.getMessage());
+                persistOneByOne(accepted);
+            }
+        }
+
+        private void persistOneByOne(List<PendingRow> rows) {
+            for (PendingRow pending : rows) {
+                try {
+                    persist(List.of(pending));
+                    imported++;
+                } catch (PersistenceException | DataIntegrityViolationException e) {
+                    reject(pending.row(), pending.user().email(), "Email is already registered");
+                }
+            }
+        }
+
+        private void persist(List<PendingRow> rows) {
+            transactionTemplate.executeWithoutResult(status -> {
+                rows.forEach(pending -> entityManager.persist(userMapper.toEntity(pending.user())));
+                entityManager.flush();
+                entityManager.clear();
+            });
+        }
+    }
+}
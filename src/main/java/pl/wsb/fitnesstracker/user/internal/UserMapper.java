@@ -23,7 +23,8 @@ public class UserMapper {
                 user.getFirstName(),
                 user.getLastName(),
                 user.getBirthdate(),
-                user.getEmail()
+                user.getEmail(),
+                user.getVersion()
         );
     }
     /**
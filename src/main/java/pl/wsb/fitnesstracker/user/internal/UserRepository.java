@@ -1,11 +1,22 @@
 package pl.wsb.fitnesstracker.user.internal;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import pl.wsb.fitnesstracker.user.api.User;
+import pl.wsb.fitnesstracker.user.api.UserDto;
+import pl.wsb.fitnesstracker.user.api.UserEmailDto;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository for managing User persistence.
@@ -13,15 +24,61 @@ import java.util.Optional;
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmailIgnoreCase(String email);
 
-    default List<User> findByEmailContainingIgnoreCase(String fragment) {
-        return findAll().stream()
-                .filter(user -> user.getEmail().toLowerCase().contains(fragment.toLowerCase()))
-                .toList();
-    }
-
-    default List<User> findOlderThan(LocalDate ageThreshold) {
-        return findAll().stream()
-                .filter(user -> user.getBirthdate().isBefore(ageThreshold))
-                .toList();
-    }
+    /**
+     * Returns id and email of every user without hydrating full entities.
+     * Used to (re)build the in-memory email index.
+     *
+     * @return list of id/email pairs
+     */
+    @Query("select new pl.wsb.fitnesstracker.user.api.UserEmailDto(u.id, u.email) from User u")
+    List<UserEmailDto> findAllEmails();
+
+    /**
+     * Returns those of the given emails that are already registered, ignoring case.
+     * Both sides are compared in lower case, so the caller must pass lower-case emails.
+     *
+     * @param emails lower-case emails to check
+     * @return lower-case emails that already exist
+     */
+    @Query("select lower(u.email) from User u where lower(u.email) in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    /**
+     * Streams all users as DTOs straight from a database cursor, ordered by ID.
+     * No entities are hydrated, so memory use does not grow with the number of rows.
+     * Must be consumed inside a transaction and closed afterwards.
+     *
+     * @return stream of all users
+     */
+    @Query("select new pl.wsb.fitnesstracker.user.api.UserDto(u.id, u.firstName, u.lastName, u.birthdate, u.email) from User u order by u.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<UserDto> streamAllAsDto();
+
+    /**
+     * Returns users with an ID greater than the given one, ordered by ID.
+     * Backs keyset pagination: the next page starts right after the last ID of the previous one.
+     *
+     * @param afterId exclusive lower bound of the ID
+     * @param limit   maximum number of users to return
+     * @return users following the given ID
+     */
+    List<User> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+    /**
+     * Returns one page of users born before the given date.
+     * Runs as a range scan on the {@code idx_users_birthdate} index.
+     *
+     * @param birthdate exclusive upper bound of the birthdate
+     * @param pageable  page number, size and sort order
+     * @return users of the requested page
+     */
+    List<User> findByBirthdateBefore(LocalDate birthdate, Pageable pageable);
+
+    /**
+     * Counts users born before the given date without loading any entity.
+     *
+     * @param birthdate exclusive upper bound of the birthdate
+     * @return number of matching users
+     */
+    long countByBirthdateBefore(LocalDate birthdate);
 }
@@ -1,16 +1,47 @@
 package pl.wsb.fitnesstracker.user.internal;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.Nullable;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+import pl.wsb.fitnesstracker.exception.api.PreconditionFailedException;
+import pl.wsb.fitnesstracker.lookup.api.IdBatches;
+import pl.wsb.fitnesstracker.lookup.api.LookupResult;
+import pl.wsb.fitnesstracker.pagination.api.Cursor;
+import pl.wsb.fitnesstracker.pagination.api.CursorPage;
+import pl.wsb.fitnesstracker.patch.api.EntityTag;
+import pl.wsb.fitnesstracker.patch.api.JsonMergePatch;
 import pl.wsb.fitnesstracker.training.api.TrainingService;
+import pl.wsb.fitnesstracker.training.api.TrainingTotalsDto;
 import pl.wsb.fitnesstracker.user.api.User;
+import pl.wsb.fitnesstracker.user.api.UserChangedEvent;
+import pl.wsb.fitnesstracker.user.api.UserDto;
+import pl.wsb.fitnesstracker.user.api.UserEmailAlreadyExistsException;
+import pl.wsb.fitnesstracker.user.api.UserNotFoundException;
 import pl.wsb.fitnesstracker.user.api.UserProvider;
 import pl.wsb.fitnesstracker.user.api.UserService;
 
 import java.time.LocalDate;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service implementation for managing {@link User} entities.
@@ -23,15 +54,28 @@ import java.util.Optional;
 @Slf4j
 class UserServiceImpl implements UserService, UserProvider {
 
+    static final int MAX_EMAIL_SEARCH_LIMIT = 500;
+    static final int MAX_PAGE_SIZE = 500;
+    static final int MAX_SUGGEST_LIMIT = 50;
+
     private final UserRepository userRepository;
     private final TrainingService trainingService;
+    private final UserEmailIndex userEmailIndex;
+    private final UserSuggestIndex userSuggestIndex;
+    private final UserCache userCache;
+    private final UserEmailLookup userEmailLookup;
+    private final UserMapper userMapper;
+    private final ObjectMapper objectMapper;
 
     /**
      * Creates a new user in the system.
+     * The email is checked against the {@link UserEmailLookup} first, so a duplicate is rejected
+     * without a failed insert; the unique constraint remains the final guard.
      *
      * @param user the user to create, must not have an ID set
      * @return the saved user entity with generated ID
      * @throws IllegalArgumentException if the user already has an ID
+     * @throws UserEmailAlreadyExistsException if the email is already registered
      */
     @Override
     public User createUser(User user) {
@@ -39,12 +83,15 @@ class UserServiceImpl implements UserService, UserProvider {
         if (user.getId() != null) {
             throw new IllegalArgumentException("User already has an ID.");
         }
+        if (findIndexedByEmail(user.getEmail()).isPresent()) {
+            throw new UserEmailAlreadyExistsException(user.getEmail());
+        }
         return userRepository.save(user);
     }
 
     /**
      * Deletes the user with the given ID.
-     * Also deletes all trainings associated with the user.
+     * Also deletes all trainings associated with the user; the {@link UserCache} evicts the user once the delete is committed.
      *
      * @param id the ID of the user to delete
      * @throws IllegalArgumentException if no user with the given ID exists
@@ -62,14 +109,22 @@ class UserServiceImpl implements UserService, UserProvider {
 
     /**
      * Updates an existing user by ID with new data.
+     * The {@link UserCache} evicts the cached entry when the change is committed, not before,
+     * so readers running while the update is in flight cannot put the old row back for the rest of its TTL.
      *
      * @param id the ID of the user to update
      * @param updatedUser the user data to update with
      * @return the updated user entity
      * @throws IllegalArgumentException if no user with the given ID exists
+     * @throws UserEmailAlreadyExistsException if the new email belongs to another user
      */
     @Override
     public User updateUser(Long id, User updatedUser) {
+        findIndexedByEmail(updatedUser.getEmail())
+                .filter(owner -> !owner.getId().equals(id))
+                .ifPresent(owner -> {
+                    throw new UserEmailAlreadyExistsException(updatedUser.getEmail());
+                });
         return userRepository.findById(id)
                 .map(existing -> {
                     existing.setFirstName(updatedUser.getFirstName());
@@ -81,26 +136,122 @@ class UserServiceImpl implements UserService, UserProvider {
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
     }
 
+    /**
+     * Applies a JSON Merge Patch (RFC 7386) to the user.
+     * The patch is merged into the current {@link UserDto} representation; {@code id} and {@code version} are ignored.
+     * The version is checked against {@code If-Match} before the merge and again by the versioned UPDATE,
+     * which (with {@code @DynamicUpdate}) writes only the columns that actually changed and takes no locks.
+     * The user is loaded instead of being changed by a bulk {@code UPDATE} query: the merge needs the current
+     * representation anyway, and only an entity write publishes the {@link UserChangedEvent} that keeps the email
+     * indexes and ETag versions in sync and evicts the {@link UserCache} after commit, as in {@link #updateUser}.
+     *
+     * @param id the ID of the user to patch
+     * @param patch the merge patch document
+     * @param expectedVersion the version the client expects, or {@code null} to accept any version
+     * @return the patched user entity
+     * @throws UserNotFoundException if no user with the given ID exists
+     * @throws PreconditionFailedException if the user was modified since the expected version
+     * @throws BusinessException if the patched user is not valid
+     * @throws UserEmailAlreadyExistsException if the new email belongs to another user
+     */
+    @Override
+    @Transactional
+    public User patchUser(Long id, JsonNode patch, @Nullable Long expectedVersion) {
+        User existing = userRepository.findById(id)
+                .orElseThrow(() -> new UserNotFoundException(id));
+        EntityTag.checkVersion(expectedVersion, existing.getVersion());
+
+        ObjectNode current = objectMapper.valueToTree(userMapper.toDto(existing));
+        UserDto patched = readPatched(JsonMergePatch.apply(current, patch));
+        if (patched.firstName() == null || patched.lastName() == null
+                || patched.birthdate() == null || patched.email() == null) {
+            throw new BusinessException("firstName, lastName, birthdate and email are required");
+        }
+        findIndexedByEmail(patched.email())
+                .filter(owner -> !owner.getId().equals(id))
+                .ifPresent(owner -> {
+                    throw new UserEmailAlreadyExistsException(patched.email());
+                });
+
+        existing.setFirstName(patched.firstName());
+        existing.setLastName(patched.lastName());
+        existing.setBirthdate(patched.birthdate());
+        existing.setEmail(patched.email());
+        try {
+            return userRepository.saveAndFlush(existing);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw new PreconditionFailedException("User with ID=%s was modified concurrently".formatted(id));
+        }
+    }
+
+    private UserDto readPatched(JsonNode merged) {
+        try {
+            return objectMapper.treeToValue(merged, UserDto.class);
+        } catch (JsonProcessingException e) {
+            throw new BusinessException("Malformed user patch: " + e.getOriginalMessage());
+        }
+    }
+
     /**
      * Retrieves a user by their ID.
+     * Served from the {@link UserCache}; the database is queried only on a cache miss.
      *
      * @param userId the ID of the user to retrieve
      * @return an Optional containing the user if found, otherwise empty
      */
     @Override
     public Optional<User> getUser(Long userId) {
-        return userRepository.findById(userId);
+        return userCache.getById(userId, userRepository::findById);
     }
 
     /**
-     * Retrieves a user by their email address.
+     * Returns the user's training totals for a range of days.
+     * The totals come from the per-user prefix sums kept by the {@link TrainingService}, so the user's trainings are not loaded.
+     *
+     * @param id the ID of the user
+     * @param from the first day of the range (inclusive)
+     * @param to the last day of the range (exclusive)
+     * @return the number of trainings, total distance and total duration in the range
+     * @throws UserNotFoundException if no user with the given ID exists
+     */
+    @Override
+    public TrainingTotalsDto getTrainingTotals(Long id, LocalDate from, LocalDate to) {
+        if (getUser(id).isEmpty()) {
+            throw new UserNotFoundException(id);
+        }
+        return trainingService.findTotals(id, from, to);
+    }
+
+    /**
+     * Retrieves a user by their email address (case-insensitive).
+     * Unknown emails are answered by the {@link UserEmailLookup} without touching the database.
+     * Known ones resolve to an ID served from the {@link UserCache}; if that candidate does not match
+     * (stale entry), the lookup falls back to the cached email query.
      *
      * @param email the email address of the user
      * @return an Optional containing the user if found, otherwise empty
      */
     @Override
     public Optional<User> getUserByEmail(String email) {
-        return userRepository.findByEmailIgnoreCase(email);
+        OptionalLong id = userEmailLookup.findId(email);
+        if (id.isEmpty()) {
+            return Optional.empty();
+        }
+        Optional<User> indexed = getUser(id.getAsLong())
+                .filter(user -> user.getEmail().equalsIgnoreCase(email));
+        if (indexed.isPresent()) {
+            return indexed;
+        }
+        return userCache.getByEmail(email, userRepository::findByEmailIgnoreCase, userRepository::findById);
+    }
+
+    private Optional<User> findIndexedByEmail(String email) {
+        OptionalLong id = userEmailLookup.findId(email);
+        if (id.isEmpty()) {
+            return Optional.empty();
+        }
+        return getUser(id.getAsLong())
+                .filter(user -> user.getEmail().equalsIgnoreCase(email));
     }
 
     /**
@@ -113,25 +264,116 @@ class UserServiceImpl implements UserService, UserProvider {
         return userRepository.findAll();
     }
 
+    /**
+     * Streams all users as DTOs read from a database cursor.
+     * Joins the caller's transaction, which must stay open until the stream is closed.
+     *
+     * @return stream of all users ordered by ID
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Stream<UserDto> streamAllUsers() {
+        return userRepository.streamAllAsDto();
+    }
+
+    /**
+     * Retrieves one page of users ordered by ID using keyset pagination.
+     * The query seeks past the last ID of the previous page instead of skipping rows with OFFSET.
+     *
+     * @param cursor the cursor returned with the previous page, or {@code null} for the first page
+     * @param limit page size, clamped to {@link CursorPage#MAX_LIMIT}
+     * @return page of users with the cursor of the next page
+     */
+    @Override
+    public CursorPage<User> findUsersPage(@Nullable String cursor, int limit) {
+        int boundedLimit = CursorPage.boundedLimit(limit);
+        long afterId = cursor == null ? 0L : Cursor.decode(cursor, 1)[0];
+        List<User> fetched = userRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(boundedLimit + 1));
+        return CursorPage.of(fetched, boundedLimit, user -> Cursor.encode(user.getId()));
+    }
+
     /**
      * Finds users whose email contains the given fragment (case-insensitive).
+     * Candidates are resolved from the {@link UserEmailIndex} and only the matching rows are loaded from the database.
      *
      * @param fragment the email fragment to search for
-     * @return list of users matching the criteria
+     * @param limit maximum number of results, clamped to {@value #MAX_EMAIL_SEARCH_LIMIT}
+     * @return list of users matching the criteria, ordered by ID
+     */
+    @Override
+    public List<User> findByPartialEmail(String fragment, int limit) {
+        int boundedLimit = Math.max(1, Math.min(limit, MAX_EMAIL_SEARCH_LIMIT));
+        List<Long> ids = userEmailIndex.search(fragment, boundedLimit);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return userRepository.findAllById(ids).stream()
+                .sorted(Comparator.comparing(User::getId))
+                .toList();
+    }
+
+    /**
+     * Suggests users whose first name, last name or email starts with the typed prefix.
+     * Candidates come from the in-memory {@link UserSuggestIndex}; only they are loaded from the database,
+     * which also drops entries left behind by rolled back transactions.
+     *
+     * @param query the typed text
+     * @param limit maximum number of results, clamped to {@value #MAX_SUGGEST_LIMIT}
+     * @return matching users in suggestion order
+     */
+    @Override
+    public List<User> suggestUsers(String query, int limit) {
+        int boundedLimit = Math.max(1, Math.min(limit, MAX_SUGGEST_LIMIT));
+        List<Long> ids = userSuggestIndex.suggest(query, boundedLimit);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, User> users = userRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        return ids.stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Resolves users by a list of IDs with chunked {@code IN (...)} queries instead of one lookup per ID.
+     *
+     * @param ids the requested IDs, in client order
+     * @return one result per requested ID, in request order, marking missing users
+     */
+    @Override
+    public List<LookupResult<User>> findUsersByIds(List<Long> ids) {
+        Map<Long, User> users = IdBatches.fetch(ids, userRepository::findAllById, User::getId);
+        return LookupResult.inRequestOrder(ids, users);
+    }
+
+    /**
+     * Finds one page of users older than the specified age threshold.
+     * The range is evaluated by the database using the birthdate index.
+     *
+     * @param ageThreshold the birthdate threshold to compare against
+     * @param page zero-based page number
+     * @param size page size, clamped to {@value #MAX_PAGE_SIZE}
+     * @return list of users older than the specified date, ordered by birthdate and ID
      */
     @Override
-    public List<User> findByPartialEmail(String fragment) {
-        return userRepository.findByEmailContainingIgnoreCase(fragment);
+    public List<User> findOlderThan(LocalDate ageThreshold, int page, int size) {
+        PageRequest pageRequest = PageRequest.of(
+                Math.max(page, 0),
+                Math.max(1, Math.min(size, MAX_PAGE_SIZE)),
+                Sort.by("birthdate", "id"));
+        return userRepository.findByBirthdateBefore(ageThreshold, pageRequest);
     }
 
     /**
-     * Finds users older than the specified age threshold.
+     * Counts users older than the specified age threshold.
      *
      * @param ageThreshold the birthdate threshold to compare against
-     * @return list of users older than the specified date
+     * @return number of users older than the specified date
      */
     @Override
-    public List<User> findOlderThan(LocalDate ageThreshold) {
-        return userRepository.findOlderThan(ageThreshold);
+    public long countOlderThan(LocalDate ageThreshold) {
+        return userRepository.countByBirthdateBefore(ageThreshold);
     }
 }
@@ -0,0 +1,476 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import pl.wsb.fitnesstracker.user.api.User;
+import pl.wsb.fitnesstracker.user.api.UserChangedEvent;
+import pl.wsb.fitnesstracker.user.api.UserDto;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Drzewo prefiksowe (trie) imion, nazwisk i adresów e-mail użytkowników, obsługujące podpowiedzi w trakcie pisania.
+ *
+ * <p>
+ * Każde słowo imienia i nazwiska oraz pełny adres e-mail (małymi literami) są ścieżką w drzewie, a węzeł końcowy
+ * przechowuje posortowaną tablicę identyfikatorów użytkowników. Dzieci węzła trzymane są w posortowanych
+ * tablicach znaków i węzłów zamiast w mapach, co ogranicza zajętość pamięci. Wyszukiwanie schodzi do węzła prefiksu
+ * i przegląda poddrzewo w porządku leksykograficznym, zatrzymując się po zebraniu {@code limit} użytkowników -
+ * koszt zależy od długości prefiksu i liczby wyników, a nie od liczby użytkowników.
+ * </p>
+ *
+ * <p>
+ * Indeks jest budowany z bazy przy starcie aplikacji i aktualizowany na podstawie {@link UserChangedEvent}
+ * po zatwierdzeniu transakcji, która zmieniła użytkownika. Szacunkowy rozmiar w pamięci i liczba węzłów
+ * publikowane są jako metryki {@code users.suggest.memory} oraz {@code users.suggest.nodes}.
+ * </p>
+ */
+@Component
+@Slf4j
+class UserSuggestIndex {
+
+    /**
+     * Przybliżony rozmiar pustego węzła: nagłówek obiektu, trzy referencje, dwa liczniki oraz nagłówki jego tablic.
+     */
+    private static final long NODE_BYTES = 16 + 3 * 4 + 2 * 4 + 3 * 16;
+    private static final long CHILD_BYTES = Character.BYTES + 4;
+    private static final long ID_BYTES = Long.BYTES;
+
+    private final UserRepository userRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Bieżące drzewo; podmieniane w całości po odbudowie.
+     */
+    private Trie trie = new Trie();
+
+    /**
+     * Zmiany naniesione w trakcie odbudowy, powtarzane na nowym drzewie przed podmianą, lub {@code null} poza odbudową.
+     */
+    @Nullable
+    private List<Change> changesDuringRebuild;
+
+    UserSuggestIndex(UserRepository userRepository, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        Gauge.builder("users.suggest.memory", this, UserSuggestIndex::estimatedBytes)
+                .description("Estimated heap footprint of the user suggest trie")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("users.suggest.nodes", this, UserSuggestIndex::nodeCount)
+                .description("Number of nodes in the user suggest trie")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Buduje nowe drzewo ze wszystkich użytkowników zapisanych w bazie, strumieniując ich bez tworzenia encji,
+     * i podmienia nim bieżące. Zmiany zatwierdzone w trakcie odbudowy są zapamiętywane i powtarzane na nowym
+     * drzewie przed podmianą, więc użytkownik usunięty w tym czasie nie wraca do indeksu.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Trie rebuilt = new Trie();
+        boolean built = false;
+        try (Stream<UserDto> all = userRepository.streamAllAsDto()) {
+            all.forEach(user -> rebuilt.put(user.id(), terms(user.firstName(), user.lastName(), user.email())));
+            built = true;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (built) {
+                    changesDuringRebuild.forEach(change -> change.applyTo(rebuilt));
+                    trie = rebuilt;
+                }
+                changesDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        log.info("User suggest index built with {} users, {} nodes, ~{} KiB",
+                size(), nodeCount(), estimatedBytes() / 1024);
+    }
+
+    /**
+     * Nanosi zmianę użytkownika po zatwierdzeniu transakcji, więc wycofane zmiany nie trafiają do indeksu.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    void onUserChanged(UserChangedEvent event) {
+        User user = event.user();
+        if (event.change() == UserChangedEvent.Change.DELETED) {
+            remove(user.getId());
+        } else {
+            put(user.getId(), user.getFirstName(), user.getLastName(), user.getEmail());
+        }
+    }
+
+    /**
+     * Dodaje lub aktualizuje wpis użytkownika w indeksie.
+     *
+     * @param id        identyfikator użytkownika
+     * @param firstName imię
+     * @param lastName  nazwisko
+     * @param email     adres e-mail
+     */
+    void put(Long id, String firstName, String lastName, String email) {
+        if (id == null) {
+            return;
+        }
+        apply(new Change(id, terms(firstName, lastName, email)));
+    }
+
+    /**
+     * Usuwa użytkownika z indeksu.
+     *
+     * @param id identyfikator użytkownika
+     */
+    void remove(Long id) {
+        if (id == null) {
+            return;
+        }
+        apply(new Change(id, null));
+    }
+
+    /**
+     * Zwraca identyfikatory użytkowników, których imię, nazwisko lub adres e-mail zaczyna się od podanego prefiksu.
+     * Zapytanie złożone z kilku słów (np. {@code "jan kow"}) wymaga, aby każde słowo było prefiksem innego pola.
+     * Wyniki są uporządkowane leksykograficznie po dopasowanym słowie, a następnie po ID.
+     *
+     * @param query wpisany tekst
+     * @param limit maksymalna liczba wyników
+     * @return lista identyfikatorów pasujących użytkowników
+     */
+    List<Long> suggest(String query, int limit) {
+        String[] tokens = tokenize(query);
+        if (tokens.length == 0 || limit <= 0) {
+            return List.of();
+        }
+        String[] rest = Arrays.copyOfRange(tokens, 1, tokens.length);
+        lock.readLock().lock();
+        try {
+            return trie.suggest(tokens[0], rest, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return trie.termsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long nodeCount() {
+        lock.readLock().lock();
+        try {
+            return trie.nodeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Szacuje zajętość pamięci drzewa wraz z mapą słów użytkowników, przy założeniu skompresowanych referencji.
+     *
+     * @return przybliżony rozmiar w bajtach
+     */
+    long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            return trie.estimatedBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(Change change) {
+        lock.writeLock().lock();
+        try {
+            change.applyTo(trie);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static boolean matchesAll(String[] terms, String[] prefixes) {
+        if (terms == null) {
+            return false;
+        }
+        for (String prefix : prefixes) {
+            boolean matched = false;
+            for (String term : terms) {
+                if (term.startsWith(prefix)) {
+                    matched = true;
+                    break;
+                }
+            }
+            if (!matched) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Przybliżony rozmiar wpisu mapy słów użytkownika: węzeł mapy z kluczem, tablica i łańcuchy znaków (Latin-1).
+     */
+    private static long termsBytes(String[] terms) {
+        long bytes = 48 + 16 + 4L * terms.length;
+        for (String term : terms) {
+            bytes += 40 + term.length();
+        }
+        return bytes;
+    }
+
+    private static String[] terms(String firstName, String lastName, String email) {
+        Set<String> terms = new TreeSet<>();
+        terms.addAll(Arrays.asList(tokenize(firstName)));
+        terms.addAll(Arrays.asList(tokenize(lastName)));
+        if (email != null && !email.isBlank()) {
+            terms.add(email.strip().toLowerCase(Locale.ROOT));
+        }
+        return terms.toArray(String[]::new);
+    }
+
+    private static String[] tokenize(String value) {
+        if (value == null || value.isBlank()) {
+            return new String[0];
+        }
+        return Arrays.stream(value.strip().toLowerCase(Locale.ROOT).split("[\\s\\-]+"))
+                .filter(token -> !token.isEmpty())
+                .toArray(String[]::new);
+    }
+
+    /**
+     * Zmiana wpisu jednego użytkownika: nowe słowa lub {@code null} przy usunięciu.
+     */
+    private record Change(long id, @Nullable String[] terms) {
+
+        void applyTo(Trie trie) {
+            if (terms == null) {
+                trie.remove(id);
+            } else {
+                trie.put(id, terms);
+            }
+        }
+    }
+
+    /**
+     * Drzewo prefiksowe z mapą słów użytkowników i licznikami do szacowania zajętości pamięci. Niesynchronizowane.
+     */
+    private static final class Trie {
+
+        private final Node root = new Node();
+        private final Map<Long, String[]> termsById = new HashMap<>();
+
+        private long nodeCount = 1;
+        private long childCount;
+        private long idCount;
+        private long termBytes;
+
+        void put(long id, String[] terms) {
+            String[] previous = termsById.put(id, terms);
+            if (previous != null) {
+                if (Arrays.equals(previous, terms)) {
+                    return;
+                }
+                termBytes -= termsBytes(previous);
+                for (String term : previous) {
+                    removeTerm(term, id);
+                }
+            }
+            termBytes += termsBytes(terms);
+            for (String term : terms) {
+                insertTerm(term, id);
+            }
+        }
+
+        void remove(long id) {
+            String[] previous = termsById.remove(id);
+            if (previous != null) {
+                termBytes -= termsBytes(previous);
+                for (String term : previous) {
+                    removeTerm(term, id);
+                }
+            }
+        }
+
+        List<Long> suggest(String first, String[] rest, int limit) {
+            Node start = find(first);
+            if (start == null) {
+                return List.of();
+            }
+            Set<Long> result = new LinkedHashSet<>();
+            collect(start, rest, limit, result);
+            return List.copyOf(result);
+        }
+
+        long estimatedBytes() {
+            return nodeCount * NODE_BYTES + childCount * CHILD_BYTES + idCount * ID_BYTES + termBytes;
+        }
+
+        private void collect(Node node, String[] rest, int limit, Set<Long> result) {
+            for (int i = 0; i < node.idCount && result.size() < limit; i++) {
+                long id = node.ids[i];
+                if (rest.length == 0 || matchesAll(termsById.get(id), rest)) {
+                    result.add(id);
+                }
+            }
+            for (int i = 0; i < node.childCount && result.size() < limit; i++) {
+                collect(node.children[i], rest, limit, result);
+            }
+        }
+
+        private Node find(String prefix) {
+            Node node = root;
+            for (int i = 0; i < prefix.length() && node != null; i++) {
+                node = node.child(prefix.charAt(i));
+            }
+            return node;
+        }
+
+        private void insertTerm(String term, long id) {
+            Node node = root;
+            for (int i = 0; i < term.length(); i++) {
+                char key = term.charAt(i);
+                Node child = node.child(key);
+                if (child == null) {
+                    child = node.addChild(key);
+                    nodeCount++;
+                    childCount++;
+                }
+                node = child;
+            }
+            if (node.addId(id)) {
+                idCount++;
+            }
+        }
+
+        private void removeTerm(String term, long id) {
+            Node[] path = new Node[term.length() + 1];
+            path[0] = root;
+            for (int i = 0; i < term.length(); i++) {
+                path[i + 1] = path[i].child(term.charAt(i));
+                if (path[i + 1] == null) {
+                    return;
+                }
+            }
+            if (!path[term.length()].removeId(id)) {
+                return;
+            }
+            idCount--;
+            for (int i = term.length(); i > 0 && path[i].isEmpty(); i--) {
+                path[i - 1].removeChild(term.charAt(i - 1));
+                nodeCount--;
+                childCount--;
+            }
+        }
+    }
+
+    /**
+     * Węzeł drzewa z dziećmi w posortowanych tablicach równoległych i posortowaną tablicą ID użytkowników.
+     * Tablice rosną o połowę przy zapełnieniu, aby dodawanie kolejnych słów nie kopiowało ich za każdym razem.
+     */
+    private static final class Node {
+
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final long[] NO_IDS = new long[0];
+
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private int childCount;
+        private long[] ids = NO_IDS;
+        private int idCount;
+
+        Node child(char key) {
+            int position = Arrays.binarySearch(keys, 0, childCount, key);
+            return position >= 0 ? children[position] : null;
+        }
+
+        Node addChild(char key) {
+            int insertAt = -Arrays.binarySearch(keys, 0, childCount, key) - 1;
+            if (childCount == keys.length) {
+                int capacity = Math.max(2, childCount + (childCount >> 1));
+                keys = Arrays.copyOf(keys, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+            System.arraycopy(keys, insertAt, keys, insertAt + 1, childCount - insertAt);
+            System.arraycopy(children, insertAt, children, insertAt + 1, childCount - insertAt);
+            Node child = new Node();
+            keys[insertAt] = key;
+            children[insertAt] = child;
+            childCount++;
+            return child;
+        }
+
+        void removeChild(char key) {
+            int position = Arrays.binarySearch(keys, 0, childCount, key);
+            if (position < 0) {
+                return;
+            }
+            System.arraycopy(keys, position + 1, keys, position, childCount - position - 1);
+            System.arraycopy(children, position + 1, children, position, childCount - position - 1);
+            childCount--;
+            children[childCount] = null;
+            if (childCount == 0) {
+                keys = NO_KEYS;
+                children = NO_CHILDREN;
+            }
+        }
+
+        boolean addId(long id) {
+            int position = Arrays.binarySearch(ids, 0, idCount, id);
+            if (position >= 0) {
+                return false;
+            }
+            int insertAt = -position - 1;
+            if (idCount == ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(1, idCount + (idCount >> 1) + 1));
+            }
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, idCount - insertAt);
+            ids[insertAt] = id;
+            idCount++;
+            return true;
+        }
+
+        boolean removeId(long id) {
+            int position = Arrays.binarySearch(ids, 0, idCount, id);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(ids, position + 1, ids, position, idCount - position - 1);
+            idCount--;
+            if (idCount == 0) {
+                ids = NO_IDS;
+            }
+            return true;
+        }
+
+        boolean isEmpty() {
+            return idCount == 0 && childCount == 0;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package pl.wsb.fitnesstracker.version.api;
+
+/**
+ * Lekkie liczniki wersji tabel, zwiększane przy każdym zapisie do danej tabeli.
+ *
+ * <p>
+ * Pozwalają wyznaczyć silny ETag odpowiedzi bez sięgania do bazy danych: jeśli żadna z tabel,
+ * z których zbudowana jest odpowiedź, nie zmieniła się od poprzedniego żądania, ETag pozostaje ten sam
+ * i można odpowiedzieć kodem 304 (Not Modified) bez wykonywania zapytań i serializacji DTO.
+ * </p>
+ */
+public interface ChangeVersions {
+
+    /**
+     * Zwraca ETag odpowiadający bieżącym wersjom wskazanych zbiorów danych.
+     * Wartość zmienia się po każdym zapisie do któregokolwiek z nich oraz po restarcie aplikacji.
+     *
+     * @param datasets zbiory danych, z których budowana jest odpowiedź
+     * @return wartość ETag (bez cudzysłowów)
+     */
+    String etag(Dataset... datasets);
+
+    /**
+     * Zwraca ETag odpowiadający wersjom wierszy jednego użytkownika we wskazanych zbiorach danych
+     * (jego rekordu w {@link Dataset#USERS}, jego treningów w {@link Dataset#TRAININGS}).
+     * Zapisy dotyczące innych użytkowników zwykle go nie zmieniają; wersje są jednak trzymane w stałej liczbie
+     * pasków, więc zapis innego użytkownika z tego samego paska także zmienia ETag (co kosztuje jedynie zbędną odpowiedź 200).
+     *
+     * @param userId   identyfikator użytkownika
+     * @param datasets zbiory danych, z których budowana jest odpowiedź
+     * @return wartość ETag (bez cudzysłowów)
+     */
+    String etag(long userId, Dataset... datasets);
+
+    /**
+     * Zbiory danych (tabele), których wersje są śledzone.
+     */
+    enum Dataset {
+        USERS,
+        TRAININGS
+    }
+}
@@ -0,0 +1,122 @@
+package pl.wsb.fitnesstracker.version.internal;
+
+import jakarta.annotation.Nullable;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import pl.wsb.fitnesstracker.training.api.TrainingChangedEvent;
+import pl.wsb.fitnesstracker.transaction.api.TransactionBatch;
+import pl.wsb.fitnesstracker.user.api.UserChangedEvent;
+import pl.wsb.fitnesstracker.version.api.ChangeVersions;
+
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory implementation of {@link ChangeVersions} driven by entity change events.
+ *
+ * <p>
+ * Every dataset has a table-wide version and {@value #USER_STRIPES} per-user versions, one per stripe of user IDs,
+ * so the memory used does not grow with the number of users. A training change bumps the stripes of its owner
+ * and, when it moved to another user, of the previous owner.
+ * </p>
+ *
+ * <p>
+ * A version is bumped as soon as the change is flushed and once more after the surrounding transaction completes,
+ * whether it commits or rolls back. The second bump guarantees that a response built from data read between the flush
+ * and the commit is never served again under the ETag of the committed state.
+ * ETags are prefixed with the application start time, so versions from a previous run are never reused.
+ * </p>
+ */
+@Component
+class ChangeVersionsImpl implements ChangeVersions {
+
+    static final int USER_STRIPES = 4096;
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    private final Map<Dataset, AtomicLong> versions = new EnumMap<>(Dataset.class);
+    private final Map<Dataset, AtomicLongArray> userVersions = new EnumMap<>(Dataset.class);
+    private final TransactionBatch<Touched> touched =
+            new TransactionBatch<>(Touched::new, (batch, committed) -> batch.bump());
+
+    ChangeVersionsImpl() {
+        for (Dataset dataset : Dataset.values()) {
+            versions.put(dataset, new AtomicLong());
+            userVersions.put(dataset, new AtomicLongArray(USER_STRIPES));
+        }
+    }
+
+    @Override
+    public String etag(Dataset... datasets) {
+        StringBuilder etag = new StringBuilder(epoch);
+        for (Dataset dataset : datasets) {
+            etag.append('-').append(dataset.name().charAt(0)).append(versions.get(dataset).get());
+        }
+        return etag.toString();
+    }
+
+    @Override
+    public String etag(long userId, Dataset... datasets) {
+        int stripe = stripe(userId);
+        StringBuilder etag = new StringBuilder(epoch).append("-u").append(userId);
+        for (Dataset dataset : datasets) {
+            etag.append('-').append(dataset.name().charAt(0)).append(userVersions.get(dataset).get(stripe));
+        }
+        return etag.toString();
+    }
+
+    @EventListener
+    void onUserChanged(UserChangedEvent event) {
+        bump(Dataset.USERS, event.user().getId(), null);
+    }
+
+    @EventListener
+    void onTrainingChanged(TrainingChangedEvent event) {
+        bump(Dataset.TRAININGS, event.training().getUser().getId(), event.previousUserId());
+    }
+
+    private void bump(Dataset dataset, @Nullable Long userId, @Nullable Long previousUserId) {
+        versions.get(dataset).incrementAndGet();
+        bumpUser(dataset, userId);
+        bumpUser(dataset, previousUserId);
+        touched.add(batch -> {
+            batch.add(dataset, userId);
+            batch.add(dataset, previousUserId);
+        });
+    }
+
+    private void bumpUser(Dataset dataset, @Nullable Long userId) {
+        if (userId != null) {
+            userVersions.get(dataset).incrementAndGet(stripe(userId));
+        }
+    }
+
+    private static int stripe(long userId) {
+        return Long.hashCode(userId) & (USER_STRIPES - 1);
+    }
+
+    /**
+     * Datasets and user stripes changed in one transaction.
+     */
+    private final class Touched {
+
+        private final Map<Dataset, BitSet> stripes = new EnumMap<>(Dataset.class);
+
+        void add(Dataset dataset, @Nullable Long userId) {
+            BitSet datasetStripes = stripes.computeIfAbsent(dataset, key -> new BitSet());
+            if (userId != null) {
+                datasetStripes.set(stripe(userId));
+            }
+        }
+
+        void bump() {
+            stripes.forEach((dataset, datasetStripes) -> {
+                versions.get(dataset).incrementAndGet();
+                AtomicLongArray stripeVersions = userVersions.get(dataset);
+                datasetStripes.stream().forEach(stripeVersions::incrementAndGet);
+            });
+        }
+    }
+}
@@ -40,12 +40,16 @@ public abstract class IntegrationTestBase {
     }
 
     protected Training persistTraining(Training training) {
-        return trainingRepository.save(training);
+        return trainingRepository.saveAndFlush(training);
     }
 
+    /**
+     * Saves and flushes the user. Sequence-generated IDs defer the INSERT to the flush, and the user change events
+     * that in-memory views (ETag versions, indexes) listen to are published only then.
+     */
     protected User existingUser(User user) {
 
-        return userRepository.save(user);
+        return userRepository.saveAndFlush(user);
     }
 
     protected List<User> getAllUsers() {
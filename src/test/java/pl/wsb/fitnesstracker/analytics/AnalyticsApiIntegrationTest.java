@@ -0,0 +1,70 @@
+package pl.wsb.fitnesstracker.analytics;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.test.web.servlet.MockMvc;
+import pl.wsb.fitnesstracker.IntegrationTest;
+import pl.wsb.fitnesstracker.IntegrationTestBase;
+import pl.wsb.fitnesstracker.training.api.Training;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+import pl.wsb.fitnesstracker.user.api.User;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+import static java.util.UUID.randomUUID;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.log;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Not transactional: the analytics store is updated only after the writing transaction commits.
+ * The committed fixtures are deleted by {@link IntegrationTestBase} after each test.
+ */
+@IntegrationTest
+@AutoConfigureMockMvc(addFilters = false)
+class AnalyticsApiIntegrationTest extends IntegrationTestBase {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void shouldAggregateUserTrainingsByActivityAndMonth() throws Exception {
+        User user = existingUser(new User(randomUUID().toString(), randomUUID().toString(), LocalDate.of(1990, 1, 1), randomUUID().toString()));
+        persistTraining(training(user, "2024-04-10T08:00", ActivityType.RUNNING, 10.0));
+        persistTraining(training(user, "2024-05-10T08:00", ActivityType.RUNNING, 12.0));
+        persistTraining(training(user, "2024-05-11T08:00", ActivityType.RUNNING, 8.0));
+        persistTraining(training(user, "2024-05-12T08:00", ActivityType.SWIMMING, 2.0));
+
+        mockMvc.perform(get("/v1/analytics/trainings")
+                        .param("groupBy", "ACTIVITY_TYPE,MONTH")
+                        .param("userId", user.getId().toString())
+                        .param("from", "2024-05-01"))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.matchedTrainings").value(3))
+                .andExpect(jsonPath("$.groups[0].key.ACTIVITY_TYPE").value("RUNNING"))
+                .andExpect(jsonPath("$.groups[0].key.MONTH").value("2024-05"))
+                .andExpect(jsonPath("$.groups[0].trainings").value(2))
+                .andExpect(jsonPath("$.groups[0].totalDistance").value(20.0))
+                .andExpect(jsonPath("$.groups[0].totalMinutes").value(120))
+                .andExpect(jsonPath("$.groups[1].key.ACTIVITY_TYPE").value("SWIMMING"))
+                .andExpect(jsonPath("$.groups[2]").doesNotExist());
+    }
+
+    @Test
+    void shouldRejectEmptyTimeRange() throws Exception {
+        mockMvc.perform(get("/v1/analytics/trainings").param("from", "2024-05-01").param("to", "2024-05-01"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static Training training(User user, String start, ActivityType activityType, double distance) {
+        LocalDateTime startTime = LocalDateTime.parse(start);
+        return new Training(user, Date.from(startTime.toInstant(ZoneOffset.UTC)),
+                Date.from(startTime.plusHours(1).toInstant(ZoneOffset.UTC)), activityType, distance, 10.0);
+    }
+}
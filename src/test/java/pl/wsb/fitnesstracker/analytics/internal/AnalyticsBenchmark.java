@@ -0,0 +1,133 @@
+package pl.wsb.fitnesstracker.analytics.internal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import pl.wsb.fitnesstracker.Benchmark;
+import pl.wsb.fitnesstracker.analytics.api.AnalyticsDimension;
+import pl.wsb.fitnesstracker.analytics.api.AnalyticsQuery;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares group-by latency of the {@link TrainingColumnStore} with the equivalent SQL aggregation in H2.
+ * The dataset size can be changed with {@code -Dbenchmark.trainings=<rows>}.
+ */
+@Benchmark
+@SpringBootTest
+class AnalyticsBenchmark {
+
+    private static final long FIRST_ID = 20_000_000L;
+    private static final int USERS = 10_000;
+    private static final int TRAININGS = Integer.getInteger("benchmark.trainings", 2_000_000);
+    private static final int ITERATIONS = 20;
+    private static final LocalDateTime BASE = LocalDateTime.of(2023, 1, 1, 0, 0);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TrainingColumnStore columnStore;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("delete from trainings where id >= ?", FIRST_ID);
+        jdbcTemplate.update("delete from users where id >= ?", FIRST_ID);
+        columnStore.rebuild();
+    }
+
+    @Test
+    void groupByLatency() {
+        seed();
+        columnStore.rebuild();
+        LocalDate today = LocalDate.now();
+
+        int storeGroups = measure("store: activity x month", iteration -> columnStore.aggregate(new AnalyticsQuery(
+                List.of(AnalyticsDimension.ACTIVITY_TYPE, AnalyticsDimension.MONTH), null, null, null, null), today).groups().size());
+        int sqlGroups = measure("sql:   activity x month", iteration -> jdbcTemplate.queryForList("""
+                select activity_type, year(end_time), month(end_time), count(*), sum(distance), avg(average_speed)
+                from trainings
+                where id <> ?
+                group by activity_type, year(end_time), month(end_time)""", -iteration - 1).size());
+        assertThat(storeGroups).isEqualTo(sqlGroups);
+
+        measure("store: activity x month x age", iteration -> columnStore.aggregate(new AnalyticsQuery(
+                List.of(AnalyticsDimension.ACTIVITY_TYPE, AnalyticsDimension.MONTH, AnalyticsDimension.AGE_BUCKET),
+                null, null, null, null), today).groups().size());
+        measure("sql:   activity x month x age", iteration -> jdbcTemplate.queryForList("""
+                select t.activity_type, year(t.end_time), month(t.end_time), datediff(year, u.birthdate, current_date) / 10,
+                       count(*), sum(t.distance), avg(t.average_speed)
+                from trainings t join users u on u.id = t.user_id
+                where t.id <> ?
+                group by t.activity_type, year(t.end_time), month(t.end_time), datediff(year, u.birthdate, current_date) / 10""",
+                -iteration - 1).size());
+
+        measure("store: running, one month, by week", iteration -> columnStore.aggregate(new AnalyticsQuery(
+                List.of(AnalyticsDimension.WEEK), ActivityType.RUNNING, null, LocalDate.of(2023, 1, 1), LocalDate.of(2023, 2, 1)),
+                today).groups().size());
+        measure("sql:   running, one month, by week", iteration -> jdbcTemplate.queryForList("""
+                select iso_year(end_time), iso_week(end_time), count(*), sum(distance), avg(average_speed)
+                from trainings
+                where activity_type = ? and end_time >= '2023-01-01' and end_time < '2023-02-01' and id <> ?
+                group by iso_year(end_time), iso_week(end_time)""", ActivityType.RUNNING.ordinal(), -iteration - 1).size());
+
+        System.out.printf("store holds %d trainings in ~%d MB%n", columnStore.size(), columnStore.estimatedBytes() >> 20);
+    }
+
+    /**
+     * Runs the query once to warm up and then {@value #ITERATIONS} times. The query receives the iteration number,
+     * which the SQL variants bind to a predicate that is always true, so that H2 cannot serve a cached result.
+     */
+    private static int measure(String name, IntUnaryOperator query) {
+        for (int i = 0; i < 3; i++) {
+            query.applyAsInt(-1 - i);
+        }
+        int groups = query.applyAsInt(0);
+        long start = System.nanoTime();
+        for (int i = 1; i <= ITERATIONS; i++) {
+            query.applyAsInt(i);
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000 / ITERATIONS;
+        System.out.printf("%-40s groups=%d avg=%dms over %d trainings%n", name, groups, millis, TRAININGS);
+        return groups;
+    }
+
+    private void seed() {
+        List<Object[]> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(new Object[]{FIRST_ID + i, "First" + i, "Last" + i, Date.valueOf(LocalDate.of(1950 + i % 55, 1 + i % 12, 1)),
+                    "analytics" + i + "@domain.com"});
+        }
+        jdbcTemplate.batchUpdate("insert into users (id, first_name, last_name, birthdate, email) values (?, ?, ?, ?, ?)", users);
+
+        List<Object[]> trainings = new ArrayList<>();
+        long base = Timestamp.valueOf(BASE).getTime();
+        int activityTypes = ActivityType.values().length;
+        for (int i = 0; i < TRAININGS; i++) {
+            long start = base + i * 15_000L;
+            trainings.add(new Object[]{FIRST_ID + i, FIRST_ID + i % USERS, new Timestamp(start), new Timestamp(start + 3_600_000L),
+                    (i / 7) % activityTypes, (double) (i % 30), (double) (i % 17)});
+            if (trainings.size() == 10_000) {
+                insertTrainings(trainings);
+                trainings.clear();
+            }
+        }
+        insertTrainings(trainings);
+    }
+
+    private void insertTrainings(List<Object[]> trainings) {
+        jdbcTemplate.batchUpdate("insert into trainings (id, user_id, start_time, end_time, activity_type, distance, average_speed) "
+                + "values (?, ?, ?, ?, ?, ?, ?)", trainings);
+    }
+}
@@ -0,0 +1,163 @@
+package pl.wsb.fitnesstracker.analytics.internal;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pl.wsb.fitnesstracker.analytics.api.AnalyticsDimension;
+import pl.wsb.fitnesstracker.analytics.api.AnalyticsGroupDto;
+import pl.wsb.fitnesstracker.analytics.api.AnalyticsQuery;
+import pl.wsb.fitnesstracker.analytics.api.AnalyticsResultDto;
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+import pl.wsb.fitnesstracker.training.api.Training;
+import pl.wsb.fitnesstracker.training.api.TrainingChangedEvent;
+import pl.wsb.fitnesstracker.training.api.TrainingProvider;
+import pl.wsb.fitnesstracker.training.api.TrainingRowDto;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+import pl.wsb.fitnesstracker.user.api.User;
+import pl.wsb.fitnesstracker.user.api.UserChangedEvent;
+import pl.wsb.fitnesstracker.user.api.UserDto;
+import pl.wsb.fitnesstracker.user.api.UserProvider;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TrainingColumnStoreTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 1);
+
+    private TrainingColumnStore store;
+    private User emma;
+    private User john;
+
+    @BeforeEach
+    void setUp() {
+        TrainingProvider trainingProvider = mock(TrainingProvider.class);
+        UserProvider userProvider = mock(UserProvider.class);
+        when(userProvider.streamAllUsers()).thenReturn(Stream.of(
+                new UserDto(1L, "First1", "Last1", LocalDate.of(1990, 3, 1), "1@domain.com", 0L)));
+        when(trainingProvider.streamAllRows()).thenReturn(Stream.of(new TrainingRowDto(10L, 1L,
+                date("2024-04-30T23:30"), date("2024-05-01T00:30"), ActivityType.RUNNING, 10.0, 10.0)));
+        store = new TrainingColumnStore(trainingProvider, userProvider, new SimpleMeterRegistry());
+        store.rebuild();
+        emma = user(1L, LocalDate.of(1990, 3, 1));
+        john = user(2L, LocalDate.of(1981, 7, 1));
+        created(training(11L, emma, "2024-05-02T08:00", 30, ActivityType.RUNNING, 5.0, 12.0));
+        created(training(12L, john, "2024-05-03T08:00", 90, ActivityType.CYCLING, 40.0, 26.0));
+        created(training(13L, john, "2024-05-04T08:00", 45, ActivityType.RUNNING, 8.0, 11.0));
+    }
+
+    @Test
+    void shouldGroupByActivityAndMonthOfEndTime() {
+        AnalyticsResultDto result = aggregate(List.of(AnalyticsDimension.ACTIVITY_TYPE, AnalyticsDimension.MONTH));
+
+        assertThat(result.matchedTrainings()).isEqualTo(4);
+        assertThat(result.groups()).extracting(AnalyticsGroupDto::key).containsExactly(
+                Map.of(AnalyticsDimension.ACTIVITY_TYPE, "RUNNING", AnalyticsDimension.MONTH, "2024-05"),
+                Map.of(AnalyticsDimension.ACTIVITY_TYPE, "CYCLING", AnalyticsDimension.MONTH, "2024-05"));
+        AnalyticsGroupDto running = result.groups().get(0);
+        assertThat(running.trainings()).isEqualTo(3);
+        assertThat(running.totalDistance()).isEqualTo(23.0);
+        assertThat(running.averageSpeed()).isEqualTo(11.0);
+        assertThat(running.totalMinutes()).isEqualTo(135);
+    }
+
+    @Test
+    void shouldGroupByAgeBucketAndIsoWeek_andApplyFilters() {
+        AnalyticsResultDto byAge = aggregate(List.of(AnalyticsDimension.AGE_BUCKET));
+        AnalyticsResultDto byWeek = store.aggregate(new AnalyticsQuery(List.of(AnalyticsDimension.WEEK),
+                ActivityType.RUNNING, null, LocalDate.of(2024, 5, 2), LocalDate.of(2024, 5, 4)), TODAY);
+
+        assertThat(byAge.groups()).extracting(group -> group.key().get(AnalyticsDimension.AGE_BUCKET)).containsExactly("30-39", "40-49");
+        assertThat(byWeek.groups()).singleElement().satisfies(group -> {
+            assertThat(group.key()).containsEntry(AnalyticsDimension.WEEK, "2024-W18");
+            assertThat(group.trainings()).isEqualTo(1);
+        });
+    }
+
+    @Test
+    void shouldApplyUpdatesDeletesAndUserChanges_inPlace() {
+        store.onTrainingChanged(new TrainingChangedEvent(
+                training(12L, john, "2024-05-03T08:00", 90, ActivityType.RUNNING, 20.0, 13.0), TrainingChangedEvent.Change.UPDATED));
+        store.onTrainingChanged(new TrainingChangedEvent(
+                training(10L, emma, "2024-04-30T23:30", 60, ActivityType.RUNNING, 10.0, 10.0), TrainingChangedEvent.Change.DELETED));
+        store.onUserChanged(new UserChangedEvent(user(1L, LocalDate.of(1960, 1, 1)), UserChangedEvent.Change.UPDATED));
+
+        AnalyticsResultDto result = aggregate(List.of(AnalyticsDimension.AGE_BUCKET, AnalyticsDimension.ACTIVITY_TYPE));
+
+        assertThat(store.size()).isEqualTo(3);
+        assertThat(result.groups()).extracting(AnalyticsGroupDto::key, AnalyticsGroupDto::totalDistance).containsExactly(
+                tuple(Map.of(AnalyticsDimension.AGE_BUCKET, "40-49", AnalyticsDimension.ACTIVITY_TYPE, "RUNNING"), 28.0),
+                tuple(Map.of(AnalyticsDimension.AGE_BUCKET, "60-69", AnalyticsDimension.ACTIVITY_TYPE, "RUNNING"), 5.0));
+    }
+
+    @Test
+    void shouldFindRowsWrittenOutOfOrder_beforeAndAfterCompaction() {
+        for (long id = 5_000; id > 14; id--) {
+            created(training(id, emma, "2024-05-10T08:00", 60, ActivityType.WALKING, 1.0, 5.0));
+        }
+        for (long id = 5_000; id > 2_000; id--) {
+            store.onTrainingChanged(new TrainingChangedEvent(
+                    training(id, emma, "2024-05-10T08:00", 60, ActivityType.WALKING, 1.0, 5.0), TrainingChangedEvent.Change.DELETED));
+        }
+        created(training(13L, john, "2024-05-04T08:00", 45, ActivityType.RUNNING, 9.0, 11.0));
+
+        AnalyticsResultDto result = store.aggregate(new AnalyticsQuery(List.of(), ActivityType.WALKING, null, null, null), TODAY);
+
+        assertThat(result.matchedTrainings()).isEqualTo(2_000 - 14);
+        assertThat(store.size()).isEqualTo(4 + 2_000 - 14);
+        assertThat(aggregate(List.of()).groups().get(0).totalDistance()).isEqualTo(64.0 + 2_000 - 14);
+    }
+
+    @Test
+    void shouldComputeMonthsArithmetically_likeLocalDate() {
+        for (int day = -800_000; day < 800_000; day += 13) {
+            LocalDate date = LocalDate.ofEpochDay(day);
+            assertThat(TrainingColumnStore.epochMonth(day)).isEqualTo(date.getYear() * 12 + date.getMonthValue() - 1);
+        }
+    }
+
+    @Test
+    void shouldRejectGroupKeyWiderThan64Bits() {
+        assertThatThrownBy(() -> aggregate(List.of(AnalyticsDimension.USER, AnalyticsDimension.DAY, AnalyticsDimension.ACTIVITY_TYPE)))
+                .isInstanceOf(BusinessException.class);
+    }
+
+    private AnalyticsResultDto aggregate(List<AnalyticsDimension> groupBy) {
+        return store.aggregate(new AnalyticsQuery(groupBy, null, null, null, null), TODAY);
+    }
+
+    private void created(Training training) {
+        store.onTrainingChanged(new TrainingChangedEvent(training, TrainingChangedEvent.Change.CREATED));
+    }
+
+    private User user(Long id, LocalDate birthdate) {
+        User user = new User("First" + id, "Last" + id, birthdate, id + "@domain.com");
+        user.setId(id);
+        store.onUserChanged(new UserChangedEvent(user, UserChangedEvent.Change.CREATED));
+        return user;
+    }
+
+    private static Date date(String dateTime) {
+        return Date.from(LocalDateTime.parse(dateTime).toInstant(ZoneOffset.UTC));
+    }
+
+    private static Training training(Long id, User user, String start, int minutes, ActivityType activityType,
+                                     double distance, double averageSpeed) {
+        LocalDateTime startTime = LocalDateTime.parse(start);
+        Training training = new Training(user, Date.from(startTime.toInstant(ZoneOffset.UTC)),
+                Date.from(startTime.plusMinutes(minutes).toInstant(ZoneOffset.UTC)), activityType, distance, averageSpeed);
+        training.setId(id);
+        return training;
+    }
+}
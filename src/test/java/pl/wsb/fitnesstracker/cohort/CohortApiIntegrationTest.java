@@ -0,0 +1,107 @@
+package pl.wsb.fitnesstracker.cohort;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import pl.wsb.fitnesstracker.IntegrationTest;
+import pl.wsb.fitnesstracker.IntegrationTestBase;
+import pl.wsb.fitnesstracker.user.api.User;
+
+import java.time.LocalDate;
+
+import static java.util.UUID.randomUUID;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.log;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Not transactional: the sketches are updated only after the writing transaction commits.
+ */
+@IntegrationTest
+@AutoConfigureMockMvc(addFilters = false)
+class CohortApiIntegrationTest extends IntegrationTestBase {
+
+    private static final String TRAINING = """
+            {
+                "userId": "%s",
+                "startTime": "%s",
+                "endTime": "%s",
+                "activityType": "RUNNING",
+                "distance": %s,
+                "averageSpeed": 10.0
+            }
+            """;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void shouldRankMonthlyDistanceWithinAgeGroup_whenCohortsAreRebuilt() throws Exception {
+        User slowest = existingUser(userBornOn(LocalDate.of(1930, 5, 1)));
+        User median = existingUser(userBornOn(LocalDate.of(1931, 5, 1)));
+        User faster = existingUser(userBornOn(LocalDate.of(1932, 5, 1)));
+        User fastest = existingUser(userBornOn(LocalDate.of(1933, 5, 1)));
+        User younger = existingUser(userBornOn(LocalDate.of(1990, 5, 1)));
+        User idle = existingUser(userBornOn(LocalDate.of(1930, 5, 1)));
+        createTraining(slowest, "2024-03-05T10:00:00", 5.0);
+        createTraining(median, "2024-03-05T10:00:00", 10.0);
+        createTraining(faster, "2024-03-05T10:00:00", 20.0);
+        createTraining(fastest, "2024-03-05T10:00:00", 15.0);
+        createTraining(fastest, "2024-03-20T10:00:00", 25.0);
+        createTraining(younger, "2024-03-05T10:00:00", 100.0);
+
+        mockMvc.perform(post("/v1/users/cohorts/rebuild"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/v1/users/{id}/rank", median.getId())
+                        .param("activityType", "RUNNING")
+                        .param("month", "2024-03"))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ageGroup").value("90+"))
+                .andExpect(jsonPath("$.month").value("2024-03"))
+                .andExpect(jsonPath("$.monthlyDistance").value(10.0))
+                .andExpect(jsonPath("$.cohortSize").value(4))
+                .andExpect(jsonPath("$.percentile").value(50.0));
+        mockMvc.perform(get("/v1/users/{id}/rank", fastest.getId())
+                        .param("activityType", "RUNNING")
+                        .param("month", "2024-03"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.monthlyDistance").value(40.0))
+                .andExpect(jsonPath("$.percentile").value(100.0));
+        mockMvc.perform(get("/v1/users/{id}/rank", idle.getId())
+                        .param("activityType", "RUNNING")
+                        .param("month", "2024-03"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.monthlyDistance").value(0.0))
+                .andExpect(jsonPath("$.percentile").value(0.0));
+        mockMvc.perform(get("/v1/users/{id}/rank", younger.getId())
+                        .param("activityType", "RUNNING")
+                        .param("month", "2024-03"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ageGroup").value("30-39"))
+                .andExpect(jsonPath("$.cohortSize").value(1))
+                .andExpect(jsonPath("$.percentile").value(100.0));
+    }
+
+    @Test
+    void shouldReturnNotFound_whenRankingUnknownUser() throws Exception {
+        mockMvc.perform(get("/v1/users/{id}/rank", 987654321L).param("activityType", "RUNNING"))
+                .andExpect(status().isNotFound());
+    }
+
+    private void createTraining(User user, String startTime, double distance) throws Exception {
+        String endTime = startTime.replace("T10:", "T11:");
+        mockMvc.perform(post("/v1/trainings").contentType(MediaType.APPLICATION_JSON)
+                        .content(TRAINING.formatted(user.getId(), startTime, endTime, distance)))
+                .andExpect(status().isCreated());
+    }
+
+    private static User userBornOn(LocalDate birthdate) {
+        return new User(randomUUID().toString(), randomUUID().toString(), birthdate, randomUUID().toString());
+    }
+}
@@ -0,0 +1,102 @@
+package pl.wsb.fitnesstracker.engagement;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import pl.wsb.fitnesstracker.IntegrationTest;
+import pl.wsb.fitnesstracker.IntegrationTestBase;
+import pl.wsb.fitnesstracker.user.api.User;
+
+import java.time.LocalDate;
+
+import static java.util.UUID.randomUUID;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.log;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Not transactional: the sketches are updated only after the writing transaction commits.
+ */
+@IntegrationTest
+@AutoConfigureMockMvc(addFilters = false)
+class ActiveUsersApiIntegrationTest extends IntegrationTestBase {
+
+    private static final String TRAINING = """
+            {
+                "userId": "%s",
+                "startTime": "%sT10:00:00",
+                "endTime": "%sT11:00:00",
+                "activityType": "%s",
+                "distance": 5.0,
+                "averageSpeed": 10.0
+            }
+            """;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void shouldCountDistinctActiveUsers_perDayWeekAndMonth() throws Exception {
+        mockMvc.perform(post("/v1/analytics/active-users/rebuild")).andExpect(status().isOk());
+        User first = existingUser(newUser());
+        User second = existingUser(newUser());
+        User third = existingUser(newUser());
+        createTraining(first, "2019-06-03", "RUNNING");
+        createTraining(first, "2019-06-04", "RUNNING");
+        createTraining(second, "2019-06-04", "RUNNING");
+        createTraining(third, "2019-06-04", "CYCLING");
+        createTraining(first, "2019-06-20", "CYCLING");
+
+        mockMvc.perform(get("/v1/analytics/active-users")
+                        .param("activityType", "RUNNING").param("period", "DAY")
+                        .param("from", "2019-06-03").param("to", "2019-06-06"))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.standardError").value(1.04 / 64))
+                .andExpect(jsonPath("$.points[0].from").value("2019-06-03"))
+                .andExpect(jsonPath("$.points[0].activeUsers").value(1))
+                .andExpect(jsonPath("$.points[1].activeUsers").value(2))
+                .andExpect(jsonPath("$.points[2].activeUsers").value(0))
+                .andExpect(jsonPath("$.points[3]").doesNotExist());
+        mockMvc.perform(get("/v1/analytics/active-users")
+                        .param("activityType", "RUNNING").param("period", "MONTH")
+                        .param("from", "2019-06-01").param("to", "2019-07-01"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.points[0].activeUsers").value(2))
+                .andExpect(jsonPath("$.points[1]").doesNotExist());
+        mockMvc.perform(get("/v1/analytics/active-users")
+                        .param("period", "WEEK")
+                        .param("from", "2019-06-03").param("to", "2019-06-24"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.points[0].activeUsers").value(3))
+                .andExpect(jsonPath("$.points[1].activeUsers").value(0))
+                .andExpect(jsonPath("$.points[2].from").value("2019-06-17"))
+                .andExpect(jsonPath("$.points[2].activeUsers").value(1));
+        mockMvc.perform(get("/v1/analytics/active-users")
+                        .param("from", "2019-06-04").param("to", "2019-06-21"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.period").isEmpty())
+                .andExpect(jsonPath("$.points[0].to").value("2019-06-21"))
+                .andExpect(jsonPath("$.points[0].activeUsers").value(3));
+    }
+
+    @Test
+    void shouldRejectEmptyRange() throws Exception {
+        mockMvc.perform(get("/v1/analytics/active-users").param("from", "2019-06-04").param("to", "2019-06-04"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private void createTraining(User user, String day, String activityType) throws Exception {
+        mockMvc.perform(post("/v1/trainings").contentType(MediaType.APPLICATION_JSON)
+                        .content(TRAINING.formatted(user.getId(), day, day, activityType)))
+                .andExpect(status().isCreated());
+    }
+
+    private static User newUser() {
+        return new User(randomUUID().toString(), randomUUID().toString(), LocalDate.of(1990, 1, 1), randomUUID().toString());
+    }
+}
@@ -0,0 +1,70 @@
+package pl.wsb.fitnesstracker.export;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import pl.wsb.fitnesstracker.IntegrationTest;
+import pl.wsb.fitnesstracker.IntegrationTestBase;
+import pl.wsb.fitnesstracker.training.api.Training;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+import pl.wsb.fitnesstracker.user.api.User;
+
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.util.TimeZone;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.log;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@IntegrationTest
+@Transactional
+@AutoConfigureMockMvc(addFilters = false)
+class ExportApiIntegrationTest extends IntegrationTestBase {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void shouldStreamUsersAsNdjson_whenExportingUsers() throws Exception {
+        User user1 = existingUser(new User("Emma", "Johnson", LocalDate.of(1990, 1, 2), "emma@domain.com"));
+        User user2 = existingUser(new User("Ethan", "Taylor", LocalDate.of(1985, 3, 4), "ethan@domain.com"));
+
+        String body = mockMvc.perform(get("/v1/export/users"))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(body.split("\n")).containsExactly(
+                "{\"id\":%d,\"firstName\":\"Emma\",\"lastName\":\"Johnson\",\"birthdate\":\"1990-01-02\",\"email\":\"emma@domain.com\"}".formatted(user1.getId()),
+                "{\"id\":%d,\"firstName\":\"Ethan\",\"lastName\":\"Taylor\",\"birthdate\":\"1985-03-04\",\"email\":\"ethan@domain.com\"}".formatted(user2.getId()));
+    }
+
+    @Test
+    void shouldStreamTrainingsAsCsv_whenExportingTrainings() throws Exception {
+        User user = existingUser(new User("Emma", "Johnson", LocalDate.of(1990, 1, 2), "emma@domain.com"));
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        sdf.setTimeZone(TimeZone.getTimeZone("UTC"));
+        Training training = persistTraining(new Training(user,
+                sdf.parse("2024-01-19 08:00:00"),
+                sdf.parse("2024-01-19 09:30:00"),
+                ActivityType.RUNNING,
+                10.5,
+                8.2));
+
+        String body = mockMvc.perform(get("/v1/export/trainings").param("format", "CSV"))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(body.split("\r\n")).containsExactly(
+                "id,userId,startTime,endTime,activityType,distance,averageSpeed",
+                "%d,%d,2024-01-19T08:00:00Z,2024-01-19T09:30:00Z,RUNNING,10.5,8.2".formatted(training.getId(), user.getId()));
+    }
+}
@@ -0,0 +1,104 @@
+package pl.wsb.fitnesstracker.export;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import pl.wsb.fitnesstracker.Benchmark;
+import pl.wsb.fitnesstracker.export.api.ExportFormat;
+import pl.wsb.fitnesstracker.export.api.ExportService;
+
+import java.io.OutputStream;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures export throughput (rows/s) and retained heap for a large trainings table.
+ */
+@Benchmark
+@SpringBootTest
+class ExportServiceBenchmark {
+
+    private static final long FIRST_ID = 10_000_000L;
+    private static final int USERS = 1_000;
+    private static final int TRAININGS = 500_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ExportService exportService;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("delete from trainings where id >= ?", FIRST_ID);
+        jdbcTemplate.update("delete from users where id >= ?", FIRST_ID);
+    }
+
+    @Test
+    void exportThroughput() throws Exception {
+        seed();
+
+        for (ExportFormat format : ExportFormat.values()) {
+            CountingOutputStream output = new CountingOutputStream();
+            long heapBefore = usedHeap();
+            long start = System.nanoTime();
+            long rows = exportService.exportTrainings(format, output);
+            long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+            long heapAfter = usedHeap();
+
+            System.out.printf("%-6s rows=%d time=%dms throughput=%d rows/s bytes=%d heap delta=%d KB%n",
+                    format, rows, elapsedMillis, rows * 1000 / elapsedMillis, output.count,
+                    (heapAfter - heapBefore) / 1024);
+        }
+    }
+
+    private void seed() {
+        List<Object[]> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(new Object[]{FIRST_ID + i, "First" + i, "Last" + i, Date.valueOf("1990-01-01"), "bench" + i + "@domain.com"});
+        }
+        jdbcTemplate.batchUpdate("insert into users (id, first_name, last_name, birthdate, email) values (?, ?, ?, ?, ?)", users);
+
+        List<Object[]> trainings = new ArrayList<>();
+        long base = Timestamp.valueOf("2024-01-01 00:00:00").getTime();
+        for (int i = 0; i < TRAININGS; i++) {
+            long start = base + i * 60_000L;
+            trainings.add(new Object[]{FIRST_ID + i, FIRST_ID + i % USERS, new Timestamp(start), new Timestamp(start + 3_600_000L), i % 5, 10.0, 8.0});
+            if (trainings.size() == 10_000) {
+                insertTrainings(trainings);
+                trainings.clear();
+            }
+        }
+        insertTrainings(trainings);
+    }
+
+    private void insertTrainings(List<Object[]> trainings) {
+        jdbcTemplate.batchUpdate("insert into trainings (id, user_id, start_time, end_time, activity_type, distance, average_speed) "
+                + "values (?, ?, ?, ?, ?, ?, ?)", trainings);
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
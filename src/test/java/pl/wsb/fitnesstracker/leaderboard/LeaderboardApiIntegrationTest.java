@@ -0,0 +1,122 @@
+package pl.wsb.fitnesstracker.leaderboard;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import pl.wsb.fitnesstracker.IntegrationTest;
+import pl.wsb.fitnesstracker.IntegrationTestBase;
+import pl.wsb.fitnesstracker.user.api.User;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAdjusters;
+
+import static java.util.UUID.randomUUID;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.log;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Not transactional: the leaderboards are updated only after the writing transaction commits.
+ * Trainings take place today with distances far above any other test's, so they lead the current boards.
+ */
+@IntegrationTest
+@AutoConfigureMockMvc(addFilters = false)
+class LeaderboardApiIntegrationTest extends IntegrationTestBase {
+
+    private static final String TRAINING = """
+            {
+                "userId": "%s",
+                "startTime": "%sT00:%02d:00",
+                "endTime": "%sT00:%02d:00",
+                "activityType": "RUNNING",
+                "distance": %s,
+                "averageSpeed": %s
+            }
+            """;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void shouldRankUsers_andFollowTrainingUpdatesAndUserDeletion() throws Exception {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        User first = existingUser(newUser());
+        User second = existingUser(newUser());
+        User third = existingUser(newUser());
+        createTraining(first, today, 0, 50_000.0, 10.0);
+        createTraining(first, today, 10, 40_000.0, 12.0);
+        createTraining(second, today, 0, 80_000.0, 500.0);
+        Integer thirdTraining = createTraining(third, today, 0, 70_000.0, 400.0);
+
+        mockMvc.perform(get("/v1/leaderboards")
+                        .param("activityType", "RUNNING").param("period", "WEEK").param("metric", "DISTANCE")
+                        .param("limit", "3").param("userId", third.getId().toString()))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.periodStart").value(today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).toString()))
+                .andExpect(jsonPath("$.top[0].userId").value(first.getId()))
+                .andExpect(jsonPath("$.top[0].score").value(90_000.0))
+                .andExpect(jsonPath("$.top[1].userId").value(second.getId()))
+                .andExpect(jsonPath("$.top[2].userId").value(third.getId()))
+                .andExpect(jsonPath("$.top[3]").doesNotExist())
+                .andExpect(jsonPath("$.user.rank").value(3));
+        mockMvc.perform(get("/v1/leaderboards")
+                        .param("activityType", "RUNNING").param("period", "MONTH").param("metric", "SPEED")
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.top[0].userId").value(second.getId()))
+                .andExpect(jsonPath("$.top[1].userId").value(third.getId()));
+
+        mockMvc.perform(put("/v1/trainings/{trainingId}", thirdTraining).contentType(MediaType.APPLICATION_JSON)
+                        .content(TRAINING.formatted(third.getId(), today, 0, today, 1, 100_000.0, 1.0)))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/v1/leaderboards")
+                        .param("activityType", "RUNNING").param("period", "WEEK").param("metric", "DISTANCE")
+                        .param("userId", third.getId().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.top[0].userId").value(third.getId()))
+                .andExpect(jsonPath("$.user.rank").value(1))
+                .andExpect(jsonPath("$.user.score").value(100_000.0));
+
+        mockMvc.perform(delete("/v1/users/{id}", third.getId())).andExpect(status().is2xxSuccessful());
+        mockMvc.perform(get("/v1/leaderboards")
+                        .param("activityType", "RUNNING").param("period", "WEEK").param("metric", "DISTANCE")
+                        .param("userId", first.getId().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.top[0].userId").value(first.getId()))
+                .andExpect(jsonPath("$.top[1].userId").value(second.getId()))
+                .andExpect(jsonPath("$.user.rank").value(1));
+    }
+
+    @Test
+    void shouldRejectDailyAndPastPeriods() throws Exception {
+        mockMvc.perform(get("/v1/leaderboards")
+                        .param("activityType", "RUNNING").param("period", "DAY").param("metric", "DISTANCE"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v1/leaderboards")
+                        .param("activityType", "RUNNING").param("period", "MONTH").param("metric", "DISTANCE")
+                        .param("date", "2000-01-01"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private Integer createTraining(User user, LocalDate day, int minute, double distance, double averageSpeed) throws Exception {
+        String created = mockMvc.perform(post("/v1/trainings").contentType(MediaType.APPLICATION_JSON)
+                        .content(TRAINING.formatted(user.getId(), day, minute, day, minute + 1, distance, averageSpeed)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return JsonPath.read(created, "$.id");
+    }
+
+    private static User newUser() {
+        return new User(randomUUID().toString(), randomUUID().toString(), LocalDate.of(1990, 1, 1), randomUUID().toString());
+    }
+}
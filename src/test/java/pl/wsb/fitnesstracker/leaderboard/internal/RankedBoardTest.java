@@ -0,0 +1,79 @@
+package pl.wsb.fitnesstracker.leaderboard.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RankedBoardTest {
+
+    @Test
+    void shouldRankByScoreDescending_thenByUserId() {
+        RankedBoard board = new RankedBoard();
+        board.put(3, 10.0);
+        board.put(1, 20.0);
+        board.put(2, 10.0);
+        board.put(4, 5.0);
+
+        assertThat(board.top(3)).containsExactly(
+                new RankedBoard.Entry(1, 1, 20.0),
+                new RankedBoard.Entry(2, 2, 10.0),
+                new RankedBoard.Entry(3, 3, 10.0));
+        assertThat(board.entry(4)).isEqualTo(new RankedBoard.Entry(4, 4, 5.0));
+        assertThat(board.entry(5)).isNull();
+    }
+
+    @Test
+    void shouldMoveUser_whenScoreChanges_andForgetRemovedUser() {
+        RankedBoard board = new RankedBoard();
+        board.put(1, 20.0);
+        board.put(2, 10.0);
+        board.put(2, 30.0);
+
+        assertThat(board.size()).isEqualTo(2);
+        assertThat(board.entry(2)).isEqualTo(new RankedBoard.Entry(1, 2, 30.0));
+        assertThat(board.entry(1)).isEqualTo(new RankedBoard.Entry(2, 1, 20.0));
+
+        assertThat(board.remove(2)).isTrue();
+        assertThat(board.remove(2)).isFalse();
+        assertThat(board.entry(1)).isEqualTo(new RankedBoard.Entry(1, 1, 20.0));
+        assertThat(board.top(10)).hasSize(1);
+    }
+
+    @Test
+    void shouldMatchSortedScores_afterRandomUpdates() {
+        Random random = new Random(5);
+        RankedBoard board = new RankedBoard();
+        Map<Long, Double> expected = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            long userId = random.nextInt(2_000);
+            if (random.nextInt(4) == 0) {
+                board.remove(userId);
+                expected.remove(userId);
+            } else {
+                double score = random.nextInt(500);
+                board.put(userId, score);
+                expected.put(userId, score);
+            }
+        }
+        List<Map.Entry<Long, Double>> sorted = new ArrayList<>(expected.entrySet());
+        sorted.sort(Map.Entry.<Long, Double>comparingByValue(Comparator.reverseOrder()).thenComparing(Map.Entry.comparingByKey()));
+
+        assertThat(board.size()).isEqualTo(sorted.size());
+        List<RankedBoard.Entry> top = board.top(50);
+        for (int rank = 1; rank <= sorted.size(); rank++) {
+            Map.Entry<Long, Double> entry = sorted.get(rank - 1);
+            RankedBoard.Entry expectedEntry = new RankedBoard.Entry(rank, entry.getKey(), entry.getValue());
+            assertThat(board.entry(entry.getKey())).isEqualTo(expectedEntry);
+            if (rank <= top.size()) {
+                assertThat(top.get(rank - 1)).isEqualTo(expectedEntry);
+            }
+        }
+    }
+}
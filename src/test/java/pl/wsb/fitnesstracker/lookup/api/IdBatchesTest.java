@@ -0,0 +1,50 @@
+package pl.wsb.fitnesstracker.lookup.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdBatchesTest {
+
+    @Test
+    void shouldQueryDistinctIdsInChunks() {
+        List<Long> ids = new ArrayList<>(LongStream.rangeClosed(1, IdBatches.CHUNK_SIZE + 1).boxed().toList());
+        ids.add(1L);
+        List<List<Long>> queries = new ArrayList<>();
+
+        Map<Long, Long> found = IdBatches.fetch(ids, chunk -> {
+            queries.add(List.copyOf(chunk));
+            return chunk.stream().filter(id -> id % 2 == 0).toList();
+        }, Function.identity());
+
+        assertThat(queries).hasSize(2);
+        assertThat(queries.get(0)).hasSize(IdBatches.CHUNK_SIZE);
+        assertThat(queries.get(1)).containsExactly(IdBatches.CHUNK_SIZE + 1L);
+        assertThat(found).hasSize(IdBatches.CHUNK_SIZE / 2).containsKey(2L).doesNotContainKey(1L);
+    }
+
+    @Test
+    void shouldKeepRequestOrderAndDuplicates_andMarkMissing() {
+        List<LookupResult<String>> results = LookupResult.inRequestOrder(List.of(3L, 1L, 3L), Map.of(3L, "c"));
+
+        assertThat(results).containsExactly(
+                new LookupResult<>(3L, true, "c"),
+                new LookupResult<>(1L, false, null),
+                new LookupResult<>(3L, true, "c"));
+    }
+
+    @Test
+    void shouldRejectTooManyIds() {
+        List<Long> ids = LongStream.rangeClosed(1, IdBatches.MAX_IDS + 1).boxed().toList();
+
+        assertThatThrownBy(() -> IdBatches.fetch(ids, chunk -> List.of(), Function.<Long>identity()))
+                .isInstanceOf(TooManyIdsException.class);
+    }
+}
@@ -0,0 +1,79 @@
+package pl.wsb.fitnesstracker.sketch.api;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HyperLogLogTest {
+
+    private static final int PRECISION = 12;
+
+    @Test
+    void shouldEstimateLargeCardinalities_withinThreeStandardErrors() {
+        for (int cardinality : new int[]{5_000, 50_000, 500_000}) {
+            HyperLogLog sketch = new HyperLogLog(PRECISION);
+            for (long id = 0; id < cardinality; id++) {
+                sketch.add(id);
+            }
+
+            double error = Math.abs(sketch.estimate() - cardinality) / (double) cardinality;
+            assertThat(error).as("cardinality %d", cardinality).isLessThanOrEqualTo(3 * sketch.standardError());
+        }
+    }
+
+    @Test
+    void shouldEstimateSmallCardinalities_almostExactly_andIgnoreRepeatedIds() {
+        HyperLogLog sketch = new HyperLogLog(PRECISION);
+        for (int repeat = 0; repeat < 5; repeat++) {
+            for (long id = 1; id <= 200; id++) {
+                sketch.add(id);
+            }
+        }
+
+        assertThat(sketch.estimate()).isBetween(193L, 207L);
+        assertThat(new HyperLogLog(PRECISION).estimate()).isZero();
+    }
+
+    @Test
+    void shouldEstimateUnion_whenMergingSketches() {
+        HyperLogLog first = new HyperLogLog(PRECISION);
+        HyperLogLog second = new HyperLogLog(PRECISION);
+        HyperLogLog union = new HyperLogLog(PRECISION);
+        for (long id = 0; id < 30_000; id++) {
+            first.add(id);
+            union.add(id);
+        }
+        for (long id = 20_000; id < 60_000; id++) {
+            second.add(id);
+            union.add(id);
+        }
+
+        first.merge(second);
+
+        assertThat(first.estimate()).isEqualTo(union.estimate());
+        assertThatThrownBy(() -> first.merge(new HyperLogLog(10))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldRoundTripSparseAndDenseSketches_throughCompactBytes() {
+        HyperLogLog sparse = new HyperLogLog(PRECISION);
+        for (long id = 0; id < 100; id++) {
+            sparse.add(id * 7919);
+        }
+        HyperLogLog dense = new HyperLogLog(PRECISION);
+        for (long id = 0; id < 100_000; id++) {
+            dense.add(id);
+        }
+
+        byte[] sparseBytes = sparse.toBytes();
+        byte[] denseBytes = dense.toBytes();
+
+        assertThat(sparseBytes.length).isLessThan(400);
+        assertThat(denseBytes.length).isEqualTo(3 + (1 << PRECISION) * 6 / 8);
+        assertThat(HyperLogLog.fromBytes(sparseBytes).estimate()).isEqualTo(sparse.estimate());
+        assertThat(HyperLogLog.fromBytes(denseBytes).estimate()).isEqualTo(dense.estimate());
+        assertThatThrownBy(() -> HyperLogLog.fromBytes(new byte[]{1, PRECISION, 1, 0}))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,96 @@
+package pl.wsb.fitnesstracker.sketch.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.data.Percentage.withPercentage;
+
+class QuantileSketchTest {
+
+    private static final double ACCURACY = 0.01;
+
+    @Test
+    void shouldStayWithinRelativeAccuracy_comparedToExactQuantiles() {
+        Random random = new Random(7);
+        double[] values = new double[20_000];
+        QuantileSketch sketch = new QuantileSketch(ACCURACY, 2048);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.exp(random.nextGaussian() * 1.5 + 2);
+            sketch.add(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double q : new double[]{0, 0.01, 0.25, 0.5, 0.9, 0.99, 0.999, 1}) {
+            double exact = values[(int) Math.floor(q * (values.length - 1))];
+            assertThat(Math.abs(sketch.quantile(q) - exact)).as("q=%s", q).isLessThanOrEqualTo(exact * ACCURACY + 1e-9);
+        }
+        assertThat(sketch.count()).isEqualTo(values.length);
+    }
+
+    @Test
+    void shouldCountValuesAtMostGivenValue() {
+        QuantileSketch sketch = new QuantileSketch(ACCURACY, 2048);
+        for (double value : new double[]{0, 1, 2, 3, 10, 100}) {
+            sketch.add(value);
+        }
+
+        assertThat(sketch.countAtMost(0)).isEqualTo(1);
+        assertThat(sketch.countAtMost(3)).isEqualTo(4);
+        assertThat(sketch.countAtMost(50)).isEqualTo(5);
+        assertThat(sketch.countAtMost(1000)).isEqualTo(6);
+    }
+
+    @Test
+    void shouldRemoveAndMerge_likeExactMultiset() {
+        QuantileSketch first = new QuantileSketch(ACCURACY, 2048);
+        QuantileSketch second = new QuantileSketch(ACCURACY, 2048);
+        for (int i = 1; i <= 100; i++) {
+            first.add(i);
+            second.add(i + 100);
+        }
+        for (int i = 1; i <= 50; i++) {
+            assertThat(first.remove(i)).isTrue();
+        }
+        assertThat(first.remove(1)).isFalse();
+
+        first.merge(second);
+
+        assertThat(first.count()).isEqualTo(150);
+        assertThat(first.quantile(0)).isCloseTo(51, withPercentage(1));
+        assertThat(first.quantile(1)).isCloseTo(200, withPercentage(1));
+        assertThatThrownBy(() -> first.merge(new QuantileSketch(0.05, 10))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldBoundBuckets_byCollapsingLowestValues() {
+        QuantileSketch sketch = new QuantileSketch(ACCURACY, 64);
+        for (int i = 0; i < 10_000; i++) {
+            sketch.add(Math.pow(1.01, i % 2000) * 0.001);
+        }
+
+        assertThat(sketch.estimatedBytes()).isLessThanOrEqualTo(64 + 16 + 8 * 64);
+        assertThat(sketch.quantile(1)).isCloseTo(Math.pow(1.01, 1999) * 0.001, withPercentage(1));
+        assertThat(sketch.count()).isEqualTo(10_000);
+    }
+
+    @Test
+    void shouldRoundTripThroughCompactBytes() {
+        QuantileSketch sketch = new QuantileSketch(ACCURACY, 2048);
+        for (int i = 0; i < 1000; i++) {
+            sketch.add(i * 0.37);
+        }
+
+        byte[] bytes = sketch.toBytes();
+        QuantileSketch restored = QuantileSketch.fromBytes(bytes);
+
+        assertThat(bytes.length).isLessThan(1000);
+        assertThat(restored.count()).isEqualTo(sketch.count());
+        assertThat(restored.quantile(0.5)).isEqualTo(sketch.quantile(0.5));
+        assertThat(restored.countAtMost(100)).isEqualTo(sketch.countAtMost(100));
+        assertThatThrownBy(() -> QuantileSketch.fromBytes(Arrays.copyOf(bytes, 10))).isInstanceOf(IllegalArgumentException.class);
+    }
+}
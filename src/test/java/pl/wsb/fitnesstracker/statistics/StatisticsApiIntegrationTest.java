@@ -0,0 +1,93 @@
+package pl.wsb.fitnesstracker.statistics;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import pl.wsb.fitnesstracker.IntegrationTest;
+import pl.wsb.fitnesstracker.IntegrationTestBase;
+import pl.wsb.fitnesstracker.user.api.User;
+
+import java.time.LocalDate;
+
+import static java.util.UUID.randomUUID;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.log;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Not transactional: the sketches are updated only after the writing transaction commits.
+ */
+@IntegrationTest
+@AutoConfigureMockMvc(addFilters = false)
+class StatisticsApiIntegrationTest extends IntegrationTestBase {
+
+    private static final String TRAINING = """
+            {
+                "userId": "%s",
+                "startTime": "2024-04-%02dT10:00:00",
+                "endTime": "2024-04-%02dT11:00:00",
+                "activityType": "RUNNING",
+                "distance": %s,
+                "averageSpeed": %s
+            }
+            """;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void shouldServeDistanceAndSpeedPercentiles_updatedOnEveryTrainingWrite() throws Exception {
+        User user = existingUser(new User(randomUUID().toString(), randomUUID().toString(), LocalDate.of(1990, 1, 1), randomUUID().toString()));
+        for (int day = 1; day <= 9; day++) {
+            createTraining(user, day, day * 2.0, 10.0);
+        }
+        String created = mockMvc.perform(post("/v1/trainings").contentType(MediaType.APPLICATION_JSON)
+                        .content(TRAINING.formatted(user.getId(), 10, 10, 20.0, 20.0)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        Integer trainingId = JsonPath.read(created, "$.id");
+
+        mockMvc.perform(get("/v1/statistics/users/{userId}/percentiles", user.getId()).param("activityType", "RUNNING"))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.trainings").value(10))
+                .andExpect(jsonPath("$.distance.p50").value(closeTo(10.0, 0.1)))
+                .andExpect(jsonPath("$.distance.p99").value(closeTo(18.0, 0.18)))
+                .andExpect(jsonPath("$.averageSpeed.p50").value(closeTo(10.0, 0.1)))
+                .andExpect(jsonPath("$.sketchBytes").value(greaterThan(0)));
+
+        mockMvc.perform(put("/v1/trainings/{trainingId}", trainingId).contentType(MediaType.APPLICATION_JSON)
+                        .content(TRAINING.formatted(user.getId(), 10, 10, 100.0, 10.0)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/v1/statistics/users/{userId}/percentiles", user.getId()).param("activityType", "RUNNING"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.trainings").value(10))
+                .andExpect(jsonPath("$.distance.p90").value(closeTo(18.0, 0.18)))
+                .andExpect(jsonPath("$.averageSpeed.p99").value(closeTo(10.0, 0.1)));
+        mockMvc.perform(get("/v1/statistics/users/{userId}/percentiles", user.getId()).param("activityType", "SWIMMING"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.trainings").value(0))
+                .andExpect(jsonPath("$.distance.p50").isEmpty());
+    }
+
+    @Test
+    void shouldReturnNotFound_whenUserDoesNotExist() throws Exception {
+        mockMvc.perform(get("/v1/statistics/users/{userId}/percentiles", 987654321L).param("activityType", "RUNNING"))
+                .andExpect(status().isNotFound());
+    }
+
+    private void createTraining(User user, int day, double distance, double averageSpeed) throws Exception {
+        mockMvc.perform(post("/v1/trainings").contentType(MediaType.APPLICATION_JSON)
+                        .content(TRAINING.formatted(user.getId(), day, day, distance, averageSpeed)))
+                .andExpect(status().isCreated());
+    }
+}
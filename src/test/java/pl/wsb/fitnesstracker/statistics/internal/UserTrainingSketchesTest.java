@@ -0,0 +1,92 @@
+package pl.wsb.fitnesstracker.statistics.internal;
+
+import org.junit.jupiter.api.Test;
+import pl.wsb.fitnesstracker.statistics.api.PercentilesDto;
+import pl.wsb.fitnesstracker.training.api.TrainingMeasurement;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.ToDoubleFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserTrainingSketchesTest {
+
+    private static final double ACCURACY = 0.01;
+    private static final int MAX_BUCKETS = 256;
+
+    @Test
+    void shouldMatchExactPercentiles_withinRelativeAccuracy_afterAddsAndRemoves() {
+        Random random = new Random(11);
+        UserTrainingSketches sketches = new UserTrainingSketches(ACCURACY, MAX_BUCKETS);
+        List<TrainingMeasurement> measurements = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            TrainingMeasurement measurement = new TrainingMeasurement(1, ActivityType.RUNNING,
+                    Math.exp(random.nextGaussian() * 0.4 + 2), Math.exp(random.nextGaussian() * 0.15 + 2.3));
+            measurements.add(measurement);
+            sketches.add(measurement);
+        }
+        assertWithinAccuracy(sketches, measurements);
+
+        List<TrainingMeasurement> kept = new ArrayList<>();
+        for (TrainingMeasurement measurement : measurements) {
+            if (random.nextBoolean()) {
+                sketches.remove(measurement);
+            } else {
+                kept.add(measurement);
+            }
+        }
+        assertWithinAccuracy(sketches, kept);
+    }
+
+    @Test
+    void shouldReturnEmptyPercentiles_andDropActivity_whenLastTrainingIsRemoved() {
+        UserTrainingSketches sketches = new UserTrainingSketches(ACCURACY, MAX_BUCKETS);
+        TrainingMeasurement swim = new TrainingMeasurement(1, ActivityType.SWIMMING, 2.0, 3.0);
+        sketches.add(swim);
+
+        sketches.remove(swim);
+
+        assertThat(sketches.isEmpty()).isTrue();
+        assertThat(sketches.count(ActivityType.SWIMMING)).isZero();
+        assertThat(sketches.distancePercentiles(ActivityType.SWIMMING)).isEqualTo(new PercentilesDto(null, null, null));
+    }
+
+    @Test
+    void shouldBoundMemory_regardlessOfNumberAndSpreadOfTrainings() {
+        Random random = new Random(3);
+        UserTrainingSketches sketches = new UserTrainingSketches(ACCURACY, MAX_BUCKETS);
+        for (int i = 0; i < 50_000; i++) {
+            ActivityType activityType = ActivityType.values()[i % ActivityType.values().length];
+            sketches.add(new TrainingMeasurement(1, activityType, Math.exp(random.nextGaussian() * 5), random.nextDouble() * 1_000));
+        }
+
+        assertThat(sketches.estimatedBytes()).isLessThanOrEqualTo(UserTrainingSketches.maxBytes(MAX_BUCKETS));
+        assertThat(sketches.count(ActivityType.RUNNING)).isEqualTo(10_000);
+    }
+
+    private static void assertWithinAccuracy(UserTrainingSketches sketches, List<TrainingMeasurement> measurements) {
+        assertThat(sketches.count(ActivityType.RUNNING)).isEqualTo(measurements.size());
+        assertWithinAccuracy(sketches.distancePercentiles(ActivityType.RUNNING), measurements, TrainingMeasurement::distance);
+        assertWithinAccuracy(sketches.averageSpeedPercentiles(ActivityType.RUNNING), measurements, TrainingMeasurement::averageSpeed);
+    }
+
+    private static void assertWithinAccuracy(PercentilesDto percentiles, List<TrainingMeasurement> measurements,
+                                             ToDoubleFunction<TrainingMeasurement> value) {
+        double[] sorted = measurements.stream().mapToDouble(value).sorted().toArray();
+        assertClose(percentiles.p50(), exact(sorted, 0.5));
+        assertClose(percentiles.p90(), exact(sorted, 0.9));
+        assertClose(percentiles.p99(), exact(sorted, 0.99));
+    }
+
+    private static double exact(double[] sorted, double q) {
+        return sorted[(int) Math.floor(q * (sorted.length - 1))];
+    }
+
+    private static void assertClose(Double actual, double exact) {
+        assertThat(actual).isNotNull();
+        assertThat(Math.abs(actual - exact)).isLessThanOrEqualTo(exact * ACCURACY + 1e-9);
+    }
+}
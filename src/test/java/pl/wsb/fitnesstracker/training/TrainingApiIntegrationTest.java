@@ -1,5 +1,6 @@
 package pl.wsb.fitnesstracker.training;
 
+import com.jayway.jsonpath.JsonPath;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -17,8 +18,11 @@ import java.text.SimpleDateFormat;
 
 import static java.time.LocalDate.now;
 import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.log;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -30,7 +34,7 @@ class TrainingApiIntegrationTest extends IntegrationTestBase {
     @Autowired
     private MockMvc mockMvc;
 
-    private static User generateClient() {
+    static User generateClient() {
         return new User(randomUUID().toString(), randomUUID().toString(), now(), randomUUID().toString());
     }
 
@@ -57,7 +61,7 @@ class TrainingApiIntegrationTest extends IntegrationTestBase {
                 0, 0);
     }
 
-    private static Training generateTrainingWithDetails(User user, String startTime, String endTime, ActivityType activityType, double distance, double averageSpeed) throws ParseException {
+    static Training generateTrainingWithDetails(User user, String startTime, String endTime, ActivityType activityType, double distance, double averageSpeed) throws ParseException {
         SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
 
         return new Training(
@@ -117,6 +121,169 @@ class TrainingApiIntegrationTest extends IntegrationTestBase {
                 .andExpect(jsonPath("$[1]").doesNotExist());
     }
 
+    @Test
+    void shouldReturnNotModified_whenUserTrainingsUnchangedSinceETag() throws Exception {
+
+        User user1 = existingUser(generateClient());
+        persistTraining(generateTraining(user1));
+
+        String etag = mockMvc.perform(get("/v1/trainings/{userId}", user1.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/v1/trainings/{userId}", user1.getId()).header("If-None-Match", etag))
+                .andDo(log())
+                .andExpect(status().isNotModified());
+
+        persistTraining(generateTraining(user1));
+
+        mockMvc.perform(get("/v1/trainings/{userId}", user1.getId()).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[1]").exists());
+    }
+
+    @Test
+    void shouldKeepUserTrainingsETag_whenOtherUserChanges_andChangeIt_whenTrainingMovesAway() throws Exception {
+        User user1 = existingUser(generateClient());
+        User user2 = existingUser(generateClient());
+        User user3 = existingUser(generateClient());
+        Training training = persistTraining(generateTraining(user1));
+
+        String etag = mockMvc.perform(get("/v1/trainings/{userId}", user1.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        persistTraining(generateTraining(user3));
+
+        mockMvc.perform(get("/v1/trainings/{userId}", user1.getId()).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(patch("/v1/trainings/{trainingId}", training.getId())
+                        .contentType("application/merge-patch+json")
+                        .content("{\"userId\": %d}".formatted(user2.getId())))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/v1/trainings/{userId}", user1.getId()).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    void shouldReturnTrainingsInRequestOrder_withNotFoundMarkers_whenGettingTrainingsByIds() throws Exception {
+
+        User user1 = existingUser(generateClient());
+        Training training1 = persistTraining(generateTraining(user1));
+        Training training2 = persistTraining(generateTrainingWithActivityType(user1, ActivityType.TENNIS));
+        long missingId = training2.getId() + 1000;
+
+        mockMvc.perform(get("/v1/trainings").param("ids", "%s,%s,%s".formatted(training2.getId(), missingId, training1.getId())))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(training2.getId()))
+                .andExpect(jsonPath("$[0].found").value(true))
+                .andExpect(jsonPath("$[0].item.activityType").value(ActivityType.TENNIS.toString()))
+                .andExpect(jsonPath("$[0].item.user.email").value(user1.getEmail()))
+                .andExpect(jsonPath("$[1].id").value(missingId))
+                .andExpect(jsonPath("$[1].found").value(false))
+                .andExpect(jsonPath("$[2].item.activityType").value(ActivityType.RUNNING.toString()))
+                .andExpect(jsonPath("$[3]").doesNotExist());
+    }
+
+    @Test
+    void shouldPageUserTrainingsByEndTime_whenFollowingNextCursor() throws Exception {
+
+        User user1 = existingUser(generateClient());
+        User user2 = existingUser(generateClient());
+        Training latest = persistTraining(generateTrainingWithDetails(user1, "2024-05-19 19:00:00", "2024-05-19 20:30:00", ActivityType.RUNNING, 14, 11.5));
+        Training earliest = persistTraining(generateTrainingWithDetails(user1, "2024-05-17 19:00:00", "2024-05-17 20:30:00", ActivityType.RUNNING, 10, 9.5));
+        Training middle = persistTraining(generateTrainingWithDetails(user1, "2024-05-18 19:00:00", "2024-05-18 20:30:00", ActivityType.CYCLING, 30, 20.0));
+        persistTraining(generateTrainingWithDetails(user2, "2024-05-18 10:00:00", "2024-05-18 11:00:00", ActivityType.WALKING, 3, 4.0));
+
+        String firstPage = mockMvc.perform(get("/v1/trainings/{userId}/page", user1.getId()).param("limit", "2").contentType(MediaType.APPLICATION_JSON))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(earliest.getId()))
+                .andExpect(jsonPath("$.items[1].id").value(middle.getId()))
+                .andExpect(jsonPath("$.items[2]").doesNotExist())
+                .andReturn().getResponse().getContentAsString();
+        String cursor = JsonPath.read(firstPage, "$.nextCursor");
+
+        mockMvc.perform(get("/v1/trainings/{userId}/page", user1.getId()).param("limit", "2").param("cursor", cursor).contentType(MediaType.APPLICATION_JSON))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(latest.getId()))
+                .andExpect(jsonPath("$.items[1]").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void shouldPageAllTrainingsById_whenGettingTrainingsPage() throws Exception {
+
+        User user1 = existingUser(generateClient());
+        Training training1 = persistTraining(generateTraining(user1));
+        persistTraining(generateTraining(user1));
+
+        mockMvc.perform(get("/v1/trainings/page").param("limit", "1").contentType(MediaType.APPLICATION_JSON))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(training1.getId()))
+                .andExpect(jsonPath("$.items[1]").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor").isNotEmpty());
+    }
+
+    @Test
+    void shouldCombineAllCriteria_whenSearchingTrainings() throws Exception {
+
+        User user1 = existingUser(generateClient());
+        User user2 = existingUser(generateClient());
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        Training match1 = persistTraining(new Training(user1, sdf.parse("2024-05-01 08:00:00"), sdf.parse("2024-05-01 09:00:00"), ActivityType.RUNNING, 10, 10));
+        Training match2 = persistTraining(new Training(user1, sdf.parse("2024-05-02 08:00:00"), sdf.parse("2024-05-02 09:00:00"), ActivityType.RUNNING, 12, 11));
+        persistTraining(new Training(user1, sdf.parse("2024-05-03 08:00:00"), sdf.parse("2024-05-03 09:00:00"), ActivityType.RUNNING, 3, 11));
+        persistTraining(new Training(user1, sdf.parse("2024-05-03 08:00:00"), sdf.parse("2024-05-03 09:00:00"), ActivityType.TENNIS, 10, 10));
+        persistTraining(new Training(user1, sdf.parse("2024-06-03 08:00:00"), sdf.parse("2024-06-03 09:00:00"), ActivityType.RUNNING, 10, 10));
+        persistTraining(new Training(user2, sdf.parse("2024-05-02 08:00:00"), sdf.parse("2024-05-02 09:00:00"), ActivityType.RUNNING, 10, 10));
+
+        String firstPage = mockMvc.perform(get("/v1/trainings/search")
+                        .param("userId", user1.getId().toString())
+                        .param("activityType", "RUNNING")
+                        .param("from", "2024-05-01T00:00:00")
+                        .param("to", "2024-06-01T00:00:00")
+                        .param("minDistance", "5")
+                        .param("maxSpeed", "20")
+                        .param("limit", "1"))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(match1.getId()))
+                .andExpect(jsonPath("$.items[1]").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor").isNotEmpty())
+                .andReturn().getResponse().getContentAsString();
+        String cursor = JsonPath.read(firstPage, "$.nextCursor");
+
+        mockMvc.perform(get("/v1/trainings/search")
+                        .param("userId", user1.getId().toString())
+                        .param("activityType", "RUNNING")
+                        .param("from", "2024-05-01T00:00:00")
+                        .param("to", "2024-06-01T00:00:00")
+                        .param("minDistance", "5")
+                        .param("maxSpeed", "20")
+                        .param("limit", "1")
+                        .param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(match2.getId()))
+                .andExpect(jsonPath("$.items[0].user.id").value(user1.getId()))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void shouldRejectEmptyRange_whenSearchingTrainings() throws Exception {
+
+        mockMvc.perform(get("/v1/trainings/search").param("minSpeed", "10").param("maxSpeed", "5"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v1/trainings/search").param("from", "2024-05-01T00:00:00").param("to", "2024-04-01T00:00:00"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void shouldReturnAllFinishedTrainingsAfterTime_whenGettingAllFinishedTrainingsAfterTime() throws Exception {
 
@@ -194,6 +361,41 @@ class TrainingApiIntegrationTest extends IntegrationTestBase {
 
     }
 
+    @Test
+    void shouldIngestNdjsonTrainings_andReportResultPerLine() throws Exception {
+
+        User user1 = existingUser(generateClient());
+        long missingUserId = user1.getId() + 1000;
+        String requestBody = """
+                {"userId": %1$s, "startTime": "2024-04-01T10:00:00", "endTime": "2024-04-01T11:00:00", "activityType": "RUNNING", "distance": 10.0, "averageSpeed": 10.0}
+                {"userId": %2$s, "startTime": "2024-04-01T10:00:00", "endTime": "2024-04-01T11:00:00", "activityType": "RUNNING", "distance": 10.0, "averageSpeed": 10.0}
+
+                {"userId": %1$s, "startTime": "2024-04-02T10:00:00", "endTime": "2024-04-02T09:00:00", "activityType": "TENNIS", "distance": 0.0, "averageSpeed": 0.0}
+                {"userId": %1$s, "startTime": "not a date"
+                {"userId": %1$s, "startTime": "2024-04-03T10:00:00", "endTime": "2024-04-03T11:00:00", "activityType": "TENNIS", "distance": 0.0, "averageSpeed": 0.0}
+                """.formatted(user1.getId(), missingUserId);
+
+        mockMvc.perform(post("/v1/trainings/ingest").contentType("application/x-ndjson").content(requestBody))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.rejected").value(3))
+                .andExpect(jsonPath("$.lines[0].line").value(1))
+                .andExpect(jsonPath("$.lines[0].trainingId").isNumber())
+                .andExpect(jsonPath("$.lines[1].line").value(2))
+                .andExpect(jsonPath("$.lines[1].error").value("User with ID=%s was not found".formatted(missingUserId)))
+                .andExpect(jsonPath("$.lines[2].line").value(4))
+                .andExpect(jsonPath("$.lines[2].error").value("endTime must not be before startTime"))
+                .andExpect(jsonPath("$.lines[3].line").value(5))
+                .andExpect(jsonPath("$.lines[3].trainingId").doesNotExist())
+                .andExpect(jsonPath("$.lines[4].line").value(6))
+                .andExpect(jsonPath("$.lines[4].trainingId").isNumber());
+
+        assertThat(getAllTrainings())
+                .extracting(Training::getActivityType)
+                .containsExactlyInAnyOrder(ActivityType.RUNNING, ActivityType.TENNIS);
+    }
+
     @Test
     void shouldUpdateTraining_whenUpdatingTraining() throws Exception {
 
@@ -221,6 +423,154 @@ class TrainingApiIntegrationTest extends IntegrationTestBase {
                 .andExpect(jsonPath("$.averageSpeed").value(0.0));
     }
 
+    @Test
+    void shouldPatchOnlyGivenFields_andRejectStaleIfMatch_whenPatchingTraining() throws Exception {
+        User user1 = existingUser(generateClient());
+        Training training1 = persistTraining(generateTraining(user1));
 
-}
+        mockMvc.perform(patch("/v1/trainings/{trainingId}", training1.getId())
+                        .contentType("application/merge-patch+json")
+                        .header("If-Match", "\"0\"")
+                        .content("{\"distance\": 12.0}"))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""))
+                .andExpect(jsonPath("$.version").value(1))
+                .andExpect(jsonPath("$.distance").value(12.0))
+                .andExpect(jsonPath("$.averageSpeed").value(8.2))
+                .andExpect(jsonPath("$.activityType").value(ActivityType.RUNNING.toString()))
+                .andExpect(jsonPath("$.user.id").value(user1.getId()));
+
+        mockMvc.perform(patch("/v1/trainings/{trainingId}", training1.getId())
+                        .contentType("application/merge-patch+json")
+                        .header("If-Match", "\"0\"")
+                        .content("{\"distance\": 5.0}"))
+                .andExpect(status().isPreconditionFailed());
+
+        mockMvc.perform(patch("/v1/trainings/{trainingId}", training1.getId())
+                        .contentType("application/merge-patch+json")
+                        .content("{\"activityType\": null}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReflectWrites_whenUserTimelineIsCached() throws Exception {
+        User user1 = existingUser(generateClient());
+        Training training1 = persistTraining(generateTraining(user1));
+
+        mockMvc.perform(get("/v1/trainings/{userId}", user1.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(training1.getId()))
+                .andExpect(jsonPath("$[1]").doesNotExist());
+
+        String requestBody = """
+                {
+                    "userId": "%s",
+                    "startTime": "2024-04-01T10:00:00",
+                    "endTime": "2024-04-01T11:00:00",
+                    "activityType": "CYCLING",
+                    "distance": 30.0,
+                    "averageSpeed": 20.0
+                }
+                """.formatted(user1.getId());
+        mockMvc.perform(post("/v1/trainings").contentType(MediaType.APPLICATION_JSON).content(requestBody))
+                .andExpect(status().isCreated());
+        mockMvc.perform(patch("/v1/trainings/{trainingId}", training1.getId())
+                        .contentType("application/merge-patch+json")
+                        .content("{\"distance\": 11.0}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/v1/trainings/{userId}", user1.getId()))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(training1.getId()))
+                .andExpect(jsonPath("$[0].distance").value(11.0))
+                .andExpect(jsonPath("$[1].activityType").value(ActivityType.CYCLING.toString()))
+                .andExpect(jsonPath("$[2]").doesNotExist());
+
+        mockMvc.perform(delete("/v1/users/{userId}", user1.getId()))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/v1/trainings/{userId}", user1.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0]").doesNotExist());
+    }
 
+    @Test
+    void shouldSummarizeTrainingsFromRollups_whenTrainingsAreCreatedUpdatedAndRebuilt() throws Exception {
+        User user1 = existingUser(generateClient());
+        String requestBody = """
+                {
+                    "userId": "%s",
+                    "startTime": "%s",
+                    "endTime": "%s",
+                    "activityType": "%s",
+                    "distance": %s,
+                    "averageSpeed": %s
+                }
+                """;
+        mockMvc.perform(post("/v1/trainings").contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody.formatted(user1.getId(), "2024-01-31T10:00:00", "2024-01-31T11:00:00", "RUNNING", 10.0, 10.0)))
+                .andExpect(status().isCreated());
+        String created = mockMvc.perform(post("/v1/trainings").contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody.formatted(user1.getId(), "2024-02-01T10:00:00", "2024-02-01T10:30:00", "RUNNING", 5.0, 12.0)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        Integer trainingId = JsonPath.read(created, "$.id");
+        mockMvc.perform(post("/v1/trainings").contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody.formatted(user1.getId(), "2024-02-01T12:00:00", "2024-02-01T13:00:00", "CYCLING", 20.0, 20.0)))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/v1/trainings/{userId}/summary", user1.getId())
+                        .param("period", "MONTH").param("from", "2024-01-15").param("to", "2024-02-10"))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].bucketStart").value("2024-01-01"))
+                .andExpect(jsonPath("$[0].activityType").value("RUNNING"))
+                .andExpect(jsonPath("$[0].totalDurationSeconds").value(3600))
+                .andExpect(jsonPath("$[1].bucketStart").value("2024-02-01"))
+                .andExpect(jsonPath("$[1].activityType").value("RUNNING"))
+                .andExpect(jsonPath("$[2].activityType").value("CYCLING"))
+                .andExpect(jsonPath("$[3]").doesNotExist());
+        mockMvc.perform(get("/v1/trainings/{userId}/summary", user1.getId())
+                        .param("period", "WEEK").param("from", "2024-01-29").param("to", "2024-02-12"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].bucketStart").value("2024-01-29"))
+                .andExpect(jsonPath("$[0].activityType").value("RUNNING"))
+                .andExpect(jsonPath("$[0].trainings").value(2))
+                .andExpect(jsonPath("$[0].totalDistance").value(15.0))
+                .andExpect(jsonPath("$[0].maxSpeed").value(12.0))
+                .andExpect(jsonPath("$[1].activityType").value("CYCLING"))
+                .andExpect(jsonPath("$[2]").doesNotExist());
+
+        mockMvc.perform(put("/v1/trainings/{trainingId}", trainingId).contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody.formatted(user1.getId(), "2024-02-05T10:00:00", "2024-02-05T10:30:00", "RUNNING", 6.0, 9.0)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/v1/trainings/{userId}/summary", user1.getId())
+                        .param("period", "WEEK").param("from", "2024-01-29").param("to", "2024-02-12"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].trainings").value(1))
+                .andExpect(jsonPath("$[0].totalDistance").value(10.0))
+                .andExpect(jsonPath("$[0].maxSpeed").value(10.0))
+                .andExpect(jsonPath("$[1].activityType").value("CYCLING"))
+                .andExpect(jsonPath("$[2].bucketStart").value("2024-02-05"))
+                .andExpect(jsonPath("$[2].totalDistance").value(6.0))
+                .andExpect(jsonPath("$[3]").doesNotExist());
+
+        persistTraining(generateTrainingWithDetails(user1, "2024-02-06 12:00:00", "2024-02-06 12:20:00", ActivityType.RUNNING, 3, 9.5));
+        mockMvc.perform(post("/v1/trainings/rollups/rebuild"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/v1/trainings/{userId}/summary", user1.getId())
+                        .param("period", "DAY").param("from", "2024-02-05").param("to", "2024-02-07"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].bucketStart").value("2024-02-05"))
+                .andExpect(jsonPath("$[1].bucketStart").value("2024-02-06"))
+                .andExpect(jsonPath("$[1].totalDurationSeconds").value(1200))
+                .andExpect(jsonPath("$[2]").doesNotExist());
+        mockMvc.perform(get("/v1/trainings/{userId}/summary", user1.getId())
+                        .param("period", "DAY").param("from", "2024-02-07").param("to", "2024-02-05"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,102 @@
+package pl.wsb.fitnesstracker.training;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import pl.wsb.fitnesstracker.IntegrationTest;
+import pl.wsb.fitnesstracker.IntegrationTestBase;
+import pl.wsb.fitnesstracker.training.api.Training;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+import pl.wsb.fitnesstracker.user.api.User;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.log;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static pl.wsb.fitnesstracker.training.TrainingApiIntegrationTest.generateClient;
+import static pl.wsb.fitnesstracker.training.TrainingApiIntegrationTest.generateTrainingWithDetails;
+
+/**
+ * Not transactional: the in-memory training indexes are updated only after the writing transaction commits.
+ */
+@IntegrationTest
+@AutoConfigureMockMvc(addFilters = false)
+class TrainingIndexesIntegrationTest extends IntegrationTestBase {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void shouldReturnMostSimilarTrainingsOfSameActivity_whenGettingSimilarTrainings() throws Exception {
+        User user1 = existingUser(generateClient());
+        User user2 = existingUser(generateClient());
+        Training reference = persistTraining(generateTrainingWithDetails(user1, "2024-02-01 08:00:00", "2024-02-01 09:00:00", ActivityType.RUNNING, 10, 10));
+        Training closest = persistTraining(generateTrainingWithDetails(user2, "2024-02-02 08:00:00", "2024-02-02 09:02:00", ActivityType.RUNNING, 10.2, 10));
+        Training close = persistTraining(generateTrainingWithDetails(user1, "2024-02-03 08:00:00", "2024-02-03 09:10:00", ActivityType.RUNNING, 11, 9.5));
+        persistTraining(generateTrainingWithDetails(user1, "2024-02-04 08:00:00", "2024-02-04 10:30:00", ActivityType.RUNNING, 30, 12));
+        persistTraining(generateTrainingWithDetails(user1, "2024-02-05 08:00:00", "2024-02-05 09:00:00", ActivityType.CYCLING, 10, 10));
+
+        mockMvc.perform(get("/v1/trainings/{trainingId}/similar", reference.getId()).param("k", "2"))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].training.id").value(closest.getId()))
+                .andExpect(jsonPath("$[1].training.id").value(close.getId()))
+                .andExpect(jsonPath("$[2]").doesNotExist());
+
+        mockMvc.perform(get("/v1/trainings/{trainingId}/similar", reference.getId()).param("k", "1").param("sameUser", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].training.id").value(close.getId()));
+
+        mockMvc.perform(get("/v1/trainings/{trainingId}/similar", Long.MAX_VALUE))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldRejectOverlappingTrainings_andListExistingOverlaps() throws Exception {
+        User user1 = existingUser(generateClient());
+        Training training1 = persistTraining(generateTrainingWithDetails(user1, "2024-01-19 08:00:00", "2024-01-19 09:30:00", ActivityType.RUNNING, 10, 8));
+        Training training2 = persistTraining(generateTrainingWithDetails(user1, "2024-01-19 09:00:00", "2024-01-19 10:00:00", ActivityType.RUNNING, 4, 8));
+
+        mockMvc.perform(get("/v1/trainings/overlaps").param("userId", user1.getId().toString()))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].first.id").value(training1.getId()))
+                .andExpect(jsonPath("$[0].second.id").value(training2.getId()))
+                .andExpect(jsonPath("$[1]").doesNotExist());
+
+        String requestBody = """
+                {
+                    "userId": "%s",
+                    "startTime": "2024-01-19T09:45:00",
+                    "endTime": "2024-01-19T10:30:00",
+                    "activityType": "RUNNING",
+                    "distance": 5.0,
+                    "averageSpeed": 8.0
+                }
+                """.formatted(user1.getId());
+        mockMvc.perform(post("/v1/trainings").contentType(MediaType.APPLICATION_JSON).content(requestBody))
+                .andExpect(status().isBadRequest())
+                .andExpect(result -> assertThat(result.getResolvedException())
+                        .hasMessage("Training overlaps training with ID=%s".formatted(training2.getId())));
+
+        mockMvc.perform(post("/v1/trainings").contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody.replace("09:45:00", "10:00:00")))
+                .andExpect(status().isCreated());
+
+        String ndjson = """
+                {"userId": %1$s, "startTime": "2024-01-19T07:00:00", "endTime": "2024-01-19T08:30:00", "activityType": "RUNNING", "distance": 1.0, "averageSpeed": 1.0}
+                {"userId": %1$s, "startTime": "2024-01-20T07:00:00", "endTime": "2024-01-20T08:00:00", "activityType": "RUNNING", "distance": 1.0, "averageSpeed": 1.0}
+                {"userId": %1$s, "startTime": "2024-01-20T07:30:00", "endTime": "2024-01-20T07:45:00", "activityType": "RUNNING", "distance": 1.0, "averageSpeed": 1.0}
+                """.formatted(user1.getId());
+        mockMvc.perform(post("/v1/trainings/ingest").contentType("application/x-ndjson").content(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(1))
+                .andExpect(jsonPath("$.lines[0].error").value("Training overlaps training with ID=%s".formatted(training1.getId())))
+                .andExpect(jsonPath("$.lines[1].trainingId").isNumber())
+                .andExpect(jsonPath("$.lines[2].error").value("Training overlaps line 2"));
+    }
+}
@@ -0,0 +1,81 @@
+package pl.wsb.fitnesstracker.training;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import pl.wsb.fitnesstracker.IntegrationTest;
+import pl.wsb.fitnesstracker.IntegrationTestBase;
+import pl.wsb.fitnesstracker.training.api.TrainingService;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+import pl.wsb.fitnesstracker.user.api.User;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@IntegrationTest
+@TestPropertySource(properties = {
+        "trainings.journal.enabled=true",
+        "trainings.journal.directory=${java.io.tmpdir}/fitnesstracker-journal-test-${random.uuid}",
+        "trainings.journal.drain-interval=PT0.05S"
+})
+class TrainingJournalIntegrationTest extends IntegrationTestBase {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TrainingService trainingService;
+
+    @Test
+    void shouldAcknowledgeTraining_andDrainItIntoTrainingsTable() throws Exception {
+        User user = existingUser(new User(randomUUID().toString(), randomUUID().toString(), LocalDate.now(), randomUUID().toString()));
+        String requestBody = """
+                {
+                    "userId": "%s",
+                    "startTime": "2024-04-01T10:00:00",
+                    "endTime": "2024-04-01T11:00:00",
+                    "activityType": "SWIMMING",
+                    "distance": 2.0,
+                    "averageSpeed": 3.0
+                }
+                """.formatted(user.getId());
+
+        mockMvc.perform(post("/v1/trainings/journal").contentType(MediaType.APPLICATION_JSON).content(requestBody))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.sequence").isNumber());
+
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() ->
+                assertThat(trainingService.findAllByUserId(user.getId()))
+                        .singleElement()
+                        .satisfies(training -> {
+                            assertThat(training.getActivityType()).isEqualTo(ActivityType.SWIMMING);
+                            assertThat(training.getDistance()).isEqualTo(2.0);
+                        }));
+    }
+
+    @Test
+    void shouldRejectTraining_whenUserDoesNotExist() throws Exception {
+        String requestBody = """
+                {
+                    "userId": "987654321",
+                    "startTime": "2024-04-01T10:00:00",
+                    "endTime": "2024-04-01T11:00:00",
+                    "activityType": "SWIMMING",
+                    "distance": 2.0,
+                    "averageSpeed": 3.0
+                }
+                """;
+
+        mockMvc.perform(post("/v1/trainings/journal").contentType(MediaType.APPLICATION_JSON).content(requestBody))
+                .andExpect(status().isNotFound());
+    }
+}
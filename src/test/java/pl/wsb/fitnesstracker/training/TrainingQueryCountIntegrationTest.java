@@ -0,0 +1,102 @@
+package pl.wsb.fitnesstracker.training;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+import pl.wsb.fitnesstracker.IntegrationTest;
+import pl.wsb.fitnesstracker.IntegrationTestBase;
+import pl.wsb.fitnesstracker.training.api.Training;
+import pl.wsb.fitnesstracker.training.api.TrainingDto;
+import pl.wsb.fitnesstracker.training.api.TrainingSearchCriteria;
+import pl.wsb.fitnesstracker.training.api.TrainingService;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+import pl.wsb.fitnesstracker.user.api.User;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@IntegrationTest
+@Transactional
+class TrainingQueryCountIntegrationTest extends IntegrationTestBase {
+
+    private static final int USERS = 5;
+
+    @Autowired
+    private TrainingService trainingService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Long firstUserId;
+
+    @BeforeEach
+    void seed() {
+        for (int i = 0; i < USERS; i++) {
+            User user = existingUser(new User(randomUUID().toString(), randomUUID().toString(), LocalDate.of(1990, 1, 1), randomUUID() + "@domain.com"));
+            if (firstUserId == null) {
+                firstUserId = user.getId();
+            }
+            persistTraining(new Training(user, new Date(0), new Date(3_600_000L + i), ActivityType.RUNNING, 10, 10));
+            persistTraining(new Training(user, new Date(0), new Date(7_200_000L + i), ActivityType.TENNIS, 0, 0));
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void shouldLoadAllTrainingsWithUsers_inSingleStatement() {
+        assertSingleStatement(() -> trainingService.findAll(), USERS * 2);
+    }
+
+    @Test
+    void shouldLoadUserTrainings_inSingleStatement() {
+        assertSingleStatement(() -> trainingService.findAllByUserId(firstUserId), 2);
+    }
+
+    @Test
+    void shouldLoadTrainingsByActivityType_inSingleStatement() {
+        assertSingleStatement(() -> trainingService.findAllByActivityType(ActivityType.TENNIS), USERS);
+    }
+
+    @Test
+    void shouldLoadFinishedTrainings_inSingleStatement() {
+        assertSingleStatement(() -> trainingService.findAllFinishedAfter(LocalDate.of(1960, 1, 1)), USERS * 2);
+    }
+
+    @Test
+    void shouldLoadTrainingPages_inSingleStatement() {
+        assertSingleStatement(() -> trainingService.findAllPage(null, 100).items(), USERS * 2);
+        entityManager.clear();
+        assertSingleStatement(() -> trainingService.findAllByUserIdPage(firstUserId, null, 100).items(), 2);
+    }
+
+    @Test
+    void shouldSearchTrainingsWithUsers_inSingleStatement() {
+        TrainingSearchCriteria criteria = new TrainingSearchCriteria(null, ActivityType.RUNNING, null, null, 1.0, null, null, null);
+
+        assertSingleStatement(() -> trainingService.search(criteria, null, 100).items(), USERS);
+    }
+
+    private void assertSingleStatement(Supplier<List<TrainingDto>> query, int expectedRows) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<TrainingDto> trainings = query.get();
+
+        assertThat(trainings).hasSize(expectedRows).allSatisfy(training -> assertThat(training.getUser().email()).isNotBlank());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,111 @@
+package pl.wsb.fitnesstracker.training;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import pl.wsb.fitnesstracker.Benchmark;
+import pl.wsb.fitnesstracker.training.api.TrainingSearchCriteria;
+import pl.wsb.fitnesstracker.training.api.TrainingService;
+import pl.wsb.fitnesstracker.training.internal.ActivityType;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures latency of typical multi-criteria training searches on a large table
+ * and prints the H2 plan of the underlying queries to confirm index range scans.
+ * The dataset size can be changed with {@code -Dbenchmark.trainings=<rows>}.
+ */
+@Benchmark
+@SpringBootTest
+class TrainingSearchBenchmark {
+
+    private static final long FIRST_ID = 10_000_000L;
+    private static final int USERS = 10_000;
+    private static final int TRAININGS = Integer.getInteger("benchmark.trainings", 2_000_000);
+    private static final int ITERATIONS = 200;
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TrainingService trainingService;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("delete from trainings where id >= ?", FIRST_ID);
+        jdbcTemplate.update("delete from users where id >= ?", FIRST_ID);
+    }
+
+    @Test
+    void searchLatency() {
+        seed();
+        LocalDateTime from = BASE.plusDays(30);
+        LocalDateTime to = from.plusDays(7);
+
+        Map<String, TrainingSearchCriteria> scenarios = new LinkedHashMap<>();
+        scenarios.put("user + window", new TrainingSearchCriteria(FIRST_ID + 42, null, from, to, null, null, null, null));
+        scenarios.put("activity + window", new TrainingSearchCriteria(null, ActivityType.TENNIS, from, to, null, null, null, null));
+        scenarios.put("activity + window + distance", new TrainingSearchCriteria(null, ActivityType.RUNNING, from, to, 15.0, 20.0, null, null));
+        scenarios.put("user + activity + speed", new TrainingSearchCriteria(FIRST_ID + 7, ActivityType.RUNNING, null, null, null, null, 5.0, 12.0));
+
+        scenarios.forEach((name, criteria) -> {
+            int rows = 0;
+            for (int i = 0; i < ITERATIONS; i++) {
+                rows = trainingService.search(criteria, null, 50).items().size();
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                trainingService.search(criteria, null, 50);
+            }
+            long micros = (System.nanoTime() - start) / 1_000 / ITERATIONS;
+            System.out.printf("%-30s rows=%d avg=%dus over %d trainings%n", name, rows, micros, TRAININGS);
+        });
+
+        Timestamp windowStart = Timestamp.valueOf(from);
+        Timestamp windowEnd = Timestamp.valueOf(to);
+        printPlan("select * from trainings where user_id = %d and end_time >= '%s' and end_time < '%s' order by end_time, id"
+                .formatted(FIRST_ID + 42, windowStart, windowEnd));
+        printPlan("select * from trainings where activity_type = %d and end_time >= '%s' and end_time < '%s' order by end_time, id"
+                .formatted(ActivityType.TENNIS.ordinal(), windowStart, windowEnd));
+    }
+
+    private void printPlan(String sql) {
+        System.out.println(jdbcTemplate.queryForObject("explain " + sql, String.class));
+    }
+
+    private void seed() {
+        List<Object[]> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(new Object[]{FIRST_ID + i, "First" + i, "Last" + i, Date.valueOf("1990-01-01"), "search" + i + "@domain.com"});
+        }
+        jdbcTemplate.batchUpdate("insert into users (id, first_name, last_name, birthdate, email) values (?, ?, ?, ?, ?)", users);
+
+        List<Object[]> trainings = new ArrayList<>();
+        long base = Timestamp.valueOf(BASE).getTime();
+        int activityTypes = ActivityType.values().length;
+        for (int i = 0; i < TRAININGS; i++) {
+            long start = base + i * 15_000L;
+            trainings.add(new Object[]{FIRST_ID + i, FIRST_ID + i % USERS, new Timestamp(start), new Timestamp(start + 3_600_000L),
+                    (i / 7) % activityTypes, (double) (i % 30), (double) (i % 17)});
+            if (trainings.size() == 10_000) {
+                insertTrainings(trainings);
+                trainings.clear();
+            }
+        }
+        insertTrainings(trainings);
+    }
+
+    private void insertTrainings(List<Object[]> trainings) {
+        jdbcTemplate.batchUpdate("insert into trainings (id, user_id, start_time, end_time, activity_type, distance, average_speed) "
+                + "values (?, ?, ?, ?, ?, ?, ?)", trainings);
+    }
+}
@@ -0,0 +1,78 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class TrainingDailyTotalsTest {
+
+    private static final LocalDate ORIGIN = LocalDate.of(2024, 1, 1);
+
+    @Test
+    void shouldSumHalfOpenRangeOfDays() {
+        TrainingDailyTotals totals = new TrainingDailyTotals(ORIGIN);
+        totals.add(ORIGIN, 1, 5.0, 600);
+        totals.add(ORIGIN.plusDays(1), 2, 10.0, 1200);
+        totals.add(ORIGIN.plusDays(3), 1, 2.5, 300);
+
+        assertThat(totals.sum(ORIGIN, ORIGIN.plusDays(1))).isEqualTo(new TrainingDailyTotals.Totals(1, 5.0, 600));
+        assertThat(totals.sum(ORIGIN.plusDays(1), ORIGIN.plusDays(4))).isEqualTo(new TrainingDailyTotals.Totals(3, 12.5, 1500));
+        assertThat(totals.sum(ORIGIN.minusYears(1), ORIGIN.plusYears(1))).isEqualTo(new TrainingDailyTotals.Totals(4, 17.5, 2100));
+        assertThat(totals.sum(ORIGIN.plusDays(4), ORIGIN.plusDays(2))).isEqualTo(new TrainingDailyTotals.Totals(0, 0, 0));
+    }
+
+    @Test
+    void shouldKeepTotals_whenGrowingInBothDirections() {
+        TrainingDailyTotals totals = new TrainingDailyTotals(ORIGIN);
+        totals.add(ORIGIN.plusDays(10), 1, 1.0, 60);
+        totals.add(ORIGIN.plusYears(3), 1, 2.0, 120);
+        totals.add(ORIGIN.minusYears(2), 1, 4.0, 240);
+        totals.add(ORIGIN.plusDays(10), -1, -1.0, -60);
+
+        assertThat(totals.capacity()).isGreaterThanOrEqualTo((int) (ORIGIN.plusYears(3).toEpochDay() - ORIGIN.minusYears(2).toEpochDay()));
+        assertThat(totals.sum(ORIGIN.minusYears(2), ORIGIN.minusYears(2).plusDays(1))).isEqualTo(new TrainingDailyTotals.Totals(1, 4.0, 240));
+        assertThat(totals.sum(ORIGIN, ORIGIN.plusYears(3))).isEqualTo(new TrainingDailyTotals.Totals(0, 0, 0));
+        assertThat(totals.sum(ORIGIN, ORIGIN.plusYears(3).plusDays(1))).isEqualTo(new TrainingDailyTotals.Totals(1, 2.0, 120));
+    }
+
+    @Test
+    void shouldMatchBruteForce_forRandomUpdatesAndRanges() {
+        Random random = new Random(42);
+        int days = 2000;
+        long[] counts = new long[days];
+        double[] distances = new double[days];
+        long[] durations = new long[days];
+        TrainingDailyTotals totals = new TrainingDailyTotals(ORIGIN.plusDays(days / 2));
+
+        for (int i = 0; i < 5000; i++) {
+            int day = random.nextInt(days);
+            double distance = random.nextInt(1000) / 10.0;
+            long duration = random.nextInt(7200);
+            counts[day]++;
+            distances[day] += distance;
+            durations[day] += duration;
+            totals.add(ORIGIN.plusDays(day), 1, distance, duration);
+        }
+
+        for (int i = 0; i < 500; i++) {
+            int from = random.nextInt(days);
+            int to = from + random.nextInt(days - from + 1);
+            long count = 0;
+            double distance = 0;
+            long duration = 0;
+            for (int day = from; day < to; day++) {
+                count += counts[day];
+                distance += distances[day];
+                duration += durations[day];
+            }
+            TrainingDailyTotals.Totals sum = totals.sum(ORIGIN.plusDays(from), ORIGIN.plusDays(to));
+            assertThat(sum.trainings()).isEqualTo(count);
+            assertThat(sum.durationSeconds()).isEqualTo(duration);
+            assertThat(sum.distance()).isCloseTo(distance, within(1e-6));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import pl.wsb.fitnesstracker.Benchmark;
+import pl.wsb.fitnesstracker.training.api.TrainingIngestResultDto;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures NDJSON ingest throughput (trainings/s) of {@link TrainingIngestService}.
+ * The number of lines can be changed with {@code -Dbenchmark.trainings=<lines>}.
+ */
+@Benchmark
+@SpringBootTest
+class TrainingIngestBenchmark {
+
+    private static final long FIRST_USER_ID = 10_000_000L;
+    private static final int USERS = 1_000;
+    private static final int TRAININGS = Integer.getInteger("benchmark.trainings", 200_000);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TrainingIngestService trainingIngestService;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("delete from trainings where user_id >= ?", FIRST_USER_ID);
+        jdbcTemplate.update("delete from users where id >= ?", FIRST_USER_ID);
+    }
+
+    @Test
+    void ingestThroughput() throws Exception {
+        List<Object[]> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(new Object[]{FIRST_USER_ID + i, "First" + i, "Last" + i, Date.valueOf("1990-01-01"), "ingest" + i + "@domain.com"});
+        }
+        jdbcTemplate.batchUpdate("insert into users (id, first_name, last_name, birthdate, email) values (?, ?, ?, ?, ?)", users);
+
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < TRAININGS; i++) {
+            body.append("{\"userId\":").append(FIRST_USER_ID + i % USERS)
+                    .append(",\"startTime\":\"2024-04-01T10:00:00\",\"endTime\":\"2024-04-01T11:00:00\"")
+                    .append(",\"activityType\":\"RUNNING\",\"distance\":").append(i % 40)
+                    .append(",\"averageSpeed\":").append(i % 15).append("}\n");
+        }
+        byte[] input = body.toString().getBytes(StandardCharsets.UTF_8);
+
+        long start = System.nanoTime();
+        TrainingIngestResultDto result = trainingIngestService.ingest(new ByteArrayInputStream(input));
+        long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+
+        System.out.printf("lines=%d accepted=%d rejected=%d time=%dms throughput=%d trainings/s%n",
+                TRAININGS, result.accepted(), result.rejected(), elapsedMillis, result.accepted() * 1000 / elapsedMillis);
+    }
+}
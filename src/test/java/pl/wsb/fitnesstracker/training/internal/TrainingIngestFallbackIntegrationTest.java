@@ -0,0 +1,70 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import pl.wsb.fitnesstracker.IntegrationTest;
+import pl.wsb.fitnesstracker.IntegrationTestBase;
+import pl.wsb.fitnesstracker.user.api.User;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.log;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Not transactional: ingest chunks commit in their own transactions, and the totals cache is updated only after commit.
+ */
+@IntegrationTest
+@AutoConfigureMockMvc(addFilters = false)
+class TrainingIngestFallbackIntegrationTest extends IntegrationTestBase {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @SpyBean
+    private TrainingRollups rollups;
+
+    @Test
+    void shouldCountRollupsOnce_whenChunkFailsAfterRollupUpdate_andLinesAreRetriedOneByOne() throws Exception {
+        User user = existingUser(new User("Chunk", "Retry", LocalDate.of(1990, 1, 1), "chunk.retry@domain.com"));
+        mockMvc.perform(get("/v1/users/{id}/totals", user.getId()).param("from", "2024-03-01").param("to", "2024-04-01"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.trainings").value(0));
+
+        AtomicBoolean failed = new AtomicBoolean();
+        doAnswer(invocation -> {
+            Object result = invocation.callRealMethod();
+            if (failed.compareAndSet(false, true)) {
+                throw new DataIntegrityViolationException("Simulated failure after the rollup update");
+            }
+            return result;
+        }).when(AopTestUtils.<TrainingRollups>getUltimateTargetObject(rollups)).add(anyCollection());
+
+        String ndjson = """
+                {"userId": %1$s, "startTime": "2024-03-01T10:00:00", "endTime": "2024-03-01T10:30:00", "activityType": "RUNNING", "distance": 5.0, "averageSpeed": 10.0}
+                {"userId": %1$s, "startTime": "2024-03-05T10:00:00", "endTime": "2024-03-05T10:30:00", "activityType": "RUNNING", "distance": 5.0, "averageSpeed": 10.0}
+                """.formatted(user.getId());
+        mockMvc.perform(post("/v1/trainings/ingest").contentType("application/x-ndjson").content(ndjson))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.rejected").value(0));
+
+        mockMvc.perform(get("/v1/users/{id}/totals", user.getId()).param("from", "2024-03-01").param("to", "2024-04-01"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.trainings").value(2))
+                .andExpect(jsonPath("$.totalDistance").value(10.0))
+                .andExpect(jsonPath("$.totalDurationSeconds").value(3600));
+    }
+}
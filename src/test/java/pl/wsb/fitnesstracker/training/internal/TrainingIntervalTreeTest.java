@@ -0,0 +1,84 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrainingIntervalTreeTest {
+
+    @Test
+    void shouldFindOverlappingIntervals_treatingTouchingIntervalsAsDisjoint() {
+        TrainingIntervalTree tree = new TrainingIntervalTree();
+        tree.insert(1, 0, 10);
+        tree.insert(2, 10, 20);
+        tree.insert(3, 5, 30);
+        tree.insert(4, 40, 50);
+
+        assertThat(tree.overlapping(10, 15, null, 10)).containsExactly(3L, 2L);
+        assertThat(tree.overlapping(10, 15, 3L, 10)).containsExactly(2L);
+        assertThat(tree.overlapping(30, 40, null, 10)).isEmpty();
+        assertThat(tree.overlapping(0, 100, null, 2)).hasSize(2);
+    }
+
+    @Test
+    void shouldRemoveOnlyGivenInterval_whenStartsAreEqual() {
+        TrainingIntervalTree tree = new TrainingIntervalTree();
+        tree.insert(1, 0, 10);
+        tree.insert(2, 0, 10);
+
+        assertThat(tree.remove(1, 0)).isTrue();
+        assertThat(tree.remove(1, 0)).isFalse();
+
+        assertThat(tree.size()).isEqualTo(1);
+        assertThat(tree.overlapping(0, 10, null, 10)).containsExactly(2L);
+    }
+
+    @Test
+    void shouldListAllOverlappingPairs_inStartOrder() {
+        TrainingIntervalTree tree = new TrainingIntervalTree();
+        tree.insert(1, 0, 10);
+        tree.insert(2, 5, 15);
+        tree.insert(3, 10, 12);
+        tree.insert(4, 20, 30);
+
+        List<TrainingIntervalTree.Overlap> overlaps = new ArrayList<>();
+        tree.overlaps(10, overlaps);
+
+        assertThat(overlaps).containsExactly(
+                new TrainingIntervalTree.Overlap(1, 2),
+                new TrainingIntervalTree.Overlap(2, 3));
+    }
+
+    @Test
+    void shouldMatchBruteForce_forRandomIntervals() {
+        Random random = new Random(42);
+        TrainingIntervalTree tree = new TrainingIntervalTree();
+        List<long[]> intervals = new ArrayList<>();
+        for (long id = 0; id < 2_000; id++) {
+            long start = random.nextInt(100_000);
+            long end = start + 1 + random.nextInt(200);
+            tree.insert(id, start, end);
+            intervals.add(new long[]{id, start, end});
+        }
+        for (int i = 0; i < 500; i++) {
+            long[] removed = intervals.remove(random.nextInt(intervals.size()));
+            assertThat(tree.remove(removed[0], removed[1])).isTrue();
+        }
+
+        for (int i = 0; i < 200; i++) {
+            long start = random.nextInt(100_000);
+            long end = start + 1 + random.nextInt(500);
+            List<Long> expected = intervals.stream()
+                    .filter(interval -> interval[1] < end && interval[2] > start)
+                    .map(interval -> interval[0])
+                    .toList();
+
+            assertThat(tree.overlapping(start, end, null, Integer.MAX_VALUE)).containsExactlyInAnyOrderElementsOf(expected);
+        }
+        assertThat(tree.size()).isEqualTo(1_500);
+    }
+}
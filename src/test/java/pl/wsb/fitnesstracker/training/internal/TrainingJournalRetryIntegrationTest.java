@@ -0,0 +1,74 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import pl.wsb.fitnesstracker.IntegrationTest;
+import pl.wsb.fitnesstracker.IntegrationTestBase;
+import pl.wsb.fitnesstracker.training.api.TrainingService;
+import pl.wsb.fitnesstracker.user.api.User;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@IntegrationTest
+@TestPropertySource(properties = {
+        "trainings.journal.enabled=true",
+        "trainings.journal.directory=${java.io.tmpdir}/fitnesstracker-journal-retry-test-${random.uuid}",
+        "trainings.journal.drain-interval=PT0.05S"
+})
+class TrainingJournalRetryIntegrationTest extends IntegrationTestBase {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TrainingService trainingService;
+
+    @SpyBean
+    private TrainingRollups rollups;
+
+    @Test
+    void shouldKeepEntryAndRetryIt_whenInsertFailsTransiently() throws Exception {
+        User user = existingUser(new User("Journal", "Retry", LocalDate.of(1990, 1, 1), "journal.retry@domain.com"));
+        AtomicInteger calls = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (calls.incrementAndGet() <= 2) {
+                throw new QueryTimeoutException("Simulated lock timeout");
+            }
+            return invocation.callRealMethod();
+        }).when(AopTestUtils.<TrainingRollups>getUltimateTargetObject(rollups)).add(anyCollection());
+        String requestBody = """
+                {
+                    "userId": "%s",
+                    "startTime": "2024-04-02T10:00:00",
+                    "endTime": "2024-04-02T11:00:00",
+                    "activityType": "RUNNING",
+                    "distance": 7.0,
+                    "averageSpeed": 7.0
+                }
+                """.formatted(user.getId());
+
+        mockMvc.perform(post("/v1/trainings/journal").contentType(MediaType.APPLICATION_JSON).content(requestBody))
+                .andExpect(status().isAccepted());
+
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() ->
+                assertThat(trainingService.findAllByUserId(user.getId()))
+                        .singleElement()
+                        .satisfies(training -> assertThat(training.getDistance()).isEqualTo(7.0)));
+        assertThat(calls).hasValueGreaterThan(2);
+    }
+}
@@ -0,0 +1,124 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrainingJournalTest {
+
+    private static final long SEGMENT_SIZE = TrainingJournal.HEADER_SIZE + 4L * TrainingJournal.RECORD_SIZE;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void shouldReadAppendedEntriesInOrder_acrossSegments() {
+        try (TrainingJournal journal = new TrainingJournal(directory, SEGMENT_SIZE)) {
+            for (int i = 1; i <= 10; i++) {
+                assertThat(journal.append(i, 1000L * i, 2000L * i, i % 5, i * 1.5, 8.0)).isEqualTo(i);
+            }
+
+            List<TrainingJournal.Entry> entries = journal.read(3, 5);
+
+            assertThat(entries).extracting(TrainingJournal.Entry::sequence).containsExactly(4L, 5L, 6L, 7L, 8L);
+            assertThat(entries.get(0).userId()).isEqualTo(4);
+            assertThat(entries.get(0).distance()).isEqualTo(6.0);
+            assertThat(journal.segmentCount()).isEqualTo(3);
+            assertThat(journal.syncedRecords()).isEqualTo(10);
+        }
+    }
+
+    @Test
+    void shouldRecoverEntriesAndContinueSequence_afterReopening() {
+        try (TrainingJournal journal = new TrainingJournal(directory, SEGMENT_SIZE)) {
+            for (int i = 1; i <= 6; i++) {
+                journal.append(i, 0, 1, 0, 1.0, 1.0);
+            }
+        }
+
+        try (TrainingJournal reopened = new TrainingJournal(directory, SEGMENT_SIZE)) {
+            assertThat(reopened.durableSequence()).isEqualTo(6);
+            assertThat(reopened.read(0, 100)).hasSize(6);
+            assertThat(reopened.append(7, 0, 1, 0, 1.0, 1.0)).isEqualTo(7);
+        }
+    }
+
+    @Test
+    void shouldDropTornEntry_whenRecoveringAfterCrash() throws IOException {
+        try (TrainingJournal journal = new TrainingJournal(directory, SEGMENT_SIZE)) {
+            journal.append(1, 0, 1, 0, 1.0, 1.0);
+            journal.append(2, 0, 1, 0, 1.0, 1.0);
+        }
+        try (RandomAccessFile file = new RandomAccessFile(segments().get(0).toFile(), "rw")) {
+            file.seek(TrainingJournal.HEADER_SIZE + TrainingJournal.RECORD_SIZE + 20);
+            file.writeInt(0xDEAD);
+        }
+
+        try (TrainingJournal reopened = new TrainingJournal(directory, SEGMENT_SIZE)) {
+            assertThat(reopened.read(0, 100)).extracting(TrainingJournal.Entry::userId).containsExactly(1L);
+            assertThat(reopened.append(3, 0, 1, 0, 1.0, 1.0)).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void shouldDeleteFullyAppliedSegments_whenReleasing() throws IOException {
+        try (TrainingJournal journal = new TrainingJournal(directory, SEGMENT_SIZE)) {
+            for (int i = 1; i <= 10; i++) {
+                journal.append(i, 0, 1, 0, 1.0, 1.0);
+            }
+
+            journal.release(6);
+
+            assertThat(segments()).hasSize(2);
+            assertThat(journal.read(6, 100)).extracting(TrainingJournal.Entry::sequence).containsExactly(7L, 8L, 9L, 10L);
+        }
+    }
+
+    @Test
+    void shouldContinueAfterCheckpoint_whenJournalIsBehindDatabase() {
+        try (TrainingJournal journal = new TrainingJournal(directory, SEGMENT_SIZE)) {
+            journal.advanceTo(41);
+
+            assertThat(journal.append(1, 0, 1, 0, 1.0, 1.0)).isEqualTo(42);
+            assertThat(journal.read(41, 10)).extracting(TrainingJournal.Entry::sequence).containsExactly(42L);
+        }
+    }
+
+    @Test
+    void shouldShareFsyncs_whenAppendingConcurrently() throws InterruptedException {
+        try (TrainingJournal journal = new TrainingJournal(directory, 1L << 20)) {
+            Set<Long> sequences = ConcurrentHashMap.newKeySet();
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            for (int i = 0; i < 2_000; i++) {
+                long userId = i;
+                executor.execute(() -> sequences.add(journal.append(userId, 0, 1, 0, 1.0, 1.0)));
+            }
+            executor.shutdown();
+            assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+            assertThat(sequences).hasSize(2_000);
+            assertThat(journal.durableSequence()).isEqualTo(2_000);
+            assertThat(journal.syncedRecords()).isEqualTo(2_000);
+            assertThat(journal.syncCount()).isLessThanOrEqualTo(2_000);
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrainingKdForestTest {
+
+    private final Map<Long, TrainingKdForest.Point> live = new HashMap<>();
+    private final TrainingKdForest forest = new TrainingKdForest(point -> live.get(point.id()) == point);
+
+    @Test
+    void shouldReturnNearestNeighboursInOrder_excludingRejectedPoints() {
+        load(point(1, 10, 10, 60), point(2, 11, 10, 62), point(3, 20, 12, 120), point(4, 10.5, 10, 61));
+
+        List<TrainingKdForest.Neighbour> nearest = forest.nearest(point(1, 10, 10, 60), 2, point -> point.id() != 1);
+
+        assertThat(nearest).extracting(neighbour -> neighbour.point().id()).containsExactly(4L, 2L);
+        assertThat(nearest.get(0).distance()).isLessThan(nearest.get(1).distance());
+    }
+
+    @Test
+    void shouldSkipReplacedAndRemovedPoints() {
+        load(point(1, 10, 10, 60), point(2, 11, 10, 62), point(3, 30, 12, 180));
+
+        put(point(2, 30, 12, 181));
+        TrainingKdForest.Point removed = live.remove(3L);
+        forest.remove(removed);
+
+        assertThat(forest.size()).isEqualTo(2);
+        assertThat(forest.nearest(point(9, 11, 10, 62), 5, point -> true))
+                .extracting(neighbour -> neighbour.point().durationMinutes())
+                .containsExactly(60.0, 181.0);
+    }
+
+    @Test
+    void shouldMatchBruteForce_afterIncrementalUpdates() {
+        Random random = new Random(7);
+        List<TrainingKdForest.Point> initial = new ArrayList<>();
+        for (long id = 0; id < 5_000; id++) {
+            initial.add(randomPoint(random, id));
+        }
+        load(initial.toArray(TrainingKdForest.Point[]::new));
+        for (int i = 0; i < 3_000; i++) {
+            long id = random.nextInt(7_000);
+            if (random.nextInt(4) == 0 && live.containsKey(id)) {
+                forest.remove(live.remove(id));
+            } else {
+                put(randomPoint(random, id));
+            }
+        }
+
+        for (int i = 0; i < 100; i++) {
+            TrainingKdForest.Point query = randomPoint(random, -1);
+            double[] weights = forest.weights();
+            List<Long> expected = live.values().stream()
+                    .sorted(Comparator.comparingDouble(point -> squaredDistance(query, point, weights)))
+                    .limit(10)
+                    .map(TrainingKdForest.Point::id)
+                    .toList();
+
+            assertThat(forest.nearest(query, 10, point -> true))
+                    .extracting(neighbour -> neighbour.point().id())
+                    .containsExactlyElementsOf(expected);
+        }
+        assertThat(forest.size()).isEqualTo(live.size());
+        assertThat(forest.storedSize()).isLessThanOrEqualTo(2 * live.size() + 64);
+    }
+
+    private void load(TrainingKdForest.Point... points) {
+        for (TrainingKdForest.Point point : points) {
+            live.put(point.id(), point);
+        }
+        forest.load(List.of(points));
+    }
+
+    private void put(TrainingKdForest.Point point) {
+        TrainingKdForest.Point previous = live.put(point.id(), point);
+        if (previous != null) {
+            forest.remove(previous);
+        }
+        forest.add(point);
+    }
+
+    private static TrainingKdForest.Point point(long id, double distance, double averageSpeed, double durationMinutes) {
+        return new TrainingKdForest.Point(id, 1, ActivityType.RUNNING, distance, averageSpeed, durationMinutes);
+    }
+
+    private static TrainingKdForest.Point randomPoint(Random random, long id) {
+        return point(id, random.nextDouble() * 40, 5 + random.nextDouble() * 15, 10 + random.nextDouble() * 230);
+    }
+
+    private static double squaredDistance(TrainingKdForest.Point first, TrainingKdForest.Point second, double[] weights) {
+        double squared = 0;
+        for (int axis = 0; axis < TrainingKdForest.DIMENSIONS; axis++) {
+            double difference = first.coordinate(axis) - second.coordinate(axis);
+            squared += weights[axis] * difference * difference;
+        }
+        return squared;
+    }
+}
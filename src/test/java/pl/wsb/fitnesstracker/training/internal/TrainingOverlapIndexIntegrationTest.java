@@ -0,0 +1,68 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.wsb.fitnesstracker.IntegrationTest;
+import pl.wsb.fitnesstracker.IntegrationTestBase;
+import pl.wsb.fitnesstracker.training.api.Training;
+import pl.wsb.fitnesstracker.user.api.User;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Not transactional: the index is updated only after the writing transaction commits.
+ */
+@IntegrationTest
+class TrainingOverlapIndexIntegrationTest extends IntegrationTestBase {
+
+    private static final long START = Instant.parse("2024-05-01T10:00:00Z").toEpochMilli();
+    private static final long END = Instant.parse("2024-05-01T11:00:00Z").toEpochMilli();
+
+    @Autowired
+    private TrainingOverlapIndex overlapIndex;
+
+    @Autowired
+    private TrainingRepository trainingRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void shouldShowUncommittedChangesOnlyToTheirTransaction_andDropThemOnRollback() {
+        User user = existingUser(new User("Overlap", "Pending", LocalDate.of(1990, 1, 1), "overlap.pending@domain.com"));
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Training training = persistTraining(new Training(user, new Date(START), new Date(END), ActivityType.RUNNING, 10, 10));
+
+            assertThat(overlapIndex.findOverlapping(user.getId(), START, END, null, 10)).containsExactly(training.getId());
+            assertThat(overlapIndex.findOverlapping(user.getId(), START, END, training.getId(), 10)).isEmpty();
+            assertThat(CompletableFuture.supplyAsync(() -> overlapIndex.findOverlapping(user.getId(), START, END, null, 10)).join())
+                    .isEmpty();
+            status.setRollbackOnly();
+        });
+
+        assertThat(overlapIndex.findOverlapping(user.getId(), START, END, null, 10)).isEmpty();
+
+        Training committed = persistTraining(new Training(user, new Date(START), new Date(END), ActivityType.RUNNING, 10, 10));
+
+        assertThat(overlapIndex.findOverlapping(user.getId(), START, END, null, 10)).containsExactly(committed.getId());
+        transactionTemplate.executeWithoutResult(status -> {
+            trainingRepository.deleteById(committed.getId());
+            trainingRepository.flush();
+
+            assertThat(overlapIndex.findOverlapping(user.getId(), START, END, null, 10)).isEmpty();
+            assertThat(CompletableFuture.supplyAsync(() -> overlapIndex.findOverlapping(user.getId(), START, END, null, 10)).join())
+                    .isEqualTo(List.of(committed.getId()));
+        });
+        assertThat(overlapIndex.findOverlapping(user.getId(), START, END, null, 10)).isEmpty();
+    }
+}
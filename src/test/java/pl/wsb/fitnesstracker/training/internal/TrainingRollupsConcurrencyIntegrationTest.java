@@ -0,0 +1,78 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.wsb.fitnesstracker.IntegrationTest;
+import pl.wsb.fitnesstracker.IntegrationTestBase;
+import pl.wsb.fitnesstracker.training.api.TrainingPeriod;
+import pl.wsb.fitnesstracker.user.api.User;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mockingDetails;
+
+/**
+ * Not transactional: the concurrent insert has to be committed by a separate transaction on another thread.
+ */
+@IntegrationTest
+class TrainingRollupsConcurrencyIntegrationTest extends IntegrationTestBase {
+
+    @Autowired
+    private TrainingRollups rollups;
+
+    @SpyBean
+    private TrainingRollupRepository rollupRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void shouldIncrementRow_whenAnotherTransactionInsertsItConcurrently() {
+        User user = existingUser(new User("Rollup", "Race", LocalDate.of(1990, 1, 1), "rollup.race@domain.com"));
+        LocalDate day = LocalDate.of(2024, 4, 3);
+        TrainingRollups.Contribution contribution =
+                new TrainingRollups.Contribution(user.getId(), ActivityType.RUNNING, day, 5.0, 1800, 10.0);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        TrainingRollupRepository repository = AopTestUtils.getUltimateTargetObject(rollupRepository);
+        // the spy wraps the repository proxy and reaches it through its default answer
+        Answer<?> delegate = mockingDetails(repository).getMockCreationSettings().getDefaultAnswer();
+        AtomicBoolean raced = new AtomicBoolean();
+        doAnswer(invocation -> {
+            if (raced.compareAndSet(false, true)) {
+                // the row does not exist yet; another transaction inserts and commits it before this one inserts
+                CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(
+                        status -> rollups.add(List.of(contribution)))).join();
+                return 0;
+            }
+            return delegate.answer(invocation);
+        }).when(repository).increment(anyLong(), anyString(), any(), anyInt(), anyLong(), anyDouble(), anyLong(), anyDouble());
+
+        transactionTemplate.executeWithoutResult(status -> rollups.add(List.of(contribution)));
+
+        assertThat(rollups.find(user.getId(), TrainingPeriod.DAY, day, day.plusDays(1)))
+                .singleElement()
+                .satisfies(summary -> {
+                    assertThat(summary.trainings()).isEqualTo(2);
+                    assertThat(summary.totalDistance()).isEqualTo(10.0);
+                });
+        assertThat(rollups.find(user.getId(), TrainingPeriod.MONTH, day.withDayOfMonth(1), day.withDayOfMonth(2)))
+                .singleElement()
+                .satisfies(summary -> assertThat(summary.trainings()).isEqualTo(2));
+    }
+}
@@ -0,0 +1,131 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pl.wsb.fitnesstracker.training.api.Training;
+import pl.wsb.fitnesstracker.training.api.TrainingChangedEvent;
+import pl.wsb.fitnesstracker.training.api.TrainingDto;
+import pl.wsb.fitnesstracker.user.api.User;
+import pl.wsb.fitnesstracker.user.api.UserChangedEvent;
+import pl.wsb.fitnesstracker.user.internal.UserMapper;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrainingTimelineCacheTest {
+
+    private final TrainingMapper trainingMapper = new TrainingMapper(new UserMapper());
+    private final List<Training> database = new ArrayList<>();
+    private final AtomicInteger databaseCalls = new AtomicInteger();
+
+    private MeterRegistry meterRegistry;
+    private TrainingTimelineCache cache;
+    private User emma;
+    private User john;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new TrainingTimelineCache(new TrainingTimelineCacheProperties(5, Duration.ofMinutes(5)),
+                trainingMapper, new UserMapper(), meterRegistry);
+        emma = user(1L, "Emma");
+        john = user(2L, "John");
+        database.add(training(12L, emma, 10.0));
+        database.add(training(11L, emma, 5.0));
+        database.add(training(13L, john, 7.0));
+    }
+
+    @Test
+    void shouldHitDatabaseOnlyOnce_andKeepTimelineSortedById() {
+        cache.get(1L, this::findByUserId);
+        List<TrainingDto> timeline = cache.get(1L, this::findByUserId);
+
+        assertThat(timeline).extracting(TrainingDto::getId).containsExactly(11L, 12L);
+        assertThat(timeline.get(0).getUser()).isSameAs(timeline.get(1).getUser());
+        assertThat(databaseCalls).hasValue(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "trainings.timeline").tag("result", "hit").functionCounter().count())
+                .isEqualTo(1.0);
+        assertThat(meterRegistry.get("trainings.timeline.trainings").gauge().value()).isEqualTo(2.0);
+        assertThat(meterRegistry.get("trainings.timeline.memory").gauge().value()).isPositive();
+    }
+
+    @Test
+    void shouldApplyChangesInPlace_withoutReloadingTimeline() {
+        cache.get(1L, this::findByUserId);
+
+        cache.onTrainingChanged(new TrainingChangedEvent(training(10L, emma, 3.0), TrainingChangedEvent.Change.CREATED));
+        cache.onTrainingChanged(new TrainingChangedEvent(training(12L, emma, 42.0), TrainingChangedEvent.Change.UPDATED));
+        cache.onTrainingChanged(new TrainingChangedEvent(training(11L, emma, 5.0), TrainingChangedEvent.Change.DELETED));
+        List<TrainingDto> timeline = cache.get(1L, this::findByUserId);
+
+        assertThat(timeline).extracting(TrainingDto::getId).containsExactly(10L, 12L);
+        assertThat(timeline).extracting(TrainingDto::getDistance).containsExactly(3.0, 42.0);
+        assertThat(databaseCalls).hasValue(1);
+    }
+
+    @Test
+    void shouldMoveTraining_whenItChangesOwner() {
+        cache.get(1L, this::findByUserId);
+        cache.get(2L, this::findByUserId);
+
+        cache.onTrainingChanged(new TrainingChangedEvent(training(12L, john, 10.0), TrainingChangedEvent.Change.UPDATED));
+
+        assertThat(cache.get(1L, this::findByUserId)).extracting(TrainingDto::getId).containsExactly(11L);
+        assertThat(cache.get(2L, this::findByUserId)).extracting(TrainingDto::getId).containsExactly(12L, 13L);
+        assertThat(databaseCalls).hasValue(2);
+    }
+
+    @Test
+    void shouldReplaceEmbeddedUser_whenUserIsUpdated() {
+        cache.get(1L, this::findByUserId);
+
+        User renamed = user(1L, "Emily");
+        cache.onUserChanged(new UserChangedEvent(renamed, UserChangedEvent.Change.UPDATED));
+
+        assertThat(cache.get(1L, this::findByUserId))
+                .allSatisfy(training -> assertThat(training.getUser().firstName()).isEqualTo("Emily"));
+        assertThat(databaseCalls).hasValue(1);
+    }
+
+    @Test
+    void shouldBoundCacheByTotalTrainings_notByUserCount() {
+        for (long id = 20; id < 26; id++) {
+            database.add(training(id, user(3L, "Bulk"), 1.0));
+        }
+
+        cache.get(1L, this::findByUserId);
+        cache.get(3L, this::findByUserId);
+        cache.get(2L, this::findByUserId);
+        cache.cleanUp();
+
+        assertThat(meterRegistry.get("trainings.timeline.trainings").gauge().value()).isLessThanOrEqualTo(5.0);
+    }
+
+    private List<TrainingDto> findByUserId(Long userId) {
+        databaseCalls.incrementAndGet();
+        return database.stream()
+                .filter(training -> training.getUser().getId().equals(userId))
+                .map(trainingMapper::toDto)
+                .toList();
+    }
+
+    private static User user(Long id, String firstName) {
+        User user = new User(firstName, "Smith", LocalDate.of(1990, 1, 1), firstName.toLowerCase() + "@domain.com");
+        user.setId(id);
+        return user;
+    }
+
+    private static Training training(Long id, User user, double distance) {
+        Training training = new Training(user, new Date(0), new Date(3_600_000), ActivityType.RUNNING, distance, 8.0);
+        training.setId(id);
+        return training;
+    }
+}
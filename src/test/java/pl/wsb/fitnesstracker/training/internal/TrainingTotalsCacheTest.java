@@ -0,0 +1,149 @@
+package pl.wsb.fitnesstracker.training.internal;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrainingTotalsCacheTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 10);
+
+    private final List<TrainingRollupRepository.DailyTotal> database = new ArrayList<>();
+    private final AtomicInteger databaseCalls = new AtomicInteger();
+
+    private MeterRegistry meterRegistry;
+    private TrainingTotalsCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new TrainingTotalsCache(new TrainingTotalsCacheProperties(10_000, Duration.ofMinutes(5)), meterRegistry);
+        database.add(new TrainingRollupRepository.DailyTotal(DAY, 2, 12.0, 3600));
+        database.add(new TrainingRollupRepository.DailyTotal(DAY.plusDays(5), 1, 3.0, 900));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void shouldLoadUserOnce_andAnswerAnyRangeFromTree() {
+        assertThat(cache.sum(1L, DAY, DAY.plusDays(1), this::load)).isEqualTo(new TrainingDailyTotals.Totals(2, 12.0, 3600));
+        assertThat(cache.sum(1L, DAY.minusDays(30), DAY.plusDays(30), this::load)).isEqualTo(new TrainingDailyTotals.Totals(3, 15.0, 4500));
+
+        assertThat(databaseCalls).hasValue(1);
+        assertThat(meterRegistry.get("trainings.totals.memory").gauge().value()).isPositive();
+    }
+
+    @Test
+    void shouldUpdateCachedTreeInPlace_whenNoTransactionIsActive() {
+        cache.sum(1L, DAY, DAY.plusDays(1), this::load);
+
+        cache.apply(List.of(new TrainingTotalsCache.Delta(1L, DAY.plusDays(1), 1, 4.0, 600),
+                new TrainingTotalsCache.Delta(1L, DAY, -1, -6.0, -1800)));
+
+        assertThat(cache.sum(1L, DAY, DAY.plusDays(2), this::load)).isEqualTo(new TrainingDailyTotals.Totals(2, 10.0, 2400));
+        assertThat(databaseCalls).hasValue(1);
+    }
+
+    @Test
+    void shouldApplyChangesOnlyAfterCommit_andReadThroughDatabaseInsideWritingTransaction() {
+        cache.sum(1L, DAY, DAY.plusDays(1), this::load);
+        TransactionSynchronizationManager.initSynchronization();
+
+        cache.apply(List.of(new TrainingTotalsCache.Delta(1L, DAY, 1, 1.0, 60)));
+        database.set(0, new TrainingRollupRepository.DailyTotal(DAY, 3, 13.0, 3660));
+
+        assertThat(cache.sum(1L, DAY, DAY.plusDays(1), this::load).trainings()).isEqualTo(3);
+        assertThat(cache.sum(2L, DAY, DAY.plusDays(1), this::load).trainings()).isEqualTo(3);
+        assertThat(databaseCalls).hasValue(3);
+
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertThat(cache.sum(1L, DAY, DAY.plusDays(1), this::load)).isEqualTo(new TrainingDailyTotals.Totals(3, 13.0, 3660));
+        assertThat(databaseCalls).hasValue(3);
+    }
+
+    @Test
+    void shouldDiscardChanges_whenTransactionRollsBack() {
+        cache.sum(1L, DAY, DAY.plusDays(1), this::load);
+        TransactionSynchronizationManager.initSynchronization();
+
+        cache.apply(List.of(new TrainingTotalsCache.Delta(1L, DAY, 1, 1.0, 60)));
+        cache.invalidate(2L);
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(cache.sum(1L, DAY, DAY.plusDays(1), this::load)).isEqualTo(new TrainingDailyTotals.Totals(2, 12.0, 3600));
+        assertThat(databaseCalls).hasValue(1);
+    }
+
+    @Test
+    void shouldNotCacheTree_whenLoadedWhileAnotherTransactionIsCommitting() throws Exception {
+        CountDownLatch committing = new CountDownLatch(1);
+        CountDownLatch loaded = new CountDownLatch(1);
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> transaction = writer.submit(() -> {
+                TransactionSynchronizationManager.initSynchronization();
+                try {
+                    cache.apply(List.of(new TrainingTotalsCache.Delta(1L, DAY, 1, 1.0, 60)));
+                    List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+                    synchronizations.forEach(synchronization -> synchronization.beforeCommit(false));
+                    committing.countDown();
+                    loaded.await();
+                    synchronizations.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+                } finally {
+                    TransactionSynchronizationManager.clearSynchronization();
+                }
+                return null;
+            });
+            committing.await();
+
+            cache.sum(1L, DAY, DAY.plusDays(1), this::load);
+            cache.sum(1L, DAY, DAY.plusDays(1), this::load);
+            assertThat(databaseCalls).hasValue(2);
+
+            loaded.countDown();
+            transaction.get(5, TimeUnit.SECONDS);
+            cache.sum(1L, DAY, DAY.plusDays(1), this::load);
+            cache.sum(1L, DAY, DAY.plusDays(1), this::load);
+            assertThat(databaseCalls).hasValue(3);
+        } finally {
+            writer.shutdownNow();
+        }
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+            synchronizations.forEach(synchronization -> synchronization.beforeCommit(false));
+        }
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private List<TrainingRollupRepository.DailyTotal> load(long userId) {
+        databaseCalls.incrementAndGet();
+        return List.copyOf(database);
+    }
+}
@@ -0,0 +1,46 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import org.junit.jupiter.api.Test;
+import pl.wsb.fitnesstracker.exception.api.BusinessException;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CsvRecordReaderTest {
+
+    @Test
+    void shouldReadQuotedFields_withSeparatorsQuotesAndLineBreaks() throws IOException {
+        List<List<String>> records = readAll("a,\"b,c\",\"say \"\"hi\"\"\"\r\n\"multi\r\nline\",,x\n");
+
+        assertThat(records).containsExactly(
+                List.of("a", "b,c", "say \"hi\""),
+                List.of("multi\r\nline", "", "x"));
+    }
+
+    @Test
+    void shouldKeepEmptyLastField_andReadLastRecordWithoutLineBreak() throws IOException {
+        assertThat(readAll("a,\r\nb,c")).containsExactly(List.of("a", ""), List.of("b", "c"));
+    }
+
+    @Test
+    void shouldReject_whenQuotedFieldIsNotClosed() {
+        assertThatThrownBy(() -> readAll("a,b\n\"open,c\n"))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("line 2");
+    }
+
+    private static List<List<String>> readAll(String csv) throws IOException {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader(csv));
+        List<List<String>> records = new ArrayList<>();
+        List<String> record;
+        while ((record = reader.next()) != null) {
+            records.add(record);
+        }
+        return records;
+    }
+}
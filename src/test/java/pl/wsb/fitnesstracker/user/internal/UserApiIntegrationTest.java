@@ -1,5 +1,6 @@
 package pl.wsb.fitnesstracker.user.internal;
 
+import com.jayway.jsonpath.JsonPath;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -17,8 +18,12 @@ import static java.time.format.DateTimeFormatter.ISO_DATE;
 import static java.util.UUID.randomUUID;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.log;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -58,6 +63,22 @@ class UserApiIntegrationTest extends IntegrationTestBase {
                 .andExpect(jsonPath("$[2]").doesNotExist());
     }
 
+    @Test
+    void shouldCapUserList_andLinkNextPage_whenMoreUsersThanLimit() throws Exception {
+        User user1 = existingUser(generateUser());
+        existingUser(generateUser());
+
+        mockMvc.perform(get("/v1/users").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(user1.getId()))
+                .andExpect(header().string("Link", startsWith("</v1/users/page?cursor=")));
+        mockMvc.perform(get("/v1/users").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(header().doesNotExist("Link"));
+    }
+
     @Test
     void shouldReturnAllSimpleUsers_whenGettingAllUsers() throws Exception {
         User user1 = existingUser(generateUser());
@@ -76,6 +97,37 @@ class UserApiIntegrationTest extends IntegrationTestBase {
                 .andExpect(jsonPath("$[2]").doesNotExist());
     }
 
+    @Test
+    void shouldWalkAllUsersPageByPage_whenFollowingNextCursor() throws Exception {
+        User user1 = existingUser(generateUser());
+        User user2 = existingUser(generateUser());
+        User user3 = existingUser(generateUser());
+
+        String firstPage = mockMvc.perform(get("/v1/users/page").param("limit", "2").contentType(MediaType.APPLICATION_JSON))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(2)))
+                .andExpect(jsonPath("$.items[0].id").value(user1.getId().intValue()))
+                .andExpect(jsonPath("$.items[1].id").value(user2.getId().intValue()))
+                .andExpect(jsonPath("$.nextCursor").isNotEmpty())
+                .andReturn().getResponse().getContentAsString();
+        String cursor = JsonPath.read(firstPage, "$.nextCursor");
+
+        mockMvc.perform(get("/v1/users/simple/page").param("limit", "2").param("cursor", cursor).contentType(MediaType.APPLICATION_JSON))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].firstName").value(user3.getFirstName()))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void shouldRejectMalformedCursor_whenGettingUsersPage() throws Exception {
+        mockMvc.perform(get("/v1/users/page").param("cursor", "not-a-cursor").contentType(MediaType.APPLICATION_JSON))
+                .andDo(log())
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void shouldReturnDetailsAboutUser_whenGettingUserById() throws Exception {
         User user1 = existingUser(generateUser());
@@ -92,15 +144,69 @@ class UserApiIntegrationTest extends IntegrationTestBase {
     }
 
     @Test
-    void shouldReturnDetailsAboutUser_whenGettingUserByEmail() throws Exception {
+    void shouldPatchOnlyGivenFields_andRejectStaleIfMatch_whenPatchingUser() throws Exception {
         User user1 = existingUser(generateUser());
 
-        mockMvc.perform(get("/v1/users/email").param("email", user1.getEmail()).contentType(MediaType.APPLICATION_JSON))
+        String etag = mockMvc.perform(get("/v1/users/{id}", user1.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(0))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(patch("/v1/users/{id}", user1.getId())
+                        .contentType("application/merge-patch+json")
+                        .header("If-Match", etag)
+                        .content("{\"lastName\": \"Patched\", \"id\": 999}"))
                 .andDo(log())
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(1)))
-                .andExpect(jsonPath("$[0].id").value(user1.getId().intValue()))
-                .andExpect(jsonPath("$[0].email").value(user1.getEmail()));
+                .andExpect(header().string("ETag", not(etag)))
+                .andExpect(jsonPath("$.id").value(user1.getId()))
+                .andExpect(jsonPath("$.version").value(1))
+                .andExpect(jsonPath("$.firstName").value(user1.getFirstName()))
+                .andExpect(jsonPath("$.lastName").value("Patched"))
+                .andExpect(jsonPath("$.email").value(user1.getEmail()));
+
+        mockMvc.perform(patch("/v1/users/{id}", user1.getId())
+                        .contentType("application/merge-patch+json")
+                        .header("If-Match", etag)
+                        .content("{\"lastName\": \"Lost update\"}"))
+                .andExpect(status().isPreconditionFailed());
+
+        mockMvc.perform(patch("/v1/users/{id}", user1.getId())
+                        .contentType("application/merge-patch+json")
+                        .content("{\"email\": null}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturnNotModified_whenSimpleUsersUnchangedSinceETag() throws Exception {
+        existingUser(generateUser());
+
+        String etag = mockMvc.perform(get("/v1/users/simple"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/v1/users/simple").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void shouldReturnUsersInRequestOrder_withNotFoundMarkers_whenGettingUsersByIds() throws Exception {
+        User user1 = existingUser(generateUser());
+        User user2 = existingUser(generateUser());
+        long missingId = user2.getId() + 1000;
+
+        mockMvc.perform(get("/v1/users").param("ids", "%s,%s,%s,%s".formatted(user2.getId(), missingId, user1.getId(), user2.getId())))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(4)))
+                .andExpect(jsonPath("$[0].id").value(user2.getId()))
+                .andExpect(jsonPath("$[0].found").value(true))
+                .andExpect(jsonPath("$[0].item.email").value(user2.getEmail()))
+                .andExpect(jsonPath("$[1].id").value(missingId))
+                .andExpect(jsonPath("$[1].found").value(false))
+                .andExpect(jsonPath("$[1].item").isEmpty())
+                .andExpect(jsonPath("$[2].item.email").value(user1.getEmail()))
+                .andExpect(jsonPath("$[3].item.email").value(user2.getEmail()));
     }
 
     @Test
@@ -120,6 +226,27 @@ class UserApiIntegrationTest extends IntegrationTestBase {
                 .andExpect(jsonPath("$[1]").doesNotExist());
     }
 
+    @Test
+    void shouldReturnRequestedPageOfUsersOlderThan_andTheirCount() throws Exception {
+        existingUser(generateUserWithDate(LocalDate.of(1980, 1, 1)));
+        User older = existingUser(generateUserWithDate(LocalDate.of(1990, 1, 1)));
+        existingUser(generateUserWithDate(LocalDate.of(2024, 8, 11)));
+
+        mockMvc.perform(get("/v1/users/older/{time}", LocalDate.of(2024, 8, 10))
+                        .param("page", "1")
+                        .param("size", "1")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(older.getId().intValue()));
+
+        mockMvc.perform(get("/v1/users/older/{time}/count", LocalDate.of(2024, 8, 10)).contentType(MediaType.APPLICATION_JSON))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").value(2));
+    }
+
     @Test
     void shouldRemoveUserFromRepository_whenDeletingClient() throws Exception {
         User user1 = existingUser(generateUser());
@@ -174,6 +301,73 @@ class UserApiIntegrationTest extends IntegrationTestBase {
 
     }
 
+    @Test
+    void shouldImportJsonUsers_andReportEmailConflictsPerRow() throws Exception {
+        User registered = existingUser(generateUser());
+
+        String importRequest = """
+                [
+                  {"firstName": "Mike", "lastName": "Scott", "birthdate": "1999-09-29", "email": "mike.scott@domain.com"},
+                  {"firstName": "Dwight", "lastName": "Schrute", "birthdate": "1978-01-20", "email": "%s"},
+                  {"firstName": "Jim", "lastName": "Halpert", "birthdate": "1980-10-01", "email": "mike.scott@domain.com"},
+                  {"firstName": "Pam", "lastName": "Beesly", "birthdate": "not-a-date", "email": "pam@domain.com"},
+                  {"firstName": "Ryan", "lastName": "Howard", "birthdate": "1985-05-05", "email": "ryan@domain.com"}
+                ]
+                """.formatted(registered.getEmail());
+
+        mockMvc.perform(post("/v1/users/import").contentType(MediaType.APPLICATION_JSON).content(importRequest))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.rejected", hasSize(3)))
+                .andExpect(jsonPath("$.rejected[?(@.row == 2)].email").value(registered.getEmail()))
+                .andExpect(jsonPath("$.rejected[?(@.row == 3)].reason").value("Email is duplicated in the import"))
+                .andExpect(jsonPath("$.rejected[?(@.row == 4)].email").value("pam@domain.com"));
+
+        assertThat(getAllUsers()).extracting(User::getEmail)
+                .containsExactlyInAnyOrder(registered.getEmail(), "mike.scott@domain.com", "ryan@domain.com");
+    }
+
+    @Test
+    void shouldImportCsvUsers() throws Exception {
+        String importRequest = """
+                email,firstName,lastName,birthdate
+                mike.scott@domain.com,Mike,Scott,1999-09-29
+                ryan@domain.com,Ryan,Howard,1985-05-05
+                """;
+
+        mockMvc.perform(post("/v1/users/import").contentType("text/csv").content(importRequest))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.rejected", hasSize(0)));
+
+        assertThat(getAllUsers()).extracting(User::getLastName).containsExactlyInAnyOrder("Scott", "Howard");
+    }
+
+    @Test
+    void shouldImportExportedCsv_andRejectRegisteredEmailsIgnoringCase() throws Exception {
+        User registered = existingUser(new User("Pam", "Beesly", LocalDate.of(1980, 3, 25), "pam@domain.com"));
+        String importRequest = """
+                id,firstName,lastName,birthdate,email\r
+                1,"Scott, Jr.",Michael,1999-09-29,mike.scott@domain.com\r
+                2,"Ryan \"\"The Temp\"\"",Howard,1985-05-05,ryan@domain.com\r
+                3,Pam,Beesly,1980-03-25,PAM@domain.com\r
+                4,Ryan,Howard,1985-05-05,Ryan@Domain.com\r
+                """;
+
+        mockMvc.perform(post("/v1/users/import").contentType("text/csv").content(importRequest))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.rejected", hasSize(2)))
+                .andExpect(jsonPath("$.rejected[?(@.row == 3)].reason").value("Email is already registered"))
+                .andExpect(jsonPath("$.rejected[?(@.row == 4)].reason").value("Email is duplicated in the import"));
+
+        assertThat(getAllUsers()).extracting(User::getFirstName)
+                .containsExactlyInAnyOrder(registered.getFirstName(), "Scott, Jr.", "Ryan \"The Temp\"");
+    }
+
     @Test
     void shouldUpdateUser_whenUpdatingUser() throws Exception {
         User user1 = existingUser(generateUser());
@@ -212,4 +406,38 @@ class UserApiIntegrationTest extends IntegrationTestBase {
     }
 
 
+
+    @Test
+    void shouldReturnTrainingTotalsForDayRange_whenGettingUserTotals() throws Exception {
+        User user1 = existingUser(generateUser());
+        String requestBody = """
+                {
+                    "userId": "%s",
+                    "startTime": "%sT10:00:00",
+                    "endTime": "%sT10:30:00",
+                    "activityType": "RUNNING",
+                    "distance": %s,
+                    "averageSpeed": 10.0
+                }
+                """;
+        for (String day : List.of("2024-03-01", "2024-03-05", "2024-04-02")) {
+            mockMvc.perform(post("/v1/trainings").contentType(MediaType.APPLICATION_JSON)
+                            .content(requestBody.formatted(user1.getId(), day, day, 5.0)))
+                    .andExpect(status().isCreated());
+        }
+
+        mockMvc.perform(get("/v1/users/{id}/totals", user1.getId()).param("from", "2024-03-01").param("to", "2024-04-01"))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.trainings").value(2))
+                .andExpect(jsonPath("$.totalDistance").value(10.0))
+                .andExpect(jsonPath("$.totalDurationSeconds").value(3600));
+        mockMvc.perform(get("/v1/users/{id}/totals", user1.getId()).param("from", "2024-03-02").param("to", "2024-12-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.trainings").value(2));
+        mockMvc.perform(get("/v1/users/{id}/totals", user1.getId()).param("from", "2024-03-02").param("to", "2024-03-02"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v1/users/{id}/totals", Long.MAX_VALUE).param("from", "2024-03-01").param("to", "2024-04-01"))
+                .andExpect(status().isNotFound());
+    }
 }
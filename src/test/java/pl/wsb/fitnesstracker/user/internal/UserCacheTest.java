@@ -0,0 +1,91 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pl.wsb.fitnesstracker.user.api.User;
+import pl.wsb.fitnesstracker.user.api.UserChangedEvent;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserCacheTest {
+
+    private final Map<Long, User> database = new HashMap<>();
+    private final AtomicInteger databaseCalls = new AtomicInteger();
+
+    private MeterRegistry meterRegistry;
+    private UserCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new UserCache(new UserCacheProperties(100, Duration.ofMinutes(5)), meterRegistry);
+        database.put(1L, user(1L, "emma@domain.com"));
+    }
+
+    @Test
+    void shouldHitDatabaseOnlyOnce_whenReadingSameUserRepeatedly() {
+        cache.getById(1L, this::findById);
+        cache.getById(1L, this::findById);
+        Optional<User> user = cache.getByEmail("EMMA@domain.com", this::findByEmail, this::findById);
+
+        assertThat(user).map(User::getId).contains(1L);
+        assertThat(databaseCalls).hasValue(2);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "users.byId").tag("result", "hit").functionCounter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldReloadUser_whenUpdateEventEvictsIt() {
+        cache.getByEmail("emma@domain.com", this::findByEmail, this::findById);
+
+        User updated = user(1L, "emma.new@domain.com");
+        database.put(1L, updated);
+        cache.onUserChanged(new UserChangedEvent(updated, UserChangedEvent.Change.UPDATED));
+
+        assertThat(cache.getById(1L, this::findById)).map(User::getEmail).contains("emma.new@domain.com");
+        assertThat(cache.getByEmail("emma@domain.com", this::findByEmail, this::findById)).isEmpty();
+    }
+
+    @Test
+    void shouldKeepCachedUser_whenReturnedCopyIsModified() {
+        cache.getById(1L, this::findById).orElseThrow().setEmail("changed@domain.com");
+
+        assertThat(cache.getById(1L, this::findById)).map(User::getEmail).contains("emma@domain.com");
+        assertThat(databaseCalls).hasValue(1);
+    }
+
+    @Test
+    void shouldNotCacheMissingUsers() {
+        cache.getById(2L, this::findById);
+        database.put(2L, user(2L, "ethan@domain.com"));
+
+        assertThat(cache.getById(2L, this::findById)).isPresent();
+    }
+
+    private Optional<User> findById(Long id) {
+        databaseCalls.incrementAndGet();
+        return Optional.ofNullable(database.get(id));
+    }
+
+    private Optional<User> findByEmail(String email) {
+        databaseCalls.incrementAndGet();
+        return database.values().stream()
+                .filter(user -> user.getEmail().equalsIgnoreCase(email))
+                .findFirst();
+    }
+
+    private static User user(Long id, String email) {
+        User user = new User("First", "Last", LocalDate.of(1990, 1, 1), email);
+        user.setId(id);
+        return user;
+    }
+}
@@ -0,0 +1,62 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import org.junit.jupiter.api.Test;
+import pl.wsb.fitnesstracker.Benchmark;
+
+import java.util.Random;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Measures fragment search latency of {@link UserEmailIndex} against the number of indexed users.
+ */
+@Benchmark
+class UserEmailIndexBenchmark {
+
+    private static final int[] USER_COUNTS = {10_000, 100_000, 300_000, 1_000_000};
+    private static final int QUERIES = 2_000;
+
+    @Test
+    void searchLatencyByUserCount() {
+        System.out.printf("%10s %12s %12s%n", "users", "avg [us]", "build [ms]");
+        for (int users : USER_COUNTS) {
+            Random random = new Random(users);
+            UserEmailIndex index = new UserEmailIndex(mock(UserRepository.class));
+
+            String[] emails = new String[users];
+            for (int i = 0; i < users; i++) {
+                emails[i] = randomEmail(random, i + 1);
+            }
+            long buildStart = System.nanoTime();
+            for (int i = 0; i < users; i++) {
+                index.put(i + 1L, emails[i]);
+            }
+            long buildMillis = (System.nanoTime() - buildStart) / 1_000_000;
+
+            String[] fragments = new String[QUERIES];
+            for (int i = 0; i < QUERIES; i++) {
+                String email = emails[random.nextInt(users)];
+                int from = random.nextInt(4);
+                fragments[i] = email.substring(from, from + 5);
+            }
+            for (String fragment : fragments) {
+                index.search(fragment, 50);
+            }
+
+            long start = System.nanoTime();
+            for (String fragment : fragments) {
+                index.search(fragment, 50);
+            }
+            double avgMicros = (System.nanoTime() - start) / 1_000.0 / QUERIES;
+            System.out.printf("%10d %12.1f %12d%n", users, avgMicros, buildMillis);
+        }
+    }
+
+    private static String randomEmail(Random random, long id) {
+        StringBuilder local = new StringBuilder();
+        for (int i = 0; i < 8; i++) {
+            local.append((char) ('a' + random.nextInt(26)));
+        }
+        return local + "." + id + "@domain.com";
+    }
+}
@@ -0,0 +1,55 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class UserEmailIndexTest {
+
+    private UserEmailIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new UserEmailIndex(mock(UserRepository.class));
+        index.put(3L, "Emma.Johnson@domain.com");
+        index.put(1L, "ethan.taylor@domain.com");
+        index.put(2L, "olivia.davis@other.org");
+    }
+
+    @Test
+    void shouldFindIdsContainingFragment_ignoringCase() {
+        assertThat(index.search("DOMAIN", 10)).containsExactly(1L, 3L);
+        assertThat(index.search("davis@", 10)).containsExactly(2L);
+    }
+
+    @Test
+    void shouldNotReturnIdsThatOnlyShareTrigrams() {
+        index.put(4L, "abcxbcd@x.pl");
+
+        assertThat(index.search("abcd", 10)).isEmpty();
+    }
+
+    @Test
+    void shouldHandleFragmentsShorterThanTrigram() {
+        assertThat(index.search("VI", 10)).containsExactly(2L);
+        assertThat(index.search("", 2)).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void shouldRespectLimit() {
+        assertThat(index.search("@", 1)).containsExactly(1L);
+        assertThat(index.search(".com", 1)).containsExactly(1L);
+    }
+
+    @Test
+    void shouldReindexChangedEmail_andForgetRemovedUsers() {
+        index.put(1L, "ethan@new-mail.io");
+        index.remove(3L);
+
+        assertThat(index.search("domain", 10)).isEmpty();
+        assertThat(index.search("new-mail", 10)).containsExactly(1L);
+        assertThat(index.size()).isEqualTo(2);
+    }
+}
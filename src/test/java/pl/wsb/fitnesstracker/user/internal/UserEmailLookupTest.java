@@ -0,0 +1,64 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class UserEmailLookupTest {
+
+    private UserEmailLookup lookup;
+
+    @BeforeEach
+    void setUp() {
+        lookup = new UserEmailLookup(mock(UserRepository.class), new SimpleMeterRegistry());
+        lookup.put(1L, "Emma.Johnson@domain.com");
+        lookup.put(2L, "ethan.taylor@domain.com");
+    }
+
+    @Test
+    void shouldFindIdByEmail_ignoringCase() {
+        assertThat(lookup.findId("emma.johnson@DOMAIN.com")).hasValue(1L);
+        assertThat(lookup.findId("ethan.taylor@domain.com")).hasValue(2L);
+        assertThat(lookup.findId("nobody@domain.com")).isEmpty();
+    }
+
+    @Test
+    void shouldForgetPreviousEmail_whenUserChangesEmail() {
+        lookup.put(1L, "emma@new-mail.io");
+
+        assertThat(lookup.findId("emma.johnson@domain.com")).isEmpty();
+        assertThat(lookup.findId("emma@new-mail.io")).hasValue(1L);
+        assertThat(lookup.size()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldForgetRemovedUser() {
+        lookup.remove(2L);
+
+        assertThat(lookup.findId("ethan.taylor@domain.com")).isEmpty();
+        assertThat(lookup.size()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepAllEntries_whenGrowingBeyondInitialCapacity() {
+        long bytesBefore = lookup.offHeapBytes();
+        for (long id = 10; id < 20_010; id++) {
+            lookup.put(id, "user" + id + "@domain.com");
+        }
+        for (long id = 10; id < 20_010; id += 2) {
+            lookup.remove(id);
+        }
+
+        assertThat(lookup.size()).isEqualTo(10_002);
+        assertThat(lookup.offHeapBytes()).isGreaterThan(bytesBefore);
+        for (long id = 11; id < 20_010; id += 2) {
+            assertThat(lookup.findId("USER" + id + "@domain.com")).hasValue(id);
+        }
+        for (long id = 10; id < 20_010; id += 2) {
+            assertThat(lookup.findId("user" + id + "@domain.com")).isEmpty();
+        }
+    }
+}
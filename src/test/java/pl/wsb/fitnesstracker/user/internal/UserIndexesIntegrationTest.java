@@ -0,0 +1,158 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.wsb.fitnesstracker.IntegrationTest;
+import pl.wsb.fitnesstracker.IntegrationTestBase;
+import pl.wsb.fitnesstracker.user.api.User;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.log;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static pl.wsb.fitnesstracker.user.internal.UserApiIntegrationTest.generateUser;
+
+/**
+ * Not transactional: the in-memory user indexes and the user cache are updated only after the writing transaction commits.
+ */
+@IntegrationTest
+@AutoConfigureMockMvc(addFilters = false)
+class UserIndexesIntegrationTest extends IntegrationTestBase {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void shouldReturnDetailsAboutUser_whenGettingUserByEmail() throws Exception {
+        User user1 = existingUser(generateUser());
+
+        mockMvc.perform(get("/v1/users/email").param("email", user1.getEmail()).contentType(MediaType.APPLICATION_JSON))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(user1.getId().intValue()))
+                .andExpect(jsonPath("$[0].email").value(user1.getEmail()));
+    }
+
+    @Test
+    void shouldReturnLimitedUsersMatchingFragment_whenSearchingByPartialEmail() throws Exception {
+        User user1 = existingUser(new User("Anna", "Nowak", LocalDate.now(), "anna.nowak@Example.com"));
+        existingUser(new User("Jan", "Kowalski", LocalDate.now(), "jan.kowalski@example.com"));
+        existingUser(new User("Piotr", "Zielinski", LocalDate.now(), "piotr@other.org"));
+
+        mockMvc.perform(get("/v1/users/email").param("email", "EXAMPLE").param("limit", "1").contentType(MediaType.APPLICATION_JSON))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(user1.getId().intValue()))
+                .andExpect(jsonPath("$[0].email").value(user1.getEmail()));
+    }
+
+    @Test
+    void shouldKeepUserSearchable_whenDeleteIsRolledBack() throws Exception {
+        User user = existingUser(new User("Anna", "Nowak", LocalDate.now(), "rolled.back@example.com"));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userRepository.deleteById(user.getId());
+            userRepository.flush();
+            status.setRollbackOnly();
+        });
+
+        mockMvc.perform(get("/v1/users/email").param("email", "rolled.back").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(user.getId().intValue()));
+
+        mockMvc.perform(post("/v1/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"firstName": "Anna", "lastName": "Nowak", "birthdate": "1990-01-01", "email": "rolled.back@example.com"}
+                                """))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturnNotModified_whenUsersUnchangedSinceETag() throws Exception {
+        User user1 = existingUser(generateUser());
+
+        String etag = mockMvc.perform(get("/v1/users/{id}", user1.getId()).contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertThat(etag).isNotBlank();
+
+        mockMvc.perform(get("/v1/users/{id}", user1.getId()).header("If-None-Match", etag))
+                .andDo(log())
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        mockMvc.perform(patch("/v1/users/{id}", user1.getId())
+                        .contentType("application/merge-patch+json")
+                        .content("{\"firstName\": \"Changed\"}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/v1/users/{id}", user1.getId()).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)))
+                .andExpect(jsonPath("$.firstName").value("Changed"))
+                .andExpect(jsonPath("$.email").value(user1.getEmail()));
+    }
+
+    @Test
+    void shouldSuggestUsersByNamePrefix() throws Exception {
+        User user1 = existingUser(new User("Quentin", "Zyxwright", LocalDate.of(1990, 1, 1), "quentin@domain.com"));
+        existingUser(new User("Quinn", "Adams", LocalDate.of(1991, 1, 1), "quinn@domain.com"));
+
+        mockMvc.perform(get("/v1/users/suggest").param("q", "zyxw"))
+                .andDo(log())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(user1.getId()))
+                .andExpect(jsonPath("$[0].email").value(user1.getEmail()));
+
+        mockMvc.perform(get("/v1/users/suggest").param("q", "qu").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+    }
+
+    @Test
+    void shouldRejectUser_whenCreatingUserWithRegisteredEmail() throws Exception {
+        User registered = existingUser(generateUser());
+
+        String creationRequest = """
+                {
+                "firstName": "Mike",
+                "lastName": "Scott",
+                "birthdate": "1999-09-29",
+                "email": "%s"
+                }
+                """.formatted(registered.getEmail().toUpperCase());
+
+        mockMvc.perform(post("/v1/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(creationRequest))
+                .andDo(log())
+                .andExpect(status().isBadRequest());
+
+        assertThat(getAllUsers()).hasSize(1);
+    }
+}
@@ -0,0 +1,93 @@
+package pl.wsb.fitnesstracker.user.internal;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pl.wsb.fitnesstracker.user.api.UserDto;
+
+import java.time.LocalDate;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserSuggestIndexTest {
+
+    private UserSuggestIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new UserSuggestIndex(mock(UserRepository.class), new SimpleMeterRegistry());
+        index.put(3L, "Emma", "Johnson", "emma.johnson@domain.com");
+        index.put(1L, "Ethan", "Taylor", "ethan.taylor@domain.com");
+        index.put(2L, "Olivia", "Davis-Jones", "olivia.davis@other.org");
+    }
+
+    @Test
+    void shouldSuggestByPrefixOfAnyField_ignoringCase() {
+        assertThat(index.suggest("E", 10)).containsExactly(3L, 1L);
+        assertThat(index.suggest("tay", 10)).containsExactly(1L);
+        assertThat(index.suggest("OLIVIA.D", 10)).containsExactly(2L);
+        assertThat(index.suggest("jones", 10)).containsExactly(2L);
+    }
+
+    @Test
+    void shouldRequireEveryWordOfQueryToMatch() {
+        assertThat(index.suggest("j", 10)).containsExactly(3L, 2L);
+        assertThat(index.suggest("j emm", 10)).containsExactly(3L);
+        assertThat(index.suggest("emma x", 10)).isEmpty();
+    }
+
+    @Test
+    void shouldNotMatchInsideWords() {
+        assertThat(index.suggest("ylor", 10)).isEmpty();
+        assertThat(index.suggest("   ", 10)).isEmpty();
+    }
+
+    @Test
+    void shouldRespectLimit() {
+        assertThat(index.suggest("e", 1)).containsExactly(3L);
+    }
+
+    @Test
+    void shouldReindexChangedUser_andPruneRemovedNodes() {
+        long nodesBefore = index.nodeCount();
+        long bytesBefore = index.estimatedBytes();
+        index.put(4L, "Zoe", "Zimmer", "zz@x.pl");
+        index.remove(4L);
+
+        assertThat(index.nodeCount()).isEqualTo(nodesBefore);
+        assertThat(index.estimatedBytes()).isEqualTo(bytesBefore);
+
+        index.put(1L, "Ethan", "Brown", "ethan.brown@domain.com");
+        index.remove(3L);
+
+        assertThat(index.suggest("taylor", 10)).isEmpty();
+        assertThat(index.suggest("bro", 10)).containsExactly(1L);
+        assertThat(index.suggest("emma", 10)).isEmpty();
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldDropStaleEntries_andReplayChangesMadeDuringRebuild() {
+        UserRepository repository = mock(UserRepository.class);
+        UserSuggestIndex rebuilt = new UserSuggestIndex(repository, new SimpleMeterRegistry());
+        rebuilt.put(9L, "Stale", "Entry", "stale@domain.com");
+        when(repository.streamAllAsDto()).thenAnswer(invocation -> Stream.of(
+                        new UserDto(1L, "Ethan", "Taylor", LocalDate.of(1990, 1, 1), "ethan.taylor@domain.com"),
+                        new UserDto(2L, "Emma", "Johnson", LocalDate.of(1990, 1, 1), "emma.johnson@domain.com"))
+                .peek(user -> {
+                    if (user.id() == 1L) {
+                        rebuilt.remove(2L);
+                    }
+                }));
+
+        rebuilt.rebuild();
+
+        assertThat(rebuilt.suggest("stale", 10)).isEmpty();
+        assertThat(rebuilt.suggest("emma", 10)).isEmpty();
+        assertThat(rebuilt.suggest("ethan", 10)).containsExactly(1L);
+        assertThat(rebuilt.size()).isEqualTo(1);
+    }
+}